@@ -291,6 +291,7 @@ CTX.INPUT['executors'] = """
  deleteexecutor.cpp
  executorfactory.cpp
  executorutil.cpp
+ hashjoinexecutor.cpp
  indexcountexecutor.cpp
  indexscanexecutor.cpp
  insertexecutor.cpp
@@ -334,6 +335,7 @@ CTX.INPUT['plannodes'] = """
  abstractscannode.cpp
  aggregatenode.cpp
  deletenode.cpp
+ hashjoinnode.cpp
  indexscannode.cpp
  indexcountnode.cpp
  tablecountnode.cpp
@@ -496,6 +498,7 @@ if whichtests in ("${eetestsuite}", "common"):
 if whichtests in ("${eetestsuite}", "execution"):
     CTX.TESTS['execution'] = """
      add_drop_table
+     CoalescedPlanFragmentsTest
      engine_test
      ExecutorVectorTest
      FragmentManagerTest
@@ -504,6 +507,7 @@ if whichtests in ("${eetestsuite}", "executors"):
     CTX.TESTS['executors'] = """
     OptimizedProjectorTest
     MergeReceiveExecutorTest
+    HashJoinExecutorTest
     """
 
 if whichtests in ("${eetestsuite}", "expressions"):
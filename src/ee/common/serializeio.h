@@ -514,6 +514,12 @@ public:
         return capacity_ - position_;
     }
 
+    /** Discard everything written after position, which must not be past the current position. */
+    void rewind(size_t position) {
+        assert(position <= position_);
+        setPosition(position);
+    }
+
     // Destructor does nothing: nothing to clean up!
     virtual ~ReferenceSerializeOutput() {}
 
@@ -153,6 +153,8 @@ class EnginePlanSet : public PlanSet { };
 
 VoltDBEngine::VoltDBEngine(Topend* topend, LogProxy* logProxy)
     : m_currentIndexInBatch(-1),
+      m_currentTxnInCoalescedBatch(-1),
+      m_startOfCoalescedTxnResult(0),
       m_currentUndoQuantum(NULL),
       m_partitionId(-1),
       m_hashinator(NULL),
@@ -451,6 +453,89 @@ int VoltDBEngine::executePlanFragments(int32_t numFragments,
     return failures;
 }
 
+/**
+ * Execute a run of single-partition transactions, each of which is a single
+ * plan fragment, e.g. consecutive calls to a default insert procedure, in
+ * one call from the top end.
+ *
+ * Each transaction gets its own undo token and is committed or rolled back
+ * here, before the next one starts, so DR sees the same transaction
+ * boundaries as it would if the transactions were executed one by one.
+ * For each transaction executed, the result buffer holds a status byte
+ * followed by either the usual batch result (dirty byte, size, dependency)
+ * or the serialized exception that failed it. The per-fragment stats buffer
+ * holds the usual per-batch stats of each transaction, back to back.
+ *
+ * @param numTransactions       The number of transactions to execute.
+ * @param planfragmentIds       The plan fragment of each transaction.
+ * @param serialInput           The parameters of each transaction's fragment, in order.
+ * @param txnIds                The transaction id of each transaction.
+ * @param spHandles             The sp handle of each transaction.
+ * @param lastCommittedSpHandle The handle of the last committed transaction before the first one.
+ * @param uniqueIds             The unique id of each transaction.
+ * @param undoTokens            The undo token of each transaction, INT64_MAX for a read-only one.
+ * @param traceOn               True to turn per-transaction tracing on.
+ * @return the number of transactions executed.
+ */
+int VoltDBEngine::executeCoalescedPlanFragments(int32_t numTransactions,
+                                                int64_t planfragmentIds[],
+                                                ReferenceSerializeInputBE &serialInput,
+                                                int64_t txnIds[],
+                                                int64_t spHandles[],
+                                                int64_t lastCommittedSpHandle,
+                                                int64_t uniqueIds[],
+                                                int64_t undoTokens[],
+                                                bool traceOn)
+{
+    // Stop once the results take up half of the result buffer, so that a
+    // transaction with a large result doesn't overflow it because of the
+    // transactions before it. The top end executes the rest in another call.
+    const size_t resultSizeLimit = static_cast<size_t>(m_firstReusedResultCapacity) / 2;
+
+    int32_t txnIndex;
+    for (txnIndex = 0; txnIndex < numTransactions; ++txnIndex) {
+        if (txnIndex > 0 && m_resultOutput.position() > resultSizeLimit) {
+            break;
+        }
+        m_currentTxnInCoalescedBatch = txnIndex;
+        // Each transaction reports its progress, and so is timed out, on its own.
+        // The top end sees the new transaction index in the first report.
+        m_executorContext->m_progressStats.TupleReportThreshold = LONG_OP_THRESHOLD;
+        size_t statusOffset = m_resultOutput.reserveBytes(sizeof(int8_t));
+        m_startOfCoalescedTxnResult = m_resultOutput.position();
+
+        int failures = executePlanFragments(1,
+                                            &planfragmentIds[txnIndex],
+                                            NULL,
+                                            serialInput,
+                                            txnIds[txnIndex],
+                                            spHandles[txnIndex],
+                                            lastCommittedSpHandle,
+                                            uniqueIds[txnIndex],
+                                            undoTokens[txnIndex],
+                                            traceOn);
+
+        bool readOnly = undoTokens[txnIndex] == INT64_MAX;
+        if (failures > 0) {
+            if (!readOnly) {
+                undoUndoToken(undoTokens[txnIndex]);
+            }
+            m_resultOutput.writeByteAt(statusOffset, ENGINE_ERRORCODE_ERROR);
+        }
+        else {
+            if (!readOnly) {
+                // also ends the transaction in the DR streams
+                releaseUndoToken(undoTokens[txnIndex]);
+                lastCommittedSpHandle = spHandles[txnIndex];
+            }
+            m_resultOutput.writeByteAt(statusOffset, ENGINE_ERRORCODE_SUCCESS);
+        }
+    }
+    m_currentTxnInCoalescedBatch = -1;
+
+    return txnIndex;
+}
+
 int VoltDBEngine::executePlanFragment(int64_t planfragmentId,
                                       int64_t inputDependencyId,
                                       bool first,
@@ -652,6 +737,12 @@ void VoltDBEngine::undoUndoToken(int64_t undoToken) {
 }
 
 void VoltDBEngine::serializeException(const SerializableEEException& e) {
+    if (m_currentTxnInCoalescedBatch >= 0) {
+        // Keep the results of the transactions that already ran in this batch
+        m_resultOutput.rewind(m_startOfCoalescedTxnResult);
+        e.serialize(&m_resultOutput);
+        return;
+    }
     resetReusedResultOutputBuffer();
     e.serialize(getExceptionOutputSerializer());
 }
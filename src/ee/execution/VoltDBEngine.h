@@ -181,7 +181,10 @@ class __attribute__((visibility("default"))) VoltDBEngine {
 
         ExecutorContext* getExecutorContext() { return m_executorContext; }
 
-        int getCurrentIndexInBatch() const { return m_currentIndexInBatch; }
+        int getCurrentIndexInBatch() const {
+            // A coalesced batch runs one fragment per transaction, so report the transaction's position
+            return m_currentTxnInCoalescedBatch >= 0 ? m_currentTxnInCoalescedBatch : m_currentIndexInBatch;
+        }
 
         // -------------------------------------------------
         // Execution Functions
@@ -201,6 +204,25 @@ class __attribute__((visibility("default"))) VoltDBEngine {
                                  int64_t undoToken,
                                  bool traceOn);
 
+        /**
+         * Execute a run of single-partition transactions that consist of one
+         * plan fragment each. Every transaction is committed (its undo token
+         * released) or rolled back before the next one starts, and its result
+         * is preceded by a status byte: its result table on success, or its
+         * serialized exception on failure. Stops early once the results fill
+         * half of the result buffer and returns the number of transactions
+         * that were executed, which is always at least one.
+         */
+        int executeCoalescedPlanFragments(int32_t numTransactions,
+                                          int64_t planfragmentIds[],
+                                          ReferenceSerializeInputBE& serialize_in,
+                                          int64_t txnIds[],
+                                          int64_t spHandles[],
+                                          int64_t lastCommittedSpHandle,
+                                          int64_t uniqueIds[],
+                                          int64_t undoTokens[],
+                                          bool traceOn);
+
         /**
          * Execute a single, top-level plan fragment.  This method is
          * used both internally to execute fragments in a batch, and
@@ -323,7 +345,9 @@ class __attribute__((visibility("default"))) VoltDBEngine {
 
         /**
          * Sets the output and exception buffer to be empty, and then
-         * serializes the exception. */
+         * serializes the exception. In a coalesced batch, only the failed
+         * transaction's output is discarded and the exception is serialized
+         * in its place, after the results of the transactions before it. */
         void serializeException(SerializableEEException const& e);
 
         /**
@@ -354,6 +378,12 @@ class __attribute__((visibility("default"))) VoltDBEngine {
 
         int64_t* getBatchDepIdsContainer() { return m_batchDepIdsContainer; }
 
+        /**
+         * Room for the txn ids, sp handles, unique ids and undo tokens of a
+         * coalesced batch, MAX_BATCH_COUNT of each, in that order.
+         */
+        int64_t* getCoalescedTxnInfoContainer() { return m_coalescedTxnInfoContainer; }
+
         /** check if this value hashes to the local partition */
         bool isLocalSite(NValue const& value) const;
 
@@ -565,6 +595,12 @@ class __attribute__((visibility("default"))) VoltDBEngine {
 
         int m_currentIndexInBatch;
 
+        /** Index of the running transaction in a coalesced batch, -1 outside of one */
+        int m_currentTxnInCoalescedBatch;
+
+        /** Where the running transaction of a coalesced batch starts writing its result */
+        size_t m_startOfCoalescedTxnResult;
+
         boost::scoped_ptr<EnginePlanSet> m_plans;
 
         voltdb::UndoLog m_undoLog;
@@ -692,6 +728,9 @@ class __attribute__((visibility("default"))) VoltDBEngine {
 
         int64_t m_batchDepIdsContainer[MAX_BATCH_COUNT];
 
+        // per-transaction ids of a coalesced batch from java
+        int64_t m_coalescedTxnInfoContainer[4 * MAX_BATCH_COUNT];
+
         // used for sending and recieving deps
         // set by the executeQuery / executeFrag type methods
         int m_currentInputDepId;
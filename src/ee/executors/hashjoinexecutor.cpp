@@ -0,0 +1,316 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2017 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+#include "hashjoinexecutor.h"
+
+#include "common/debuglog.h"
+#include "common/common.h"
+#include "common/tabletuple.h"
+#include "common/ValuePeeker.hpp"
+#include "executors/aggregateexecutor.h"
+#include "executors/executorutil.h"
+#include "execution/ExecutorVector.h"
+#include "execution/ProgressMonitorProxy.h"
+#include "expressions/abstractexpression.h"
+#include "storage/table.h"
+#include "storage/tableiterator.h"
+#include "storage/tabletuplefilter.h"
+#include "storage/TempTableLimits.h"
+#include "plannodes/hashjoinnode.h"
+#include "plannodes/limitnode.h"
+
+#include "boost/functional/hash.hpp"
+#include "boost/unordered_map.hpp"
+
+#include <algorithm>
+#include <vector>
+
+using namespace std;
+using namespace voltdb;
+
+const static int8_t UNMATCHED_TUPLE(TableTupleFilter::ACTIVE_TUPLE);
+const static int8_t MATCHED_TUPLE(TableTupleFilter::ACTIVE_TUPLE + 1);
+
+namespace {
+
+// Maps the hash of an inner tuple's key values to the tuple's address.
+// Tuples with different keys may share a hash value, so every hit is
+// re-checked with the join predicate.
+typedef boost::unordered_multimap<size_t, char*> InnerTupleHashTable;
+
+// Approximate heap footprint of one hash table entry: the node holding the
+// key/value pair, its link and its cached hash.
+const int HASH_TABLE_ENTRY_BYTES =
+    static_cast<int>(sizeof(InnerTupleHashTable::value_type) + 2 * sizeof(void*));
+
+// Heap footprint of one hash table bucket, which is a single pointer.
+const int HASH_TABLE_BUCKET_BYTES = static_cast<int>(sizeof(void*));
+
+/**
+ * Hash the key values that the expressions produce for the given tuples.
+ * Returns false if any key value is NULL: such a tuple can't satisfy an
+ * equality join term, so it never needs to be added to or probed in the table.
+ */
+bool hashJoinKeys(const vector<AbstractExpression*>& keyExpressions,
+                  const TableTuple* outerTuple, const TableTuple* innerTuple,
+                  size_t& hash)
+{
+    hash = 0;
+    for (size_t ii = 0; ii < keyExpressions.size(); ++ii) {
+        NValue value = keyExpressions[ii]->eval(outerTuple, innerTuple);
+        if (value.isNull()) {
+            return false;
+        }
+        // Integers of different widths that compare equal must hash equally.
+        if (isIntegralType(ValuePeeker::peekValueType(value))) {
+            boost::hash_combine(hash, ValuePeeker::peekAsBigInt(value));
+        }
+        else {
+            value.hashCombine(hash);
+        }
+    }
+    return true;
+}
+
+/**
+ * Charges hash table memory against the temp table limits as entries are
+ * added, and gives all of it back when the hash table goes out of scope,
+ * including when the limit is exceeded and the fragment is aborted.
+ */
+class HashTableMemoryCharge {
+public:
+    HashTableMemoryCharge(TempTableLimits* limits) : m_limits(limits), m_chargedBytes(0) { }
+
+    ~HashTableMemoryCharge()
+    {
+        if (m_limits == NULL) {
+            return;
+        }
+        // The limits count in int-sized steps; a table with no memory limit can outgrow that.
+        while (m_chargedBytes > 0) {
+            int bytes = static_cast<int>(std::min<int64_t>(m_chargedBytes, INT32_MAX));
+            m_limits->reduceAllocated(bytes);
+            m_chargedBytes -= bytes;
+        }
+    }
+
+    void charge(int64_t bytes)
+    {
+        if (m_limits == NULL) {
+            return;
+        }
+        while (bytes > 0) {
+            int step = static_cast<int>(std::min<int64_t>(bytes, INT32_MAX));
+            // Count the bytes first so that they are released even if this throws.
+            m_chargedBytes += step;
+            bytes -= step;
+            m_limits->increaseAllocated(step);
+        }
+    }
+
+private:
+    TempTableLimits* m_limits;
+    int64_t m_chargedBytes;
+};
+
+} // namespace
+
+bool HashJoinExecutor::p_init(AbstractPlanNode* abstractNode,
+                              const ExecutorVector& executorVector)
+{
+    VOLT_TRACE("init HashJoin Executor");
+
+    HashJoinPlanNode* node = dynamic_cast<HashJoinPlanNode*>(m_abstractNode);
+    assert(node);
+
+    // Init parent first
+    if (!AbstractJoinExecutor::p_init(abstractNode, executorVector)) {
+        return false;
+    }
+
+    // NULL tuples for left and full joins
+    p_init_null_tuples(node->getInputTable(), node->getInputTable(1));
+
+    m_limits = executorVector.limits();
+
+    return true;
+}
+
+bool HashJoinExecutor::p_execute(const NValueArray &params) {
+    VOLT_DEBUG("executing HashJoin...");
+
+    HashJoinPlanNode* node = dynamic_cast<HashJoinPlanNode*>(m_abstractNode);
+    assert(node);
+    assert(node->getInputTableCount() == 2);
+
+    // output table must be a temp table
+    assert(m_tmpOutputTable);
+
+    Table* outer_table = node->getInputTable();
+    assert(outer_table);
+
+    Table* inner_table = node->getInputTable(1);
+    assert(inner_table);
+
+    VOLT_TRACE ("input table left:\n %s", outer_table->debug().c_str());
+    VOLT_TRACE ("input table right:\n %s", inner_table->debug().c_str());
+
+    AbstractExpression *preJoinPredicate = node->getPreJoinPredicate();
+    AbstractExpression *joinPredicate = node->getJoinPredicate();
+    AbstractExpression *wherePredicate = node->getWherePredicate();
+    const vector<AbstractExpression*>& outerHashExpressions = node->getOuterHashExpressions();
+    const vector<AbstractExpression*>& innerHashExpressions = node->getInnerHashExpressions();
+
+    // The table filter to keep track of inner tuples that don't match any of outer tuples for FULL joins
+    TableTupleFilter innerTableFilter;
+    if (m_joinType == JOIN_TYPE_FULL) {
+        // Prepopulate the view with all inner tuples
+        innerTableFilter.init(inner_table);
+    }
+
+    LimitPlanNode* limit_node = dynamic_cast<LimitPlanNode*>(node->getInlinePlanNode(PLAN_NODE_TYPE_LIMIT));
+    int limit = CountingPostfilter::NO_LIMIT;
+    int offset = CountingPostfilter::NO_OFFSET;
+    if (limit_node) {
+        limit_node->getLimitAndOffsetByReference(params, limit, offset);
+    }
+
+    int outer_cols = outer_table->columnCount();
+    int inner_cols = inner_table->columnCount();
+    TableTuple outer_tuple(node->getInputTable(0)->schema());
+    TableTuple inner_tuple(node->getInputTable(1)->schema());
+    const TableTuple& null_inner_tuple = m_null_inner_tuple.tuple();
+
+    ProgressMonitorProxy pmp(m_engine->getExecutorContext(), this);
+
+    //
+    // Build phase: hash every inner tuple with a non-NULL key.
+    // The charge is declared first so that it outlives the hash table.
+    //
+    HashTableMemoryCharge memoryCharge(m_limits);
+    InnerTupleHashTable hashTable;
+    // Charge the buckets before allocating them, so that an inner table
+    // too large for the limits fails before it takes up any memory.
+    int64_t innerTupleCount = inner_table->activeTupleCount();
+    memoryCharge.charge(innerTupleCount * HASH_TABLE_BUCKET_BYTES);
+    hashTable.rehash(static_cast<size_t>(innerTupleCount));
+    size_t hash;
+    TableIterator iterator1 = inner_table->iterator();
+    while (iterator1.next(inner_tuple)) {
+        pmp.countdownProgress();
+        if (hashJoinKeys(innerHashExpressions, NULL, &inner_tuple, hash)) {
+            memoryCharge.charge(HASH_TABLE_ENTRY_BYTES);
+            hashTable.insert(InnerTupleHashTable::value_type(hash, inner_tuple.address()));
+        }
+    }
+
+    //
+    // Probe phase
+    //
+    TableIterator iterator0 = outer_table->iteratorDeletingAsWeGo();
+    // Init the postfilter
+    CountingPostfilter postfilter(m_tmpOutputTable, wherePredicate, limit, offset);
+
+    TableTuple join_tuple;
+    if (m_aggExec != NULL) {
+        VOLT_TRACE("Init inline aggregate...");
+        const TupleSchema * aggInputSchema = node->getTupleSchemaPreAgg();
+        join_tuple = m_aggExec->p_execute_init(params, &pmp, aggInputSchema, m_tmpOutputTable, &postfilter);
+    } else {
+        join_tuple = m_tmpOutputTable->tempTuple();
+    }
+
+    while (postfilter.isUnderLimit() && iterator0.next(outer_tuple)) {
+        pmp.countdownProgress();
+
+        join_tuple.setNValues(0, outer_tuple, 0, outer_cols);
+
+        // did this loop body find at least one match for this tuple?
+        bool outerMatch = false;
+        // For outer joins if outer tuple fails pre-join predicate
+        // (join expression based on the outer table only)
+        // it can't match any of inner tuples
+        if ((preJoinPredicate == NULL || preJoinPredicate->eval(&outer_tuple, NULL).isTrue()) &&
+                hashJoinKeys(outerHashExpressions, &outer_tuple, NULL, hash)) {
+            std::pair<InnerTupleHashTable::const_iterator, InnerTupleHashTable::const_iterator> candidates =
+                hashTable.equal_range(hash);
+            for (InnerTupleHashTable::const_iterator it = candidates.first;
+                    it != candidates.second && postfilter.isUnderLimit(); ++it) {
+                pmp.countdownProgress();
+                inner_tuple.move(it->second);
+                // The join predicate includes the equality terms that the keys
+                // came from, so it also weeds out hash collisions.
+                if (joinPredicate == NULL || joinPredicate->eval(&outer_tuple, &inner_tuple).isTrue()) {
+                    outerMatch = true;
+                    // The inner tuple passed the join predicate
+                    if (m_joinType == JOIN_TYPE_FULL) {
+                        // Mark it as matched
+                        innerTableFilter.updateTuple(inner_tuple, MATCHED_TUPLE);
+                    }
+                    // Filter the joined tuple
+                    if (postfilter.eval(&outer_tuple, &inner_tuple)) {
+                        // Matched! Complete the joined tuple with the inner column values.
+                        join_tuple.setNValues(outer_cols, inner_tuple, 0, inner_cols);
+                        outputTuple(postfilter, join_tuple, pmp);
+                    }
+                }
+            }
+        }
+
+        //
+        // Left Outer Join
+        //
+        if (m_joinType != JOIN_TYPE_INNER && !outerMatch && postfilter.isUnderLimit()) {
+            // Still needs to pass the filter
+            if (postfilter.eval(&outer_tuple, &null_inner_tuple)) {
+                // Matched! Complete the joined tuple with the inner column values.
+                join_tuple.setNValues(outer_cols, null_inner_tuple, 0, inner_cols);
+                outputTuple(postfilter, join_tuple, pmp);
+            }
+        }
+    }
+
+    //
+    // FULL Outer Join. Iterate over the unmatched inner tuples,
+    // including those that were left out of the hash table for a NULL key.
+    //
+    if (m_joinType == JOIN_TYPE_FULL && postfilter.isUnderLimit()) {
+        // Preset outer columns to null
+        const TableTuple& null_outer_tuple = m_null_outer_tuple.tuple();
+        join_tuple.setNValues(0, null_outer_tuple, 0, outer_cols);
+
+        TableTupleFilter_iter<UNMATCHED_TUPLE> endItr = innerTableFilter.end<UNMATCHED_TUPLE>();
+        for (TableTupleFilter_iter<UNMATCHED_TUPLE> itr = innerTableFilter.begin<UNMATCHED_TUPLE>();
+                itr != endItr && postfilter.isUnderLimit(); ++itr) {
+            // Restore the tuple value
+            uint64_t tupleAddr = innerTableFilter.getTupleAddress(*itr);
+            inner_tuple.move((char *)tupleAddr);
+            // Still needs to pass the filter
+            assert(inner_tuple.isActive());
+            if (postfilter.eval(&null_outer_tuple, &inner_tuple)) {
+                // Passed! Complete the joined tuple with the inner column values.
+                join_tuple.setNValues(outer_cols, inner_tuple, 0, inner_cols);
+                outputTuple(postfilter, join_tuple, pmp);
+            }
+        }
+    }
+
+    if (m_aggExec != NULL) {
+        m_aggExec->p_execute_finish();
+    }
+
+    return (true);
+}
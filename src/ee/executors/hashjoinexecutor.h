@@ -0,0 +1,50 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2017 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+#ifndef HSTOREHASHJOINEXECUTOR_H
+#define HSTOREHASHJOINEXECUTOR_H
+
+#include "common/common.h"
+#include "executors/abstractjoinexecutor.h"
+
+namespace voltdb {
+
+class TempTableLimits;
+
+/**
+ * Executes an equi-join by building a hash table over the inner input's
+ * rows and probing it with each outer row. Every candidate that hashes to
+ * the outer row's key is still checked against the full join predicate,
+ * so hash collisions never produce wrong results.
+ *
+ * The memory used by the hash table is charged to the fragment's temp
+ * table limits for as long as the table exists.
+ */
+class HashJoinExecutor : public AbstractJoinExecutor {
+    public:
+        HashJoinExecutor(VoltDBEngine *engine, AbstractPlanNode* abstract_node) :
+            AbstractJoinExecutor(engine, abstract_node), m_limits(NULL) { }
+    private:
+
+        bool p_init(AbstractPlanNode*, const ExecutorVector& executorVector);
+        bool p_execute(const NValueArray &params);
+
+        TempTableLimits* m_limits;
+};
+
+}
+
+#endif
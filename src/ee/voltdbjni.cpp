@@ -630,6 +630,67 @@ SHAREDLIB_JNIEXPORT jint JNICALL Java_org_voltdb_jni_ExecutionEngine_nativeExecu
     return org_voltdb_jni_ExecutionEngine_ERRORCODE_ERROR;
 }
 
+/**
+ * Executes a run of single-partition transactions of one plan fragment each.
+ * Their parameters are in the shared parameter buffer, in order.
+ * @param engine_ptr the VoltDBEngine pointer
+ * @param num_transactions number of transactions to execute
+ * @param plan_fragment_ids the plan fragment of each transaction
+ * @param txn_ids, sp_handles, unique_ids, undo_tokens the ids of each transaction
+ * @return the number of transactions executed, or -1 on a fatal error
+ */
+SHAREDLIB_JNIEXPORT jint JNICALL Java_org_voltdb_jni_ExecutionEngine_nativeExecuteCoalescedPlanFragments
+(JNIEnv *env,
+        jobject obj,
+        jlong engine_ptr,
+        jint num_transactions,
+        jlongArray plan_fragment_ids,
+        jlongArray txn_ids,
+        jlongArray sp_handles,
+        jlong lastCommittedSpHandle,
+        jlongArray unique_ids,
+        jlongArray undo_tokens,
+        jboolean traceOn)
+{
+    VoltDBEngine *engine = castToEngine(engine_ptr);
+    assert(engine);
+    Topend *topend = static_cast<JNITopend*>(engine->getTopend())->updateJNIEnv(env);
+    try {
+        updateJNILogProxy(engine); //JNIEnv pointer can change between calls, must be updated
+        engine->resetPerFragmentStatsOutputBuffer();
+        engine->resetReusedResultOutputBuffer(0, 0);
+
+        assert (num_transactions <= MAX_BATCH_COUNT);
+        jlong* fragmentIdsBuffer = engine->getBatchFragmentIdsContainer();
+        env->GetLongArrayRegion(plan_fragment_ids, 0, num_transactions, fragmentIdsBuffer);
+        jlong* txnIdsBuffer = engine->getCoalescedTxnInfoContainer();
+        jlong* spHandlesBuffer = txnIdsBuffer + MAX_BATCH_COUNT;
+        jlong* uniqueIdsBuffer = spHandlesBuffer + MAX_BATCH_COUNT;
+        jlong* undoTokensBuffer = uniqueIdsBuffer + MAX_BATCH_COUNT;
+        env->GetLongArrayRegion(txn_ids, 0, num_transactions, txnIdsBuffer);
+        env->GetLongArrayRegion(sp_handles, 0, num_transactions, spHandlesBuffer);
+        env->GetLongArrayRegion(unique_ids, 0, num_transactions, uniqueIdsBuffer);
+        env->GetLongArrayRegion(undo_tokens, 0, num_transactions, undoTokensBuffer);
+
+        // all transactions' parameters are in this buffer
+        ReferenceSerializeInputBE serialize_in(engine->getParameterBuffer(), engine->getParameterBufferCapacity());
+
+        return engine->executeCoalescedPlanFragments(num_transactions,
+                                                     fragmentIdsBuffer,
+                                                     serialize_in,
+                                                     txnIdsBuffer,
+                                                     spHandlesBuffer,
+                                                     lastCommittedSpHandle,
+                                                     uniqueIdsBuffer,
+                                                     undoTokensBuffer,
+                                                     traceOn == JNI_TRUE);
+    }
+    catch (const FatalException &e) {
+        topend->crashVoltDB(e);
+    }
+    return -1;
+}
+
 /**
  * Serialize the result temporary table.
  * @param engine_ptr the VoltDBEngine pointer
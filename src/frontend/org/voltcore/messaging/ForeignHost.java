@@ -71,8 +71,16 @@ public class ForeignHost {
     // great way to trigger a heartbeat timout / simulate a network partition
     private AtomicBoolean m_linkCutForTest = new AtomicBoolean(false);
 
+    // Set once the foreign host is known to uncompress messages, used by the network thread
+    private volatile MessageCompression m_compression = null;
+
+    // Whether this connection is reserved for bulk messages, see VoltMessage.isBulk()
+    private final boolean m_bulk;
+
     public static final int POISON_PILL = -1;
     public static final int STOPNODE_NOTICE = -2;
+    // Followed by the destinations and the message compressed, see MessageCompression
+    public static final int COMPRESSED_MESSAGE = -3;
 
     public static final int CRASH_ALL = 0;
     public static final int CRASH_ME = 1;
@@ -149,6 +157,15 @@ public class ForeignHost {
             InetSocketAddress listeningAddress, PicoNetwork network)
     throws IOException
     {
+        this(host, hostId, socket, deadHostTimeout, listeningAddress, network, false);
+    }
+
+    /** Create a ForeignHost, that only sends bulk messages if bulk is true, and install in VoltNetwork */
+    ForeignHost(HostMessenger host, int hostId, SocketChannel socket, int deadHostTimeout,
+            InetSocketAddress listeningAddress, PicoNetwork network, boolean bulk)
+    throws IOException
+    {
+        m_bulk = bulk;
         m_hostMessenger = host;
         m_handler = new FHInputHandler();
         m_hostId = hostId;
@@ -231,15 +248,32 @@ public class ForeignHost {
         if (!m_linkCutForTest.get()) {
             m_network.enqueue(
                     new DeferredSerialization() {
+                        // The message compressed, or serialized if it didn't compress well,
+                        // when getSerializedSize() decided to compress it
+                        private byte[] m_compressedMessage = null;
+                        private ByteBuffer m_uncompressedMessage = null;
+
                         @Override
                         public final void serialize(final ByteBuffer buf) throws IOException {
                             buf.putInt(buf.capacity() - 4);
                             buf.putLong(message.m_sourceHSId);
+                            if (m_compressedMessage != null) {
+                                buf.putInt(COMPRESSED_MESSAGE);
+                            }
                             buf.putInt(destinations.length);
                             for (int ii = 0; ii < destinations.length; ii++) {
                                 buf.putLong(destinations[ii]);
                             }
-                            message.flattenToBuffer(buf);
+                            if (m_compressedMessage != null) {
+                                buf.putInt(m_uncompressedMessage.remaining());
+                                buf.put(m_compressedMessage);
+                            }
+                            else if (m_uncompressedMessage != null) {
+                                buf.put(m_uncompressedMessage);
+                            }
+                            else {
+                                message.flattenToBuffer(buf);
+                            }
                             buf.flip();
                         }
 
@@ -256,12 +290,25 @@ public class ForeignHost {
                         }
 
                         @Override
-                        public int getSerializedSize() {
+                        public int getSerializedSize() throws IOException {
+                            int messageSize = message.getSerializedSize();
+                            final MessageCompression compression = m_compression;
+                            if (compression != null && compression.shouldCompress(messageSize)) {
+                                m_uncompressedMessage = ByteBuffer.allocate(messageSize);
+                                message.flattenToBuffer(m_uncompressedMessage);
+                                m_uncompressedMessage.flip();
+                                m_compressedMessage = compression.compress(m_uncompressedMessage);
+                                if (m_compressedMessage != null) {
+                                    messageSize = 4 /* compression marker */
+                                            + 4 /* uncompressed length */
+                                            + m_compressedMessage.length;
+                                }
+                            }
                             final int len = 4            /* length prefix */
                                     + 8            /* source hsid */
                                     + 4            /* destinationCount */
                                     + 8 * destinations.length  /* destination list */
-                                    + message.getSerializedSize();
+                                    + messageSize;
                             return len;
                         }
                     });
@@ -354,7 +401,11 @@ public class ForeignHost {
         long recvDests[] = null;
 
         final long sourceHSId = in.getLong();
-        final int destCount = in.getInt();
+        int destCount = in.getInt();
+        final boolean compressed = destCount == COMPRESSED_MESSAGE;
+        if (compressed) {
+            destCount = in.getInt();
+        }
         if (destCount == POISON_PILL) {//This is a poison pill
             //Ignore poison pill during shutdown, in tests we receive crash messages from
             //leader appointer during shutdown
@@ -392,6 +443,10 @@ public class ForeignHost {
             recvDests[i] = in.getLong();
         }
 
+        if (compressed) {
+            final int size = in.getInt();
+            in = MessageCompression.uncompress(in, size);
+        }
         final VoltMessage message =
             m_hostMessenger.getMessageFactory().createMessageFromBuffer(in, sourceHSId);
 
@@ -454,6 +509,20 @@ public class ForeignHost {
         return m_network.enqueueAndDrain(message);
     }
 
+    /**
+     * Compress the large messages sent to the foreign host from now on, which it
+     * must have said it can uncompress when it connected.
+     */
+    void enableCompression() {
+        if (m_compression == null) {
+            m_compression = new MessageCompression();
+        }
+    }
+
+    MessageCompression getCompression() {
+        return m_compression;
+    }
+
     public void updateDeadHostTimeout(int timeout) {
         m_deadHostTimeout = timeout;
         setLogRate(timeout);
@@ -471,4 +540,8 @@ public class ForeignHost {
         // Secondary foreign host never time out
         return m_deadHostTimeout != Integer.MAX_VALUE;
     }
+
+    public boolean isBulk() {
+        return m_bulk;
+    }
 }
@@ -347,6 +347,7 @@ public class HostMessenger implements SocketJoiner.JoinHandler, InterfaceToMesse
     private AgreementSite m_agreementSite;
     private ZooKeeper m_zk;
     private int m_secondaryConnections;
+    private int m_bulkConnections;
     /* Peers within the same partition group */
     private Set<Integer> m_peers;
     private final AtomicInteger m_nextSiteId = new AtomicInteger(0);
@@ -359,6 +360,7 @@ public class HostMessenger implements SocketJoiner.JoinHandler, InterfaceToMesse
     private final JoinAcceptor m_acceptor;
 
     private static final String SECONDARY_PICONETWORK_THREADS = "secondaryPicoNetworkThreads";
+    private static final String BULK_PICONETWORK_THREADS = "bulkPicoNetworkThreads";
 
     public Mailbox getMailbox(long hsId) {
         return m_siteMailboxes.get(hsId);
@@ -746,6 +748,7 @@ public class HostMessenger implements SocketJoiner.JoinHandler, InterfaceToMesse
         try {
             fhost = new ForeignHost(this, hostId, socket, m_config.deadHostTimeout,
                     listeningAddress, new PicoNetwork(socket, false));
+            enableCompression(hostId, fhost, jo);
             putForeignHost(hostId, fhost);
             fhost.enableRead(VERBOTEN_THREADS);
         } catch (java.io.IOException e) {
@@ -766,10 +769,30 @@ public class HostMessenger implements SocketJoiner.JoinHandler, InterfaceToMesse
         }
     }
 
+    /*
+     * Compress the large messages sent to a host if this node is configured to and
+     * the host said it can uncompress them when it connected
+     */
+    private void enableCompression(int hostId, ForeignHost fh, JSONObject jo) {
+        if (MessageCompression.ENABLED && jo != null && jo.optBoolean(SocketJoiner.MESSAGE_COMPRESSION, false)) {
+            networkLog.info("Compressing messages larger than " + MessageCompression.THRESHOLD +
+                    " bytes sent to host " + hostId);
+            fh.enableCompression();
+        }
+    }
+
     /*
      * Convenience method for doing the verbose COW insert into the map
      */
     private void putForeignHost(int hostId, ForeignHost fh) {
+        // Auxiliary connections compress the messages if the primary connection does
+        if (!fh.isPrimary()) {
+            for (ForeignHost primary : m_foreignHosts.get(hostId)) {
+                if (primary.isPrimary() && primary.getCompression() != null) {
+                    fh.enableCompression();
+                }
+            }
+        }
         synchronized (m_mapLock) {
             m_foreignHosts = ImmutableMultimap.<Integer, ForeignHost>builder()
                     .putAll(m_foreignHosts)
@@ -868,6 +891,7 @@ public class HostMessenger implements SocketJoiner.JoinHandler, InterfaceToMesse
                  */
                 fhost = new ForeignHost(this, hostId, socket, m_config.deadHostTimeout,
                         listeningAddress, new PicoNetwork(socket, false));
+                enableCompression(hostId, fhost, jo);
                 putForeignHost(hostId, fhost);
                 fhost.enableRead(VERBOTEN_THREADS);
 
@@ -1002,6 +1026,7 @@ public class HostMessenger implements SocketJoiner.JoinHandler, InterfaceToMesse
             try {
                 fhost = new ForeignHost(this, hosts[ii], sockets[ii], m_config.deadHostTimeout,
                         listeningAddresses[ii], new PicoNetwork(sockets[ii], false));
+                enableCompression(hosts[ii], fhost, jos.get(ii));
                 putForeignHost(hosts[ii], fhost);
             } catch (java.io.IOException e) {
                 org.voltdb.VoltDB.crashLocalVoltDB("Failed to instantiate foreign host", true, e);
@@ -1074,18 +1099,20 @@ public class HostMessenger implements SocketJoiner.JoinHandler, InterfaceToMesse
     public void notifyOfConnection(
             int hostId,
             SocketChannel socket,
-            InetSocketAddress listeningAddress) throws Exception
+            InetSocketAddress listeningAddress,
+            boolean bulk) throws Exception
     {
-        networkLog.info("Host " + getHostId() + " receives a new connection from host " + hostId);
+        networkLog.info("Host " + getHostId() + " receives a new " + (bulk ? "bulk " : "") +
+                "connection from host " + hostId);
         prepSocketChannel(socket);
         // Auxiliary connection never time out
         ForeignHost fhost = new ForeignHost(this, hostId, socket, Integer.MAX_VALUE,
-                listeningAddress, new PicoNetwork(socket, true));
+                listeningAddress, new PicoNetwork(socket, true), bulk);
         putForeignHost(hostId, fhost);
         fhost.enableRead(VERBOTEN_THREADS);
         // Do all peers have enough secondary connections?
         for (int hId : m_peers) {
-            if (m_foreignHosts.get(hId).size() != (m_secondaryConnections + 1)) {
+            if (m_foreignHosts.get(hId).size() != (m_secondaryConnections + m_bulkConnections + 1)) {
                 return;
             }
         }
@@ -1287,6 +1314,10 @@ public class HostMessenger implements SocketJoiner.JoinHandler, InterfaceToMesse
         if (fhosts.size() == 1 || CoreUtils.getSiteIdFromHSId(hsId) < 0 ) {
             // Always use primary connection to send to well-known mailboxes
             fhost = getPrimary(fhosts, hostId);
+        } else if (message.isBulk() && m_hasAllSecondaryConnectionCreated && m_bulkConnections > 0) {
+            // Keep bulk messages off the connections transactions use, all the ones to a mailbox
+            // on the same connection so they stay in order
+            fhost = getBulk(fhosts, hostId, CoreUtils.getSiteIdFromHSId(hsId));
         } else {
             /**
              * Because the secondary connections are created late in the initialization, after cluster mesh network has
@@ -1298,8 +1329,14 @@ public class HostMessenger implements SocketJoiner.JoinHandler, InterfaceToMesse
                 // assign a foreign host for regular mailbox
                 fhost = m_fhMapping.get(hsId);
                 if (fhost == null) {
-                    int index = Math.abs(m_nextForeignHost.getAndIncrement() % fhosts.size());
-                    fhost = (ForeignHost) fhosts.toArray()[index];
+                    List<ForeignHost> transactional = new ArrayList<>(fhosts.size());
+                    for (ForeignHost f : fhosts) {
+                        if (!f.isBulk()) {
+                            transactional.add(f);
+                        }
+                    }
+                    int index = Math.abs(m_nextForeignHost.getAndIncrement() % transactional.size());
+                    fhost = transactional.get(index);
                     if (hostLog.isDebugEnabled()) {
                         hostLog.debug("bind " + CoreUtils.getHostIdFromHSId(hsId) + ":" + CoreUtils.getSiteIdFromHSId(hsId) +
                                 " to " + fhost.hostnameAndIPAndPort());
@@ -1351,6 +1388,23 @@ public class HostMessenger implements SocketJoiner.JoinHandler, InterfaceToMesse
         }
     }
 
+    private ForeignHost getBulk(ImmutableCollection<ForeignHost> fhosts, int hostId, int siteId) {
+        ForeignHost fhost = null;
+        int index = siteId % m_bulkConnections;
+        for (ForeignHost f : fhosts) {
+            if (f.isBulk()) {
+                fhost = f;
+                if (index-- == 0) {
+                    break;
+                }
+            }
+        }
+        if (fhost == null) { // unlikely
+            fhost = getPrimary(fhosts, hostId);
+        }
+        return fhost;
+    }
+
     private ForeignHost getPrimary(ImmutableCollection<ForeignHost> fhosts, int hostId) {
         ForeignHost fhost = null;
         for (ForeignHost f : fhosts) {
@@ -1760,8 +1814,17 @@ public class HostMessenger implements SocketJoiner.JoinHandler, InterfaceToMesse
         m_peers = partitionGroupPeers;
         if (m_peers.isEmpty()) { /* when K-factor = 0 */
             m_secondaryConnections = 0;
+            m_bulkConnections = 0;
         } else {
-            m_secondaryConnections = computeSecondaryConnections(hostCount);
+            if (hostCount / (m_peers.size() + 1) > 1) {
+                m_secondaryConnections = computeSecondaryConnections(hostCount);
+            } else { /* a single partition group */
+                m_secondaryConnections = 0;
+            }
+            // Rejoining sites stream their data from the peers
+            m_bulkConnections = Integer.getInteger(BULK_PICONETWORK_THREADS, 1);
+            hostLog.info("This node has " + m_bulkConnections + " bulk PicoNetwork thread" +
+                    ((m_bulkConnections > 1) ? "s" :"") + " per peer");
         }
     }
 
@@ -1822,12 +1885,13 @@ public class HostMessenger implements SocketJoiner.JoinHandler, InterfaceToMesse
             Iterator<ForeignHost> it = m_foreignHosts.get(hostId).iterator();
             if (it.hasNext()) {
                 InetSocketAddress listeningAddress = it.next().m_listeningAddress;
-                for (int ii = 0; ii < m_secondaryConnections; ii++) {
+                for (int ii = 0; ii < m_secondaryConnections + m_bulkConnections; ii++) {
+                    final boolean bulk = ii >= m_secondaryConnections;
                     try {
-                        SocketChannel socket = m_joiner.requestForConnection(listeningAddress);
+                        SocketChannel socket = m_joiner.requestForConnection(listeningAddress, bulk);
                         // Auxiliary connection never time out
                         ForeignHost fhost = new ForeignHost(this, hostId, socket, Integer.MAX_VALUE,
-                                listeningAddress, new PicoNetwork(socket, true));
+                                listeningAddress, new PicoNetwork(socket, true), bulk);
                         putForeignHost(hostId, fhost);
                         fhost.enableRead(VERBOTEN_THREADS);
                     } catch (IOException | JSONException e) {
@@ -1840,7 +1904,7 @@ public class HostMessenger implements SocketJoiner.JoinHandler, InterfaceToMesse
         }
         // Do all peers have enough secondary connections?
         for (int hostId : m_peers) {
-            if (m_foreignHosts.get(hostId).size() != (m_secondaryConnections + 1)) {
+            if (m_foreignHosts.get(hostId).size() != (m_secondaryConnections + m_bulkConnections + 1)) {
                 return;
             }
         }
@@ -0,0 +1,156 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2017 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltcore.messaging;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.xerial.snappy.Snappy;
+
+/**
+ * Compresses the large messages a ForeignHost sends, with Snappy, for as long as they
+ * compress well. When a message doesn't shrink by at least a fifth it is sent as it is,
+ * and so are the next large messages, until compression is tried again. The number of
+ * messages skipped doubles every time compression fails, up to a limit, and goes back
+ * to none as soon as it succeeds, so a link that carries incompressible data spends
+ * little time on it while one that carries tables compresses nearly all of them.
+ *
+ * Messages are only compressed on links to hosts that advertised they can uncompress
+ * them when they connected, and only if the MESSAGE_COMPRESSION property is set.
+ *
+ * An instance belongs to one link and is only used by its network thread.
+ */
+class MessageCompression {
+
+    static final boolean ENABLED = Boolean.getBoolean("MESSAGE_COMPRESSION");
+    // Smaller messages are not worth the time it takes to compress them
+    static final int THRESHOLD = Integer.getInteger("MESSAGE_COMPRESSION_THRESHOLD", 64 * 1024);
+    // Compressed messages larger than this fraction of their size are sent uncompressed
+    static final double MAX_RATIO = 0.8;
+    // The most large messages sent uncompressed after compression failed, before trying again
+    static final int MAX_SKIPPED = 1024;
+
+    private final int m_threshold;
+    private int m_skipped = 0;
+    private int m_toSkip = 0;
+    private int m_backoff = 0;
+
+    private long m_bytesCompressed = 0;
+    private long m_compressedBytes = 0;
+
+    MessageCompression() {
+        this(THRESHOLD);
+    }
+
+    MessageCompression(int threshold) {
+        m_threshold = threshold;
+    }
+
+    /**
+     * @return whether a message of the given size should be compressed.
+     */
+    boolean shouldCompress(int size) {
+        if (size < m_threshold) {
+            return false;
+        }
+        if (m_skipped < m_toSkip) {
+            m_skipped++;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Compress a serialized message.
+     * @param message the message, from its position to its limit, which is left unchanged
+     * @return the compressed message, or null if it didn't compress well enough to send it compressed
+     */
+    byte[] compress(ByteBuffer message) throws IOException {
+        assert(message.hasArray());
+        final int size = message.remaining();
+        byte[] compressed = new byte[Snappy.maxCompressedLength(size)];
+        final int compressedSize = Snappy.rawCompress(
+                message.array(), message.arrayOffset() + message.position(), size, compressed, 0);
+        if (!compressed(size, compressedSize)) {
+            return null;
+        }
+        return compressed.length == compressedSize ? compressed : Arrays.copyOf(compressed, compressedSize);
+    }
+
+    /**
+     * Record how well a message compressed.
+     * @return whether the compressed message should be sent
+     */
+    boolean compressed(int size, int compressedSize) {
+        if (compressedSize > size * MAX_RATIO) {
+            m_backoff = Math.min(MAX_SKIPPED, Math.max(1, m_backoff * 2));
+            m_toSkip = m_backoff;
+            m_skipped = 0;
+            return false;
+        }
+        m_backoff = 0;
+        m_toSkip = 0;
+        m_bytesCompressed += size;
+        m_compressedBytes += compressedSize;
+        return true;
+    }
+
+    /**
+     * @return the number of bytes of the messages sent compressed, before they were compressed
+     */
+    long getBytesCompressed() {
+        return m_bytesCompressed;
+    }
+
+    /**
+     * @return the number of bytes of the messages sent compressed
+     */
+    long getCompressedBytes() {
+        return m_compressedBytes;
+    }
+
+    /**
+     * Uncompress a message.
+     * @param in the compressed message, from its position to its limit. It is consumed.
+     * @param size the size of the uncompressed message
+     * @return the uncompressed message
+     */
+    static ByteBuffer uncompress(ByteBuffer in, int size) throws IOException {
+        final byte[] compressed;
+        final int offset;
+        final int length = in.remaining();
+        if (in.hasArray()) {
+            compressed = in.array();
+            offset = in.arrayOffset() + in.position();
+        }
+        else {
+            compressed = new byte[length];
+            in.duplicate().get(compressed);
+            offset = 0;
+        }
+        in.position(in.limit());
+        final byte[] message = new byte[size];
+        final int uncompressedSize = Snappy.uncompress(compressed, offset, length, message, 0);
+        if (uncompressedSize != size) {
+            throw new IOException("Compressed message uncompressed to " + uncompressedSize +
+                    " bytes instead of " + size);
+        }
+        return ByteBuffer.wrap(message);
+    }
+}
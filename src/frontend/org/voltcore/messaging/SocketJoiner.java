@@ -81,6 +81,10 @@ public class SocketJoiner {
     private static final String VERSION_COMPATIBLE = "versionCompatible";
     private static final String BUILD_STRING = "buildString";
     public  static final String VERSION_STRING = "versionString";
+    // Present when the node can uncompress the messages sent to it, see MessageCompression
+    static final String MESSAGE_COMPRESSION = "messageCompression";
+    // Present when a requested connection is to carry bulk messages only
+    static final String BULK = "bulk";
 
     private static final int MAX_CLOCKSKEW = Integer.getInteger("MAX_CLOCKSKEW", 200);
     private static final int RETRY_INTERVAL = Integer.getInteger("MESH_JOIN_RETRY_INTERVAL", 10);
@@ -134,12 +138,14 @@ public class SocketJoiner {
                 Map<Integer, JSONObject> jos) throws Exception;
 
         /*
-         * Create new connection between given node and current node
+         * Create new connection between given node and current node,
+         * to carry either transactional or bulk messages
          */
         public void notifyOfConnection(
                 int hostId,
                 SocketChannel socket,
-                InetSocketAddress listeningAddress) throws Exception;
+                InetSocketAddress listeningAddress,
+                boolean bulk) throws Exception;
     }
 
     private static class RequestHostIdResponse {
@@ -479,6 +485,7 @@ public class SocketJoiner {
                 returnJs.put(BUILD_STRING, versionChecker.getBuildString());
                 returnJs.put(VERSION_COMPATIBLE,
                         versionChecker.isCompatibleVersionString(remoteBuildString));
+                returnJs.put(MESSAGE_COMPRESSION, true);
 
                 // inject acceptor fields
                 returnJs = m_acceptor.decorate(returnJs, Optional.of(m_paused.get()));
@@ -521,7 +528,8 @@ public class SocketJoiner {
                 } else if (type.equals(ConnectionType.PUBLISH_HOSTID.name())){
                     m_joinHandler.notifyOfJoin(jsObj.getInt(HOST_ID), sc, listeningAddress, jsObj);
                 } else if (type.equals(ConnectionType.REQUEST_CONNECTION.name())) {
-                    m_joinHandler.notifyOfConnection(jsObj.getInt(HOST_ID), sc, listeningAddress);
+                    m_joinHandler.notifyOfConnection(jsObj.getInt(HOST_ID), sc, listeningAddress,
+                            jsObj.optBoolean(BULK, false));
                 } else {
                     throw new RuntimeException("Unexpected message type " + type + " from " + remoteAddress);
                 }
@@ -718,6 +726,7 @@ public class SocketJoiner {
 
         JSONObject jsObj = new JSONObject();
         jsObj.put(TYPE, ConnectionType.REQUEST_HOSTID.name());
+        jsObj.put(MESSAGE_COMPRESSION, true);
 
         // put the version compatibility status in the json
         jsObj.put(VERSION_STRING, versionChecker.getVersionString());
@@ -780,6 +789,7 @@ public class SocketJoiner {
         skews.add(skew);
         JSONObject jsObj = new JSONObject();
         jsObj.put(TYPE, ConnectionType.PUBLISH_HOSTID.name());
+        jsObj.put(MESSAGE_COMPRESSION, true);
         jsObj.put(HOST_ID, m_localHostId);
         jsObj.put(PORT, m_internalPort);
         jsObj.put(ADDRESS,
@@ -801,7 +811,7 @@ public class SocketJoiner {
         return processJSONResponse(hostSocket, remoteAddress, activeVersions, true);
     }
 
-    public SocketChannel requestForConnection(InetSocketAddress hostAddr) throws IOException, JSONException
+    public SocketChannel requestForConnection(InetSocketAddress hostAddr, boolean bulk) throws IOException, JSONException
     {
         SocketChannel socket = connectToHost(hostAddr);
         /*
@@ -814,6 +824,9 @@ public class SocketJoiner {
         assert currentTimeBuf.position() == 8 : "time buffer is at an unexpected position";
         JSONObject jsObj = new JSONObject();
         jsObj.put(TYPE, ConnectionType.REQUEST_CONNECTION.name());
+        if (bulk) {
+            jsObj.put(BULK, true);
+        }
         jsObj.put(VERSION_STRING, m_acceptor.getVersionChecker().getVersionString());
         jsObj.put(HOST_ID, m_localHostId);
         jsObj.put(PORT, m_internalPort);
@@ -51,4 +51,14 @@ public abstract class VoltMessage
     public String getMessageInfo() {
         return getClass().getSimpleName();
     }
+
+    /**
+     * Bulk messages, like the snapshot data streamed to a rejoining site, are sent to
+     * other hosts on separate connections when there are some, so they don't delay the
+     * transactions. Messages are only kept in order on a connection, so a mailbox that
+     * receives bulk messages must receive nothing else.
+     */
+    public boolean isBulk() {
+        return false;
+    }
 }
@@ -47,6 +47,8 @@ public enum CipherExecutor {
 
     public final static int FRAME_SHIFT = 14; // 16384 (max TLS fragment)
     public final static int FRAME_SIZE = 1 << FRAME_SHIFT;
+    // Most frames a connection's encrypt or decrypt task handles before it yields the thread
+    public final static int MAX_BATCH_FRAMES = 16;
 
     volatile ListeningExecutorService m_es;
     AtomicBoolean m_active = new AtomicBoolean(false);
@@ -26,8 +26,10 @@ import java.util.concurrent.TimeUnit;
 
 import org.voltcore.logging.Level;
 import org.voltcore.logging.VoltLogger;
+import org.voltcore.utils.DBBPool;
 import org.voltcore.utils.DBBPool.BBContainer;
 import org.voltcore.utils.DeferredSerialization;
+import org.voltcore.utils.GatheringDeferredSerialization;
 import org.voltcore.utils.RateLimitedLogger;
 
 /**
@@ -39,6 +41,12 @@ import org.voltcore.utils.RateLimitedLogger;
 public abstract class NIOWriteStreamBase {
     protected static final VoltLogger networkLog = new VoltLogger("NETWORK");
 
+    /**
+     * Writes and their direct parts at least this large are queued without being
+     * copied when the write supports it, see {@link GatheringDeferredSerialization}
+     */
+    private static final int MIN_GATHERED_SIZE = Integer.getInteger("NETWORK_MIN_GATHERED_SIZE", 1024 * 32);
+
     protected boolean m_isShutdown = false;
 
     protected BBContainer m_currentWriteBuffer = null;
@@ -107,6 +115,26 @@ public abstract class NIOWriteStreamBase {
             processedWrites++;
             final int serializedSize = ds.getSerializedSize();
             if (serializedSize == DeferredSerialization.EMPTY_MESSAGE_LENGTH) continue;
+            if (serializedSize >= MIN_GATHERED_SIZE && ds instanceof GatheringDeferredSerialization) {
+                // Queue large direct parts as they are instead of copying them into pooled buffers
+                int gatheredSize = 0;
+                for (ByteBuffer part : ((GatheringDeferredSerialization) ds).serializeToBuffers()) {
+                    final int partSize = part.remaining();
+                    gatheredSize += partSize;
+                    if (part.isDirect() && partSize >= MIN_GATHERED_SIZE) {
+                        // Queued buffers are flipped before they are drained
+                        final ByteBuffer queued = part.slice();
+                        queued.position(partSize);
+                        m_queuedBuffers.offer(DBBPool.dummyWrapBB(queued));
+                    } else {
+                        copyToQueuedBuffers(part, pool);
+                    }
+                }
+                assert(gatheredSize == serializedSize) : "Sloppy serialization size for message class " + ds;
+                bytesQueued += gatheredSize;
+                continue;
+            }
+
             BBContainer outCont = m_queuedBuffers.peekLast();
             ByteBuffer outbuf = null;
             if (outCont == null || !outCont.b().hasRemaining()) {
@@ -116,6 +144,13 @@ public abstract class NIOWriteStreamBase {
             }
 
             outbuf = outCont.b();
+            if (outbuf.remaining() < serializedSize && serializedSize <= pool.getAllocationSize()) {
+                // Leave the end of the last buffer unused rather than serialize to heap and copy
+                outCont = pool.acquire();
+                outCont.b().clear();
+                m_queuedBuffers.offer(outCont);
+                outbuf = outCont.b();
+            }
 
             if (outbuf.remaining() >= serializedSize) {
                 // Fast path, serialize to direct buffer creating no garbage
@@ -136,28 +171,37 @@ public abstract class NIOWriteStreamBase {
                 buf.position(0);
                 bytesQueued += buf.remaining();
                 // Copy data allocated in heap buffer to direct buffer
-                while (buf.hasRemaining()) {
-                    if (!outbuf.hasRemaining()) {
-                        outCont = pool.acquire();
-                        outbuf = outCont.b();
-                        outbuf.clear();
-                        m_queuedBuffers.offer(outCont);
-                    }
-                    if (outbuf.remaining() >= buf.remaining()) {
-                        outbuf.put(buf);
-                    } else {
-                        final int oldLimit = buf.limit();
-                        buf.limit(buf.position() + outbuf.remaining());
-                        outbuf.put(buf);
-                        buf.limit(oldLimit);
-                    }
-                }
+                copyToQueuedBuffers(buf, pool);
             }
         }
         updateQueued(bytesQueued, true);
         return processedWrites;
     }
 
+    /**
+     * Copy the remaining bytes of the buffer to the end of the queued buffers,
+     * acquiring buffers from the pool as the last one fills up.
+     */
+    private void copyToQueuedBuffers(ByteBuffer buf, final NetworkDBBPool pool) {
+        while (buf.hasRemaining()) {
+            BBContainer outCont = m_queuedBuffers.peekLast();
+            if (outCont == null || !outCont.b().hasRemaining()) {
+                outCont = pool.acquire();
+                outCont.b().clear();
+                m_queuedBuffers.offer(outCont);
+            }
+            final ByteBuffer outbuf = outCont.b();
+            if (outbuf.remaining() >= buf.remaining()) {
+                outbuf.put(buf);
+            } else {
+                final int oldLimit = buf.limit();
+                buf.limit(buf.position() + outbuf.remaining());
+                outbuf.put(buf);
+                buf.limit(oldLimit);
+            }
+        }
+    }
+
     private static final boolean ASSERT_ON;
     static {
         boolean assertOn = false;
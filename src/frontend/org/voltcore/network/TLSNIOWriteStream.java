@@ -53,7 +53,7 @@ public class TLSNIOWriteStream extends NIOWriteStream {
     private final CipherExecutor m_ce;
     private final SSLEngine m_sslEngine;
     private final SSLBufferEncrypter m_encrypter;
-    private final EncryptionGateway m_ecryptgw = new EncryptionGateway();
+    final EncryptionGateway m_ecryptgw = new EncryptionGateway();
     private int m_queuedBytes = 0;
 
     public TLSNIOWriteStream(VoltPort port, Runnable offBackPressureCallback,
@@ -437,31 +437,60 @@ public class TLSNIOWriteStream extends NIOWriteStream {
             return ImmutableList.copyOf(m_q).iterator();
         }
 
+        /**
+         * Encrypt the queued frames, up to {@link CipherExecutor#MAX_BATCH_FRAMES}, and only signal
+         * the port once for all the messages they complete
+         */
         @Override
         public void run() {
-            EncryptFrame frame = m_q.peek();
-            if (frame == null) return;
-
-            ByteBuffer src = frame.frame.nioBuffer();
-            ByteBuf encr = m_ce.allocator().ioBuffer(packetBufferSize()).writerIndex(packetBufferSize());
-            ByteBuffer dest = encr.nioBuffer();
-
+            boolean completed = false;
             try {
-                m_encrypter.tlswrap(src, dest);
-            } catch (TLSException e) {
-                m_inFlight.release();
-                encr.release();
-                m_exceptions.offer(new ExecutionException("failed to encrypt frame", e));
-                networkLog.error("failed to encrypt frame", e);
-                m_port.enableWriteSelection();
-                return;
-            }
-            assert !src.hasRemaining() : "encryption wrap did not consume the whole source buffer";
-            int delta = dest.limit() - frame.frame.readableBytes();
-            encr.writerIndex(dest.limit());
+                for (int i = 0; i < CipherExecutor.MAX_BATCH_FRAMES; ++i) {
+                    EncryptFrame frame = m_q.peek();
+                    if (frame == null) return;
+
+                    ByteBuffer src = frame.frame.nioBuffer();
+                    ByteBuf encr = m_ce.allocator().ioBuffer(packetBufferSize()).writerIndex(packetBufferSize());
+                    ByteBuffer dest = encr.nioBuffer();
 
-            if (!m_isShutdown) {
-                m_encrypted.offer(frame.encrypted(delta, encr));
+                    try {
+                        m_encrypter.tlswrap(src, dest);
+                    } catch (TLSException e) {
+                        m_inFlight.release();
+                        encr.release();
+                        m_exceptions.offer(new ExecutionException("failed to encrypt frame", e));
+                        networkLog.error("failed to encrypt frame", e);
+                        m_port.enableWriteSelection();
+                        return;
+                    }
+                    assert !src.hasRemaining() : "encryption wrap did not consume the whole source buffer";
+                    int delta = dest.limit() - frame.frame.readableBytes();
+                    encr.writerIndex(dest.limit());
+
+                    if (!m_isShutdown) {
+                        m_encrypted.offer(frame.encrypted(delta, encr));
+                        completed |= frame.isLast();
+                    } else {
+                        encr.release();
+                        return;
+                    }
+                    synchronized(this) {
+                        m_q.poll();
+                        if (frame.isLast()) {
+                            frame.bb.release();
+                        }
+                        m_inFlight.release();
+                        coalesceEncryptFrames();
+                        if (m_q.peek() == null || m_isShutdown) {
+                            return;
+                        }
+                        if (i == CipherExecutor.MAX_BATCH_FRAMES - 1) {
+                            // leave the thread to the other connections' tasks for a while
+                            submitSelf();
+                        }
+                    }
+                }
+            } finally {
                 /*
                  * All interactions with write stream must be protected
                  * with a lock to ensure that interests ops are consistent with
@@ -469,23 +498,9 @@ public class TLSNIOWriteStream extends NIOWriteStream {
                  * lost queued writes where the write is queued
                  * but the write interest op is not set.
                  */
-                if (frame.isLast()) {
+                if (completed) {
                     m_port.enableWriteSelection();
                 }
-            } else {
-                encr.release();
-                return;
-            }
-            synchronized(this) {
-                m_q.poll();
-                if (frame.isLast()) {
-                    frame.bb.release();
-                }
-                m_inFlight.release();
-                coalesceEncryptFrames();
-                if (m_q.peek() != null && !m_isShutdown) {
-                    submitSelf();
-                }
             }
         }
 
@@ -50,7 +50,7 @@ public class TLSVoltPort extends VoltPort  {
     private final ConcurrentLinkedDeque<ByteBuffer> m_decrypted = new ConcurrentLinkedDeque<>();
     private final FlexibleSemaphore m_inFlight = new FlexibleSemaphore(1);
     private final CipherExecutor m_ce;
-    private final DecryptionGateway m_dcryptgw;
+    final DecryptionGateway m_dcryptgw;
 
     public TLSVoltPort(VoltNetwork network, InputHandler handler,
             InetSocketAddress remoteAddress, NetworkDBBPool pool,
@@ -352,90 +352,108 @@ public class TLSVoltPort extends VoltPort  {
             }
         }
 
+        /**
+         * Decrypt the queued frames, up to {@link CipherExecutor#MAX_BATCH_FRAMES}, and only signal
+         * the port once for all the messages they complete
+         */
         @Override
         public void run() {
-            final NIOReadStream.Slice slice = m_q.peek();
-            if (slice == null) return;
+            int read = 0;
+            try {
+                for (int i = 0; i < CipherExecutor.MAX_BATCH_FRAMES; ++i) {
+                    final NIOReadStream.Slice slice = m_q.peek();
+                    if (slice == null) return;
 
-            ByteBuf src = slice.bb;
+                    ByteBuf src = slice.bb;
 
-            if (isDead()) synchronized(this) {
-                slice.markConsumed().discard();
-                m_q.poll();
-                releaseDecryptedBuffer();
-                return;
-            }
+                    if (isDead()) synchronized(this) {
+                        slice.markConsumed().discard();
+                        m_q.poll();
+                        releaseDecryptedBuffer();
+                        return;
+                    }
 
-            ByteBuffer [] slicebbarr = slice.bb.nioBuffers();
-            // if frame overlaps two buffers then copy it to the overlap buffer
-            // and use that instead for the unwrap src buffer
-            if (slicebbarr.length > 1) {
-                src = Unpooled.wrappedBuffer(m_overlap).clear();
-                slice.bb.readBytes(src, slice.bb.readableBytes());
-                slicebbarr[0] = src.nioBuffer();
-            }
+                    ByteBuffer [] slicebbarr = slice.bb.nioBuffers();
+                    // if frame overlaps two buffers then copy it to the overlap buffer
+                    // and use that instead for the unwrap src buffer
+                    if (slicebbarr.length > 1) {
+                        src = Unpooled.wrappedBuffer(m_overlap).clear();
+                        slice.bb.readBytes(src, slice.bb.readableBytes());
+                        slicebbarr[0] = src.nioBuffer();
+                    }
 
-            final int appBuffSz = applicationBufferSize();
-            ByteBuf dest = m_ce.allocator().buffer(appBuffSz).writerIndex(appBuffSz);
-            ByteBuffer destjbb = dest.nioBuffer();
-            int decryptedBytes = 0;
-            try {
-                decryptedBytes = m_decrypter.tlsunwrap(slicebbarr[0], destjbb);
-            } catch (TLSException e) {
-                m_inFlight.release(); dest.release();
-                m_exceptions.offer(new ExecutionException("fragment decrypt task failed", e));
-                networkLog.error("fragment decrypt task failed", e);
-                enableWriteSelection();
-                return;
-            }
-            assert !slicebbarr[0].hasRemaining() : "decrypter did not wholly consume the source buffer";
-
-            // src buffer is wholly consumed
-            if (!isDead()) {
-                if (decryptedBytes > 0) {
-                    dest.writerIndex(destjbb.limit());
-                    m_msgbb.addComponent(true, dest);
-                } else {
-                    // the TLS frame was consumed by the call to engines unwrap but it
-                    // did not yield any content
-                    dest.release();
-                }
+                    final int appBuffSz = applicationBufferSize();
+                    ByteBuf dest = m_ce.allocator().buffer(appBuffSz).writerIndex(appBuffSz);
+                    ByteBuffer destjbb = dest.nioBuffer();
+                    int decryptedBytes = 0;
+                    try {
+                        decryptedBytes = m_decrypter.tlsunwrap(slicebbarr[0], destjbb);
+                    } catch (TLSException e) {
+                        m_inFlight.release(); dest.release();
+                        m_exceptions.offer(new ExecutionException("fragment decrypt task failed", e));
+                        networkLog.error("fragment decrypt task failed", e);
+                        enableWriteSelection();
+                        return;
+                    }
+                    assert !slicebbarr[0].hasRemaining() : "decrypter did not wholly consume the source buffer";
+
+                    // src buffer is wholly consumed
+                    if (!isDead()) {
+                        if (decryptedBytes > 0) {
+                            dest.writerIndex(destjbb.limit());
+                            m_msgbb.addComponent(true, dest);
+                        } else {
+                            // the TLS frame was consumed by the call to engines unwrap but it
+                            // did not yield any content
+                            dest.release();
+                        }
 
-                int read = 0;
-                while (m_msgbb.readableBytes() >= getNeededBytes()) {
-                    if (m_needed == NOT_AVAILABLE) {
-                        m_needed = m_msgbb.readInt();
-                        IOException ioe = validateMessageLength(m_needed);
-                        if (ioe != null) {
-                            m_inFlight.release(); m_msgbb.release();
-                            m_exceptions.offer(new ExecutionException("failed message length check", ioe));
-                            networkLog.error("failed message length check", ioe);
-                            enableWriteSelection();
+                        int frameRead = 0;
+                        while (m_msgbb.readableBytes() >= getNeededBytes()) {
+                            if (m_needed == NOT_AVAILABLE) {
+                                m_needed = m_msgbb.readInt();
+                                IOException ioe = validateMessageLength(m_needed);
+                                if (ioe != null) {
+                                    m_inFlight.release(); m_msgbb.release();
+                                    m_exceptions.offer(new ExecutionException("failed message length check", ioe));
+                                    networkLog.error("failed message length check", ioe);
+                                    enableWriteSelection();
+                                    return;
+                                }
+                                continue;
+                            }
+                            ByteBuffer bb = ByteBuffer.allocate(m_needed);
+                            m_msgbb.readBytes(bb);
+                            m_decrypted.offer((ByteBuffer)bb.flip());
+
+                            ++frameRead;
+                            m_needed = NOT_AVAILABLE;
+                        }
+                        if (frameRead > 0) {
+                            m_msgbb.discardReadComponents();
+                            read += frameRead;
+                        }
+                    } else { // it isDead()
+                        dest.release();
+                        releaseDecryptedBuffer();
+                    }
+                    synchronized(this) {
+                        m_q.poll();
+                        slice.markConsumed().discard();
+                        m_inFlight.release();
+                        if (m_q.peek() == null) {
+                            return;
+                        }
+                        if (i == CipherExecutor.MAX_BATCH_FRAMES - 1) {
+                            // leave the thread to the other connections' tasks for a while
+                            submitSelf();
                         }
-                        continue;
                     }
-                    ByteBuffer bb = ByteBuffer.allocate(m_needed);
-                    m_msgbb.readBytes(bb);
-                    m_decrypted.offer((ByteBuffer)bb.flip());
-
-                    ++read;
-                    m_needed = NOT_AVAILABLE;
                 }
+            } finally {
                 if (read > 0) {
-                    m_msgbb.discardReadComponents();
                     enableWriteSelection();
                 }
-            } else { // it isDead()
-                dest.release();
-                releaseDecryptedBuffer();
-            }
-            synchronized(this) {
-                m_q.poll();
-                slice.markConsumed().discard();
-                m_inFlight.release();
-                if (m_q.peek() != null) {
-                    submitSelf();
-                }
             }
         }
 
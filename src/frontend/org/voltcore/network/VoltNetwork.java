@@ -407,7 +407,15 @@ class VoltNetwork implements Runnable, IOStatsIntf
         SelectionKey key = port.getKey();
 
         if (key.isValid()) {
-            key.interestOps (port.interestOps());
+            /*
+             * Every change to the interest set is a system call at the next selection,
+             * even to the same value, so only change it when it actually differs. The
+             * common case of a port that stays interested in reads costs none.
+             */
+            final int interestOps = port.interestOps();
+            if (key.interestOps() != interestOps) {
+                key.interestOps(interestOps);
+            }
         } else {
             m_ports.remove(port);
             m_numPorts.decrementAndGet();
@@ -417,7 +425,8 @@ class VoltNetwork implements Runnable, IOStatsIntf
     private void callPort(final VoltPort port) {
         try {
             port.lockForHandlingWork();
-            port.getKey().interestOps(0);
+            // The port runs on this thread, so the key can't be selected again until it is
+            // done, and its interest set is left as it is rather than cleared and restored
             port.run();
         } catch (CancelledKeyException e) {
             port.m_running = false;
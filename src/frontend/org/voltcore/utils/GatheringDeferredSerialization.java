@@ -0,0 +1,36 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2017 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltcore.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * A DeferredSerialization whose serialized form can also be produced as a sequence
+ * of buffers, so that large parts which already exist in serialized form, such as
+ * result tables in direct memory, can be written out without being copied.
+ */
+public interface GatheringDeferredSerialization extends DeferredSerialization {
+    /**
+     * Serialize the Object as a sequence of buffers whose remaining bytes, in order,
+     * are exactly what {@link #serialize(ByteBuffer)} would have written. Called after
+     * {@link #getSerializedSize()}. The buffers must not be modified afterwards.
+     * @throws IOException Thrown here because FastSerializer throws IOException
+     */
+    ByteBuffer[] serializeToBuffers() throws IOException;
+}
@@ -25,6 +25,7 @@ import java.util.Map;
 import java.util.SortedMap;
 import java.util.TreeMap;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 
 import org.apache.zookeeper_voltpatches.KeeperException;
@@ -127,6 +128,10 @@ public class CatalogContext {
     // Default procs are loaded on the fly
     public final DefaultProcedureManager m_defaultProcs;
 
+    // Procedures by the exact name clients invoke them with, filled in by
+    // InvocationDispatcher.getProcedureFromName() as they are resolved
+    final ConcurrentHashMap<String, Procedure> m_resolvedProcedures = new ConcurrentHashMap<>();
+
     // Planner associated with this catalog version, Not thread-safe
     public final PlannerTool m_ptool;
     public final JdbcDatabaseMetaDataGenerator m_jdbc;
@@ -71,6 +71,7 @@ import org.voltcore.network.WriteStream;
 import org.voltcore.utils.CoreUtils;
 import org.voltcore.utils.DeferredSerialization;
 import org.voltcore.utils.EstTime;
+import org.voltcore.utils.GatheringDeferredSerialization;
 import org.voltcore.utils.Pair;
 import org.voltcore.utils.RateLimitedLogger;
 import org.voltcore.utils.ssl.MessagingChannel;
@@ -903,12 +904,14 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
      * Runs on the network thread to prepare client response. If a transaction needs to be
      * restarted, it will get restarted here.
      */
-    public class ClientResponseWork implements DeferredSerialization {
+    public class ClientResponseWork implements GatheringDeferredSerialization {
         private final ClientInterfaceHandleManager cihm;
         private final InitiateResponseMessage response;
         private final Procedure catProc;
         private ClientResponseImpl clientResponse;
         private boolean restartMispartitionedTxn;
+        // the frames of a response streamed to the client, null if it is sent whole
+        private ByteBuffer[] streamedFrames;
 
         private ClientResponseWork(InitiateResponseMessage response,
                                    ClientInterfaceHandleManager cihm,
@@ -924,10 +927,25 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
         @Override
         public void serialize(ByteBuffer buf) throws IOException
         {
+            if (streamedFrames != null) {
+                for (ByteBuffer frame : streamedFrames) {
+                    buf.put(frame.duplicate());
+                }
+                return;
+            }
             buf.putInt(buf.capacity() - 4);
             clientResponse.flattenToBuffer(buf);
         }
 
+        @Override
+        public ByteBuffer[] serializeToBuffers() throws IOException
+        {
+            if (streamedFrames != null) {
+                return streamedFrames;
+            }
+            return clientResponse.flattenToBuffers(true);
+        }
+
         @Override
         public void cancel() {
         }
@@ -988,7 +1006,17 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
             clientResponse.setClusterRoundtrip((int)TimeUnit.NANOSECONDS.toMillis(delta));
             clientResponse.setHashes(null); // not part of wire protocol
 
-            return clientResponse.getSerializedSize() + 4;
+            final int size = clientResponse.getSerializedSize() + 4;
+            // Split a response too large for the client to take whole into frames
+            if (clientData.m_streamFrameSize > 0 && size > clientData.m_streamFrameSize) {
+                streamedFrames = clientResponse.flattenToStreamedFrames(clientData.m_streamFrameSize);
+                int streamedSize = 0;
+                for (ByteBuffer frame : streamedFrames) {
+                    streamedSize += frame.remaining();
+                }
+                return streamedSize;
+            }
+            return size;
         }
 
         @Override
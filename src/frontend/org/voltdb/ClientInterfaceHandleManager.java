@@ -89,8 +89,11 @@ public class ClientInterfaceHandleManager
         final long m_creationTimeNanos;
         final String m_procName;
         final long m_initiatorHSId;
+        // 0 unless the client accepts the response streamed in frames of at most this many bytes
+        final int m_streamFrameSize;
         Iv2InFlight(long ciHandle, long clientHandle,
-                int messageSize, long creationTimeNanos, String procName, long initiatorHSId)
+                int messageSize, long creationTimeNanos, String procName, long initiatorHSId,
+                int streamFrameSize)
         {
             m_ciHandle = ciHandle;
             m_clientHandle = clientHandle;
@@ -98,6 +101,7 @@ public class ClientInterfaceHandleManager
             m_creationTimeNanos = creationTimeNanos;
             m_procName = procName;
             m_initiatorHSId = initiatorHSId;
+            m_streamFrameSize = streamFrameSize;
         }
     }
 
@@ -130,9 +134,10 @@ public class ClientInterfaceHandleManager
             @Override
             synchronized long getHandle(boolean isSinglePartition, int partitionId,
                     long clientHandle, int messageSize, long creationTimeNanos, String procName, long initiatorHSId,
-                    boolean isShortCircuitRead) {
+                    boolean isShortCircuitRead, int streamFrameSize) {
                 return super.getHandle(isSinglePartition, partitionId,
-                        clientHandle, messageSize, creationTimeNanos, procName, initiatorHSId, isShortCircuitRead);
+                        clientHandle, messageSize, creationTimeNanos, procName, initiatorHSId, isShortCircuitRead,
+                        streamFrameSize);
             }
             @Override
             synchronized Iv2InFlight findHandle(long ciHandle) {
@@ -181,6 +186,26 @@ public class ClientInterfaceHandleManager
             String procName,
             long initiatorHSId,
             boolean isShortCircuitReadOrNTProc)
+    {
+        return getHandle(isSinglePartition, partitionId, clientHandle, messageSize, creationTimeNanos,
+                procName, initiatorHSId, isShortCircuitReadOrNTProc, 0);
+    }
+
+    /**
+     * Like {@link #getHandle(boolean, int, long, int, long, String, long, boolean)}, for a
+     * transaction whose client accepts a response streamed in frames of at most
+     * streamFrameSize bytes, or 0 if it doesn't.
+     */
+    long getHandle(
+            boolean isSinglePartition,
+            int partitionId,
+            long clientHandle,
+            int messageSize,
+            long creationTimeNanos,
+            String procName,
+            long initiatorHSId,
+            boolean isShortCircuitReadOrNTProc,
+            int streamFrameSize)
     {
         assert(!shouldCheckThreadIdAssertion() || m_expectedThreadId == Thread.currentThread().getId());
         if (isShortCircuitReadOrNTProc) {
@@ -200,7 +225,7 @@ public class ClientInterfaceHandleManager
 
         long ciHandle = tracker.m_generator.getNextHandle();
         Iv2InFlight inFlight = new Iv2InFlight(ciHandle, clientHandle, messageSize,
-                                               creationTimeNanos, procName, initiatorHSId);
+                                               creationTimeNanos, procName, initiatorHSId, streamFrameSize);
 
         tracker.m_inFlights.put(ciHandle, inFlight);
 
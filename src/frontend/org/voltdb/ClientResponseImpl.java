@@ -19,6 +19,8 @@ package org.voltdb;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 import org.json_voltpatches.JSONException;
@@ -63,6 +65,13 @@ public class ClientResponseImpl implements ClientResponse, JSONString {
     // transaction is a duplicate
     public static final String IGNORED_TRANSACTION = "Ignored replayed transaction";
 
+    // Version bytes of the frames of a streamed response, see flattenToStreamedFrames()
+    public static final byte STREAMED_HEADER_VERSION = 1;
+    public static final byte STREAMED_ROWS_VERSION = 2;
+    public static final byte STREAMED_END_VERSION = 3;
+    // version, client handle, table index and row count
+    private static final int STREAMED_ROWS_HEADER_SIZE = 1 + 8 + 2 + 4;
+
     /** opaque data optionally provided by and returned to the client */
     private long clientHandle = -1;
 
@@ -247,6 +256,134 @@ public class ClientResponseImpl implements ClientResponse, JSONString {
      */
     public ByteBuffer flattenToBuffer(ByteBuffer buf) {
         assert setProperly;
+        flattenHeaderToBuffer(buf);
+        for (VoltTable vt : results)
+        {
+            vt.flattenToBuffer(buf);
+        }
+        return buf;
+    }
+
+    /**
+     * Like {@link #flattenToBuffer(ByteBuffer)}, but produces the response as a sequence of
+     * buffers in which each result table is a read-only view of the table's own buffer
+     * rather than a copy of it. {@link #getSerializedSize()} must have been called first.
+     * @param withLengthPrefix whether to start with the length of the rest of the message
+     */
+    public ByteBuffer[] flattenToBuffers(boolean withLengthPrefix) {
+        assert setProperly;
+        final int headerSize = getHeaderSize();
+        int messageSize = headerSize;
+        for (VoltTable vt : results) {
+            messageSize += vt.getSerializedSize();
+        }
+
+        final ByteBuffer[] buffers = new ByteBuffer[1 + 2 * results.length];
+        final ByteBuffer header = ByteBuffer.allocate(headerSize + (withLengthPrefix ? 4 : 0));
+        if (withLengthPrefix) {
+            header.putInt(messageSize);
+        }
+        flattenHeaderToBuffer(header);
+        header.flip();
+        buffers[0] = header;
+        for (int i = 0; i < results.length; i++) {
+            final ByteBuffer table = results[i].getBuffer();
+            final ByteBuffer tableLength = ByteBuffer.allocate(4);
+            tableLength.putInt(0, table.remaining());
+            buffers[1 + 2 * i] = tableLength;
+            buffers[2 + 2 * i] = table;
+        }
+        return buffers;
+    }
+
+    /**
+     * Like {@link #flattenToBuffers(boolean)}, but splits the response into a sequence of
+     * length prefixed frames, for a client that asked for it to be streamed. The first
+     * frame is the response with every result table cut down to its schema. Frames of
+     * consecutive rows of one table follow, each no larger than maxFrameSize unless a
+     * single row is, and a last frame marks the end of the response. The rows are
+     * read-only views of the tables' buffers rather than copies of them.
+     * {@link #getSerializedSize()} must have been called first.
+     */
+    public ByteBuffer[] flattenToStreamedFrames(int maxFrameSize) {
+        assert setProperly;
+        final List<ByteBuffer> frames = new ArrayList<ByteBuffer>();
+
+        int headerSize = getHeaderSize();
+        for (VoltTable vt : results) {
+            headerSize += 4 + vt.getRowStart() + 4;
+        }
+        final ByteBuffer header = ByteBuffer.allocate(headerSize + 4);
+        header.putInt(headerSize);
+        flattenHeaderToBuffer(header);
+        header.put(4, STREAMED_HEADER_VERSION);
+        for (VoltTable vt : results) {
+            final ByteBuffer schema = vt.getBuffer();
+            schema.limit(vt.getRowStart());
+            header.putInt(schema.remaining() + 4);
+            header.put(schema);
+            header.putInt(0);
+        }
+        header.flip();
+        frames.add(header);
+
+        final int maxRowBytes = maxFrameSize - 4 - STREAMED_ROWS_HEADER_SIZE;
+        for (int i = 0; i < results.length; i++) {
+            final ByteBuffer table = results[i].getBuffer();
+            final int end = table.limit();
+            int position = results[i].getRowStart() + 4;
+            while (position < end) {
+                // take at least one row, and as many more as fit
+                int frameEnd = position;
+                int rowCount = 0;
+                do {
+                    frameEnd += 4 + table.getInt(frameEnd);
+                    rowCount++;
+                } while (frameEnd < end && frameEnd + 4 + table.getInt(frameEnd) - position <= maxRowBytes);
+
+                final ByteBuffer rowsHeader = ByteBuffer.allocate(4 + STREAMED_ROWS_HEADER_SIZE);
+                rowsHeader.putInt(STREAMED_ROWS_HEADER_SIZE + frameEnd - position);
+                rowsHeader.put(STREAMED_ROWS_VERSION);
+                rowsHeader.putLong(clientHandle);
+                rowsHeader.putShort((short) i);
+                rowsHeader.putInt(rowCount);
+                rowsHeader.flip();
+                frames.add(rowsHeader);
+
+                final ByteBuffer rows = table.duplicate();
+                rows.limit(frameEnd);
+                rows.position(position);
+                frames.add(rows.slice());
+                position = frameEnd;
+            }
+        }
+
+        final ByteBuffer endFrame = ByteBuffer.allocate(4 + 1 + 8);
+        endFrame.putInt(1 + 8);
+        endFrame.put(STREAMED_END_VERSION);
+        endFrame.putLong(clientHandle);
+        endFrame.flip();
+        frames.add(endFrame);
+        return frames.toArray(new ByteBuffer[frames.size()]);
+    }
+
+    // Size of everything but the result tables, up to and including their count
+    private int getHeaderSize() {
+        int headerSize = 1 + 8 + 1 + 1 + 1 + 4 + 2;
+        if (appStatusString != null) {
+            headerSize += encodedAppStatusString.length + 4;
+        }
+        if (statusString != null) {
+            headerSize += encodedStatusString.length + 4;
+        }
+        if (m_hashes != null) {
+            headerSize += 2 + m_hashes.length * 4;
+        }
+        return headerSize;
+    }
+
+    // Everything but the result tables, up to and including their count
+    private void flattenHeaderToBuffer(ByteBuffer buf) {
         buf.put((byte)0); //version
         buf.putLong(clientHandle);
         byte presentFields = 0;
@@ -279,11 +416,6 @@ public class ClientResponseImpl implements ClientResponse, JSONString {
             }
         }
         buf.putShort((short) results.length);
-        for (VoltTable vt : results)
-        {
-            vt.flattenToBuffer(buf);
-        }
-        return buf;
     }
 
     @Override
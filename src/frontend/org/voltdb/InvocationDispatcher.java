@@ -499,7 +499,23 @@ public final class InvocationDispatcher {
         return m_catalogContext.get().database.getTables().size() == 0;
     }
 
+    // Bounds the names resolved procedures are cached under, since clients
+    // can invoke each one with any mix of upper and lower case
+    private final static int MAX_RESOLVED_PROCEDURES = 8192;
+
     public final static Procedure getProcedureFromName(String procName, CatalogContext catalogContext) {
+        Procedure catProc = catalogContext.m_resolvedProcedures.get(procName);
+        if (catProc != null) {
+            return catProc;
+        }
+        catProc = resolveProcedure(procName, catalogContext);
+        if (catProc != null && catalogContext.m_resolvedProcedures.size() < MAX_RESOLVED_PROCEDURES) {
+            catalogContext.m_resolvedProcedures.putIfAbsent(procName, catProc);
+        }
+        return catProc;
+    }
+
+    private final static Procedure resolveProcedure(String procName, CatalogContext catalogContext) {
         Procedure catProc = catalogContext.procedures.get(procName);
         if (catProc == null) {
             catProc = catalogContext.m_defaultProcs.checkForDefaultProcedure(procName);
@@ -715,9 +731,10 @@ public final class InvocationDispatcher {
                                      nowNanos,
                                      task.getProcName(),
                                      NTPROC_JUNK_ID,
-                                     true); // We are using shortcut read here on purpose
+                                     true,  // We are using shortcut read here on purpose
                                             // it's the simplest place to keep the handle because it
                                             // doesn't do as much work with partitions.
+                                     task.getStreamFrameSize());
 
         // note, once we get the handle above, any response to the client MUST be done
         // by sending an InitiateResponseMessage to the CI mailbox. Writing bytes to the wire, like we
@@ -1218,7 +1235,8 @@ public final class InvocationDispatcher {
         }
 
         long handle = cihm.getHandle(isSinglePartition, isSinglePartition ? partitions[0] : -1, invocation.getClientHandle(),
-                messageSize, nowNanos, invocation.getProcName(), initiatorHSId, isShortCircuitRead);
+                messageSize, nowNanos, invocation.getProcName(), initiatorHSId, isShortCircuitRead,
+                invocation.getStreamFrameSize());
 
         Iv2InitiateTaskMessage workRequest =
             new Iv2InitiateTaskMessage(m_siteId,
@@ -0,0 +1,268 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2017 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+
+import org.json_voltpatches.JSONObject;
+import org.voltdb.types.TimestampType;
+import org.voltdb.types.VoltDecimalHelper;
+import org.voltdb.utils.SerializationHelper;
+
+/**
+ * Serializes procedure parameters straight from the caller's values into a buffer,
+ * in exactly the format of {@link ParameterSet#flattenToBuffer(ByteBuffer)}, but
+ * without building a ParameterSet: no copy of the parameter array, no encoded copy
+ * of each string and no per-parameter bookkeeping.
+ *
+ * Only the common parameter types are handled here: nulls, boxed integers and
+ * floats, strings, timestamps, decimals, varbinaries and primitive arrays of
+ * numbers. {@link #getSerializedSize(Object[])} returns -1 for anything else,
+ * and the caller must fall back to a ParameterSet.
+ */
+public final class ParameterEncoder {
+
+    private ParameterEncoder() {}
+
+    /**
+     * @return the serialized size of the parameters, including the parameter count,
+     * or -1 if any of them is of a type this encoder doesn't handle.
+     */
+    public static int getSerializedSize(Object[] params) {
+        int size = 2;
+        for (Object obj : params) {
+            int paramSize = getParameterSerializedSize(obj);
+            if (paramSize < 0) {
+                return -1;
+            }
+            size += paramSize;
+        }
+        return size;
+    }
+
+    // Size of one parameter including its type byte, or -1 if it can't be encoded here
+    private static int getParameterSerializedSize(Object obj) {
+        if (obj == null || obj == JSONObject.NULL) {
+            return 1;
+        }
+        final Class<?> cls = obj.getClass();
+        if (cls == Long.class || cls == Double.class || cls == Float.class || cls == TimestampType.class) {
+            return 1 + 8;
+        }
+        if (cls == Integer.class) {
+            return 1 + 4;
+        }
+        if (cls == String.class) {
+            return 1 + 4 + getUTF8Length((String) obj);
+        }
+        if (cls == Short.class) {
+            return 1 + 2;
+        }
+        if (cls == Byte.class) {
+            return 1 + 1;
+        }
+        if (cls == BigDecimal.class) {
+            return 1 + 16;
+        }
+        if (cls == byte[].class) {
+            return 1 + 4 + ((byte[]) obj).length;
+        }
+        if (cls == long[].class) {
+            return 1 + 1 + 2 + 8 * ((long[]) obj).length;
+        }
+        if (cls == int[].class) {
+            return 1 + 1 + 2 + 4 * ((int[]) obj).length;
+        }
+        if (cls == short[].class) {
+            return 1 + 1 + 2 + 2 * ((short[]) obj).length;
+        }
+        if (cls == double[].class) {
+            return 1 + 1 + 2 + 8 * ((double[]) obj).length;
+        }
+        if (obj == VoltType.NULL_TIMESTAMP) {
+            return 1 + 8;
+        }
+        if (obj == VoltType.NULL_STRING_OR_VARBINARY) {
+            return 1 + 4;
+        }
+        if (obj == VoltType.NULL_DECIMAL) {
+            return 1 + 16;
+        }
+        return -1;
+    }
+
+    /**
+     * Write the parameters, which {@link #getSerializedSize(Object[])} must have accepted.
+     * @param params the parameter values
+     * @param buf the buffer to write to, at its position
+     */
+    public static void flattenToBuffer(Object[] params, ByteBuffer buf) throws IOException {
+        buf.putShort((short) params.length);
+        for (Object obj : params) {
+            if (obj == null || obj == JSONObject.NULL) {
+                buf.put(VoltType.NULL.getValue());
+                continue;
+            }
+            final Class<?> cls = obj.getClass();
+            if (cls == Long.class) {
+                buf.put(VoltType.BIGINT.getValue());
+                buf.putLong((Long) obj);
+            }
+            else if (cls == Integer.class) {
+                buf.put(VoltType.INTEGER.getValue());
+                buf.putInt((Integer) obj);
+            }
+            else if (cls == String.class) {
+                buf.put(VoltType.STRING.getValue());
+                final String string = (String) obj;
+                buf.putInt(getUTF8Length(string));
+                putUTF8(string, buf);
+            }
+            else if (cls == Double.class) {
+                buf.put(VoltType.FLOAT.getValue());
+                buf.putDouble((Double) obj);
+            }
+            else if (cls == Float.class) {
+                buf.put(VoltType.FLOAT.getValue());
+                buf.putDouble(((Float) obj).doubleValue());
+            }
+            else if (cls == TimestampType.class) {
+                buf.put(VoltType.TIMESTAMP.getValue());
+                buf.putLong(((TimestampType) obj).getTime());
+            }
+            else if (cls == Short.class) {
+                buf.put(VoltType.SMALLINT.getValue());
+                buf.putShort((Short) obj);
+            }
+            else if (cls == Byte.class) {
+                buf.put(VoltType.TINYINT.getValue());
+                buf.put((Byte) obj);
+            }
+            else if (cls == BigDecimal.class) {
+                buf.put(VoltType.DECIMAL.getValue());
+                VoltDecimalHelper.serializeBigDecimal((BigDecimal) obj, buf);
+            }
+            else if (cls == byte[].class) {
+                buf.put(VoltType.VARBINARY.getValue());
+                SerializationHelper.writeVarbinary((byte[]) obj, buf);
+            }
+            else if (cls == long[].class) {
+                buf.put(ParameterSet.ARRAY);
+                buf.put(VoltType.BIGINT.getValue());
+                SerializationHelper.writeArray((long[]) obj, buf);
+            }
+            else if (cls == int[].class) {
+                buf.put(ParameterSet.ARRAY);
+                buf.put(VoltType.INTEGER.getValue());
+                SerializationHelper.writeArray((int[]) obj, buf);
+            }
+            else if (cls == short[].class) {
+                buf.put(ParameterSet.ARRAY);
+                buf.put(VoltType.SMALLINT.getValue());
+                SerializationHelper.writeArray((short[]) obj, buf);
+            }
+            else if (cls == double[].class) {
+                buf.put(ParameterSet.ARRAY);
+                buf.put(VoltType.FLOAT.getValue());
+                SerializationHelper.writeArray((double[]) obj, buf);
+            }
+            else if (obj == VoltType.NULL_TIMESTAMP) {
+                buf.put(VoltType.TIMESTAMP.getValue());
+                buf.putLong(VoltType.NULL_BIGINT);
+            }
+            else if (obj == VoltType.NULL_STRING_OR_VARBINARY) {
+                buf.put(VoltType.STRING.getValue());
+                buf.putInt(VoltType.NULL_STRING_LENGTH);
+            }
+            else if (obj == VoltType.NULL_DECIMAL) {
+                buf.put(VoltType.DECIMAL.getValue());
+                VoltDecimalHelper.serializeNull(buf);
+            }
+            else {
+                throw new IOException("Unsupported parameter type " + cls.getName());
+            }
+        }
+    }
+
+    /**
+     * @return the length of the string encoded as UTF-8, the same as
+     * {@code string.getBytes(Constants.UTF8ENCODING).length} but without encoding it.
+     */
+    static int getUTF8Length(String string) {
+        final int length = string.length();
+        int utf8Length = length;
+        for (int i = 0; i < length; i++) {
+            final char c = string.charAt(i);
+            if (c < 0x80) {
+                continue;
+            }
+            if (c < 0x800) {
+                utf8Length += 1;
+            }
+            else if (Character.isHighSurrogate(c) && i + 1 < length
+                    && Character.isLowSurrogate(string.charAt(i + 1))) {
+                // a surrogate pair is 4 bytes for 2 chars
+                utf8Length += 2;
+                i++;
+            }
+            else if (Character.isSurrogate(c)) {
+                // unpaired surrogates are replaced by '?'
+            }
+            else {
+                utf8Length += 2;
+            }
+        }
+        return utf8Length;
+    }
+
+    /**
+     * Encode a string as UTF-8 into the buffer, byte for byte as {@link String#getBytes}
+     * would, including the replacement of unpaired surrogates by '?'.
+     */
+    static void putUTF8(String string, ByteBuffer buf) {
+        final int length = string.length();
+        for (int i = 0; i < length; i++) {
+            final char c = string.charAt(i);
+            if (c < 0x80) {
+                buf.put((byte) c);
+            }
+            else if (c < 0x800) {
+                buf.put((byte) (0xc0 | (c >> 6)));
+                buf.put((byte) (0x80 | (c & 0x3f)));
+            }
+            else if (Character.isHighSurrogate(c) && i + 1 < length
+                    && Character.isLowSurrogate(string.charAt(i + 1))) {
+                final int codePoint = Character.toCodePoint(c, string.charAt(++i));
+                buf.put((byte) (0xf0 | (codePoint >> 18)));
+                buf.put((byte) (0x80 | ((codePoint >> 12) & 0x3f)));
+                buf.put((byte) (0x80 | ((codePoint >> 6) & 0x3f)));
+                buf.put((byte) (0x80 | (codePoint & 0x3f)));
+            }
+            else if (Character.isSurrogate(c)) {
+                buf.put((byte) '?');
+            }
+            else {
+                buf.put((byte) (0xe0 | (c >> 12)));
+                buf.put((byte) (0x80 | ((c >> 6) & 0x3f)));
+                buf.put((byte) (0x80 | (c & 0x3f)));
+            }
+        }
+    }
+}
@@ -290,8 +290,10 @@ public class ParameterSet implements JSONString {
         byte[][] encodedStrings = null;
         byte[][][] encodedStringArrays = null;
 
+        // one holder is reused for every parameter
+        OneParamInfo opi = new OneParamInfo();
         for (int i = 0; i < count; ++i) {
-            OneParamInfo opi = readOneParameter(buffer);
+            readOneParameter(buffer, opi);
             params[i] = opi.value;
             if (opi.encodedString != null) {
                 if (encodedStrings == null) {
@@ -368,13 +370,64 @@ public class ParameterSet implements JSONString {
             throw new RuntimeException("Invalid partition parameter requested.");
         }
         for (int i = 0; i < partitionIndex; ++i) {
-            readOneParameter(unserializedParams);
+            skipOneParameter(unserializedParams);
         }
-        OneParamInfo opi = readOneParameter(unserializedParams);
+        OneParamInfo opi = new OneParamInfo();
+        readOneParameter(unserializedParams, opi);
         unserializedParams.rewind();
         return opi.value;
     }
 
+    /*
+     * Move the buffer past one parameter. Scalars are skipped without being
+     * deserialized, arrays and the less common types are read and dropped.
+     */
+    static void skipOneParameter(ByteBuffer in) throws IOException {
+        final int start = in.position();
+        final byte typeByte = in.get();
+        if (typeByte != ARRAY) {
+            VoltType type;
+            try {
+                type = VoltType.get(typeByte);
+            } catch (AssertionError ae) {
+                throw new RuntimeException("ParameterSet doesn't support type " + typeByte);
+            }
+            switch (type) {
+                case NULL:
+                    return;
+                case TINYINT:
+                case BOOLEAN:
+                    in.position(in.position() + 1);
+                    return;
+                case SMALLINT:
+                    in.position(in.position() + 2);
+                    return;
+                case INTEGER:
+                    in.position(in.position() + 4);
+                    return;
+                case BIGINT:
+                case FLOAT:
+                case TIMESTAMP:
+                    in.position(in.position() + 8);
+                    return;
+                case DECIMAL:
+                    in.position(in.position() + 16);
+                    return;
+                case STRING:
+                case VARBINARY:
+                    final int len = in.getInt();
+                    if (len != VoltType.NULL_STRING_LENGTH) {
+                        in.position(in.position() + len);
+                    }
+                    return;
+                default:
+                    break;
+            }
+        }
+        in.position(start);
+        readOneParameter(in, new OneParamInfo());
+    }
+
     static Object getAKosherArray(Object[] array) {
         int tables = 0;
         int integers = 0;
@@ -545,7 +598,7 @@ public class ParameterSet implements JSONString {
         return value;
     }
 
-    static private OneParamInfo readOneParameter(ByteBuffer in)
+    static private void readOneParameter(ByteBuffer in, OneParamInfo retval)
             throws IOException {
         Object value;
         int len;
@@ -672,11 +725,9 @@ public class ParameterSet implements JSONString {
             }
         }
 
-        OneParamInfo retval = new OneParamInfo();
         retval.value = value;
         retval.encodedString = encodedString;
         retval.encodedStringArray = encodedStringArray;
-        return retval;
     }
 
     public void flattenToBuffer(ByteBuffer buf) throws IOException {
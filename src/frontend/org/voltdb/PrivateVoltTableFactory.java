@@ -36,6 +36,24 @@ public abstract class PrivateVoltTableFactory {
         return new VoltTable(backing, readOnly);
     }
 
+    /**
+     * Build a table of the rows of a frame of a streamed response, with the schema of the
+     * matching table of the response.
+     * @param schema the table of the response, cut down to its schema
+     * @param rowCount the number of rows
+     * @param rows the serialized rows, from position to limit
+     */
+    public static VoltTable createVoltTableFromStreamedRows(VoltTable schema, int rowCount, ByteBuffer rows) {
+        final ByteBuffer schemaBuf = schema.getBuffer();
+        schemaBuf.limit(schema.getRowStart());
+        final ByteBuffer buf = ByteBuffer.allocate(schemaBuf.remaining() + 4 + rows.remaining());
+        buf.put(schemaBuf);
+        buf.putInt(rowCount);
+        buf.put(rows.duplicate());
+        buf.flip();
+        return new VoltTable(buf, true);
+    }
+
     public static VoltTable createVoltTableFromSharedBuffer(ByteBuffer shared) {
         VoltTable vt = new VoltTable();
         vt.initFromBuffer(shared);
@@ -507,6 +507,166 @@ public class ProcedureRunner {
         return retval;
     }
 
+    /**
+     * @return true if calls to this procedure can be executed along with other such calls
+     * in one round trip to the EE, using {@link #prepareCoalescedCall} and
+     * {@link #completeCoalescedCall}: a single-partition procedure that runs one SQL
+     * statement of a single plan fragment, and no Java.
+     */
+    public boolean isCoalescable() {
+        return !m_hasJava && !m_isSysProc && m_isSinglePartition &&
+                m_sqlStmts.size() == 1 && m_sqlStmts.get(0).stmt.collector == null &&
+                getNonVoltDBBackendIfExists() == null;
+    }
+
+    /**
+     * The state of one call to a coalescable procedure, from {@link #prepareCoalescedCall}
+     * to {@link #completeCoalescedCall}. Several calls to the same procedure can be in one
+     * coalesced group, so this state can't live in the runner like that of {@link #call}.
+     */
+    public static class CoalescedCall {
+        final SQLStmt m_stmt;
+        final SingleCallStatsToken m_perCallStats;
+        final DeterminismHash m_determinismHash = new DeterminismHash();
+        final int m_batchTimeout;
+        ParameterSet m_params = null;
+        // set if the call ended before it got to the EE
+        ClientResponseImpl m_response = null;
+
+        CoalescedCall(SQLStmt stmt, SingleCallStatsToken perCallStats, int batchTimeout) {
+            m_stmt = stmt;
+            m_perCallStats = perCallStats;
+            m_batchTimeout = batchTimeout;
+        }
+
+        /** @return false if the call already failed and must not be executed */
+        public boolean needsExecution() {
+            return m_response == null;
+        }
+
+        public long getFragmentId() {
+            return m_stmt.aggregator.id;
+        }
+
+        public ParameterSet getParams() {
+            return m_params;
+        }
+
+        public DeterminismHash getDeterminismHash() {
+            return m_determinismHash;
+        }
+
+        public String getSqlText() {
+            return m_stmt.getText();
+        }
+
+        public boolean isWriteFrag() {
+            return !m_stmt.isReadOnly;
+        }
+
+        public int getSqlCRC() {
+            return SQLStmtAdHocHelper.getHash(m_stmt);
+        }
+
+        /** @return true if the statement's execution time should be measured */
+        public boolean samplingStmts() {
+            return m_perCallStats.samplingStmts();
+        }
+    }
+
+    /**
+     * The part of {@link #call} that comes before the EE is invoked, for a coalescable
+     * procedure. It leaves no state behind in the runner.
+     */
+    public CoalescedCall prepareCoalescedCall(TransactionState txnState, Object... paramListIn) {
+        assert(isCoalescable());
+        final StoredProcedureInvocation invoc = txnState.getInvocation();
+        final CoalescedCall call = new CoalescedCall(m_sqlStmts.get(0).stmt,
+                m_statsCollector.beginProcedure(),
+                invoc == null ? 0 : invoc.getBatchTimeout());
+
+        ParameterSet params = (invoc != null ? invoc.getParams() : ParameterSet.fromArrayNoCopy(paramListIn));
+        call.m_perCallStats.setParameterSize(params.getSerializedSize());
+
+        call.m_determinismHash.reset(m_site.getSystemProcedureExecutionContext().getCatalogVersion());
+
+        // use local var to avoid warnings about reassigning method argument
+        Object[] paramList = paramListIn;
+        if (paramList.length != m_paramTypes.length) {
+            String msg = "PROCEDURE " + m_procedureName + " EXPECTS " + String.valueOf(m_paramTypes.length) +
+                " PARAMS, BUT RECEIVED " + String.valueOf(paramList.length);
+            call.m_response = getErrorResponse(ClientResponse.GRACEFUL_FAILURE,
+                    ClientResponse.UNINITIALIZED_APP_STATUS_CODE, null, msg, null);
+            return call;
+        }
+
+        for (int i = 0; i < m_paramTypes.length; i++) {
+            try {
+                paramList[i] = ParameterConverter.tryToMakeCompatible(m_paramTypes[i], paramList[i]);
+                // check the result type in an assert
+                assert(ParameterConverter.verifyParameterConversion(paramList[i], m_paramTypes[i]));
+            } catch (Exception e) {
+                String msg = "PROCEDURE " + m_procedureName + " TYPE ERROR FOR PARAMETER " + i +
+                        ": " + e.toString();
+                call.m_response = getErrorResponse(ClientResponse.GRACEFUL_FAILURE,
+                        ClientResponse.UNINITIALIZED_APP_STATUS_CODE, null, msg, null);
+                return call;
+            }
+        }
+
+        int numStmtParams = call.m_stmt.statementParamTypes.length;
+        call.m_params = getCleanParams(call.m_stmt, false, Arrays.copyOfRange(paramList, 0, numStmtParams));
+        return call;
+    }
+
+    /**
+     * The part of {@link #call} that comes after the EE is invoked, for a coalescable
+     * procedure.
+     * @param result the statement's result, null if it failed or wasn't executed
+     * @param error the exception the statement failed with, if it did
+     * @param executionTime the statement's execution time, if it was sampled
+     */
+    public ClientResponseImpl completeCoalescedCall(CoalescedCall call, VoltTable result,
+            SerializableException error, long executionTime) {
+        ClientResponseImpl retval = call.m_response;
+        if (retval == null) {
+            // No coordinator task for a single partition procedure.
+            call.m_perCallStats.recordStatementStats(call.m_stmt.getStmtName(), false, error != null,
+                    executionTime, result, call.m_params);
+
+            if (error != null) {
+                retval = getErrorResponse(m_procedureName,
+                                          m_isReadOnly,
+                                          call.m_batchTimeout,
+                                          ClientResponse.UNINITIALIZED_APP_STATUS_CODE,
+                                          null,
+                                          null,
+                                          error);
+            }
+            else {
+                // Make sure this table does not use an ee cache buffer
+                result.convertToHeapBuffer();
+                retval = new ClientResponseImpl(
+                        ClientResponse.SUCCESS,
+                        ClientResponse.UNINITIALIZED_APP_STATUS_CODE,
+                        null,
+                        new VoltTable[] { result },
+                        null);
+            }
+
+            // Even when the transaction fails, the computed hashes are valuable for diagnostic purpose,
+            // so always return the hashes.
+            retval.setHashes(call.m_determinismHash.get());
+        }
+
+        call.m_perCallStats.setResultSize(retval.getResults());
+        m_statsCollector.endProcedure(retval.getStatus() == ClientResponse.USER_ABORT,
+                                      (retval.getStatus() != ClientResponse.USER_ABORT) &&
+                                      (retval.getStatus() != ClientResponse.SUCCESS),
+                                      call.m_perCallStats);
+        return retval;
+    }
+
     /**
      * Check if the txn hashes to this partition. If not, it should be restarted.
      * @param txnState
@@ -1614,6 +1774,14 @@ public class ProcedureRunner {
                 rawDataBuff = fragResult.readBuffer(totalSize);
             }
             results = TableHelper.convertBackedBufferToTables(rawDataBuff, batchSize);
+            final Object resultsOwner = finalTask ? m_site.handOverLastResults() : null;
+            if (resultsOwner != null) {
+                // The EE won't reuse this memory, so the tables can go back to the
+                // client without being copied to the heap first
+                for (VoltTable table : results) {
+                    table.m_handedOverByEE = resultsOwner;
+                }
+            }
         } catch (Throwable ex) {
             if (!m_isReadOnly) {
                 // roll back the current batch and re-throw the EE exception
@@ -18,8 +18,8 @@ package org.voltdb;
 
 import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.Queue;
 import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.LinkedTransferQueue;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.voltcore.logging.VoltLogger;
@@ -39,7 +39,10 @@ public class QueueDepthTracker extends SiteStatsSource {
     private final AtomicInteger m_depth;
     private long m_lastWaitTime;
     private final ArrayBlockingQueue<QueueStatus> m_historicalData;
-    private LinkedTransferQueue<SiteTasker> m_tasks;
+    private Queue<SiteTasker> m_tasks;
+    // False if the queue's own size() is cheap and safe to read from the stats thread,
+    // so that producers don't all contend on m_depth
+    private final boolean m_countDepth;
     private long m_maxWaitTimeWindowSize = 5_000_000_000L; // window size set to 5 seconds
     private long m_maxWaitLastLogTime;
     private volatile long m_recentMaxWaitTime;
@@ -61,7 +64,7 @@ public class QueueDepthTracker extends SiteStatsSource {
         }
     }
 
-    public QueueDepthTracker(long siteId, LinkedTransferQueue<SiteTasker> tasks) {
+    public QueueDepthTracker(long siteId, Queue<SiteTasker> tasks, boolean countDepth) {
         super(siteId, false);
         m_historicalData = new ArrayBlockingQueue<>(10);
         m_depth = new AtomicInteger(tasks.size());
@@ -71,14 +74,19 @@ public class QueueDepthTracker extends SiteStatsSource {
         m_recentTotalWaitTime = 0;
         m_recentPollCount = 0;
         m_tasks = tasks;
+        m_countDepth = countDepth;
     }
 
     public void offerUpdate() {
-        m_depth.incrementAndGet();
+        if (m_countDepth) {
+            m_depth.incrementAndGet();
+        }
     }
 
     public void pollUpdate(long offerTime) {
-        m_depth.decrementAndGet();
+        if (m_countDepth) {
+            m_depth.decrementAndGet();
+        }
         long currentTime = System.nanoTime();
         m_lastWaitTime = currentTime - offerTime;
         // if max wait time was last logged less than m_recentWindowSize ago
@@ -144,7 +152,7 @@ public class QueueDepthTracker extends SiteStatsSource {
                 }
             }
         }
-        rowValues[columnNameToIndex.get("CURRENT_DEPTH")] = m_depth;
+        rowValues[columnNameToIndex.get("CURRENT_DEPTH")] = m_countDepth ? m_depth.get() : m_tasks.size();
         rowValues[columnNameToIndex.get("POLL_COUNT")] = totalPollCountInWindow;
         // wait times are in microseconds
         rowValues[columnNameToIndex.get("AVG_WAIT")] = (totalWaitTimeInWindow / Math.max(1, totalPollCountInWindow)) / 1000;
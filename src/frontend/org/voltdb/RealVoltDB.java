@@ -124,6 +124,7 @@ import org.voltdb.compiler.deploymentfile.HeartbeatType;
 import org.voltdb.compiler.deploymentfile.PartitionDetectionType;
 import org.voltdb.compiler.deploymentfile.PathsType;
 import org.voltdb.compiler.deploymentfile.SecurityType;
+import org.voltdb.compiler.deploymentfile.SiteQueueKindType;
 import org.voltdb.compiler.deploymentfile.SystemSettingsType;
 import org.voltdb.dtxn.InitiatorStats;
 import org.voltdb.dtxn.LatencyHistogramStats;
@@ -138,6 +139,7 @@ import org.voltdb.iv2.Initiator;
 import org.voltdb.iv2.KSafetyStats;
 import org.voltdb.iv2.LeaderAppointer;
 import org.voltdb.iv2.MpInitiator;
+import org.voltdb.iv2.SiteTaskerQueue;
 import org.voltdb.iv2.SpInitiator;
 import org.voltdb.iv2.SpScheduler.DurableUniqueIdListener;
 import org.voltdb.iv2.TxnEgo;
@@ -253,6 +255,8 @@ public class RealVoltDB implements VoltDBInterface, RestoreAgent.Callback, HostM
     private DRRoleStats m_drRoleStats = null;
     private StatsManager m_statsManager = null;
     private SnapshotCompletionMonitor m_snapshotCompletionMonitor;
+    // The kind of task queue the sites use, from the deployment
+    private SiteTaskerQueue.QueueSettings m_siteQueueSettings = SiteTaskerQueue.QueueSettings.LINKED;
     // These are unused locally, but they need to be registered with the StatsAgent so they're
     // globally available
     @SuppressWarnings("unused")
@@ -1210,7 +1214,7 @@ public class RealVoltDB implements VoltDBInterface, RestoreAgent.Callback, HostM
                 for (Initiator ii : m_iv2Initiators.values()) {
                     localHSIds.add(ii.getInitiatorHSId());
                 }
-                m_MPI = new MpInitiator(m_messenger, localHSIds, getStatsAgent());
+                m_MPI = new MpInitiator(m_messenger, localHSIds, getStatsAgent(), m_siteQueueSettings);
                 m_iv2Initiators.put(MpInitiator.MP_INIT_PID, m_MPI);
 
                 // Make a list of HDIds to join
@@ -2011,7 +2015,7 @@ public class RealVoltDB implements VoltDBInterface, RestoreAgent.Callback, HostM
         for (Integer partition : partitions)
         {
             Initiator initiator = new SpInitiator(m_messenger, partition, getStatsAgent(),
-                    m_snapshotCompletionMonitor, startAction);
+                    m_snapshotCompletionMonitor, startAction, m_siteQueueSettings);
             initiators.put(partition, initiator);
             m_partitionsToSitesAtStartupForExportInit.add(partition);
         }
@@ -2019,8 +2023,8 @@ public class RealVoltDB implements VoltDBInterface, RestoreAgent.Callback, HostM
     }
 
     private void createSecondaryConnections(boolean isRejoin) {
-        int partitionGroupCount = m_clusterSettings.get().hostcount() / (m_configuredReplicationFactor + 1);
-        if (m_configuredReplicationFactor > 0 && partitionGroupCount > 1) {
+        // Within a single partition group there are only bulk connections, see HostMessenger.setPartitionGroupPeers()
+        if (m_configuredReplicationFactor > 0) {
             m_messenger.createAuxiliaryConnections(isRejoin);
         }
     }
@@ -2414,6 +2418,25 @@ public class RealVoltDB implements VoltDBInterface, RestoreAgent.Callback, HostM
                 if (sysType.getSnapshot() != null) {
                     hostLog.info("Snapshot priority set to " + sysType.getSnapshot().getPriority() + " [0 - 10]");
                 }
+                if (sysType.getSitequeue() != null) {
+                    SystemSettingsType.Sitequeue siteQueue = sysType.getSitequeue();
+                    boolean useRing = siteQueue.getType() == SiteQueueKindType.RING;
+                    if (useRing) {
+                        hostLog.info("Site task queue set to a ring buffer of " + siteQueue.getCapacity() +
+                                " tasks with " + siteQueue.getWait().value() + " wait, spinning " +
+                                siteQueue.getSpinmicros() + " microseconds");
+                    }
+                    m_siteQueueSettings = useRing ?
+                            SiteTaskerQueue.QueueSettings.ring(siteQueue.getCapacity(),
+                                    siteQueue.getWait().value(), siteQueue.getSpinmicros()) :
+                            SiteTaskerQueue.QueueSettings.LINKED;
+                    if (siteQueue.getBatchsize() > 1) {
+                        hostLog.info("Site task batching set to " + siteQueue.getBatchsize() +
+                                " procedures, waiting at most " + siteQueue.getBatchmicros() + " microseconds");
+                        m_siteQueueSettings = m_siteQueueSettings.withBatching(
+                                siteQueue.getBatchsize(), siteQueue.getBatchmicros());
+                    }
+                }
                 if (sysType.getQuery() != null) {
                     if (sysType.getQuery().getTimeout() > 0) {
                         hostLog.info("Query timeout set to " + sysType.getQuery().getTimeout() + " milliseconds");
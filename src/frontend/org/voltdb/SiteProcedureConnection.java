@@ -27,6 +27,7 @@ import org.voltdb.VoltProcedure.VoltAbortException;
 import org.voltdb.dtxn.TransactionState;
 import org.voltdb.dtxn.UndoAction;
 import org.voltdb.exceptions.EEException;
+import org.voltdb.exceptions.SerializableException;
 import org.voltdb.iv2.DeterminismHash;
 import org.voltdb.iv2.JoinProducerBase;
 import org.voltdb.messaging.FastDeserializer;
@@ -131,6 +132,46 @@ public interface SiteProcedureConnection {
      */
     public boolean usingFallbackBuffer();
 
+    /**
+     * Allows caller to keep tables backed by the EE results of the last batch
+     * without copying them, if the EE agrees not to reuse that memory.
+     * @return the owner of the memory, which the tables must keep reachable for as long as
+     *         they are in use, or null if the results were not handed over
+     */
+    public Object handOverLastResults();
+
+    /**
+     * Execute the single plan fragments of a group of single-partition transactions
+     * in one call to the EE. Each write transaction gets its own undo token and is
+     * committed or rolled back in the EE before the next one runs, but must still be
+     * finished with {@link #completeCoalescedTransaction}, in order.
+     * The result tables reference the EE's result buffer until its next call.
+     * @return the number of transactions, from the first, that were executed
+     */
+    public int executeCoalescedPlanFragments(
+            int numTxns,
+            long[] planFragmentIds,
+            Object[] parameterSets,
+            DeterminismHash[] determinismHashes,
+            String[] procedureNames,
+            String[] sqlTexts,
+            boolean[] isWriteFrags,
+            int[] sqlCRCs,
+            long[] txnIds,
+            long[] spHandles,
+            long[] uniqueIds,
+            boolean[] readOnly,
+            VoltTable[] results,
+            SerializableException[] errors,
+            long[] executionTimes,
+            boolean traceOn) throws EEException;
+
+    /**
+     * IV2 commit / rollback of a transaction executed by {@link #executeCoalescedPlanFragments},
+     * whose EE work has already been committed or rolled back: java level roll back if needed
+     */
+    public void completeCoalescedTransaction(boolean rollback, long spHandle, List<UndoAction> undoActions);
+
     /**
      * Let the EE know which batch of sql is running so it can include this
      * information in any slow query progress log messages.
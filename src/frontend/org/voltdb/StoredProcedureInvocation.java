@@ -72,6 +72,8 @@ public class StoredProcedureInvocation implements JSONString {
 
     private int m_batchTimeout = BatchTimeoutOverrideType.NO_TIMEOUT;
     private boolean m_allPartition = false;
+    // 0 unless the client accepts the response streamed in frames of at most this many bytes
+    private int m_streamFrameSize = 0;
 
     public StoredProcedureInvocation getShallowCopy()
     {
@@ -92,6 +94,7 @@ public class StoredProcedureInvocation implements JSONString {
 
         copy.m_batchTimeout = m_batchTimeout;
         copy.m_allPartition = m_allPartition;
+        copy.m_streamFrameSize = m_streamFrameSize;
 
         return copy;
     }
@@ -185,6 +188,10 @@ public class StoredProcedureInvocation implements JSONString {
         return m_allPartition;
     }
 
+    public int getStreamFrameSize() {
+        return m_streamFrameSize;
+    }
+
     /** Read into an serialized parameter buffer to extract a single parameter */
     Object getParameterAtIndex(int partitionIndex) {
         try {
@@ -214,6 +221,7 @@ public class StoredProcedureInvocation implements JSONString {
         int batchExtensionSize = m_batchTimeout != BatchTimeoutOverrideType.NO_TIMEOUT ? 6 : 0;
         // 2 is one byte for ext type, one for size
         int allPartitionExtensionSize = m_allPartition ? 2 : 0;
+        int streamExtensionSize = m_streamFrameSize > 0 ? 6 : 0;
 
         // compute the size
         int size =
@@ -221,7 +229,7 @@ public class StoredProcedureInvocation implements JSONString {
             4 + getProcNameBytes().length + // procname
             8 + // client handle
             1 + // extension count
-            batchExtensionSize + allPartitionExtensionSize + // extensions
+            batchExtensionSize + allPartitionExtensionSize + streamExtensionSize + // extensions
             getSerializedParamSize(); // parameters
         assert(size > 0); // sanity
 
@@ -313,10 +321,11 @@ public class StoredProcedureInvocation implements JSONString {
 
         buf.putLong(clientHandle);
 
-        // there are two possible extensions, count which apply
+        // there are three possible extensions, count which apply
         byte extensionCount = 0;
         if (m_batchTimeout != BatchTimeoutOverrideType.NO_TIMEOUT) ++extensionCount;
         if (m_allPartition) ++extensionCount;
+        if (m_streamFrameSize > 0) ++extensionCount;
         // write the count as one byte
         buf.put(extensionCount);
         // write any extensions that apply
@@ -326,6 +335,9 @@ public class StoredProcedureInvocation implements JSONString {
         if (m_allPartition) {
             ProcedureInvocationExtensions.writeAllPartitionWithTypeByte(buf);
         }
+        if (m_streamFrameSize > 0) {
+            ProcedureInvocationExtensions.writeStreamResultsWithTypeByte(buf, m_streamFrameSize);
+        }
 
         serializeParams(buf);
 
@@ -399,6 +411,7 @@ public class StoredProcedureInvocation implements JSONString {
         // set these to defaults so old versions don't worry about them
         m_batchTimeout = BatchTimeoutOverrideType.NO_TIMEOUT;
         m_allPartition = false;
+        m_streamFrameSize = 0;
 
         switch (type) {
             case ORIGINAL:
@@ -488,6 +501,9 @@ public class StoredProcedureInvocation implements JSONString {
                 // note this always returns true as it's just a flag
                 m_allPartition = ProcedureInvocationExtensions.readAllPartition(buf);
                 break;
+            case ProcedureInvocationExtensions.STREAM_RESULTS:
+                m_streamFrameSize = ProcedureInvocationExtensions.readStreamResults(buf);
+                break;
             default:
                 ProcedureInvocationExtensions.skipUnknownExtension(buf);
                 break;
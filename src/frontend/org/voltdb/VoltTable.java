@@ -131,6 +131,9 @@ public final class VoltTable extends VoltTableRow implements JSONString {
     static final Charset ROWDATA_ENCODING = Constants.UTF8ENCODING;
 
     boolean m_readOnly = false;
+    // set when the direct buffer behind this table was handed over by the EE, which won't reuse it,
+    // to the owner of that memory, which is kept until this table is gone
+    Object m_handedOverByEE = null;
     int m_rowStart = -1; // the beginning of the row data (points to before the row count int)
     int m_rowCount = -1;
     int m_colCount = -1;
@@ -1922,7 +1925,7 @@ public final class VoltTable extends VoltTableRow implements JSONString {
     }
 
     public final void convertToHeapBuffer() {
-        if (m_buffer.isDirect()) {
+        if (m_buffer.isDirect() && m_handedOverByEE == null) {
             // Either this was allocated by the stored procedure as a direct buffer or this
             // is cached from the EE. If the second, we need to make a copy so the EE can
             // reuse the buffer for the next stored procedure.
@@ -111,6 +111,61 @@ public interface Client {
     public boolean callProcedure(ProcedureCallback callback, String procName, Object... parameters)
     throws IOException, NoConnectionsException;
 
+    /**
+     * <p>Prepare a procedure to be called many times. Calling it through the returned
+     * {@link ProcedureHandle} saves the work that only depends on the procedure name,
+     * such as encoding it and looking up how to route the calls, on every call.
+     * The procedure doesn't have to exist yet, calls fail as usual if it doesn't.</p>
+     *
+     * @param procName class name (not qualified by package) of the procedure to execute.
+     * @return {@link ProcedureHandle} to call the procedure with.
+     */
+    public ProcedureHandle prepare(String procName);
+
+    /**
+     * <p>Synchronously invoke a procedure whose results may be too large to hold in memory, such as an
+     * extract query. Blocks until the response starts to arrive, and returns a {@link ResultStream} to read
+     * the rows from as the rest of it arrives. A {@link ProcCallException} is thrown if the response is
+     * anything other then success.</p>
+     *
+     * @param procName <code>class</code> name (not qualified by package) of the procedure to execute.
+     * @param parameters vararg list of procedure's parameter values.
+     * @return {@link ResultStream} of the procedure call results.
+     * @throws ProcCallException on any VoltDB specific failure.
+     * @throws NoConnectionsException if this {@link Client} instance is not connected to any servers.
+     * @throws IOException if there is a Java network or connection problem.
+     */
+    public ResultStream callProcedureStreaming(String procName, Object... parameters)
+    throws IOException, NoConnectionsException, ProcCallException;
+
+    /**
+     * <p>Asynchronously invoke a procedure and return a future for its response, so that calls can be composed
+     * without a {@link ProcedureCallback}. The future completes with the response whatever its status, just as
+     * a callback would be invoked, and fails only if the invocation could not be queued: with a
+     * {@link NoConnectionsException} or an {@link IOException} where {@link #callProcedure(ProcedureCallback, String, Object...)}
+     * would throw them, or with a {@link ProcCallException} where it would return <code>false</code>.</p>
+     *
+     * <p>Like the callback version this call blocks on backpressure unless configureBlocking(false) is invoked.
+     * The future is completed on the executor set with {@link ClientConfig#setCallbackExecutor(java.util.concurrent.Executor)},
+     * or on the network thread of the client if there is none.</p>
+     *
+     * @param procName class name (not qualified by package) of the procedure to execute.
+     * @param parameters vararg list of procedure's parameter values.
+     * @return a future for the {@link ClientResponse} of the procedure.
+     */
+    public ProcedureFuture<ClientResponse> callProcedureAsync(String procName, Object... parameters);
+
+    /**
+     * <p>Asynchronously invoke a procedure once for each of the given sets of parameters, and return a future for all
+     * the responses. The invocations are queued in order, as with {@link #callProcedureAsync(String, Object...)}.</p>
+     *
+     * @param procName class name (not qualified by package) of the procedure to execute.
+     * @param parameterSets the procedure's parameter values for each invocation.
+     * @return a future for the {@link ClientResponse}s of the invocations, in the order of the parameter sets.
+     * It fails if any of the invocations could not be queued.
+     */
+    public ProcedureFuture<List<ClientResponse>> callProceduresAsync(String procName, List<Object[]> parameterSets);
+
     /**
      * <p>Synchronously invoke a procedure with timeout. Blocks until a result is available. A {@link ProcCallException}
      * is thrown if the response is anything other then success.</p>
@@ -583,4 +638,17 @@ public interface Client {
      */
     public boolean callAllPartitionProcedure(AllPartitionProcedureCallback callback, String procedureName, Object... params)
             throws IOException, NoConnectionsException, ProcCallException;
+
+    /**
+     * <p>Asynchronously execute a stored procedure on every partition, as
+     * {@link #callAllPartitionProcedure(AllPartitionProcedureCallback, String, Object...)} does, and return a future
+     * for the responses of all the partitions. The future fails only if the partitions could not be determined.
+     * It is completed in the same way as the future of {@link #callProcedureAsync(String, Object...)}.</p>
+     *
+     * @param procedureName class name (not qualified by package) of the partitioned java procedure to execute.
+     * @param params vararg list of procedure's parameter values.
+     * @return a future for the {@link ClientResponseWithPartitionKey} instances of procedure call results.
+     */
+    public ProcedureFuture<ClientResponseWithPartitionKey[]> callAllPartitionProcedureAsync(String procedureName,
+            Object... params);
 }
@@ -25,6 +25,7 @@ import java.math.RoundingMode;
 import java.security.Principal;
 import java.util.Iterator;
 import java.util.Properties;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 
 import javax.security.auth.Subject;
@@ -46,6 +47,8 @@ public class ClientConfig {
     static final long DEFAULT_CONNECTION_TIMOUT_MS = 2 * 60 * 1000; // default timeout is 2 minutes;
     static final long DEFAULT_INITIAL_CONNECTION_RETRY_INTERVAL_MS = 1000; // default initial connection retry interval is 1 second
     static final long DEFAULT_MAX_CONNECTION_RETRY_INTERVAL_MS = 8000; // default max connection retry interval is 8 seconds
+    static final int DEFAULT_STREAMING_FRAME_SIZE = 1024 * 1024; // default streamed response frame size is 1MB
+    static final int MIN_STREAMING_FRAME_SIZE = 4096;
 
     final ClientAuthScheme m_hashScheme;
     final String m_username;
@@ -57,6 +60,8 @@ public class ClientConfig {
     int m_maxTransactionsPerSecond = Integer.MAX_VALUE;
     boolean m_autoTune = false;
     int m_autoTuneTargetInternalLatency = 5;
+    boolean m_adaptiveRateLimiting = false;
+    int m_adaptiveTargetP99Latency = 10;
     long m_procedureCallTimeoutNanos = DEFAULT_PROCEDURE_TIMOUT_NANOS;
     long m_connectionResponseTimeoutMS = DEFAULT_CONNECTION_TIMOUT_MS;
     boolean m_useClientAffinity = true;
@@ -67,6 +72,9 @@ public class ClientConfig {
     boolean m_sendReadsToReplicasBytDefaultIfCAEnabled = false;
     SslConfig m_sslConfig;
     boolean m_topologyChangeAware = false;
+    Executor m_callbackExecutor = null;
+    long m_requestLingerNanos = 0;
+    int m_streamingFrameSize = DEFAULT_STREAMING_FRAME_SIZE;
     boolean m_enableSSL = false;
     String m_sslPropsFile = null;
 
@@ -363,6 +371,49 @@ public class ClientConfig {
         m_topologyChangeAware = enabled;
     }
 
+    /**
+     * <p>Set the executor that completes the futures returned by the asynchronous calls such as
+     * {@link Client#callProcedureAsync(String, Object...)}, and therefore runs their listeners.</p>
+     * <p>By default the futures are completed on the network thread of the client, like the
+     * procedure callbacks, which is only appropriate for listeners that do very little work.</p>
+     *
+     * @param executor Executor that completes the futures, or null to complete them on the network thread.
+     */
+    public void setCallbackExecutor(Executor executor) {
+        m_callbackExecutor = executor;
+    }
+
+    /**
+     * <p>Set how long an invocation may wait before it is written to the network so that other
+     * invocations sent to the same server in the meantime are written along with it. Batching the
+     * invocations saves system calls and per-message work on both ends for workloads of many
+     * small transactions, at the cost of up to this much extra latency per call.</p>
+     * <p>Defaults to 0, invocations are written as soon as they are queued.</p>
+     *
+     * @param micros Linger time in microseconds, 0 to disable batching.
+     */
+    public void setRequestLingerTime(long micros) {
+        if (micros < 0) {
+            throw new IllegalArgumentException("Request linger time can not be negative");
+        }
+        m_requestLingerNanos = TimeUnit.MICROSECONDS.toNanos(micros);
+    }
+
+    /**
+     * <p>Set the largest response that {@link Client#callProcedureStreaming(String, Object...)} receives
+     * whole. Larger responses are streamed in frames of at most this size, and the client holds only a
+     * few of them in memory at a time.</p>
+     * <p>Defaults to 1MB.</p>
+     *
+     * @param bytes Maximum size of a frame of a streamed response, in bytes.
+     */
+    public void setStreamingFrameSize(int bytes) {
+        if (bytes < MIN_STREAMING_FRAME_SIZE) {
+            throw new IllegalArgumentException("Streaming frame size can not be less than " + MIN_STREAMING_FRAME_SIZE);
+        }
+        m_streamingFrameSize = bytes;
+    }
+
     /**
      * <p>By default, reads are sent to the leader replica for each partition. This
      * is usually optimal for the default read consistency value, SAFE. If you are
@@ -407,6 +458,25 @@ public class ClientConfig {
         this.m_maxConnectionRetryIntervalMS = ms;
     }
 
+    /**
+     * <p>Enable adaptive rate limiting, which searches for the highest number of outstanding
+     * transactions that keeps the 99th percentile of the round trip latency measured by the
+     * client under a target. Every 100ms the limit is raised a little if it held transactions
+     * back, and cut by a quarter if more than 1% of the round trips exceeded the target or a
+     * server connection reported backpressure. {@link #setMaxTransactionsPerSecond(int)} still
+     * applies, {@link #setMaxOutstandingTxns(int)} and {@link #enableAutoTune()} are ignored.</p>
+     *
+     * @param targetP99Latency Target 99th percentile round trip latency in milliseconds.
+     */
+    public void enableAdaptiveRateLimiting(int targetP99Latency) {
+        if (targetP99Latency < 1) {
+            throw new IllegalArgumentException(
+                    "Target p99 latency must be greater than 0, " + targetP99Latency + " was specified");
+        }
+        m_adaptiveRateLimiting = true;
+        m_adaptiveTargetP99Latency = targetP99Latency;
+    }
+
     /**
      * <p>Set the target latency for the Auto Tune feature. Note this represents internal
      * latency as reported by the server(s), not round-trip latency measured by the
@@ -22,18 +22,22 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.net.UnknownHostException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Logger;
 
@@ -52,6 +56,9 @@ import org.voltdb.common.Constants;
 import org.voltdb.utils.Encoder;
 
 import com.google_voltpatches.common.collect.ImmutableSet;
+import com.google_voltpatches.common.util.concurrent.Futures;
+import com.google_voltpatches.common.util.concurrent.ListenableFuture;
+import com.google_voltpatches.common.util.concurrent.SettableFuture;
 
 /**
  *  A client that connects to one or more nodes in a VoltCluster
@@ -131,6 +138,7 @@ public final class ClientImpl implements Client {
             m_sslContext = null;
         }
 
+        m_callbackExecutor = config.m_callbackExecutor;
         m_distributer = new Distributer(
                 config.m_heavyweight,
                 config.m_procedureCallTimeoutNanos,
@@ -146,6 +154,8 @@ public final class ClientImpl implements Client {
         }
         m_username = username;
         m_distributer.setTopologyChangeAware(config.m_topologyChangeAware);
+        m_distributer.setRequestLinger(config.m_requestLingerNanos);
+        m_streamingFrameSize = config.m_streamingFrameSize;
         if (config.m_topologyChangeAware) {
             m_ex = Executors.newSingleThreadScheduledExecutor(CoreUtils.getThreadFactory("Topoaware thread"));
         }
@@ -171,7 +181,11 @@ public final class ClientImpl implements Client {
 
         assert(config.m_maxOutstandingTxns > 0);
         m_blessedThreadIds.addAll(m_distributer.getThreadIds());
-        if (config.m_autoTune) {
+        if (config.m_adaptiveRateLimiting) {
+            m_distributer.m_rateLimiter.enableAdaptiveLimiting(
+                    config.m_maxTransactionsPerSecond, config.m_adaptiveTargetP99Latency);
+        }
+        else if (config.m_autoTune) {
             m_distributer.m_rateLimiter.enableAutoTuning(
                     config.m_autoTuneTargetInternalLatency);
         }
@@ -320,6 +334,68 @@ public final class ClientImpl implements Client {
         return internalSyncCallProcedure(nanos, invocation);
     }
 
+    @Override
+    public ResultStream callProcedureStreaming(String procName, Object... parameters)
+            throws IOException, NoConnectionsException, ProcCallException
+    {
+        long handle = m_handle.getAndIncrement();
+        ProcedureInvocation invocation = new ProcedureInvocation(handle, procName, parameters);
+        invocation.setStreamFrameSize(m_streamingFrameSize);
+        ResultStream stream = new ResultStream();
+        // registered before the call, the first frames can arrive before it returns
+        m_distributer.registerStream(handle, stream);
+        ClientResponse response = null;
+        try {
+            response = internalSyncCallProcedure(Distributer.USE_DEFAULT_CLIENT_TIMEOUT, invocation);
+        }
+        finally {
+            if (response == null || !stream.responseReceived(response)) {
+                m_distributer.unregisterStream(handle);
+            }
+        }
+        return stream;
+    }
+
+    @Override
+    public ProcedureHandle prepare(String procName) {
+        return new ProcedureHandle(this, procName);
+    }
+
+    /**
+     * Synchronously invoke a prepared procedure.
+     */
+    ClientResponse callPrepared(ProcedureHandle procedure, Object... parameters)
+            throws IOException, NoConnectionsException, ProcCallException
+    {
+        long handle = m_handle.getAndIncrement();
+        ProcedureInvocation invocation = new ProcedureInvocation(handle, procedure, parameters);
+        return internalSyncCallProcedure(Distributer.USE_DEFAULT_CLIENT_TIMEOUT, invocation);
+    }
+
+    /**
+     * Asynchronously invoke a prepared procedure.
+     */
+    boolean callPrepared(ProcedureCallback callback, ProcedureHandle procedure, Object... parameters)
+            throws IOException, NoConnectionsException
+    {
+        if (callback instanceof ProcedureArgumentCacher) {
+            ((ProcedureArgumentCacher) callback).setArgs(parameters);
+        }
+
+        long handle = m_handle.getAndIncrement();
+        ProcedureInvocation invocation = new ProcedureInvocation(handle, procedure, parameters);
+
+        if (m_isShutdown) {
+            return false;
+        }
+
+        if (callback == null) {
+            callback = NULL_CALLBACK;
+        }
+
+        return internalAsyncCallProcedure(callback, Distributer.USE_DEFAULT_CLIENT_TIMEOUT, invocation);
+    }
+
     /**
      * Asynchronously invoke a procedure call.
      * @param callback TransactionCallback that will be invoked with procedure results.
@@ -423,6 +499,78 @@ public final class ClientImpl implements Client {
         return internalAsyncCallProcedure(callback, clientTimeoutUnit.toNanos(clientTimeout), invocation);
     }
 
+    @Override
+    public ProcedureFuture<ClientResponse> callProcedureAsync(String procName, Object... parameters) {
+        return new ProcedureFuture<ClientResponse>(queueProcedureAsync(procName, parameters));
+    }
+
+    private ListenableFuture<ClientResponse> queueProcedureAsync(String procName, Object... parameters) {
+        final FutureProcedureCallback callback = new FutureProcedureCallback();
+        try {
+            if (!callProcedure(callback, procName, parameters)) {
+                final ClientResponseImpl r = new ClientResponseImpl(
+                        ClientResponse.GRACEFUL_FAILURE,
+                        ClientResponse.UNINITIALIZED_APP_STATUS_CODE,
+                        "",
+                        new VoltTable[0],
+                        "Unable to queue client request.");
+                callback.m_future.setException(new ProcCallException(r, "Unable to queue client request.", null));
+            }
+        } catch (IOException e) {
+            callback.m_future.setException(e);
+        }
+        return callback.m_future;
+    }
+
+    @Override
+    public ProcedureFuture<List<ClientResponse>> callProceduresAsync(String procName, List<Object[]> parameterSets) {
+        final List<ListenableFuture<ClientResponse>> futures = new ArrayList<>(parameterSets.size());
+        for (Object[] parameters : parameterSets) {
+            futures.add(queueProcedureAsync(procName, parameters));
+        }
+        return new ProcedureFuture<List<ClientResponse>>(Futures.allAsList(futures));
+    }
+
+    @Override
+    public ProcedureFuture<ClientResponseWithPartitionKey[]> callAllPartitionProcedureAsync(String procedureName,
+            Object... params) {
+        final SettableFuture<ClientResponseWithPartitionKey[]> future = SettableFuture.create();
+        try {
+            callAllPartitionProcedure(new AllPartitionProcedureCallback() {
+                @Override
+                public void clientCallback(ClientResponseWithPartitionKey[] clientResponse) {
+                    completeFuture(future, clientResponse);
+                }
+            }, procedureName, params);
+        } catch (IOException | ProcCallException e) {
+            future.setException(e);
+        }
+        return new ProcedureFuture<ClientResponseWithPartitionKey[]>(future);
+    }
+
+    /**
+     * Complete the future of an asynchronous call on the callback executor, or right here
+     * on the network thread if there is no executor or it rejects the task, so that a
+     * response is never dropped.
+     */
+    private <T> void completeFuture(final SettableFuture<T> future, final T value) {
+        if (m_callbackExecutor != null) {
+            try {
+                m_callbackExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        future.set(value);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // The executor has been shut down, complete the future here instead
+                future.set(value);
+            }
+            return;
+        }
+        future.set(value);
+    }
+
     @Deprecated
     @Override
     public int calculateInvocationSerializedSize(
@@ -622,8 +770,11 @@ public final class ClientImpl implements Client {
                     " without deadlocking the client library");
         }
         m_isShutdown = true;
-        synchronized (m_backpressureLock) {
-            m_backpressureLock.notifyAll();
+        m_backpressureLock.lock();
+        try {
+            m_backpressureEnded.signalAll();
+        } finally {
+            m_backpressureLock.unlock();
         }
 
         if (m_reconnectStatusListener != null) {
@@ -662,35 +813,23 @@ public final class ClientImpl implements Client {
                     " without deadlocking the client library");
         }
         if (m_backpressure) {
-            synchronized (m_backpressureLock) {
-                if (m_backpressure) {
-                    while (m_backpressure && !m_isShutdown) {
-                       if (start != 0) {
-                           if (timeoutNanos <= 0) {
-                               // timeout nano value is negative or zero, indicating it timed out.
-                               return true;
-                           }
-
-                            //Wait on the condition for the specified timeout remaining
-                            m_backpressureLock.wait(timeoutNanos / TimeUnit.MILLISECONDS.toNanos(1), (int)(timeoutNanos % TimeUnit.MILLISECONDS.toNanos(1)));
-
-                            //Condition is true, break and return false
-                            if (!m_backpressure) break;
-
-                            //Calculate whether the timeout should be triggered
-                            final long nowNanos = System.nanoTime();
-                            final long deltaNanos = Math.max(1, nowNanos - start);
-                            if (deltaNanos >= timeoutNanos) {
-                                return true;
-                            }
-
-                            //Reassigning timeout nanos with remainder of timeout
-                            timeoutNanos -= deltaNanos;
-                       } else {
-                           m_backpressureLock.wait();
-                       }
+            m_backpressureLock.lock();
+            try {
+                while (m_backpressure && !m_isShutdown) {
+                    if (start != 0) {
+                        if (timeoutNanos <= 0) {
+                            // timeout nano value is negative or zero, indicating it timed out.
+                            return true;
+                        }
+
+                        //Wait on the condition for the remainder of the timeout
+                        timeoutNanos = m_backpressureEnded.awaitNanos(timeoutNanos);
+                    } else {
+                        m_backpressureEnded.await();
                     }
                 }
+            } finally {
+                m_backpressureLock.unlock();
             }
         }
         return false;
@@ -726,13 +865,14 @@ public final class ClientImpl implements Client {
         AtomicInteger connectionTaskCount = new AtomicInteger(0);
         @Override
         public void backpressure(boolean status) {
-            synchronized (m_backpressureLock) {
-                if (status) {
-                    m_backpressure = true;
-                } else {
-                    m_backpressure = false;
-                    m_backpressureLock.notifyAll();
+            m_backpressureLock.lock();
+            try {
+                m_backpressure = status;
+                if (!status) {
+                    m_backpressureEnded.signalAll();
                 }
+            } finally {
+                m_backpressureLock.unlock();
             }
         }
 
@@ -742,9 +882,12 @@ public final class ClientImpl implements Client {
             if (connectionsLeft == 0) {
                 //Wake up client and let it attempt to queue work
                 //and then fail with a NoConnectionsException
-                synchronized (m_backpressureLock) {
+                m_backpressureLock.lock();
+                try {
                     m_backpressure = false;
-                    m_backpressureLock.notifyAll();
+                    m_backpressureEnded.signalAll();
+                } finally {
+                    m_backpressureLock.unlock();
                 }
             }
         }
@@ -873,8 +1016,13 @@ public final class ClientImpl implements Client {
 
     static final Logger LOG = Logger.getLogger(ClientImpl.class.getName());  // Logger shared by client package.
     private final Distributer m_distributer;                             // de/multiplexes connections to a cluster
-    private final Object m_backpressureLock = new Object();
-    private boolean m_backpressure = false;
+    private final Executor m_callbackExecutor;                           // completes the futures of async calls
+    private final int m_streamingFrameSize;                              // frame size of streamed responses
+    // A lock and condition rather than a monitor, so that callers blocked on backpressure,
+    // possibly many virtual threads, park without holding on to a carrier thread
+    private final ReentrantLock m_backpressureLock = new ReentrantLock();
+    private final Condition m_backpressureEnded = m_backpressureLock.newCondition();
+    private volatile boolean m_backpressure = false;
 
     private boolean m_blockingQueue = true;
 
@@ -1141,6 +1289,18 @@ public final class ClientImpl implements Client {
         }
     }
 
+    /**
+     * Callback of callProcedureAsync, which completes its future with the response
+     */
+    private final class FutureProcedureCallback implements ProcedureCallback {
+        final SettableFuture<ClientResponse> m_future = SettableFuture.create();
+
+        @Override
+        public void clientCallback(ClientResponse clientResponse) {
+            completeFuture(m_future, clientResponse);
+        }
+    }
+
     /**
      * Procedure call back for async callAllPartitionProcedure
      */
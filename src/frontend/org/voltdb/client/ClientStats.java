@@ -25,6 +25,8 @@ import java.util.Iterator;
 import java.util.concurrent.TimeUnit;
 
 import org.HdrHistogram_voltpatches.Histogram;
+import org.HdrHistogram_voltpatches.HistogramLogWriter;
+import org.HdrHistogram_voltpatches.SingleWriterRecorder;
 
 import com.google_voltpatches.common.base.Charsets;
 import com.google_voltpatches.common.base.Throwables;
@@ -70,6 +72,11 @@ public class ClientStats {
     final public static int HUNDRED_MS_BUCKET_COUNT = 10;
 
     Histogram m_latencyHistogram;
+    // The live stats of a connection record latencies here, from its network thread, and
+    // move them to m_latencyHistogram when they are copied. Recording allocates nothing and
+    // never waits, and copies never read a histogram while it is being written to.
+    SingleWriterRecorder m_latencyRecorder = null;
+    private Histogram m_latencyInterval = null;
 
     long m_bytesSent;
     long m_bytesReceived;
@@ -86,6 +93,10 @@ public class ClientStats {
         return new Histogram( LOWEST_TRACKABLE, HIGHEST_TRACKABLE, SIGNIFICANT_VALUE_DIGITS);
     }
 
+    static SingleWriterRecorder constructRecorder() {
+        return new SingleWriterRecorder(LOWEST_TRACKABLE, HIGHEST_TRACKABLE, SIGNIFICANT_VALUE_DIGITS);
+    }
+
     ClientStats() {
         m_procName = "";
         m_connectionId = -1;
@@ -112,12 +123,23 @@ public class ClientStats {
         m_invocationTimeouts = other.m_invocationTimeouts;
         m_roundTripTimeNanos = other.m_roundTripTimeNanos;
         m_clusterRoundTripTime = other.m_clusterRoundTripTime;
-        m_latencyHistogram = other.m_latencyHistogram.copy();
+        m_latencyHistogram = other.copyLatencyHistogram();
         m_latencyHistogram.reestablishTotalCount();
         m_bytesSent = other.m_bytesSent;
         m_bytesReceived = other.m_bytesReceived;
     }
 
+    private Histogram copyLatencyHistogram() {
+        if (m_latencyRecorder == null) {
+            return m_latencyHistogram.copy();
+        }
+        synchronized (this) {
+            m_latencyInterval = m_latencyRecorder.getIntervalHistogram(m_latencyInterval);
+            m_latencyHistogram.add(m_latencyInterval);
+            return m_latencyHistogram.copy();
+        }
+    }
+
     static ClientStats diff(ClientStats newer, ClientStats older) {
         if ((newer.m_procName != older.m_procName) || (newer.m_connectionId != older.m_connectionId)) {
             throw new IllegalArgumentException("Can't diff these ClientStats instances.");
@@ -209,13 +231,22 @@ public class ClientStats {
         //above 50 micros
         final long roundTripMicros = Math.max(LOWEST_TRACKABLE, TimeUnit.NANOSECONDS.toMicros(roundTripTimeNanos));
         if (roundTripMicros > HIGHEST_TRACKABLE) {
-            m_latencyHistogram.recordValue(roundTripMicros % HIGHEST_TRACKABLE);
+            recordLatency(roundTripMicros % HIGHEST_TRACKABLE);
             int count = (int)(roundTripMicros / HIGHEST_TRACKABLE);
             for (int ii = 0; ii < count; ii++) {
-                m_latencyHistogram.recordValue(HIGHEST_TRACKABLE);
+                recordLatency(HIGHEST_TRACKABLE);
             }
         } else {
-            m_latencyHistogram.recordValue(roundTripMicros);
+            recordLatency(roundTripMicros);
+        }
+    }
+
+    private void recordLatency(long micros) {
+        if (m_latencyRecorder != null) {
+            m_latencyRecorder.recordValue(micros);
+        }
+        else {
+            m_latencyHistogram.recordValue(micros);
         }
     }
 
@@ -511,6 +542,28 @@ public class ClientStats {
         return new String(baos.toByteArray(), Charsets.UTF_8);
     }
 
+    /**
+     * <p>Write the latencies as one interval of an HdrHistogram log, which the HdrHistogram
+     * log tools can read and merge with the logs of the server's latency histograms. Values
+     * are in microseconds, and the interval is the time period covered by this stats instance,
+     * relative to the base time of the writer.</p>
+     *
+     * <p>The instances returned by {@link ClientStatsContext#fetchAndResetBaseline()} cover
+     * consecutive intervals, and writing each of them in turn logs latencies over time. A log
+     * holds the latencies of one procedure and connection, or of one aggregate of them.</p>
+     *
+     * <p>Latencies are measured from the time the procedure was invoked, including any time
+     * spent waiting for backpressure or rate limiting to let it be sent, so a slow response
+     * doesn't hide the delay it caused to the calls made after it.</p>
+     *
+     * @param writer The log to write to.
+     */
+    public void writeLatencyHistogramLog(HistogramLogWriter writer) {
+        final long baseTime = writer.getBaseTime();
+        writer.outputIntervalHistogram((m_startTS - baseTime) / 1000.0, (m_endTS - baseTime) / 1000.0,
+                m_latencyHistogram, 1000.0);
+    }
+
     /**
      * <p>Return an average throughput of transactions acknowledged per
      * second for the duration covered by this stats instance.</p>
@@ -48,11 +48,13 @@ import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
 
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLEngine;
 import javax.security.auth.Subject;
 
+import org.cliffc_voltpatches.high_scale_lib.Counter;
 import org.cliffc_voltpatches.high_scale_lib.NonBlockingHashMap;
 import org.json_voltpatches.JSONException;
 import org.json_voltpatches.JSONObject;
@@ -103,7 +105,15 @@ class Distributer {
     private final CopyOnWriteArrayList<NodeConnection> m_connections =
             new CopyOnWriteArrayList<>();
 
-    private final ArrayList<ClientStatusListenerExt> m_listeners = new ArrayList<>();
+    private final CopyOnWriteArrayList<ClientStatusListenerExt> m_listeners = new CopyOnWriteArrayList<>();
+
+    // Orders the reports of backpressure by queue() with the reports of its end by the write
+    // streams. A lock rather than the distributer monitor, so that callers contending for it
+    // don't also contend with topology updates, and park without pinning a virtual thread.
+    private final ReentrantLock m_backpressureReportLock = new ReentrantLock();
+
+    // streams of the responses of callProcedureStreaming() calls, by client handle
+    private final ConcurrentMap<Long, ResultStream> m_streams = new ConcurrentHashMap<>();
 
     //Selector and connection handling, does all work in blocking selection thread
     private final VoltNetworkPool m_network;
@@ -111,7 +121,7 @@ class Distributer {
     private final SSLContext m_sslContext;
 
     // Temporary until a distribution/affinity algorithm is written
-    private int m_nextConnection = 0;
+    private final AtomicInteger m_nextConnection = new AtomicInteger(0);
 
     private final boolean m_useMultipleThreads;
     private final boolean m_useClientAffinity;
@@ -134,8 +144,45 @@ class Distributer {
         }
     }
 
-    private final Map<Integer, NodeConnection> m_partitionMasters = new HashMap<>();
-    private final Map<Integer, NodeConnection[]> m_partitionReplicas = new HashMap<>();
+    /**
+     * The routing information of a prepared procedure, with the procedure map it was looked
+     * up in. The map is replaced whenever the procedures change, so the information is
+     * current for as long as the map is.
+     */
+    static final class ProcedureBinding {
+        private final ImmutableSortedMap<String, Procedure> procedures;
+        private final Procedure procedureInfo;
+        private ProcedureBinding(ImmutableSortedMap<String, Procedure> procedures, Procedure procedureInfo) {
+            this.procedures = procedures;
+            this.procedureInfo = procedureInfo;
+        }
+    }
+
+    /**
+     * Everything queue() needs to pick a connection. A snapshot is never modified: connecting,
+     * losing a connection or a topology update publishes a new one under the distributer lock,
+     * so the invocation path reads it without taking any lock.
+     */
+    private static final class RoutingSnapshot {
+        final NodeConnection[] connections;
+        //This is the instance of the Hashinator we picked from TOPO used only for client affinity.
+        final HashinatorLite hashinator;
+        final Map<Integer, NodeConnection> partitionMasters;
+        final Map<Integer, NodeConnection[]> partitionReplicas;
+
+        RoutingSnapshot(NodeConnection[] connections,
+                HashinatorLite hashinator,
+                Map<Integer, NodeConnection> partitionMasters,
+                Map<Integer, NodeConnection[]> partitionReplicas) {
+            this.connections = connections;
+            this.hashinator = hashinator;
+            this.partitionMasters = partitionMasters;
+            this.partitionReplicas = partitionReplicas;
+        }
+    }
+
+    private volatile RoutingSnapshot m_routing = new RoutingSnapshot(new NodeConnection[0], null,
+            Collections.<Integer, NodeConnection>emptyMap(), Collections.<Integer, NodeConnection[]>emptyMap());
     private final Map<Integer, NodeConnection> m_hostIdToConnection = new HashMap<>();
     private final AtomicReference<ImmutableSortedMap<String, Procedure>> m_procedureInfo =
                                 new AtomicReference<ImmutableSortedMap<String, Procedure>>();
@@ -143,14 +190,28 @@ class Distributer {
     private final AtomicLong m_lastPartitionKeyFetched = new AtomicLong(0);
     private final AtomicReference<ClientResponse> m_partitionUpdateStatus = new AtomicReference<ClientResponse>();
 
-    //This is the instance of the Hashinator we picked from TOPO used only for client affinity.
-    private HashinatorLite m_hashinator = null;
     //This is a global timeout that will be used if a per-procedure timeout is not provided with the procedure call.
     private final long m_procedureCallTimeoutNanos;
     private static final long MINIMUM_LONG_RUNNING_SYSTEM_CALL_TIMEOUT_MS = 30 * 60 * 1000; // 30 minutes
     private final long m_connectionResponseTimeoutNanos;
-    private final Map<Integer, ClientAffinityStats> m_clientAffinityStats =
-        new HashMap<>();
+    private final ConcurrentMap<Integer, AffinityCounters> m_clientAffinityStats =
+        new ConcurrentHashMap<>();
+
+    /**
+     * Affinity statistics of a partition, counted by every application thread invoking procedures,
+     * so the counters are striped rather than contended
+     */
+    private static final class AffinityCounters {
+        final Counter affinityWrites = new Counter();
+        final Counter rrWrites = new Counter();
+        final Counter affinityReads = new Counter();
+        final Counter rrReads = new Counter();
+
+        ClientAffinityStats snapshot(int partitionId) {
+            return new ClientAffinityStats(partitionId, affinityWrites.get(), rrWrites.get(),
+                    affinityReads.get(), rrReads.get());
+        }
+    }
 
     public final RateLimiter m_rateLimiter = new RateLimiter();
 
@@ -158,6 +219,11 @@ class Distributer {
     private AtomicBoolean m_createConnectionUponTopoChangeInProgress = new AtomicBoolean(false);
     private boolean m_topologyChangeAware;
 
+    // How long an invocation may wait for others to the same connection to be written with, 0 to write it at once
+    private long m_requestLingerNanos = 0;
+    // Pending invocations are written as soon as they add up to this, sized to fit a network buffer
+    static final int MAX_BATCHED_WRITE_BYTES = 1024 * 16;
+
     //private final Timer m_timer;
     private final ScheduledExecutorService m_ex =
         Executors.newSingleThreadScheduledExecutor(
@@ -417,6 +483,24 @@ class Distributer {
         boolean m_outstandingPing = false;
         ClientStatusListenerExt.DisconnectCause m_closeCause = DisconnectCause.CONNECTION_CLOSED;
 
+        // Invocations held back for the linger time so they are written to the connection together
+        private final ArrayList<ByteBuffer> m_pendingWrites = new ArrayList<>();
+        private final ReentrantLock m_pendingWritesLock = new ReentrantLock();
+        private int m_pendingWriteBytes = 0;
+        private boolean m_pendingWriteFlushScheduled = false;
+        private final Runnable m_flushPendingWrites = new Runnable() {
+            @Override
+            public void run() {
+                m_pendingWritesLock.lock();
+                try {
+                    m_pendingWriteFlushScheduled = false;
+                    flushPendingWrites();
+                } finally {
+                    m_pendingWritesLock.unlock();
+                }
+            }
+        };
+
         public NodeConnection(long ids[]) {}
 
         /*
@@ -498,11 +582,56 @@ class Distributer {
                 assert(remainingToInvoke >= 0);
 
                 //for bookkeeping, but it feels dishonest to call this here
-                m_rateLimiter.transactionResponseReceived(nowNanos, -1, ignoreBackpressure);
+                m_rateLimiter.transactionResponseReceived(nowNanos, -1, -1, ignoreBackpressure);
                 return;
             } else {
-                m_connection.writeStream().enqueue(c);
+                write(c);
+            }
+        }
+
+        /*
+         * Write a serialized invocation to the connection. With a linger time the invocation
+         * is held back until the linger expires or enough bytes are pending, and all the
+         * pending invocations are then queued as one frame: one write stream enqueue and
+         * one network thread wakeup for the lot, and contiguous bytes on the wire which the
+         * server decodes in a single pass over its read buffer.
+         */
+        private void write(ByteBuffer buf) {
+            if (m_requestLingerNanos <= 0) {
+                m_connection.writeStream().enqueue(buf);
+                return;
+            }
+            m_pendingWritesLock.lock();
+            try {
+                m_pendingWrites.add(buf);
+                m_pendingWriteBytes += buf.remaining();
+                if (m_pendingWriteBytes >= MAX_BATCHED_WRITE_BYTES) {
+                    flushPendingWrites();
+                } else if (!m_pendingWriteFlushScheduled) {
+                    m_pendingWriteFlushScheduled = true;
+                    try {
+                        m_ex.schedule(m_flushPendingWrites, m_requestLingerNanos, TimeUnit.NANOSECONDS);
+                    } catch (RejectedExecutionException e) {
+                        // Shutting down, nothing would read the response anyway
+                        m_pendingWriteFlushScheduled = false;
+                        flushPendingWrites();
+                    }
+                }
+            } finally {
+                m_pendingWritesLock.unlock();
+            }
+        }
+
+        // Enqueue under the pending writes lock so that frames are written in the order they were filled
+        private void flushPendingWrites() {
+            assert(m_pendingWritesLock.isHeldByCurrentThread());
+            if (m_pendingWrites.isEmpty()) {
+                return;
             }
+            final ByteBuffer frame[] = m_pendingWrites.toArray(new ByteBuffer[m_pendingWrites.size()]);
+            m_pendingWrites.clear();
+            m_pendingWriteBytes = 0;
+            m_connection.writeStream().enqueue(frame);
         }
 
         /*
@@ -574,7 +703,7 @@ class Distributer {
             final int remainingToInvoke = m_callbacksToInvoke.decrementAndGet();
             assert(remainingToInvoke >= 0);
 
-            m_rateLimiter.transactionResponseReceived(nowNanos, -1, ignoreBackpressure);
+            m_rateLimiter.transactionResponseReceived(nowNanos, -1, -1, ignoreBackpressure);
             updateStatsForTimeout(procName, r.getClientRoundtripNanos(), r.getClusterRoundtrip());
         }
 
@@ -627,6 +756,7 @@ class Distributer {
                 stats.m_procName = procName;
                 stats.m_startTS = System.currentTimeMillis();
                 stats.m_endTS = Long.MIN_VALUE;
+                stats.m_latencyRecorder = ClientStats.constructRecorder();
                 m_stats.put(procName, stats);
             }
             stats.update(roundTripNanos, clusterRoundTrip, abort, failure, timeout);
@@ -635,6 +765,13 @@ class Distributer {
         @Override
         public void handleMessage(ByteBuffer buf, Connection c) {
             long nowNanos = System.nanoTime();
+            final byte version = buf.get(buf.position());
+            if (version == ClientResponseImpl.STREAMED_ROWS_VERSION ||
+                    version == ClientResponseImpl.STREAMED_END_VERSION) {
+                m_lastResponseTimeNanos = nowNanos;
+                handleStreamedFrame(buf);
+                return;
+            }
             ClientResponseImpl response = new ClientResponseImpl();
             try {
                 response.initFromBuffer(buf);
@@ -676,6 +813,14 @@ class Distributer {
                 return;
             }
 
+            //The rows of a streamed response follow it, route them before it is delivered
+            if (version == ClientResponseImpl.STREAMED_HEADER_VERSION) {
+                final ResultStream stream = m_streams.get(handle);
+                if (stream != null) {
+                    stream.streamStarted(m_connection);
+                }
+            }
+
             //Race with expiration thread to be the first to remove the callback
             //from the map and process it
             final CallbackBookeeping stuff = m_callbacks.remove(response.getClientHandle());
@@ -709,7 +854,7 @@ class Distributer {
                 }
 
                 int clusterRoundTrip = response.getClusterRoundtrip();
-                m_rateLimiter.transactionResponseReceived(nowNanos, clusterRoundTrip, stuff.ignoreBackpressure);
+                m_rateLimiter.transactionResponseReceived(nowNanos, clusterRoundTrip, deltaNanos, stuff.ignoreBackpressure);
                 updateStats(stuff.name, deltaNanos, clusterRoundTrip, abort, error, false);
                 response.setClientRoundtrip(deltaNanos);
                 assert(response.getHashes() == null) : "A determinism hash snuck into the client wire protocol";
@@ -725,6 +870,26 @@ class Distributer {
             }
         }
 
+        // A frame of rows, or the end, of a streamed response
+        private void handleStreamedFrame(ByteBuffer buf) {
+            final byte version = buf.get();
+            final long handle = buf.getLong();
+            if (version == ClientResponseImpl.STREAMED_END_VERSION) {
+                final ResultStream stream = m_streams.remove(handle);
+                if (stream != null) {
+                    stream.streamEnded();
+                }
+                return;
+            }
+            // the stream is gone if the call timed out or failed
+            final ResultStream stream = m_streams.get(handle);
+            if (stream != null) {
+                final int tableIndex = buf.getShort();
+                final int rowCount = buf.getInt();
+                stream.rowsReceived(tableIndex, rowCount, buf.slice());
+            }
+        }
+
         @Override
         public int getMaxRead() {
             return Integer.MAX_VALUE;
@@ -734,6 +899,13 @@ class Distributer {
             return m_connection.writeStream().hadBackPressure();
         }
 
+        /**
+         * @return the number of calls sent on this connection still waiting for a response.
+         */
+        int getOutstandingCallCount() {
+            return m_callbacksToInvoke.get();
+        }
+
         public void setConnection(Connection c) {
             m_connection = c;
             for (ClientStatusListenerExt listener : m_listeners) {
@@ -752,15 +924,15 @@ class Distributer {
                 /*
                  * Repair all cluster topology data with the node connection removed
                  */
-                Iterator<Map.Entry<Integer, NodeConnection>> i = m_partitionMasters.entrySet().iterator();
-                while (i.hasNext()) {
-                    Map.Entry<Integer, NodeConnection> entry = i.next();
-                    if (entry.getValue() == this) {
-                        i.remove();
+                final RoutingSnapshot routing = m_routing;
+                Map<Integer, NodeConnection> partitionMasters = new HashMap<>();
+                for (Map.Entry<Integer, NodeConnection> entry : routing.partitionMasters.entrySet()) {
+                    if (entry.getValue() != this) {
+                        partitionMasters.put(entry.getKey(), entry.getValue());
                     }
                 }
 
-                i = m_hostIdToConnection.entrySet().iterator();
+                Iterator<Map.Entry<Integer, NodeConnection>> i = m_hostIdToConnection.entrySet().iterator();
                 while (i.hasNext()) {
                     Map.Entry<Integer, NodeConnection> entry = i.next();
                     if (entry.getValue() == this) {
@@ -768,33 +940,21 @@ class Distributer {
                     }
                 }
 
-                Iterator<Map.Entry<Integer, NodeConnection[]>> i2 = m_partitionReplicas.entrySet().iterator();
-                List<Pair<Integer, NodeConnection[]>> entriesToRewrite = new ArrayList<>();
-                while (i2.hasNext()) {
-                    Map.Entry<Integer, NodeConnection[]> entry = i2.next();
+                Map<Integer, NodeConnection[]> partitionReplicas = new HashMap<>();
+                for (Map.Entry<Integer, NodeConnection[]> entry : routing.partitionReplicas.entrySet()) {
+                    List<NodeConnection> survivors = new ArrayList<>();
                     for (NodeConnection nc : entry.getValue()) {
-                        if (nc == this) {
-                            entriesToRewrite.add(Pair.of(entry.getKey(), entry.getValue()));
+                        if (nc != this) {
+                            survivors.add(nc);
                         }
                     }
-                }
-
-                for (Pair<Integer, NodeConnection[]> entry : entriesToRewrite) {
-                    m_partitionReplicas.remove(entry.getFirst());
-                    NodeConnection survivors[] = new NodeConnection[entry.getSecond().length - 1];
-                    if (survivors.length == 0) {
-                        break;
+                    if (!survivors.isEmpty()) {
+                        partitionReplicas.put(entry.getKey(), survivors.toArray(new NodeConnection[0]));
                     }
-                    int zz = 0;
-                    for (int ii = 0; ii < entry.getSecond().length; ii++) {
-                        if (entry.getSecond()[ii] != this) {
-                            survivors[zz++] = entry.getSecond()[ii];
-                        }
-                    }
-                    m_partitionReplicas.put(entry.getFirst(), survivors);
                 }
 
                 m_connections.remove(this);
+                publishRouting(routing.hashinator, partitionMasters, partitionReplicas);
                 //Notify listeners that a connection has been lost
                 for (ClientStatusListenerExt s : m_listeners) {
                     s.connectionLost(
@@ -837,6 +997,13 @@ class Distributer {
                         ClientResponse.CONNECTION_LOST, new VoltTable[0],
                         "Connection to database host (" + m_connection.getHostnameAndIPAndPort() +
                 ") was lost before a response was received");
+            //Fail the streams of responses that were still being received
+            for (Map.Entry<Long, ResultStream> e : m_streams.entrySet()) {
+                if (e.getValue().isStreamedFrom(m_connection) && m_streams.remove(e.getKey()) != null) {
+                    e.getValue().streamFailed("Connection to database host (" + m_connection.getHostnameAndIPAndPort() +
+                            ") was lost before the whole response was received");
+                }
+            }
             for (Map.Entry<Long, CallbackBookeeping> e : m_callbacks.entrySet()) {
                 //Check for race with other threads
                 if (m_callbacks.remove(e.getKey()) == null) {
@@ -854,7 +1021,7 @@ class Distributer {
                 final int remainingToInvoke = m_callbacksToInvoke.decrementAndGet();
                 assert(remainingToInvoke >= 0);
 
-                m_rateLimiter.transactionResponseReceived(System.nanoTime(), -1, callBk.ignoreBackpressure);
+                m_rateLimiter.transactionResponseReceived(System.nanoTime(), -1, -1, callBk.ignoreBackpressure);
             }
         }
 
@@ -864,14 +1031,17 @@ class Distributer {
                 @Override
                 public void run() {
                     /*
-                     * Synchronization on Distributer.this is critical to ensure that queue
+                     * Holding the backpressure report lock is critical to ensure that queue
                      * does not report backpressure AFTER the write stream reports that backpressure
                      * has ended thus resulting in a lost wakeup.
                      */
-                    synchronized (Distributer.this) {
+                    m_backpressureReportLock.lock();
+                    try {
                         for (final ClientStatusListenerExt csl : m_listeners) {
                             csl.backpressure(false);
                         }
+                    } finally {
+                        m_backpressureReportLock.unlock();
                     }
                 }
             };
@@ -879,7 +1049,12 @@ class Distributer {
 
         @Override
         public Runnable onBackPressure() {
-            return null;
+            return new Runnable() {
+                @Override
+                public void run() {
+                    m_rateLimiter.backpressureReceived();
+                }
+            };
         }
 
         @Override
@@ -1045,18 +1220,24 @@ class Distributer {
             }
             m_buildString = (String)socketChannelAndInstanceIdAndBuildString[2];
 
-            m_connections.add(cxn);
+            addConnection(cxn, hostId);
         }
 
-        if (m_useClientAffinity) {
-            synchronized (this) {
-                m_hostIdToConnection.put(hostId, cxn);
-            }
+        if (m_useClientAffinity && m_subscribedConnection == null) {
+            subscribeToNewNode();
+        }
+    }
 
-            if (m_subscribedConnection == null) {
-                subscribeToNewNode();
-            }
+    /**
+     * Start routing calls to a new connection to the host with the given id.
+     */
+    synchronized void addConnection(NodeConnection cxn, int hostId) {
+        m_connections.add(cxn);
+        if (m_useClientAffinity) {
+            m_hostIdToConnection.put(hostId, cxn);
         }
+        final RoutingSnapshot routing = m_routing;
+        publishRouting(routing.hashinator, routing.partitionMasters, routing.partitionReplicas);
     }
 
     /*
@@ -1146,121 +1327,145 @@ class Distributer {
         boolean backpressure = true;
 
         /*
-         * Synchronization is necessary to ensure that m_connections is not modified
-         * as well as to ensure that backpressure is reported correctly
+         * No lock is needed, everything used to pick a connection comes from one
+         * immutable snapshot of the connections and topology
          */
-        synchronized (this) {
-            final int totalConnections = m_connections.size();
+        final RoutingSnapshot routing = m_routing;
+        final NodeConnection[] connections = routing.connections;
+        final HashinatorLite hashinator = routing.hashinator;
+        final int totalConnections = connections.length;
 
-            if (totalConnections == 0) {
-                throw new NoConnectionsException("No connections.");
-            }
+        if (totalConnections == 0) {
+            throw new NoConnectionsException("No connections.");
+        }
 
-            /*
-             * Check if the master for the partition is known. No back pressure check to ensure correct
-             * routing, but backpressure will be managed anyways. This is where we guess partition based on client
-             * affinity and known topology (hashinator initialized).
-             */
-            if (m_useClientAffinity && (m_hashinator != null)) {
-                final ImmutableSortedMap<String, Procedure> procedures = m_procedureInfo.get();
-                Procedure procedureInfo = null;
-                if (procedures != null) {
-                    procedureInfo = procedures.get(invocation.getProcName());
+        /*
+         * Check if the master for the partition is known. No back pressure check to ensure correct
+         * routing, but backpressure will be managed anyways. This is where we guess partition based on client
+         * affinity and known topology (hashinator initialized).
+         */
+        if (m_useClientAffinity && (hashinator != null)) {
+            final ImmutableSortedMap<String, Procedure> procedures = m_procedureInfo.get();
+            Procedure procedureInfo = null;
+            if (procedures != null) {
+                procedureInfo = getProcedureInfo(procedures, invocation);
+            }
+            Integer hashedPartition = -1;
+
+            if (procedureInfo != null) {
+                hashedPartition = Constants.MP_INIT_PID;
+                if (( ! procedureInfo.multiPart) &&
+                    // User may have passed too few parameters to allow dispatching.
+                    // Avoid an indexing error here to fall through to the proper ProcCallException.
+                        (procedureInfo.partitionParameter < invocation.getPassedParamCount())) {
+                    hashedPartition = hashinator.getHashedPartitionForParameter(
+                            procedureInfo.partitionParameterType,
+                            invocation.getPartitionParamValue(procedureInfo.partitionParameter));
                 }
-                Integer hashedPartition = -1;
-
-                if (procedureInfo != null) {
-                    hashedPartition = Constants.MP_INIT_PID;
-                    if (( ! procedureInfo.multiPart) &&
-                        // User may have passed too few parameters to allow dispatching.
-                        // Avoid an indexing error here to fall through to the proper ProcCallException.
-                            (procedureInfo.partitionParameter < invocation.getPassedParamCount())) {
-                        hashedPartition = m_hashinator.getHashedPartitionForParameter(
-                                procedureInfo.partitionParameterType,
-                                invocation.getPartitionParamValue(procedureInfo.partitionParameter));
+                /*
+                 * If the procedure is read only and single part and the user wants it, send it to the
+                 * least loaded replica. This is probably slower for SAFE consistency.
+                 */
+                if (!procedureInfo.multiPart && procedureInfo.readOnly && m_sendReadsToReplicasBytDefaultIfCAEnabled) {
+                    NodeConnection partitionReplicas[] = routing.partitionReplicas.get(hashedPartition);
+                    if (partitionReplicas != null && partitionReplicas.length > 0) {
+                        cxn = leastLoadedConnection(partitionReplicas);
+                        if (!cxn.hadBackPressure() || ignoreBackpressure) {
+                            backpressure = false;
+                        }
                     }
+                } else {
                     /*
-                     * If the procedure is read only and single part and the user wants it, load balance across replicas
-                     * This is probably slower for SAFE consistency.
+                     * For writes or SAFE reads, this is the best way to go. Multi-partition procedures
+                     * hash to the MPI, so this sends them straight to the host the MPI runs on.
+                     * Read-only ones are not load balanced like the single partition reads: every
+                     * multi-partition transaction, even one that only reads replicated tables, is
+                     * run by the MPI, so any other host would only forward it there.
                      */
-                    if (!procedureInfo.multiPart && procedureInfo.readOnly && m_sendReadsToReplicasBytDefaultIfCAEnabled) {
-                        NodeConnection partitionReplicas[] = m_partitionReplicas.get(hashedPartition);
-                        if (partitionReplicas != null && partitionReplicas.length > 0) {
-                            cxn = partitionReplicas[ThreadLocalRandom.current().nextInt(partitionReplicas.length)];
-                            if (cxn.hadBackPressure()) {
-                                //See if there is one without backpressure, make sure it's still connected
-                                for (NodeConnection nc : partitionReplicas) {
-                                    if (!nc.hadBackPressure() && nc.m_isConnected) {
-                                        cxn = nc;
-                                        break;
-                                    }
-                                }
-                            }
-                            if (!cxn.hadBackPressure() || ignoreBackpressure) {
-                                backpressure = false;
-                            }
-                        }
-                    } else {
-                        /*
-                         * For writes or SAFE reads, this is the best way to go
-                         */
-                        cxn = m_partitionMasters.get(hashedPartition);
-                        if (cxn != null && !cxn.hadBackPressure() || ignoreBackpressure) {
-                            backpressure = false;
-                        }
+                    cxn = routing.partitionMasters.get(hashedPartition);
+                    if (cxn != null && !cxn.hadBackPressure() || ignoreBackpressure) {
+                        backpressure = false;
                     }
                 }
-                if (cxn != null && !cxn.m_isConnected) {
-                    // Would be nice to log something here
-                    // Client affinity picked a connection that was actually disconnected.  Reset to null
-                    // and let the round-robin choice pick a connection
-                    cxn = null;
+            }
+            if (cxn != null && !cxn.m_isConnected) {
+                // Would be nice to log something here
+                // Client affinity picked a connection that was actually disconnected.  Reset to null
+                // and let the round-robin choice pick a connection
+                cxn = null;
+            }
+            AffinityCounters stats = m_clientAffinityStats.get(hashedPartition);
+            if (stats == null) {
+                stats = new AffinityCounters();
+                AffinityCounters existing = m_clientAffinityStats.putIfAbsent(hashedPartition, stats);
+                if (existing != null) {
+                    stats = existing;
                 }
-                ClientAffinityStats stats = m_clientAffinityStats.get(hashedPartition);
-                if (stats == null) {
-                    stats = new ClientAffinityStats(hashedPartition, 0, 0, 0, 0);
-                    m_clientAffinityStats.put(hashedPartition, stats);
+            }
+            if (cxn != null) {
+                if (procedureInfo != null && procedureInfo.readOnly) {
+                    stats.affinityReads.increment();
                 }
-                if (cxn != null) {
-                    if (procedureInfo != null && procedureInfo.readOnly) {
-                        stats.addAffinityRead();
-                    }
-                    else {
-                        stats.addAffinityWrite();
-                    }
+                else {
+                    stats.affinityWrites.increment();
+                }
+            }
+            // account these here because we lose the partition ID and procedure info once we
+            // bust out of this scope.
+            else {
+                if (procedureInfo != null && procedureInfo.readOnly) {
+                    stats.rrReads.increment();
                 }
-                // account these here because we lose the partition ID and procedure info once we
-                // bust out of this scope.
                 else {
-                    if (procedureInfo != null && procedureInfo.readOnly) {
-                        stats.addRrRead();
-                    }
-                    else {
-                        stats.addRrWrite();
-                    }
+                    stats.rrWrites.increment();
                 }
             }
-            if (cxn == null) {
-                for (int i=0; i < totalConnections; ++i) {
-                    cxn = m_connections.get(Math.abs(++m_nextConnection % totalConnections));
-                    if (!cxn.hadBackPressure() || ignoreBackpressure) {
-                        // serialize and queue the invocation
-                        backpressure = false;
-                        break;
-                    }
+        }
+        // The connection client affinity insisted on, if any
+        final NodeConnection affinityCxn = cxn;
+        if (cxn == null) {
+            for (int i=0; i < totalConnections; ++i) {
+                cxn = connections[Math.abs(m_nextConnection.incrementAndGet() % totalConnections)];
+                if (!cxn.hadBackPressure() || ignoreBackpressure) {
+                    // serialize and queue the invocation
+                    backpressure = false;
+                    break;
                 }
             }
+        }
 
-            if (backpressure) {
-                cxn = null;
-                for (ClientStatusListenerExt s : m_listeners) {
-                    s.backpressure(true);
+        if (backpressure) {
+            cxn = null;
+            /*
+             * Report backpressure under the lock the write streams report its end with, and only if
+             * it hasn't ended since it was checked above, otherwise the end could be reported first
+             * and the backpressure would never appear to end.
+             */
+            m_backpressureReportLock.lock();
+            try {
+                boolean stillBackpressured = true;
+                if (affinityCxn != null) {
+                    stillBackpressured = affinityCxn.hadBackPressure();
+                } else {
+                    for (NodeConnection nc : connections) {
+                        if (!nc.hadBackPressure()) {
+                            stillBackpressured = false;
+                            break;
+                        }
+                    }
+                }
+                if (stillBackpressured) {
+                    for (ClientStatusListenerExt s : m_listeners) {
+                        s.backpressure(true);
+                    }
                 }
+            } finally {
+                m_backpressureReportLock.unlock();
             }
         }
 
         /*
-         * Do the heavy weight serialization outside the synchronized block.
+         * Do the heavy weight serialization after picking the connection.
          * createWork synchronizes on an individual connection which allows for more concurrency
          */
         if (cxn != null) {
@@ -1378,11 +1583,8 @@ class Distributer {
     Map<Integer, ClientAffinityStats> getAffinityStatsSnapshot()
     {
         Map<Integer, ClientAffinityStats> retval = new HashMap<>();
-        // these get modified under this lock in queue()
-        synchronized(this) {
-            for (Entry<Integer, ClientAffinityStats> e : m_clientAffinityStats.entrySet()) {
-                retval.put(e.getKey(), (ClientAffinityStats)e.getValue().clone());
-            }
+        for (Entry<Integer, AffinityCounters> e : m_clientAffinityStats.entrySet()) {
+            retval.put(e.getKey(), e.getValue().snapshot(e.getKey()));
         }
         return retval;
     }
@@ -1422,17 +1624,22 @@ class Distributer {
         return Collections.unmodifiableMap(connectedHostIPAndPortMap);
     }
 
-    private void updateAffinityTopology(VoltTable tables[]) {
+    /**
+     * Route calls by the partition topology in the tables. Must be called with the distributer
+     * lock held.
+     */
+    void updateAffinityTopology(VoltTable tables[]) {
         //First table contains the description of partition ids master/slave relationships
         VoltTable vt = tables[0];
 
         //In future let TOPO return cooked bytes when cooked and we use correct recipe
         boolean cooked = false;
+        final HashinatorLite hashinator;
         if (tables.length == 1) {
             //Just in case the new client connects to the old version of Volt that only returns 1 topology table
             // We're going to get the MPI back in this table, so subtract it out from the number of partitions.
             int numPartitions = vt.getRowCount() - 1;
-            m_hashinator = new HashinatorLite(numPartitions); // legacy only
+            hashinator = new HashinatorLite(numPartitions); // legacy only
         } else {
             //Second table contains the hash function
             boolean advanced = tables[1].advanceRow();
@@ -1441,13 +1648,13 @@ class Distributer {
                                    "performance will be lower because transactions can't be routed at this client");
                 return;
             }
-            m_hashinator = new HashinatorLite(
+            hashinator = new HashinatorLite(
                     HashinatorLiteType.valueOf(tables[1].getString("HASHTYPE")),
                     tables[1].getVarbinary("HASHCONFIG"),
                     cooked);
         }
-        m_partitionMasters.clear();
-        m_partitionReplicas.clear();
+        Map<Integer, NodeConnection> partitionMasters = new HashMap<>();
+        Map<Integer, NodeConnection[]> partitionReplicas = new HashMap<>();
         // The MPI's partition ID is 16383 (MpInitiator.MP_INIT_PID), so we shouldn't inadvertently
         // hash to it.  Go ahead and include it in the maps, we can use it at some point to
         // route MP transactions directly to the MPI node.
@@ -1465,19 +1672,91 @@ class Distributer {
                     unconnected.add(hostId);
                }
             }
-            m_partitionReplicas.put(partition, connections.toArray(new NodeConnection[0]));
+            partitionReplicas.put(partition, connections.toArray(new NodeConnection[0]));
 
             Integer leaderHostId = Integer.valueOf(vt.getString("Leader").split(":")[0]);
             if (m_hostIdToConnection.containsKey(leaderHostId)) {
-                m_partitionMasters.put(partition, m_hostIdToConnection.get(leaderHostId));
+                partitionMasters.put(partition, m_hostIdToConnection.get(leaderHostId));
             }
         }
+        publishRouting(hashinator, partitionMasters, partitionReplicas);
         if (m_topologyChangeAware) {
             m_unconnectedHosts.set(ImmutableSet.copyOf(unconnected));
         }
         refreshPartitionKeys(true);
     }
 
+    /**
+     * Look up the routing information of the invoked procedure. A prepared procedure
+     * keeps what it was given until the procedures change.
+     */
+    private static Procedure getProcedureInfo(ImmutableSortedMap<String, Procedure> procedures,
+            ProcedureInvocation invocation) {
+        final ProcedureHandle prepared = invocation.getPreparedProcedure();
+        if (prepared == null) {
+            return procedures.get(invocation.getProcName());
+        }
+        ProcedureBinding binding = prepared.m_binding;
+        if (binding == null || binding.procedures != procedures) {
+            binding = new ProcedureBinding(procedures, procedures.get(invocation.getProcName()));
+            prepared.m_binding = binding;
+        }
+        return binding.procedureInfo;
+    }
+
+    /**
+     * Pick the connection with the fewest calls waiting for a response, as a measure of how
+     * busy its host is with this client's work. Connections with backpressure only win if
+     * they all have it, and disconnected ones if none is connected. Scanning from a random
+     * connection spreads the calls among equally loaded ones.
+     */
+    static NodeConnection leastLoadedConnection(NodeConnection connections[]) {
+        final int start = ThreadLocalRandom.current().nextInt(connections.length);
+        NodeConnection leastLoaded = null;
+        long leastLoad = Long.MAX_VALUE;
+        for (int i = 0; i < connections.length; i++) {
+            final NodeConnection cxn = connections[(start + i) % connections.length];
+            long load = cxn.getOutstandingCallCount();
+            if (!cxn.m_isConnected) {
+                load += 2L * Integer.MAX_VALUE;
+            }
+            else if (cxn.hadBackPressure()) {
+                load += Integer.MAX_VALUE;
+            }
+            if (load < leastLoad) {
+                leastLoad = load;
+                leastLoaded = cxn;
+            }
+        }
+        return leastLoaded;
+    }
+
+    /**
+     * @return the connection calls to the partition's master are routed to, if it is known
+     */
+    NodeConnection getPartitionMaster(int partitionId) {
+        return m_routing.partitionMasters.get(partitionId);
+    }
+
+    /**
+     * @return the connections reads of the partition are routed to, if its replicas are known
+     */
+    NodeConnection[] getPartitionReplicas(int partitionId) {
+        return m_routing.partitionReplicas.get(partitionId);
+    }
+
+    /**
+     * Publish a new routing snapshot with the current connections. Must be called with the
+     * distributer lock held so concurrent changes don't lose each other's updates.
+     */
+    private void publishRouting(HashinatorLite hashinator,
+            Map<Integer, NodeConnection> partitionMasters,
+            Map<Integer, NodeConnection[]> partitionReplicas) {
+        assert(Thread.holdsLock(this));
+        m_routing = new RoutingSnapshot(m_connections.toArray(new NodeConnection[0]), hashinator,
+                Collections.unmodifiableMap(partitionMasters), Collections.unmodifiableMap(partitionReplicas));
+    }
+
     private void updateProcedurePartitioning(VoltTable vt) {
         Map<String, Procedure> procs = Maps.newHashMap();
         while (vt.advanceRow()) {
@@ -1526,7 +1805,7 @@ class Distributer {
      * @return
      */
     public boolean isHashinatorInitialized() {
-        return (m_hashinator != null);
+        return (m_routing.hashinator != null);
     }
 
     /**
@@ -1537,17 +1816,19 @@ class Distributer {
      * @return
      */
     public long getPartitionForParameter(byte typeValue, Object value) {
-        if (m_hashinator == null) {
+        final HashinatorLite hashinator = m_routing.hashinator;
+        if (hashinator == null) {
             return -1;
         }
-        return m_hashinator.getHashedPartitionForParameter(typeValue, value);
+        return hashinator.getHashedPartitionForParameter(typeValue, value);
     }
 
     public HashinatorLiteType getHashinatorType() {
-        if (m_hashinator == null) {
+        final HashinatorLite hashinator = m_routing.hashinator;
+        if (hashinator == null) {
             return HashinatorLiteType.LEGACY;
         }
-        return m_hashinator.getConfigurationType();
+        return hashinator.getConfigurationType();
     }
 
     private ByteBuffer serializeSPI(ProcedureInvocation pi) throws IOException {
@@ -1608,6 +1889,21 @@ class Distributer {
         }
     }
 
+    /**
+     * Route the frames of the response to the call with this handle to the stream.
+     */
+    void registerStream(long handle, ResultStream stream) {
+        m_streams.put(handle, stream);
+    }
+
+    void unregisterStream(long handle) {
+        m_streams.remove(handle);
+    }
+
+    void setRequestLinger(long lingerNanos) {
+        m_requestLingerNanos = lingerNanos;
+    }
+
     void setTopologyChangeAware(boolean topoAware) {
         m_topologyChangeAware = topoAware;
     }
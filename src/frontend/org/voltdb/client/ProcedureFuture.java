@@ -0,0 +1,80 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2017 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.client;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import com.google_voltpatches.common.util.concurrent.ListenableFuture;
+
+/**
+ * <p>The future of an asynchronous procedure call, such as one made with
+ * {@link Client#callProcedureAsync(String, Object...)}.</p>
+ *
+ * <p>Besides waiting for the result, listeners can be registered to run once the call
+ * completes, so that the caller never has to block.</p>
+ *
+ * @param <V> the type of the result of the call
+ */
+public final class ProcedureFuture<V> implements Future<V> {
+
+    private final ListenableFuture<V> m_future;
+
+    ProcedureFuture(ListenableFuture<V> future) {
+        m_future = future;
+    }
+
+    /**
+     * <p>Run the listener on the given executor once the call completes, successfully or not.
+     * If the call has already completed, the listener is run right away.</p>
+     *
+     * @param listener the listener to run when the call completes
+     * @param executor the executor that runs the listener
+     */
+    public void addListener(Runnable listener, Executor executor) {
+        m_future.addListener(listener, executor);
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        return m_future.cancel(mayInterruptIfRunning);
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return m_future.isCancelled();
+    }
+
+    @Override
+    public boolean isDone() {
+        return m_future.isDone();
+    }
+
+    @Override
+    public V get() throws InterruptedException, ExecutionException {
+        return m_future.get();
+    }
+
+    @Override
+    public V get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        return m_future.get(timeout, unit);
+    }
+}
@@ -0,0 +1,94 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2017 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.client;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+/**
+ * <p>A procedure prepared with {@link Client#prepare(String)}, to be called many times.
+ * The work that only depends on the procedure name is done once instead of on every call:
+ * the name is encoded when the handle is prepared, and the partitioning information
+ * client affinity routes the calls with is looked up once, and again only when the
+ * client learns of a change to the procedures of the database.</p>
+ *
+ * <p>A handle is bound to the client that prepared it, and is safe to call from
+ * any number of threads.</p>
+ */
+public class ProcedureHandle {
+
+    private static final Charset UTF8Encoding = Charset.forName("UTF-8");
+
+    private final ClientImpl m_client;
+    private final String m_procName;
+    private final byte[] m_procNameBytes;
+
+    // The routing information of the procedure, written by the Distributer
+    volatile Distributer.ProcedureBinding m_binding = null;
+
+    ProcedureHandle(ClientImpl client, String procName) {
+        if (procName == null || procName.isEmpty()) {
+            throw new IllegalArgumentException("A procedure name is required.");
+        }
+        m_client = client;
+        m_procName = procName;
+        m_procNameBytes = procName.getBytes(UTF8Encoding);
+    }
+
+    /**
+     * @return the name of the procedure.
+     */
+    public String getProcedureName() {
+        return m_procName;
+    }
+
+    byte[] getProcedureNameBytes() {
+        return m_procNameBytes;
+    }
+
+    /**
+     * Synchronously invoke the procedure, the same as {@link Client#callProcedure(String, Object...)}.
+     *
+     * @param parameters vararg list of procedure's parameter values.
+     * @return {@link ClientResponse} instance of procedure call results.
+     * @throws ProcCallException on any VoltDB specific failure.
+     * @throws NoConnectionsException if the client is not connected to any servers.
+     * @throws IOException if there is a Java network or connection problem.
+     */
+    public ClientResponse call(Object... parameters)
+    throws IOException, NoConnectionsException, ProcCallException
+    {
+        return m_client.callPrepared(this, parameters);
+    }
+
+    /**
+     * Asynchronously invoke the procedure, the same as
+     * {@link Client#callProcedure(ProcedureCallback, String, Object...)}.
+     *
+     * @param callback {@link ProcedureCallback} that will be invoked with procedure results.
+     * @param parameters vararg list of procedure's parameter values.
+     * @return <code>true</code> if the procedure was queued and <code>false</code> otherwise.
+     * @throws NoConnectionsException if the client is not connected to any servers.
+     * @throws IOException if there is a Java network or connection problem.
+     */
+    public boolean call(ProcedureCallback callback, Object... parameters)
+    throws IOException, NoConnectionsException
+    {
+        return m_client.callPrepared(callback, this, parameters);
+    }
+}
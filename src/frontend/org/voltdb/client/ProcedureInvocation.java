@@ -21,6 +21,7 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 
+import org.voltdb.ParameterEncoder;
 import org.voltdb.ParameterSet;
 import org.voltdb.utils.SerializationHelper;
 
@@ -36,8 +37,16 @@ public class ProcedureInvocation {
     private final String m_procName;
     private byte m_procNameBytes[] = null;
     private final int m_batchTimeout;
+    // The parameters are serialized straight from the caller's array when the encoder
+    // handles all their types, and through a ParameterSet otherwise.
+    private final Object[] m_params;
+    private final int m_encodedParamsSize;
     private final ParameterSet m_parameters;
     private final boolean m_allPartition;
+    // 0 unless the response may be streamed in frames of at most this many bytes
+    private int m_streamFrameSize = 0;
+    // The handle the procedure was prepared with, if any
+    private final ProcedureHandle m_preparedProcedure;
 
     // pre-cache this for serialization
     // this duplicates some other code, but it's nice to keep the client code
@@ -53,18 +62,35 @@ public class ProcedureInvocation {
     }
 
     public ProcedureInvocation(long handle, int batchTimeout, boolean allPartition, String procName, Object... parameters) {
+        this(handle, batchTimeout, allPartition, procName, null, parameters);
+    }
+
+    /**
+     * Invoke a prepared procedure, whose name was already encoded
+     */
+    ProcedureInvocation(long handle, ProcedureHandle procedure, Object... parameters) {
+        this(handle, BatchTimeoutOverrideType.NO_TIMEOUT, false, procedure.getProcedureName(), procedure, parameters);
+        m_procNameBytes = procedure.getProcedureNameBytes();
+    }
+
+    private ProcedureInvocation(long handle, int batchTimeout, boolean allPartition, String procName,
+            ProcedureHandle procedure, Object[] parameters) {
         if ((batchTimeout < 0) && (batchTimeout != BatchTimeoutOverrideType.NO_TIMEOUT)) {
             throw new IllegalArgumentException("Timeout value can't be negative." );
         }
 
         m_clientHandle = handle;
         m_procName = procName;
-        m_parameters = (parameters != null
-                            ? ParameterSet.fromArrayWithCopy(parameters)
-                            : ParameterSet.emptyParameterSet());
+        // The caller's array isn't copied, callers don't change it while the invocation is sent.
+        m_params = (parameters != null ? parameters : new Object[0]);
+        m_encodedParamsSize = ParameterEncoder.getSerializedSize(m_params);
+        m_parameters = (m_encodedParamsSize < 0
+                            ? ParameterSet.fromArrayWithCopy(m_params)
+                            : null);
 
         m_batchTimeout = batchTimeout;
         m_allPartition = allPartition;
+        m_preparedProcedure = procedure;
     }
 
     /** return the clientHandle value */
@@ -77,11 +103,11 @@ public class ProcedureInvocation {
     }
 
     public int getPassedParamCount() {
-        return m_parameters.size();
+        return m_params.length;
     }
 
     public Object getPartitionParamValue(int index) {
-        return m_parameters.getParam(index);
+        return m_parameters != null ? m_parameters.getParam(index) : m_params[index];
     }
 
     public long getClientHandle() {
@@ -96,6 +122,23 @@ public class ProcedureInvocation {
         return m_allPartition;
     }
 
+    /**
+     * Ask the server to stream a response larger than the given size as a sequence
+     * of frames no larger than it, see {@link ResultStream}.
+     */
+    void setStreamFrameSize(int maxFrameSize) {
+        m_streamFrameSize = maxFrameSize;
+    }
+
+    public int getStreamFrameSize() {
+        return m_streamFrameSize;
+    }
+
+    /** @return the handle the procedure was prepared with, or null */
+    ProcedureHandle getPreparedProcedure() {
+        return m_preparedProcedure;
+    }
+
     public int getSerializedSize() {
         // convert proc name to bytes if needed
         if (m_procNameBytes == null) {
@@ -107,14 +150,15 @@ public class ProcedureInvocation {
         int batchExtensionSize = m_batchTimeout != BatchTimeoutOverrideType.NO_TIMEOUT ? 6 : 0;
         // 2 is one byte for ext type, one for size
         int allPartitionExtensionSize = m_allPartition ? 2 : 0;
+        int streamExtensionSize = m_streamFrameSize > 0 ? 6 : 0;
 
         int size =
             1 + // type
             4 + m_procNameBytes.length + // procname
             8 + // client handle
             1 + // extension count
-            batchExtensionSize + allPartitionExtensionSize + // extensions
-            m_parameters.getSerializedSize(); // parameters
+            batchExtensionSize + allPartitionExtensionSize + streamExtensionSize + // extensions
+            (m_parameters != null ? m_parameters.getSerializedSize() : m_encodedParamsSize); // parameters
         assert(size > 0); // sanity
         return size;
     }
@@ -131,10 +175,11 @@ public class ProcedureInvocation {
 
         buf.putLong(m_clientHandle);
 
-        // there are two possible extensions, count which apply
+        // there are three possible extensions, count which apply
         byte extensionCount = 0;
         if (m_batchTimeout != BatchTimeoutOverrideType.NO_TIMEOUT) ++extensionCount;
         if (m_allPartition) ++extensionCount;
+        if (m_streamFrameSize > 0) ++extensionCount;
         // write the count as one byte
         buf.put(extensionCount);
         // write any extensions that apply
@@ -144,8 +189,16 @@ public class ProcedureInvocation {
         if (m_allPartition) {
             ProcedureInvocationExtensions.writeAllPartitionWithTypeByte(buf);
         }
+        if (m_streamFrameSize > 0) {
+            ProcedureInvocationExtensions.writeStreamResultsWithTypeByte(buf, m_streamFrameSize);
+        }
 
-        m_parameters.flattenToBuffer(buf);
+        if (m_parameters != null) {
+            m_parameters.flattenToBuffer(buf);
+        }
+        else {
+            ParameterEncoder.flattenToBuffer(m_params, buf);
+        }
 
         return buf;
     }
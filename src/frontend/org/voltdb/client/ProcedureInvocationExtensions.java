@@ -47,6 +47,7 @@ import java.nio.ByteBuffer;
 public abstract class ProcedureInvocationExtensions {
     public static final byte BATCH_TIMEOUT = 1;  // batch timeout
     public static final byte ALL_PARTITION = 2; // whether proc is part of run-everywhere
+    public static final byte STREAM_RESULTS = 3; // max frame size of a streamed response
 
     private static final int INTEGER_SIZE = 4;
 
@@ -87,6 +88,25 @@ public abstract class ProcedureInvocationExtensions {
         return true;
     }
 
+    public static void writeStreamResultsWithTypeByte(ByteBuffer buf, int maxFrameSize) {
+        buf.put(STREAM_RESULTS);
+        writeLength(buf, INTEGER_SIZE);
+        buf.putInt(maxFrameSize);
+    }
+
+    public static int readStreamResults(ByteBuffer buf) {
+        int len = readLength(buf);
+        if (len != INTEGER_SIZE) {
+            throw new IllegalStateException(
+                    "Stream results extension serialization length expected to be 4");
+        }
+        int maxFrameSize = buf.getInt();
+        if (maxFrameSize <= 0) {
+            throw new IllegalStateException("Invalid stream frame size deserialized: " + maxFrameSize);
+        }
+        return maxFrameSize;
+    }
+
     public static void skipUnknownExtension(ByteBuffer buf) {
         int len = readLength(buf);
         buf.position(buf.position() + len); // skip ahead
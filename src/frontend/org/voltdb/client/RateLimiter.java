@@ -29,7 +29,9 @@ import com.google_voltpatches.common.base.Throwables;
  * of several ways. First, it can cap outstanding transactions or
  * limit the rate of new transactions. Second, it can auto-tune the
  * send rate to get a good balance of througput and latency on the
- * server.
+ * server. Third, it can adapt the outstanding transactions to the
+ * highest throughput that keeps the 99th percentile of the round trip
+ * latency seen by the client under a target.
  *
  */
 class RateLimiter {
@@ -38,6 +40,8 @@ class RateLimiter {
     final int HISTORY_SIZE = 25;
     final int RECENT_HISTORY_SIZE = 5;
     final int MINIMUM_MOVEMENT = 5;
+    // Adaptive limiting cuts the max outstanding txns to this fraction of itself when over target
+    final double ADAPTIVE_DECREASE_FACTOR = 0.75;
 
     //Boolean indicating whether the only thing being tracked is max outstanding
     protected boolean m_doesAnyTuning = false;
@@ -59,6 +63,30 @@ class RateLimiter {
 
     protected ArrayDeque<Double> m_prevInternalLatencyAvgs = new ArrayDeque<Double>();
 
+    // Adaptive limiting, additive increase and multiplicative decrease of the max outstanding txns
+    protected boolean m_adaptive = false;
+    protected long m_p99LatencyTargetNanos = TimeUnit.MILLISECONDS.toNanos(10);
+    protected int m_currentBlockRoundTrips = 0;
+    // Round trips over the target, more than 1% of them puts the p99 over the target
+    protected int m_currentBlockSlowRoundTrips = 0;
+    protected boolean m_currentBlockBackpressure = false;
+    // Whether any send had to wait for the max outstanding txns, only then is it worth raising
+    protected boolean m_currentBlockLimited = false;
+
+    protected void adaptLimitFromCurrentBlock() {
+        if (m_currentBlockBackpressure || m_currentBlockSlowRoundTrips * 100L > m_currentBlockRoundTrips) {
+            m_maxOutstandingTxns = (int) (m_maxOutstandingTxns * ADAPTIVE_DECREASE_FACTOR);
+        }
+        else if (m_currentBlockLimited) {
+            m_maxOutstandingTxns += MINIMUM_MOVEMENT;
+        }
+
+        // don't let this go to 0, latency be damned
+        if (m_maxOutstandingTxns <= 0) {
+            m_maxOutstandingTxns = 1;
+        }
+    }
+
     protected void autoTuneTargetFromHistory() {
         double recentLatency = 0, mediumTermLatency = 0;
         if (m_prevInternalLatencyAvgs.size() > 0) {
@@ -108,6 +136,13 @@ class RateLimiter {
         if (thisBlock > m_currentBlockTimestamp) {
             // need to deal with 100ms skips here TODO
             m_currentBlockTimestamp = thisBlock;
+            if (m_adaptive) {
+                adaptLimitFromCurrentBlock();
+            }
+            m_currentBlockRoundTrips = 0;
+            m_currentBlockSlowRoundTrips = 0;
+            m_currentBlockBackpressure = false;
+            m_currentBlockLimited = false;
             m_prevInternalLatencyAvgs.addFirst(
                     m_currentBlockTotalInternalLatency / (double) m_currentBlockRecvSuccessCount);
             while (m_prevInternalLatencyAvgs.size() > HISTORY_SIZE) {
@@ -128,17 +163,44 @@ class RateLimiter {
      */
     synchronized void enableAutoTuning(int latencyTarget) {
         m_autoTune = true;
+        m_adaptive = false;
         m_doesAnyTuning = true;
         m_targetTxnsPerSecond = Integer.MAX_VALUE;
         m_maxOutstandingTxns = 20;
         m_latencyTarget = latencyTarget;
     }
 
+    /**
+     * Adapt the max outstanding txns every 100ms: cut it when the servers push back or when more
+     * than 1% of the round trips took longer than the target, raise it when it held sends back.
+     * The rate limit still applies. May not be reflected until the next 100ms.
+     */
+    synchronized void enableAdaptiveLimiting(int txnsPerSec, int p99LatencyTarget) {
+        m_autoTune = false;
+        m_adaptive = true;
+        m_doesAnyTuning = true;
+        m_targetTxnsPerSecond = txnsPerSec;
+        m_maxOutstandingTxns = 20;
+        m_p99LatencyTargetNanos = TimeUnit.MILLISECONDS.toNanos(p99LatencyTarget);
+    }
+
+    /**
+     * A connection to the servers can't take more writes, adaptive limiting backs off.
+     */
+    void backpressureReceived() {
+        if (m_adaptive) {
+            synchronized (this) {
+                m_currentBlockBackpressure = true;
+            }
+        }
+    }
+
     /**
      * May not be reflected until the next 100ms.
      */
     synchronized void setLimits(int txnsPerSec, int maxOutstanding) {
         m_autoTune = false;
+        m_adaptive = false;
         /*
          * If the rate limit is some reasonably low value then go through the effort
          * of rate limiting
@@ -168,9 +230,11 @@ class RateLimiter {
      *
      * @param timestampNanos The time as measured when the call is made.
      * @param internalLatency Latency measurement of this transaction in millis
+     * @param roundTripNanos Round trip time of this transaction as measured by the client, -1 if there was no response
      * @param ignoreBackpressure Don't return a permit for backpressure purposes since none was ever taken
      */
-    void transactionResponseReceived(long timestampNanos, int internalLatency, boolean ignoreBackpressure) {
+    void transactionResponseReceived(long timestampNanos, int internalLatency, long roundTripNanos,
+            boolean ignoreBackpressure) {
         if (m_doesAnyTuning) {
             synchronized (this) {
                 ensureCurrentBlockIsKosher(TimeUnit.NANOSECONDS.toMillis(timestampNanos));
@@ -180,6 +244,12 @@ class RateLimiter {
                     ++m_currentBlockRecvSuccessCount;
                     m_currentBlockTotalInternalLatency += internalLatency;
                 }
+                if (roundTripNanos != -1) {
+                    ++m_currentBlockRoundTrips;
+                    if (roundTripNanos > m_p99LatencyTargetNanos) {
+                        ++m_currentBlockSlowRoundTrips;
+                    }
+                }
             }
         } else {
             if (ignoreBackpressure) return;
@@ -231,6 +301,9 @@ class RateLimiter {
                         // exit the while loop
                         break;
                     }
+                    if (m_outstandingTxns >= m_maxOutstandingTxns) {
+                        m_currentBlockLimited = true;
+                    }
                 }
 
                 // if the rate is above target, pause for the smallest time possible
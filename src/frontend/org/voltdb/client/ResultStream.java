@@ -0,0 +1,273 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2017 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.client;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.voltcore.network.Connection;
+import org.voltdb.PrivateVoltTableFactory;
+import org.voltdb.VoltTable;
+import org.voltdb.VoltTableRow;
+
+/**
+ * <p>The result of a procedure invoked with {@link Client#callProcedureStreaming(String, Object...)}.
+ * A response too large to fit in a single frame of the size set with
+ * {@link ClientConfig#setStreamingFrameSize(int)} is sent by the server as a sequence of
+ * frames, each holding some rows of one result table, and is read by the application as
+ * the frames arrive, so the client never holds more than a few frames of it in memory.</p>
+ *
+ * <p>The rows are read either one chunk at a time with {@link #nextChunk()}, or one row at
+ * a time with {@link #advanceRow()} and {@link #getRow()}, in the order of the result tables.
+ * When too many chunks wait to be read, the client stops reading from the connection of the
+ * response until the application catches up. Responses to other calls sent to the same server
+ * are delayed meanwhile, so the stream should be read without pausing and closed when done.</p>
+ *
+ * <p>The tables of {@link #getResponse()} have the schema of the results, but no rows if
+ * the response was streamed.</p>
+ */
+public class ResultStream implements Closeable {
+
+    // Reading from the connection is paused while this many chunks wait to be consumed
+    static final int MAX_QUEUED_CHUNKS = 4;
+
+    // The rows of one result table received in a frame, or a whole table of a response
+    // that was not streamed
+    private static final class Chunk {
+        final int m_tableIndex;
+        final int m_rowCount;
+        final ByteBuffer m_rows;
+        final VoltTable m_table;
+
+        Chunk(int tableIndex, int rowCount, ByteBuffer rows, VoltTable table) {
+            m_tableIndex = tableIndex;
+            m_rowCount = rowCount;
+            m_rows = rows;
+            m_table = table;
+        }
+    }
+
+    // A lock and condition rather than a monitor, so that a reader waiting for rows, possibly
+    // a virtual thread, parks without holding on to a carrier thread
+    private final ReentrantLock m_lock = new ReentrantLock();
+    // Signalled when a chunk is queued, or the stream ends, fails or is closed
+    private final Condition m_chunksChanged = m_lock.newCondition();
+    private final ArrayDeque<Chunk> m_chunks = new ArrayDeque<Chunk>();
+    private ClientResponse m_response;
+    // The connection the frames are read from, null unless the response is streamed
+    private Connection m_connection;
+    private boolean m_readsPaused = false;
+    private boolean m_ended = false;
+    private boolean m_closed = false;
+    private String m_failure = null;
+
+    // The chunk rows are read from by advanceRow()
+    private VoltTable m_table = null;
+    private int m_tableIndex = -1;
+
+    ResultStream() {}
+
+    /**
+     * @return the response of the procedure, with the status and the schema of the results.
+     */
+    public ClientResponse getResponse() {
+        return m_response;
+    }
+
+    /**
+     * Get the next chunk of rows, waiting for it to arrive if needed.
+     * @return a table of the next rows of the result table given by {@link #getTableIndex()},
+     * or null if all the rows have been read.
+     * @throws IOException if the connection was lost before the whole response was received.
+     */
+    public VoltTable nextChunk() throws IOException {
+        final Chunk chunk;
+        m_lock.lock();
+        try {
+            while (m_chunks.isEmpty()) {
+                if (m_failure != null) {
+                    throw new IOException(m_failure);
+                }
+                if (m_ended || m_closed) {
+                    m_table = null;
+                    return null;
+                }
+                try {
+                    m_chunksChanged.await();
+                }
+                catch (InterruptedException e) {
+                    throw new InterruptedIOException("Interrupted while waiting for streamed rows");
+                }
+            }
+            chunk = m_chunks.poll();
+            if (m_readsPaused && m_chunks.size() <= MAX_QUEUED_CHUNKS / 2) {
+                m_readsPaused = false;
+                m_connection.enableReadSelection();
+            }
+        } finally {
+            m_lock.unlock();
+        }
+
+        m_tableIndex = chunk.m_tableIndex;
+        if (chunk.m_table != null) {
+            m_table = chunk.m_table;
+        }
+        else {
+            m_table = PrivateVoltTableFactory.createVoltTableFromStreamedRows(m_response.getResults()[chunk.m_tableIndex],
+                    chunk.m_rowCount, chunk.m_rows);
+        }
+        return m_table;
+    }
+
+    /**
+     * Move to the next row, moving on to the next chunk when the current one has been read.
+     * @return true if there is a row to read with {@link #getRow()}, false if all the rows have been read.
+     * @throws IOException if the connection was lost before the whole response was received.
+     */
+    public boolean advanceRow() throws IOException {
+        while (m_table == null || !m_table.advanceRow()) {
+            if (nextChunk() == null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the current row, valid until the next call to {@link #advanceRow()} or {@link #nextChunk()}.
+     */
+    public VoltTableRow getRow() {
+        return m_table;
+    }
+
+    /**
+     * @return the index among the results of the table of the current chunk and row.
+     */
+    public int getTableIndex() {
+        return m_tableIndex;
+    }
+
+    /**
+     * Stop reading the response. The rest of it is still received, but dropped.
+     */
+    @Override
+    public void close() {
+        m_lock.lock();
+        try {
+            m_closed = true;
+            m_chunks.clear();
+            if (m_readsPaused) {
+                m_readsPaused = false;
+                m_connection.enableReadSelection();
+            }
+            m_chunksChanged.signalAll();
+        } finally {
+            m_lock.unlock();
+        }
+    }
+
+    /**
+     * Set the response of the call once it has completed.
+     * @return true if the rows of the response are streamed, false if they are in its tables.
+     */
+    boolean responseReceived(ClientResponse response) {
+        m_lock.lock();
+        try {
+            m_response = response;
+            if (m_connection != null) {
+                return true;
+            }
+            final VoltTable[] results = response.getResults();
+            for (int i = 0; i < results.length; i++) {
+                if (results[i].getRowCount() > 0) {
+                    m_chunks.add(new Chunk(i, results[i].getRowCount(), null, results[i]));
+                }
+            }
+            m_ended = true;
+            return false;
+        } finally {
+            m_lock.unlock();
+        }
+    }
+
+    /**
+     * The response is streamed from this connection, called before the response is delivered.
+     */
+    void streamStarted(Connection connection) {
+        m_lock.lock();
+        try {
+            m_connection = connection;
+        } finally {
+            m_lock.unlock();
+        }
+    }
+
+    boolean isStreamedFrom(Connection connection) {
+        m_lock.lock();
+        try {
+            return m_connection == connection;
+        } finally {
+            m_lock.unlock();
+        }
+    }
+
+    /**
+     * Queue the rows of a frame, and stop reading from the connection if too many are waiting.
+     */
+    void rowsReceived(int tableIndex, int rowCount, ByteBuffer rows) {
+        m_lock.lock();
+        try {
+            if (m_closed) {
+                return;
+            }
+            m_chunks.add(new Chunk(tableIndex, rowCount, rows, null));
+            if (!m_readsPaused && m_chunks.size() >= MAX_QUEUED_CHUNKS) {
+                m_readsPaused = true;
+                m_connection.disableReadSelection();
+            }
+            m_chunksChanged.signalAll();
+        } finally {
+            m_lock.unlock();
+        }
+    }
+
+    void streamEnded() {
+        m_lock.lock();
+        try {
+            m_ended = true;
+            m_chunksChanged.signalAll();
+        } finally {
+            m_lock.unlock();
+        }
+    }
+
+    void streamFailed(String reason) {
+        m_lock.lock();
+        try {
+            m_failure = reason;
+            m_chunksChanged.signalAll();
+        } finally {
+            m_lock.unlock();
+        }
+    }
+}
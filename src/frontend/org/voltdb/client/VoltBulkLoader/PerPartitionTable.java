@@ -28,9 +28,11 @@ import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
-import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
 
+import org.jctools_voltpatches.queues.MpscArrayQueue;
 import org.voltcore.logging.VoltLogger;
 import org.voltcore.utils.CoreUtils;
 import org.voltdb.ClientResponseImpl;
@@ -54,8 +56,12 @@ public class PerPartitionTable {
     //The index in loader tables and the PartitionProcessor number
     final int m_partitionId;
     final boolean m_isMP;
-    //Queue for processing pending rows for this table
-    LinkedBlockingQueue<VoltBulkLoaderRow> m_partitionRowQueue;
+    //Queue for processing pending rows for this table. Any loader thread inserts, only m_es takes.
+    final MpscArrayQueue<VoltBulkLoaderRow> m_partitionRowQueue;
+    //Set while a task to load the full batches in the queue is pending on m_es
+    private final AtomicBoolean m_loadScheduled = new AtomicBoolean(false);
+    //How long an insert into a full queue waits before trying again
+    private static final long FULL_QUEUE_WAIT_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
 
     final ExecutorService m_es;
 
@@ -69,6 +75,8 @@ public class PerPartitionTable {
     final VoltTable.ColumnInfo m_columnInfo[];
     //Column types
     final VoltType[] m_columnTypes;
+    //Java classes the column values are converted to
+    final Class<?>[] m_columnClasses;
     //Size of the batches this table submits (minimum of all values provided by VoltBulkLoaders)
     volatile int m_minBatchTriggerSize;
     //Insert procedure name
@@ -138,11 +146,15 @@ public class PerPartitionTable {
         m_isMP = isMP;
         m_procName = firstLoader.m_procName;
         m_upsert = (byte) (firstLoader.m_upsert ? 1:0);
-        m_partitionRowQueue = new LinkedBlockingQueue<VoltBulkLoaderRow>(minBatchTriggerSize*5);
+        m_partitionRowQueue = new MpscArrayQueue<VoltBulkLoaderRow>(minBatchTriggerSize*5);
         m_minBatchTriggerSize = minBatchTriggerSize;
         m_columnInfo = firstLoader.m_colInfo;
         m_partitionedColumnIndex = firstLoader.m_partitionedColumnIndex;
         m_columnTypes = firstLoader.m_columnTypes;
+        m_columnClasses = new Class<?>[m_columnTypes.length];
+        for (int i = 0; i < m_columnTypes.length; i++) {
+            m_columnClasses[i] = m_columnTypes[i].classFromType();
+        }
         m_partitionColumnType = firstLoader.m_partitionColumnType;
         m_tableName = tableName;
         m_successCallback = successCallback;
@@ -163,26 +175,44 @@ public class PerPartitionTable {
         }
      }
 
+    // Loads batches until the queue doesn't contain a full one
+    private final Runnable m_loadBatches = new Runnable() {
+        @Override
+        public void run() {
+            try {
+                while (m_partitionRowQueue.size() >= m_minBatchTriggerSize) {
+                    loadTable(buildTable(), m_table);
+                }
+            } catch (Exception e) {
+                loaderLog.error("Failed to load batch", e);
+            } finally {
+                m_loadScheduled.set(false);
+            }
+            // A batch may have filled up after the last check but before the flag was cleared
+            scheduleLoadIfBatchFull();
+        }
+    };
+
+    private void scheduleLoadIfBatchFull() {
+        if (m_partitionRowQueue.size() >= m_minBatchTriggerSize && m_loadScheduled.compareAndSet(false, true)) {
+            m_es.execute(m_loadBatches);
+        }
+    }
+
     /**
-     * Synchronized so that when the a single batch is filled up, we only queue one task to
-     * drain the queue. The task will drain the queue until it doesn't contain a single batch.
+     * Lock free, so loader threads inserting into the same partition don't contend with each other or
+     * with the batch being built. Only one task to drain the queue is queued at a time, it drains
+     * the queue until it doesn't contain a single batch. Waits for room if the queue is full.
      */
-    synchronized void insertRowInTable(final VoltBulkLoaderRow nextRow) throws InterruptedException {
-        m_partitionRowQueue.put(nextRow);
-        if (m_partitionRowQueue.size() == m_minBatchTriggerSize) {
-            m_es.execute(new Runnable() {
-                @Override
-                public void run() {
-                    try {
-                        while (m_partitionRowQueue.size() >= m_minBatchTriggerSize) {
-                            loadTable(buildTable(), m_table);
-                        }
-                    } catch (Exception e) {
-                        loaderLog.error("Failed to load batch", e);
-                    }
-                }
-            });
+    void insertRowInTable(final VoltBulkLoaderRow nextRow) throws InterruptedException {
+        while (!m_partitionRowQueue.offer(nextRow)) {
+            scheduleLoadIfBatchFull();
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            LockSupport.parkNanos(this, FULL_QUEUE_WAIT_NANOS);
         }
+        scheduleLoadIfBatchFull();
     }
 
     /**
@@ -218,8 +248,7 @@ public class PerPartitionTable {
             try {
                 Object row_args[] = new Object[row.m_rowData.length];
                 for (int i = 0; i < row_args.length; i++) {
-                    final VoltType type = m_columnTypes[i];
-                    row_args[i] = ParameterConverter.tryToMakeCompatible(type.classFromType(),
+                    row_args[i] = ParameterConverter.tryToMakeCompatible(m_columnClasses[i],
                             row.m_rowData[i]);
                 }
                 tmpTable.addRow(row_args);
@@ -260,21 +289,25 @@ public class PerPartitionTable {
         }
     }
 
+    // Only called on m_es, the single consumer of m_partitionRowQueue
     private PartitionProcedureCallback buildTable() {
-        ArrayList<VoltBulkLoaderRow> buf = new ArrayList<VoltBulkLoaderRow>(m_minBatchTriggerSize);
-        m_partitionRowQueue.drainTo(buf, m_minBatchTriggerSize);
+        final int batchSize = m_minBatchTriggerSize;
+        ArrayList<VoltBulkLoaderRow> buf = new ArrayList<VoltBulkLoaderRow>(batchSize);
+        VoltBulkLoaderRow polledRow;
+        while (buf.size() < batchSize && (polledRow = m_partitionRowQueue.poll()) != null) {
+            buf.add(polledRow);
+        }
 
         Map<VoltBulkLoader, Long> batchSizes = new HashMap<>();
         ListIterator<VoltBulkLoaderRow> it = buf.listIterator();
+        // addRow() copies the values into the table, so one array serves every row
+        final Object row_args[] = new Object[m_columnClasses.length];
         while (it.hasNext()) {
             VoltBulkLoaderRow currRow = it.next();
             VoltBulkLoader loader = currRow.m_loader;
-            Object row_args[];
-            row_args = new Object[currRow.m_rowData.length];
             try {
                 for (int i = 0; i < row_args.length; i++) {
-                    final VoltType type = m_columnTypes[i];
-                    row_args[i] = ParameterConverter.tryToMakeCompatible(type.classFromType(),
+                    row_args[i] = ParameterConverter.tryToMakeCompatible(m_columnClasses[i],
                             currRow.m_rowData[i]);
                 }
             } catch (Exception e) {
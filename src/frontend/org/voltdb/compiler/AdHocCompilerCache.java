@@ -200,6 +200,15 @@ public class AdHocCompilerCache implements Serializable {
         }
     }
 
+    /**
+     * Discard all cached plans, for instance because they were costed
+     * with table sizes that no longer hold.
+     */
+    public synchronized void clear() {
+        m_literalCache.clear();
+        m_coreCache.clear();
+    }
+
     /**
      * Stats printing method used during development.
      * Probably shouldn't live past real stats integration.
@@ -26,6 +26,10 @@ public class DatabaseEstimates {
         public long maxTuples = 1000000;
         public long minTuples = 100000;
         public ArrayList<ScalarValueHints> valueHints = new ArrayList<ScalarValueHints>();
+        // Number of entries in each of the table's indexes, by index name, where known.
+        // A unique index has one entry per distinct key, and a partial index has
+        // fewer entries than the table has tuples.
+        public HashMap<String, Long> indexEntries = new HashMap<String, Long>();
     }
 
     HashMap<String, TableEstimates> tables = new HashMap<String, TableEstimates>();
@@ -37,6 +37,7 @@ import org.voltdb.planner.ParameterizationInfo;
 import org.voltdb.planner.PlanningErrorException;
 import org.voltdb.planner.QueryPlanner;
 import org.voltdb.planner.StatementPartitioning;
+import org.voltdb.planner.StatisticsCostModel;
 import org.voltdb.planner.TrivialCostModel;
 import org.voltdb.utils.CompressionService;
 import org.voltdb.utils.Encoder;
@@ -54,6 +55,14 @@ public class PlannerTool {
     private Database m_database;
     private byte[] m_catalogHash;
     private AdHocCompilerCache m_cache;
+    // Costs ad hoc plans with the table sizes seen when the plan cache was last emptied:
+    // on a catalog update, or when the sizes have changed enough to change plans.
+    private StatisticsCostModel m_costModel;
+    private long m_lastCostModelCheck;
+
+    // How often to check whether the site statistics have outdated the cost model.
+    static final long COST_MODEL_CHECK_INTERVAL_MS =
+            Long.getLong("PLANNER_COST_MODEL_CHECK_INTERVAL_MS", 10 * 1000);
 
     private final HSQLInterface m_hsql;
 
@@ -66,6 +75,8 @@ public class PlannerTool {
         m_database = database;
         m_catalogHash = catalogHash;
         m_cache = AdHocCompilerCache.getCacheForCatalogHash(catalogHash);
+        m_costModel = StatisticsCostModel.fromSiteStatistics();
+        m_lastCostModelCheck = System.currentTimeMillis();
 
         // LOAD HSQL
         m_hsql = HSQLInterface.loadHsqldb(ParameterizationInfo.getParamStateManager());
@@ -106,10 +117,30 @@ public class PlannerTool {
         m_database = database;
         m_catalogHash = catalogHash;
         m_cache = AdHocCompilerCache.getCacheForCatalogHash(catalogHash);
+        m_costModel = StatisticsCostModel.fromSiteStatistics();
+        m_lastCostModelCheck = System.currentTimeMillis();
 
         return this;
     }
 
+    /**
+     * Replace the cost model if the tables have grown or shrunk enough since it was
+     * built to change plans, and drop the plans that were cached with the old one.
+     * Checks at most once every COST_MODEL_CHECK_INTERVAL_MS.
+     */
+    private void refreshCostModelIfOutdated() {
+        long now = System.currentTimeMillis();
+        if (now - m_lastCostModelCheck < COST_MODEL_CHECK_INTERVAL_MS) {
+            return;
+        }
+        m_lastCostModelCheck = now;
+        if (m_costModel.isOutdated()) {
+            m_costModel = StatisticsCostModel.fromSiteStatistics();
+            m_cache.clear();
+            compileLog.debug("Table sizes have changed; cleared the ad hoc plan cache");
+        }
+    }
+
     public HSQLInterface getHSQLInterface() {
         return m_hsql;
     }
@@ -127,6 +158,8 @@ public class PlannerTool {
      * Stripped down compile that is ONLY used to plan default procedures.
      */
     public synchronized CompiledPlan planSqlCore(String sql, StatementPartitioning partitioning) {
+        // Default procedure plans have to come out the same on every host,
+        // so they can't be costed with this host's statistics.
         TrivialCostModel costModel = new TrivialCostModel();
         DatabaseEstimates estimates = new DatabaseEstimates();
         QueryPlanner planner = new QueryPlanner(
@@ -180,6 +213,8 @@ public class PlannerTool {
             // remove any spaces or newlines
             String sql = sqlIn.trim();
 
+            refreshCostModelIfOutdated();
+
             // No caching for forced single partition or forced multi partition SQL,
             // since these options potentially get different plans that may be invalid
             // or sub-optimal in other contexts. Likewise, plans cached from other contexts
@@ -207,8 +242,8 @@ public class PlannerTool {
             // PLAN THE STMT
             //////////////////////
 
-            TrivialCostModel costModel = new TrivialCostModel();
-            DatabaseEstimates estimates = new DatabaseEstimates();
+            StatisticsCostModel costModel = m_costModel;
+            DatabaseEstimates estimates = costModel.getEstimates();
             QueryPlanner planner = new QueryPlanner(
                     sql,
                     "PlannerTool",
@@ -22,9 +22,12 @@ import java.nio.ByteOrder;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.concurrent.ExecutionException;
 
 import org.voltcore.logging.VoltLogger;
+import org.voltcore.utils.CoreUtils;
 import org.voltcore.utils.DBBPool.BBContainer;
+import org.voltdb.VoltDB;
 import org.voltdb.utils.BinaryDeque;
 import org.voltdb.utils.BinaryDeque.BinaryDequeReader;
 import org.voltdb.utils.BinaryDeque.BinaryDequeTruncator;
@@ -33,6 +36,8 @@ import org.voltdb.utils.PersistentBinaryDeque;
 import org.voltdb.utils.PersistentBinaryDeque.ByteBufferTruncatorResponse;
 import org.voltdb.utils.VoltFile;
 
+import com.google_voltpatches.common.util.concurrent.ListenableFuture;
+
 /**
  * A customized queue for StreamBlocks that contain export data. The queue is able to
  * overflow to disk when more then two stream blocks are stored
@@ -59,6 +64,8 @@ public class StreamBlockQueue {
 
     private final String m_nonce;
     private final BinaryDequeReader m_reader;
+    // Set once the queue is deleted, when failing to write the overflow is expected
+    private volatile boolean m_deleted = false;
 
     public StreamBlockQueue(String path, String nonce) throws java.io.IOException {
         m_persistentDeque = new PersistentBinaryDeque( nonce, new VoltFile(path), exportLog);
@@ -197,12 +204,12 @@ public class StreamBlockQueue {
     public void offer(StreamBlock streamBlock) throws IOException {
         //Already have two blocks, put it in the deque
         if (m_memoryDeque.size() > 1) {
-            m_persistentDeque.offer(streamBlock.asBBContainer());
+            offerToPersistentDeque(streamBlock);
         } else {
             //Don't offer into the memory deque if there is anything waiting to be
             //polled out of the persistent deque. Check the persistent deque
             if (pollPersistentDeque(false) != null) {
-               m_persistentDeque.offer( streamBlock.asBBContainer());
+               offerToPersistentDeque(streamBlock);
             } else {
             //Persistent deque is empty put this in memory
                m_memoryDeque.offer(streamBlock);
@@ -210,6 +217,35 @@ public class StreamBlockQueue {
         }
     }
 
+    /*
+     * The overflow is written by the asynchronous writer of the persistent deque so that
+     * the export thread doesn't wait for the disk. The deque makes the block visible to
+     * the reader right away, and a failure to write it is as fatal as it was inline.
+     * If the writer has fallen behind, the block is written inline, after the staged ones.
+     */
+    private void offerToPersistentDeque(StreamBlock streamBlock) throws IOException {
+        final BBContainer cont = streamBlock.asBBContainer();
+        final ListenableFuture<?> written = m_persistentDeque.offerAsync(cont, true);
+        if (written == null) {
+            m_persistentDeque.offer(cont);
+            return;
+        }
+        written.addListener(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    written.get();
+                } catch (ExecutionException e) {
+                    if (!m_deleted) {
+                        VoltDB.crashLocalVoltDB("Unable to write to export overflow.", true, e.getCause());
+                    }
+                } catch (InterruptedException e) {
+                    // can't happen, the future is done
+                }
+            }
+        }, CoreUtils.SAMETHREADEXECUTOR);
+    }
+
     /*
      * Push all the buffers that are in memory to disk
      * and then have the persistent deque sync.
@@ -265,6 +301,7 @@ public class StreamBlockQueue {
     }
 
     public void closeAndDelete() throws IOException {
+        m_deleted = true;
         m_persistentDeque.closeAndDelete();
         for (StreamBlock sb : m_memoryDeque) {
             sb.discard();
@@ -48,7 +48,11 @@ public class MpInitiator extends BaseInitiator implements Promotable
 {
     public static final int MP_INIT_PID = TxnEgo.PARTITIONID_MAX_VALUE;
 
-    public MpInitiator(HostMessenger messenger, List<Long> buddyHSIds, StatsAgent agent)
+    // The kind of task queue for the read-only sites, which are created on configure()
+    private final SiteTaskerQueue.QueueSettings m_queueSettings;
+
+    public MpInitiator(HostMessenger messenger, List<Long> buddyHSIds, StatsAgent agent,
+            SiteTaskerQueue.QueueSettings queueSettings)
     {
         super(VoltZK.iv2mpi,
                 messenger,
@@ -56,10 +60,11 @@ public class MpInitiator extends BaseInitiator implements Promotable
                 new MpScheduler(
                     MP_INIT_PID,
                     buddyHSIds,
-                    new SiteTaskerQueue(MP_INIT_PID)),
+                    new SiteTaskerQueue(MP_INIT_PID, queueSettings)),
                 "MP",
                 agent,
                 StartAction.CREATE /* never for rejoin */);
+        m_queueSettings = queueSettings;
     }
 
     @Override
@@ -88,7 +93,8 @@ public class MpInitiator extends BaseInitiator implements Promotable
                 backend,
                 catalogContext,
                 m_partitionId,
-                m_initiatorMailbox);
+                m_initiatorMailbox,
+                m_queueSettings);
         sched.setMpRoSitePool(sitePool);
 
         // add ourselves to the ephemeral node list which BabySitters will watch for this
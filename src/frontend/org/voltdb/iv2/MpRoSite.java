@@ -56,6 +56,7 @@ import org.voltdb.dtxn.SiteTracker;
 import org.voltdb.dtxn.TransactionState;
 import org.voltdb.dtxn.UndoAction;
 import org.voltdb.exceptions.EEException;
+import org.voltdb.exceptions.SerializableException;
 import org.voltdb.messaging.FastDeserializer;
 import org.voltdb.settings.ClusterSettings;
 import org.voltdb.settings.NodeSettings;
@@ -611,6 +612,40 @@ public class MpRoSite implements Runnable, SiteProcedureConnection
         return false;
     }
 
+    @Override
+    public Object handOverLastResults() {
+        return null;
+    }
+
+    @Override
+    public int executeCoalescedPlanFragments(
+            int numTxns,
+            long[] planFragmentIds,
+            Object[] parameterSets,
+            DeterminismHash[] determinismHashes,
+            String[] procedureNames,
+            String[] sqlTexts,
+            boolean[] isWriteFrags,
+            int[] sqlCRCs,
+            long[] txnIds,
+            long[] spHandles,
+            long[] uniqueIds,
+            boolean[] readOnly,
+            VoltTable[] results,
+            SerializableException[] errors,
+            long[] executionTimes,
+            boolean traceOn)
+            throws EEException
+    {
+        throw new RuntimeException("RO MP Site doesn't do this, shouldn't be here.");
+    }
+
+    @Override
+    public void completeCoalescedTransaction(boolean rollback, long spHandle, List<UndoAction> undoActions)
+    {
+        throw new RuntimeException("RO MP Site doesn't do this, shouldn't be here.");
+    }
+
     @Override
     public ProcedureRunner getProcedureRunner(String procedureName) {
         return m_loadedProcedures.getProcByName(procedureName);
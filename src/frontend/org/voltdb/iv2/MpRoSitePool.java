@@ -57,7 +57,7 @@ class MpRoSitePool {
                 ThreadFactory threadFactory)
         {
             m_catalogContext = context;
-            m_queue = new SiteTaskerQueue(partitionId);
+            m_queue = new SiteTaskerQueue(partitionId, m_queueSettings);
             // IZZY: Just need something non-null for now
             m_queue.setStarvationTracker(new StarvationTracker(siteId));
             m_queue.setupQueueDepthTracker(siteId);
@@ -108,6 +108,7 @@ class MpRoSitePool {
     private final BackendTarget m_backend;
     private final int m_partitionId;
     private final InitiatorMailbox m_initiatorMailbox;
+    private final SiteTaskerQueue.QueueSettings m_queueSettings;
     private CatalogContext m_catalogContext;
     private ThreadFactory m_poolThreadFactory;
     private final int m_poolSize;
@@ -118,13 +119,15 @@ class MpRoSitePool {
             BackendTarget backend,
             CatalogContext context,
             int partitionId,
-            InitiatorMailbox initiatorMailbox)
+            InitiatorMailbox initiatorMailbox,
+            SiteTaskerQueue.QueueSettings queueSettings)
     {
         m_siteId = siteId;
         m_backend = backend;
         m_catalogContext = context;
         m_partitionId = partitionId;
         m_initiatorMailbox = initiatorMailbox;
+        m_queueSettings = queueSettings;
         m_poolThreadFactory =
             CoreUtils.getThreadFactory("RO MP Site - " + CoreUtils.hsIdToString(m_siteId),
                     CoreUtils.MEDIUM_STACK_SIZE);
@@ -34,6 +34,7 @@ import org.voltdb.VoltDB;
 import org.voltdb.VoltTable;
 import org.voltdb.client.ClientResponse;
 import org.voltdb.dtxn.TransactionState;
+import org.voltdb.exceptions.SerializableException;
 import org.voltdb.messaging.InitiateResponseMessage;
 import org.voltdb.messaging.Iv2InitiateTaskMessage;
 import org.voltdb.utils.LogKeys;
@@ -65,46 +66,13 @@ abstract public class ProcedureTask extends TransactionTask
         final InitiateResponseMessage response = new InitiateResponseMessage(task);
 
         try {
-            Object[] callerParams = null;
-            /*
-             * Parameters are lazily deserialized. We may not find out until now
-             * that the parameter set is corrupt
-             */
-            try {
-                callerParams = task.getParameters();
-            } catch (RuntimeException e) {
-                Writer result = new StringWriter();
-                PrintWriter pw = new PrintWriter(result);
-                e.printStackTrace(pw);
-                response.setResults(
-                        new ClientResponseImpl(ClientResponse.GRACEFUL_FAILURE,
-                            new VoltTable[] {},
-                                "Exception while deserializing procedure params, procedure="
-                                + m_procName + "\n"
-                                + result.toString()));
-            }
+            Object[] callerParams = getParameters(task, response);
             if (callerParams == null) {
                 return response;
             }
 
-            ClientResponseImpl cr = null;
-            ProcedureRunner runner = siteConnection.getProcedureRunner(m_procName);
+            ProcedureRunner runner = getProcedureRunner(siteConnection, response);
             if (runner == null) {
-                String error =
-                        "Procedure " + m_procName + " is not present in the catalog. "  +
-                                "This can happen if a catalog update removing the procedure occurred " +
-                                "after the procedure was submitted " +
-                                "but before the procedure was executed.";
-                RateLimitedLogger.tryLogForMessage(
-                        System.currentTimeMillis(),
-                        60, TimeUnit.SECONDS,
-                        hostLog,
-                        Level.WARN, error + " %s", "This log message is rate limited to once every 60 seconds.");
-                response.setResults(
-                        new ClientResponseImpl(
-                                ClientResponse.UNEXPECTED_FAILURE,
-                                new VoltTable[]{},
-                                error));
                 return response;
             }
 
@@ -113,29 +81,9 @@ abstract public class ProcedureTask extends TransactionTask
                 runner.setupTransaction(m_txnState);
 
                 // execute the procedure
-                cr = runner.call(callerParams);
-
-                // pass in the first value in the hashes array if it's not null
-                Integer hash = null;
-                int[] hashes = cr.getHashes();
-                if (hashes != null && hashes.length > 0) {
-                    hash = hashes[0];
-                }
-                m_txnState.setHash(hash);
-                //Don't pay the cost of returning the result tables for a replicated write
-                //With reads don't apply the optimization just in case
-                //                    if (!task.shouldReturnResultTables() && !task.isReadOnly()) {
-                //                        cr.dropResultTable();
-                //                    }
-
-                response.setResults(cr);
-                // record the results of write transactions to the transaction state
-                // this may be used to verify the DR replica cluster gets the same value
-                // skip for multi-partition txns because only 1 of k+1 partitions will
-                //  have the real results
-                if ((!task.isReadOnly()) && task.isSinglePartition()) {
-                    m_txnState.storeResults(cr);
-                }
+                ClientResponseImpl cr = runner.call(callerParams);
+
+                setResults(task, response, cr);
             } else {
                 // mis-partitioned invocation, reject it and let the ClientInterface restart it
                 response.setMispartitioned(true, task.getStoredProcedureInvocation(),
@@ -159,4 +107,116 @@ abstract public class ProcedureTask extends TransactionTask
         }
         return response;
     }
+
+    /**
+     * The part of processInitiateTask() that comes before the procedure is executed, for
+     * a call that is executed in a coalesced group: see ProcedureRunner.isCoalescable().
+     * @return the call to execute, or null if the response is already complete
+     */
+    protected ProcedureRunner.CoalescedCall prepareCoalescedInitiateTask(Iv2InitiateTaskMessage task,
+            SiteProcedureConnection siteConnection, ProcedureRunner runner, InitiateResponseMessage response)
+    {
+        Object[] callerParams = getParameters(task, response);
+        if (callerParams == null) {
+            return null;
+        }
+
+        if (!runner.checkPartition(m_txnState, siteConnection.getCurrentHashinator())) {
+            // mis-partitioned invocation, reject it and let the ClientInterface restart it
+            response.setMispartitioned(true, task.getStoredProcedureInvocation(),
+                    TheHashinator.getCurrentVersionedConfig());
+            return null;
+        }
+
+        ProcedureRunner.CoalescedCall call = runner.prepareCoalescedCall(m_txnState, callerParams);
+        if (!call.needsExecution()) {
+            // the call failed before it got to the EE
+            setResults(task, response, runner.completeCoalescedCall(call, null, null, 0));
+            return null;
+        }
+        return call;
+    }
+
+    /**
+     * The part of processInitiateTask() that comes after the procedure is executed, for
+     * a call prepared by prepareCoalescedInitiateTask().
+     */
+    protected void completeCoalescedInitiateTask(Iv2InitiateTaskMessage task, ProcedureRunner runner,
+            ProcedureRunner.CoalescedCall call, InitiateResponseMessage response,
+            VoltTable result, SerializableException error, long executionTime)
+    {
+        setResults(task, response, runner.completeCoalescedCall(call, result, error, executionTime));
+    }
+
+    /*
+     * Parameters are lazily deserialized. We may not find out until now
+     * that the parameter set is corrupt. In that case, set the error on
+     * the response and return null.
+     */
+    private Object[] getParameters(Iv2InitiateTaskMessage task, InitiateResponseMessage response)
+    {
+        try {
+            return task.getParameters();
+        } catch (RuntimeException e) {
+            Writer result = new StringWriter();
+            PrintWriter pw = new PrintWriter(result);
+            e.printStackTrace(pw);
+            response.setResults(
+                    new ClientResponseImpl(ClientResponse.GRACEFUL_FAILURE,
+                        new VoltTable[] {},
+                            "Exception while deserializing procedure params, procedure="
+                            + m_procName + "\n"
+                            + result.toString()));
+            return null;
+        }
+    }
+
+    // The procedure's runner, or null with the error set on the response if the procedure is gone
+    ProcedureRunner getProcedureRunner(SiteProcedureConnection siteConnection, InitiateResponseMessage response)
+    {
+        ProcedureRunner runner = siteConnection.getProcedureRunner(m_procName);
+        if (runner == null) {
+            String error =
+                    "Procedure " + m_procName + " is not present in the catalog. "  +
+                            "This can happen if a catalog update removing the procedure occurred " +
+                            "after the procedure was submitted " +
+                            "but before the procedure was executed.";
+            RateLimitedLogger.tryLogForMessage(
+                    System.currentTimeMillis(),
+                    60, TimeUnit.SECONDS,
+                    hostLog,
+                    Level.WARN, error + " %s", "This log message is rate limited to once every 60 seconds.");
+            response.setResults(
+                    new ClientResponseImpl(
+                            ClientResponse.UNEXPECTED_FAILURE,
+                            new VoltTable[]{},
+                            error));
+        }
+        return runner;
+    }
+
+    private void setResults(Iv2InitiateTaskMessage task, InitiateResponseMessage response, ClientResponseImpl cr)
+    {
+        // pass in the first value in the hashes array if it's not null
+        Integer hash = null;
+        int[] hashes = cr.getHashes();
+        if (hashes != null && hashes.length > 0) {
+            hash = hashes[0];
+        }
+        m_txnState.setHash(hash);
+        //Don't pay the cost of returning the result tables for a replicated write
+        //With reads don't apply the optimization just in case
+        //                    if (!task.shouldReturnResultTables() && !task.isReadOnly()) {
+        //                        cr.dropResultTable();
+        //                    }
+
+        response.setResults(cr);
+        // record the results of write transactions to the transaction state
+        // this may be used to verify the DR replica cluster gets the same value
+        // skip for multi-partition txns because only 1 of k+1 partitions will
+        //  have the real results
+        if ((!task.isReadOnly()) && task.isSinglePartition()) {
+            m_txnState.storeResults(cr);
+        }
+    }
 }
@@ -20,6 +20,7 @@ package org.voltdb.iv2;
 import java.io.IOException;
 import java.lang.reflect.Method;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Deque;
 import java.util.HashMap;
@@ -87,6 +88,7 @@ import org.voltdb.dtxn.SiteTracker;
 import org.voltdb.dtxn.TransactionState;
 import org.voltdb.dtxn.UndoAction;
 import org.voltdb.exceptions.EEException;
+import org.voltdb.exceptions.SerializableException;
 import org.voltdb.jni.ExecutionEngine;
 import org.voltdb.jni.ExecutionEngine.EventType;
 import org.voltdb.jni.ExecutionEngine.TaskType;
@@ -97,6 +99,7 @@ import org.voltdb.messaging.CompleteTransactionMessage;
 import org.voltdb.messaging.FastDeserializer;
 import org.voltdb.messaging.FragmentTaskMessage;
 import org.voltdb.messaging.Iv2InitiateTaskMessage;
+import org.voltdb.planner.StatisticsCostModel;
 import org.voltdb.rejoin.TaskLog;
 import org.voltdb.settings.ClusterSettings;
 import org.voltdb.settings.NodeSettings;
@@ -805,14 +808,21 @@ public class Site implements Runnable, SiteProcedureConnection, SiteSnapshotConn
                 if (m_rejoinState == kStateRunning) {
                     // Normal operation blocks the site thread on the sitetasker queue.
                     SiteTasker task = m_scheduler.take();
-                    if (task instanceof TransactionTask) {
-                        m_currentTxnId = ((TransactionTask)task).getTxnId();
-                        m_lastTxnTime = EstTime.currentTimeMillis();
+                    if (task instanceof TransactionTaskBatch) {
+                        // Run the whole batch before going back to the queue.
+                        runTransactionTaskBatch((TransactionTaskBatch)task);
+                    } else {
+                        if (task instanceof TransactionTask) {
+                            m_currentTxnId = ((TransactionTask)task).getTxnId();
+                            m_lastTxnTime = EstTime.currentTimeMillis();
+                        }
+                        task.run(getSiteProcedureConnection());
                     }
-                    task.run(getSiteProcedureConnection());
                 } else if (m_rejoinState == kStateReplayingRejoin) {
                     // Rejoin operation poll and try to do some catchup work. Tasks
                     // are responsible for logging any rejoin work they might have.
+                    // peek() doesn't see procedures held back for batching
+                    m_scheduler.flushBatch();
                     SiteTasker task = m_scheduler.peek();
                     boolean didWork = false;
                     if (task != null) {
@@ -981,6 +991,7 @@ public class Site implements Runnable, SiteProcedureConnection, SiteSnapshotConn
 
     void shutdown()
     {
+        StatisticsCostModel.removeSiteStatistics(m_siteId);
         try {
             if (m_non_voltdb_backend != null) {
                 m_non_voltdb_backend.shutdownInstance();
@@ -1304,11 +1315,13 @@ public class Site implements Runnable, SiteProcedureConnection, SiteSnapshotConn
                 }
                 stats.resetRowPosition();
 
+                StatisticsCostModel.updateTableStatistics(m_siteId, stats);
                 m_tableStats.setStatsTable(stats);
             }
             else {
                 // the EE returned no table stats, which means there are no tables.
                 // Need to ensure the cached stats are cleared to reflect that
+                StatisticsCostModel.updateTableStatistics(m_siteId, null);
                 m_tableStats.resetStatsTable();
             }
 
@@ -1327,11 +1340,13 @@ public class Site implements Runnable, SiteProcedureConnection, SiteSnapshotConn
                 }
                 stats.resetRowPosition();
 
+                StatisticsCostModel.updateIndexStatistics(m_siteId, stats);
                 m_indexStats.setStatsTable(stats);
             }
             else {
                 // the EE returned no index stats, which means there are no indexes.
                 // Need to ensure the cached stats are cleared to reflect that
+                StatisticsCostModel.updateIndexStatistics(m_siteId, null);
                 m_indexStats.resetStatsTable();
             }
 
@@ -1503,6 +1518,121 @@ public class Site implements Runnable, SiteProcedureConnection, SiteSnapshotConn
         return m_ee.usingFallbackBuffer();
     }
 
+    @Override
+    public Object handOverLastResults() {
+        return m_ee.handOverLastResults();
+    }
+
+    /**
+     * Run a batch of transactions in order. Runs of consecutive transactions that each
+     * execute a single SQL statement are executed in the EE together, see SpProcedureTask.runCoalesced().
+     */
+    private void runTransactionTaskBatch(TransactionTaskBatch batch)
+    {
+        final SiteProcedureConnection siteConnection = getSiteProcedureConnection();
+        final boolean canCoalesce = canCoalesceTransactions();
+        final List<SpProcedureTask> group = new ArrayList<SpProcedureTask>();
+        for (TransactionTask txnTask : batch.getTasks()) {
+            if (canCoalesce && txnTask instanceof SpProcedureTask &&
+                    ((SpProcedureTask)txnTask).isCoalescable(siteConnection)) {
+                group.add((SpProcedureTask)txnTask);
+                if (group.size() == SpProcedureTask.MAX_COALESCED_TXNS) {
+                    runCoalescedGroup(group);
+                }
+                continue;
+            }
+            runCoalescedGroup(group);
+            m_currentTxnId = txnTask.getTxnId();
+            m_lastTxnTime = EstTime.currentTimeMillis();
+            txnTask.run(siteConnection);
+        }
+        runCoalescedGroup(group);
+    }
+
+    // Run and clear a group of coalescable transactions, if there are any
+    private void runCoalescedGroup(List<SpProcedureTask> group)
+    {
+        if (group.isEmpty()) {
+            return;
+        }
+        m_currentTxnId = group.get(group.size() - 1).getTxnId();
+        m_lastTxnTime = EstTime.currentTimeMillis();
+        if (group.size() == 1) {
+            group.get(0).run(getSiteProcedureConnection());
+        }
+        else {
+            SpProcedureTask.runCoalesced(group, getSiteProcedureConnection());
+        }
+        group.clear();
+    }
+
+    @Override
+    public int executeCoalescedPlanFragments(
+            int numTxns,
+            long[] planFragmentIds,
+            Object[] parameterSets,
+            DeterminismHash[] determinismHashes,
+            String[] procedureNames,
+            String[] sqlTexts,
+            boolean[] isWriteFrags,
+            int[] sqlCRCs,
+            long[] txnIds,
+            long[] spHandles,
+            long[] uniqueIds,
+            boolean[] readOnly,
+            VoltTable[] results,
+            SerializableException[] errors,
+            long[] executionTimes,
+            boolean traceOn)
+                    throws EEException
+    {
+        // Every write transaction gets a new undo token, which the EE releases or undoes
+        // itself. Tokens of transactions the EE didn't get to are simply never used.
+        long[] undoTokens = new long[numTxns];
+        for (int i = 0; i < numTxns; i++) {
+            undoTokens[i] = readOnly[i] ? Long.MAX_VALUE : ++m_latestUndoToken;
+        }
+        return m_ee.executeCoalescedPlanFragments(
+                numTxns,
+                planFragmentIds,
+                parameterSets,
+                determinismHashes,
+                procedureNames,
+                sqlTexts,
+                isWriteFrags,
+                sqlCRCs,
+                txnIds,
+                spHandles,
+                m_lastCommittedSpHandle,
+                uniqueIds,
+                undoTokens,
+                results,
+                errors,
+                executionTimes,
+                traceOn);
+    }
+
+    @Override
+    public void completeCoalescedTransaction(boolean rollback, long spHandle, List<UndoAction> undoLog)
+    {
+        // Same as truncateUndoLog(), except that the EE has already released or undone the work
+        if (!rollback) {
+            setLastCommittedSpHandle(spHandle);
+        }
+        m_latestUndoTxnId = Long.MIN_VALUE;
+
+        // java level roll back
+        handleUndoLog(undoLog, rollback);
+    }
+
+    /**
+     * Whether single-statement procedures can be executed in groups by
+     * {@link #executeCoalescedPlanFragments}, which only the JNI EE supports.
+     */
+    boolean canCoalesceTransactions() {
+        return m_backend == BackendTarget.NATIVE_EE_JNI;
+    }
+
     @Override
     public ProcedureRunner getProcedureRunner(String procedureName) {
         return m_loadedProcedures.getProcByName(procedureName);
@@ -17,28 +17,121 @@
 
 package org.voltdb.iv2;
 
+import java.util.Queue;
 import java.util.concurrent.LinkedTransferQueue;
 
 import org.voltcore.utils.CoreUtils;
 import org.voltdb.QueueDepthTracker;
 import org.voltdb.StarvationTracker;
+import org.voltdb.iv2.SiteTaskerRingBuffer.WaitStrategy;
 
-/** SiteTaskerScheduler orders SiteTaskers for execution. */
+/**
+ * SiteTaskerScheduler orders SiteTaskers for execution.
+ *
+ * The tasks are held either in an unbounded linked queue, the default, or in a
+ * pre-allocated ring buffer, as selected by the sitequeue element of the
+ * deployment's system settings.
+ */
 public class SiteTaskerQueue
 {
-    private final LinkedTransferQueue<SiteTasker> m_tasks = new LinkedTransferQueue<SiteTasker>();
+    /**
+     * Which kind of queue to hold a site's tasks in, as given by the
+     * sitequeue element of the deployment's system settings.
+     */
+    public static final class QueueSettings {
+        /** The unbounded linked queue without batching, the default. */
+        public static final QueueSettings LINKED = new QueueSettings(0, WaitStrategy.HYBRID, 0, 1, 0);
+
+        // Zero capacity means linked
+        private final int m_ringCapacity;
+        private final WaitStrategy m_ringWaitStrategy;
+        private final long m_ringSpinMicros;
+        // One means the single partition procedures are not batched
+        private final int m_maxBatchSize;
+        private final long m_maxBatchDelayMicros;
+
+        private QueueSettings(int ringCapacity, WaitStrategy ringWaitStrategy, long ringSpinMicros,
+                int maxBatchSize, long maxBatchDelayMicros) {
+            m_ringCapacity = ringCapacity;
+            m_ringWaitStrategy = ringWaitStrategy;
+            m_ringSpinMicros = ringSpinMicros;
+            m_maxBatchSize = maxBatchSize;
+            m_maxBatchDelayMicros = maxBatchDelayMicros;
+        }
+
+        /**
+         * @param capacity ring buffer size in tasks
+         * @param waitStrategy "park", "spin" or "hybrid"
+         * @param spinMicros how long the hybrid strategy busy-polls before parking
+         * @return settings for a pre-allocated ring buffer
+         */
+        public static QueueSettings ring(int capacity, String waitStrategy, long spinMicros) {
+            return new QueueSettings(capacity, WaitStrategy.valueOf(waitStrategy.toUpperCase()), spinMicros, 1, 0);
+        }
+
+        /**
+         * @param maxBatchSize most single partition procedures to offer to the site as one task,
+         *        1 to disable batching
+         * @param maxBatchDelayMicros longest a procedure waits for its batch to fill up
+         * @return these settings with the given batching of single partition procedures
+         */
+        public QueueSettings withBatching(int maxBatchSize, long maxBatchDelayMicros) {
+            return new QueueSettings(m_ringCapacity, m_ringWaitStrategy, m_ringSpinMicros,
+                    maxBatchSize, maxBatchDelayMicros);
+        }
+
+        int getMaxBatchSize() {
+            return m_maxBatchSize;
+        }
+
+        long getMaxBatchDelayMicros() {
+            return m_maxBatchDelayMicros;
+        }
+
+        private SiteTaskerRingBuffer newRing() {
+            if (m_ringCapacity == 0) {
+                return null;
+            }
+            return new SiteTaskerRingBuffer(m_ringCapacity, m_ringWaitStrategy, m_ringSpinMicros);
+        }
+    }
+
+    private final Queue<SiteTasker> m_tasks;
+    // Same object as m_tasks when using a ring buffer, otherwise null
+    private final SiteTaskerRingBuffer m_ring;
     private StarvationTracker m_starvationTracker;
     private QueueDepthTracker m_queueDepthTracker;
     private int m_partitionId;
+    // Holds back runnable procedures to offer them as batches, null if not batching
+    private TransactionTaskQueue m_batchingQueue = null;
 
+    // A linked queue
     public SiteTaskerQueue(int partitionId) {
+        this(partitionId, QueueSettings.LINKED);
+    }
+
+    public SiteTaskerQueue(int partitionId, QueueSettings settings) {
+        this(partitionId, settings.newRing());
+    }
+
+    SiteTaskerQueue(int partitionId, SiteTaskerRingBuffer ring) {
         m_partitionId = partitionId;
+        m_ring = ring;
+        if (ring == null) {
+            m_tasks = new LinkedTransferQueue<SiteTasker>();
+        } else {
+            m_tasks = ring;
+        }
     }
 
     public int getPartitionId() {
         return m_partitionId;
     }
 
+    void setBatchingQueue(TransactionTaskQueue batchingQueue) {
+        m_batchingQueue = batchingQueue;
+    }
+
     public boolean offer(SiteTasker task)
     {
         task.setQueueOfferTime();
@@ -53,7 +146,7 @@ public class SiteTaskerQueue
     // Block on the site tasker queue.
     public SiteTasker take() throws InterruptedException
     {
-        SiteTasker task = m_tasks.poll();
+        SiteTasker task = pollTasks();
 
         if (task == null) {
             m_starvationTracker.beginStarvation();
@@ -62,7 +155,11 @@ public class SiteTaskerQueue
             return task;
         }
         try {
-            task = CoreUtils.queueSpinTake(m_tasks);
+            if (m_ring == null) {
+                task = CoreUtils.queueSpinTake((LinkedTransferQueue<SiteTasker>) m_tasks);
+            } else {
+                task = m_ring.take();
+            }
             // task is never null
             m_queueDepthTracker.pollUpdate(task.getQueueOfferTime());
             return task;
@@ -74,19 +171,46 @@ public class SiteTaskerQueue
     // Non-blocking poll on the site tasker queue.
     public SiteTasker poll()
     {
-        SiteTasker task = m_tasks.poll();
+        SiteTasker task = pollTasks();
         if (task != null) {
             m_queueDepthTracker.pollUpdate(task.getQueueOfferTime());
         }
         return task;
     }
 
-    // Non-blocking peek on the site tasker queue.
+    // Non-blocking peek on the site tasker queue. A ring buffer
+    // may not yet show a task that is being offered concurrently.
+    // Procedures held back by the batching queue are not visible
+    // until the site polls for them.
     public SiteTasker peek()
     {
         return m_tasks.peek();
     }
 
+    // Release the procedures held back by the batching queue if the site
+    // has nothing else to do or they have waited long enough. Only the
+    // site thread may call this; take() and poll() do it implicitly.
+    public void flushBatch()
+    {
+        if (m_batchingQueue != null) {
+            m_batchingQueue.flushBatch(m_tasks.isEmpty());
+        }
+    }
+
+    // Poll, but first give the batching queue a chance to release the procedures it holds,
+    // so that they are never held back from a site that has nothing else to do.
+    private SiteTasker pollTasks()
+    {
+        SiteTasker task = m_tasks.poll();
+        if (m_batchingQueue != null) {
+            m_batchingQueue.flushBatch(task == null);
+            if (task == null) {
+                task = m_tasks.poll();
+            }
+        }
+        return task;
+    }
+
     public boolean isEmpty() {
         return m_tasks.isEmpty();
     }
@@ -96,7 +220,7 @@ public class SiteTaskerQueue
     }
 
     public QueueDepthTracker setupQueueDepthTracker(long siteId) {
-        m_queueDepthTracker = new QueueDepthTracker(siteId, m_tasks);
+        m_queueDepthTracker = new QueueDepthTracker(siteId, m_tasks, m_ring == null);
         return m_queueDepthTracker;
     }
 }
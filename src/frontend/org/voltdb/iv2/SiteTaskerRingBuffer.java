@@ -0,0 +1,235 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2017 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.iv2;
+
+import static org.jctools_voltpatches.util.UnsafeRefArrayAccess.lvElement;
+
+import java.util.AbstractQueue;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.jctools_voltpatches.queues.MpscArrayQueue;
+
+/**
+ * A bounded, pre-allocated multi-producer, single-consumer queue of site tasks.
+ * Any thread may offer; only the site thread may take or poll. Peek, size and
+ * iteration are approximate and may be called from any thread, e.g. by the tick
+ * producer or the queue depth statistics.
+ *
+ * Site tasks can be neither dropped nor reordered, and a producer can't wait
+ * for room either: it may hold a lock, such as the TransactionTaskQueue's, that
+ * the site thread needs before it can drain the ring. So an offer to a full ring
+ * goes to an unbounded overflow queue instead, and every offer after it does too
+ * until the site thread has emptied both, which keeps each producer's tasks in order.
+ */
+class SiteTaskerRingBuffer extends AbstractQueue<SiteTasker> {
+
+    /** How the site thread waits for a task when the ring is empty. */
+    enum WaitStrategy {
+        /** Park immediately, producers unpark it. Lowest CPU use. */
+        PARK,
+        /** Busy-poll forever. Lowest latency, burns a core per site. */
+        SPIN,
+        /** Busy-poll for a while, then park. */
+        HYBRID
+    }
+
+    /** The ring, with a way to look at all of its occupied slots. */
+    private static class Ring extends MpscArrayQueue<SiteTasker> {
+        Ring(int capacity) {
+            super(capacity);
+        }
+
+        // Add the tasks between the consumer and the producer index to the list, oldest first.
+        // Skips a slot that a producer has claimed but not filled yet, or that the consumer has
+        // emptied in the meantime.
+        void copyTo(List<SiteTasker> tasks) {
+            final long producerIndex = lvProducerIndex();
+            for (long index = lvConsumerIndex(); index < producerIndex; index++) {
+                SiteTasker task = lvElement(buffer, calcElementOffset(index));
+                if (task != null) {
+                    tasks.add(task);
+                }
+            }
+        }
+    }
+
+    private final Ring m_ring;
+    private final WaitStrategy m_waitStrategy;
+    private final long m_spinNanos;
+
+    // Tasks offered while the ring was full, guarded by itself
+    private final ArrayDeque<SiteTasker> m_overflow = new ArrayDeque<SiteTasker>();
+    // Set by producers when they first use the overflow queue, cleared by the site thread once it is empty
+    private volatile boolean m_overflowing = false;
+    private volatile int m_overflowSize = 0;
+
+    // Set by the site thread before it parks, so producers know to unpark it.
+    private volatile Thread m_parkedConsumer = null;
+
+    /**
+     * @param capacity minimum number of tasks the ring holds, rounded up to a power of two
+     * @param waitStrategy how take() waits on an empty ring
+     * @param spinMicros how long take() busy-polls before parking, for the hybrid strategy
+     */
+    SiteTaskerRingBuffer(int capacity, WaitStrategy waitStrategy, long spinMicros) {
+        m_ring = new Ring(capacity);
+        m_waitStrategy = waitStrategy;
+        m_spinNanos = TimeUnit.MICROSECONDS.toNanos(spinMicros);
+    }
+
+    int capacity() {
+        return m_ring.capacity();
+    }
+
+    @Override
+    public boolean offer(SiteTasker task) {
+        if (m_overflowing || !m_ring.offer(task)) {
+            synchronized (m_overflow) {
+                m_overflowing = true;
+                m_overflow.add(task);
+                m_overflowSize = m_overflow.size();
+            }
+        }
+        // The CAS on the producer index in offer(), or the write of m_overflowing, orders
+        // the task before this read, pairing with the write of m_parkedConsumer before the
+        // consumer's last poll.
+        Thread consumer = m_parkedConsumer;
+        if (consumer != null) {
+            LockSupport.unpark(consumer);
+        }
+        return true;
+    }
+
+    // Site thread only.
+    @Override
+    public SiteTasker poll() {
+        SiteTasker task = m_ring.poll();
+        if (task == null && m_overflowing) {
+            synchronized (m_overflow) {
+                task = m_overflow.poll();
+                m_overflowSize = m_overflow.size();
+                if (task == null) {
+                    m_overflowing = false;
+                }
+            }
+        }
+        return task;
+    }
+
+    /**
+     * Block until a task is available. Site thread only.
+     */
+    SiteTasker take() throws InterruptedException {
+        SiteTasker task = poll();
+        if (task != null) {
+            return task;
+        }
+
+        switch (m_waitStrategy) {
+        case SPIN:
+            return spinTake(-1);
+        case HYBRID:
+            task = spinTake(m_spinNanos);
+            if (task != null) {
+                return task;
+            }
+            return parkTake();
+        default:
+            return parkTake();
+        }
+    }
+
+    // Busy-poll until a task arrives or the time is up, null on timeout.
+    // A negative spin time polls until a task arrives.
+    private SiteTasker spinTake(long spinNanos) throws InterruptedException {
+        final long start = System.nanoTime();
+        int checks = 0;
+        while (true) {
+            SiteTasker task = poll();
+            if (task != null) {
+                return task;
+            }
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            if (spinNanos >= 0 && (++checks & 0xff) == 0 && System.nanoTime() - start >= spinNanos) {
+                return null;
+            }
+        }
+    }
+
+    private SiteTasker parkTake() throws InterruptedException {
+        m_parkedConsumer = Thread.currentThread();
+        try {
+            while (true) {
+                SiteTasker task = poll();
+                if (task != null) {
+                    return task;
+                }
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+                LockSupport.park(this);
+            }
+        } finally {
+            m_parkedConsumer = null;
+        }
+    }
+
+    // Safe from any thread, may miss a task that is being offered concurrently.
+    @Override
+    public SiteTasker peek() {
+        SiteTasker task = m_ring.relaxedPeek();
+        if (task == null && m_overflowing) {
+            synchronized (m_overflow) {
+                task = m_overflow.peek();
+            }
+        }
+        return task;
+    }
+
+    @Override
+    public int size() {
+        return m_ring.size() + m_overflowSize;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return m_ring.isEmpty() && m_overflowSize == 0;
+    }
+
+    // Iterates over a snapshot of the tasks, safe from any thread. Tasks offered or polled
+    // while the snapshot is taken may or may not be in it. The iterator can't remove tasks.
+    @Override
+    public Iterator<SiteTasker> iterator() {
+        List<SiteTasker> tasks = new ArrayList<SiteTasker>(size());
+        m_ring.copyTo(tasks);
+        if (m_overflowing) {
+            synchronized (m_overflow) {
+                tasks.addAll(m_overflow);
+            }
+        }
+        return Collections.unmodifiableList(tasks).iterator();
+    }
+}
@@ -18,6 +18,8 @@
 package org.voltdb.iv2;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
 
 import org.voltcore.logging.Level;
 import org.voltcore.messaging.Mailbox;
@@ -25,10 +27,12 @@ import org.voltcore.utils.CoreUtils;
 import org.voltcore.utils.LatencyWatchdog;
 import org.voltdb.ClientResponseImpl;
 import org.voltdb.PartitionDRGateway;
+import org.voltdb.ProcedureRunner;
 import org.voltdb.SiteProcedureConnection;
 import org.voltdb.VoltTable;
 import org.voltdb.client.ClientResponse;
 import org.voltdb.client.BatchTimeoutOverrideType;
+import org.voltdb.exceptions.SerializableException;
 import org.voltdb.messaging.InitiateResponseMessage;
 import org.voltdb.messaging.Iv2InitiateTaskMessage;
 import org.voltdb.rejoin.TaskLog;
@@ -125,6 +129,165 @@ public class SpProcedureTask extends ProcedureTask
         logToDR(siteConnection.getDRGateway(), txnState);
     }
 
+    // The most transactions in one coalesced group, which must be no more
+    // than MAX_BATCH_COUNT in src/ee/execution/VoltDBEngine.h
+    static final int MAX_COALESCED_TXNS = 200;
+
+    /**
+     * Whether this transaction can run in a coalesced group, see {@link #runCoalesced}:
+     * it calls a procedure that runs a single SQL statement of one plan fragment and
+     * no Java, and it doesn't have a batch timeout of its own.
+     */
+    boolean isCoalescable(SiteProcedureConnection siteConnection)
+    {
+        if (BatchTimeoutOverrideType.isUserSetTimeout(m_txnState.getInvocation().getBatchTimeout())) {
+            return false;
+        }
+        ProcedureRunner runner = siteConnection.getProcedureRunner(m_procName);
+        return runner != null && runner.isCoalescable();
+    }
+
+    /**
+     * Run a group of coalescable transactions, in order, with as few calls to the EE
+     * as possible: usually one for the whole group, rather than one per transaction.
+     * Each one still gets its own undo token, response and DR log entry, exactly as if
+     * it had been run on its own.
+     */
+    static void runCoalesced(List<SpProcedureTask> tasks, SiteProcedureConnection siteConnection)
+    {
+        final int count = tasks.size();
+        assert(count <= MAX_COALESCED_TXNS);
+        final ProcedureRunner[] runners = new ProcedureRunner[count];
+        final ProcedureRunner.CoalescedCall[] calls = new ProcedureRunner.CoalescedCall[count];
+        final InitiateResponseMessage[] responses = new InitiateResponseMessage[count];
+        // indexes of the tasks that need to be executed in the EE
+        final int[] executable = new int[count];
+        int executableCount = 0;
+        for (int i = 0; i < count; i++) {
+            SpProcedureTask task = tasks.get(i);
+            LatencyWatchdog.pet();
+            task.waitOnDurabilityBackpressureFuture();
+            if (HOST_DEBUG_ENABLED) {
+                hostLog.debug("STARTING: " + task);
+            }
+            Iv2InitiateTaskMessage msg = task.getInitiationMessage();
+            responses[i] = new InitiateResponseMessage(msg);
+            runners[i] = task.getProcedureRunner(siteConnection, responses[i]);
+            if (runners[i] != null) {
+                calls[i] = task.prepareCoalescedInitiateTask(msg, siteConnection, runners[i], responses[i]);
+                if (calls[i] != null) {
+                    executable[executableCount++] = i;
+                }
+            }
+        }
+
+        final boolean traceOn = VoltTrace.log(VoltTrace.Category.EE) != null;
+        final long[] planFragmentIds = new long[executableCount];
+        final Object[] params = new Object[executableCount];
+        final DeterminismHash[] determinismHashes = new DeterminismHash[executableCount];
+        final String[] procedureNames = new String[executableCount];
+        final String[] sqlTexts = new String[executableCount];
+        final boolean[] isWriteFrags = new boolean[executableCount];
+        final int[] sqlCRCs = new int[executableCount];
+        final long[] txnIds = new long[executableCount];
+        final long[] spHandles = new long[executableCount];
+        final long[] uniqueIds = new long[executableCount];
+        final boolean[] readOnly = new boolean[executableCount];
+        boolean timingOn = false;
+        for (int j = 0; j < executableCount; j++) {
+            SpProcedureTask task = tasks.get(executable[j]);
+            ProcedureRunner.CoalescedCall call = calls[executable[j]];
+            planFragmentIds[j] = call.getFragmentId();
+            params[j] = call.getParams();
+            determinismHashes[j] = call.getDeterminismHash();
+            procedureNames[j] = task.m_procName;
+            sqlTexts[j] = call.getSqlText();
+            isWriteFrags[j] = call.isWriteFrag();
+            sqlCRCs[j] = call.getSqlCRC();
+            txnIds[j] = task.m_txnState.txnId;
+            spHandles[j] = task.m_txnState.m_spHandle;
+            uniqueIds[j] = task.m_txnState.uniqueId;
+            readOnly[j] = task.m_txnState.isReadOnly();
+            timingOn |= call.samplingStmts();
+        }
+
+        // The EE may stop before the end of the group to keep the results within its
+        // buffer, and the results must be copied before its next call, so finish the
+        // transactions it got to before sending it the rest.
+        final VoltTable[] results = new VoltTable[executableCount];
+        final SerializableException[] errors = new SerializableException[executableCount];
+        final long[] executionTimes = timingOn ? new long[executableCount] : null;
+        int completed = 0;
+        int executed = 0;
+        while (executed < executableCount) {
+            int remaining = executableCount - executed;
+            int batchExecuted = siteConnection.executeCoalescedPlanFragments(
+                    remaining,
+                    Arrays.copyOfRange(planFragmentIds, executed, executableCount),
+                    Arrays.copyOfRange(params, executed, executableCount),
+                    Arrays.copyOfRange(determinismHashes, executed, executableCount),
+                    Arrays.copyOfRange(procedureNames, executed, executableCount),
+                    Arrays.copyOfRange(sqlTexts, executed, executableCount),
+                    Arrays.copyOfRange(isWriteFrags, executed, executableCount),
+                    Arrays.copyOfRange(sqlCRCs, executed, executableCount),
+                    Arrays.copyOfRange(txnIds, executed, executableCount),
+                    Arrays.copyOfRange(spHandles, executed, executableCount),
+                    Arrays.copyOfRange(uniqueIds, executed, executableCount),
+                    Arrays.copyOfRange(readOnly, executed, executableCount),
+                    results,
+                    errors,
+                    executionTimes,
+                    traceOn);
+            for (int j = 0; j < batchExecuted; j++) {
+                int i = executable[executed];
+                // finish the tasks that didn't need the EE on the way, to keep responses in order
+                for (; completed < i; completed++) {
+                    tasks.get(completed).completeCoalesced(siteConnection, responses[completed]);
+                }
+                SpProcedureTask task = tasks.get(i);
+                task.completeCoalescedInitiateTask(task.getInitiationMessage(), runners[i], calls[i], responses[i],
+                        results[j], errors[j], executionTimes == null ? 0 : executionTimes[j]);
+                results[j] = null;
+                task.completeCoalesced(siteConnection, responses[i]);
+                completed++;
+                executed++;
+            }
+        }
+        for (; completed < count; completed++) {
+            tasks.get(completed).completeCoalesced(siteConnection, responses[completed]);
+        }
+    }
+
+    // The part of run() that comes after the procedure is executed, for a coalesced transaction
+    private void completeCoalesced(SiteProcedureConnection siteConnection, InitiateResponseMessage response)
+    {
+        if (!response.shouldCommit()) {
+            m_txnState.setNeedsRollback(true);
+        }
+        if (!m_txnState.isReadOnly()) {
+            // the EE work was already committed or rolled back along with the group
+            siteConnection.completeCoalescedTransaction(m_txnState.needsRollback(),
+                    m_txnState.m_spHandle,
+                    m_txnState.getUndoLog());
+        }
+        doCommonSPICompleteActions();
+        response.m_sourceHSId = m_initiator.getHSId();
+        m_initiator.deliver(response);
+        if (EXEC_TRACE_ENABLED) {
+            execLog.l7dlog( Level.TRACE, LogKeys.org_voltdb_ExecutionSite_SendingCompletedWUToDtxn.name(), null);
+        }
+        if (HOST_DEBUG_ENABLED) {
+            hostLog.debug("COMPLETE: " + this);
+        }
+
+        logToDR(siteConnection.getDRGateway(), (SpTransactionState)m_txnState);
+    }
+
+    private Iv2InitiateTaskMessage getInitiationMessage()
+    {
+        return ((SpTransactionState)m_txnState).m_initiationMsg;
+    }
+
     @Override
     public void runForRejoin(SiteProcedureConnection siteConnection, TaskLog taskLog)
     throws IOException
@@ -175,9 +175,16 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
     protected RepairLog m_repairLog;
 
     SpScheduler(int partitionId, SiteTaskerQueue taskQueue, SnapshotCompletionMonitor snapMonitor)
+    {
+        this(partitionId, taskQueue, snapMonitor, SiteTaskerQueue.QueueSettings.LINKED);
+    }
+
+    SpScheduler(int partitionId, SiteTaskerQueue taskQueue, SnapshotCompletionMonitor snapMonitor,
+            SiteTaskerQueue.QueueSettings queueSettings)
     {
         super(partitionId, taskQueue);
-        m_pendingTasks = new TransactionTaskQueue(m_tasks);
+        m_pendingTasks = new TransactionTaskQueue(m_tasks,
+                queueSettings.getMaxBatchSize(), queueSettings.getMaxBatchDelayMicros());
         m_snapMonitor = snapMonitor;
         m_durabilityListener = new SpDurabilityListener(this, m_pendingTasks);
         m_uniqueIdGenerator = new UniqueIdGenerator(partitionId, 0);
@@ -0,0 +1,63 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2017 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.iv2;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.voltdb.SiteProcedureConnection;
+import org.voltdb.rejoin.TaskLog;
+
+/**
+ * A run of runnable transaction tasks that the TransactionTaskQueue offers to
+ * the site as a single SiteTasker, so the site executes them back to back
+ * instead of going back to its queue, and waking up, for each one.
+ */
+public class TransactionTaskBatch extends SiteTasker {
+
+    private final List<TransactionTask> m_tasks;
+
+    TransactionTaskBatch(List<TransactionTask> tasks) {
+        m_tasks = tasks;
+    }
+
+    /** The tasks, in the order they must run. */
+    public List<TransactionTask> getTasks() {
+        return m_tasks;
+    }
+
+    @Override
+    public void run(SiteProcedureConnection siteConnection) {
+        for (TransactionTask task : m_tasks) {
+            task.run(siteConnection);
+        }
+    }
+
+    @Override
+    public void runForRejoin(SiteProcedureConnection siteConnection,
+            TaskLog rejoinTaskLog) throws IOException {
+        for (TransactionTask task : m_tasks) {
+            task.runForRejoin(siteConnection, rejoinTaskLog);
+        }
+    }
+
+    @Override
+    public String getTaskInfo() {
+        return getClass().getSimpleName() + " of " + m_tasks.size() + " starting with " + m_tasks.get(0).getTaskInfo();
+    }
+}
@@ -18,8 +18,10 @@
 package org.voltdb.iv2;
 
 import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Deque;
 import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
 
 import org.voltcore.logging.VoltLogger;
 import org.voltdb.dtxn.TransactionState;
@@ -37,9 +39,33 @@ public class TransactionTaskQueue
      */
     private Deque<TransactionTask> m_backlog = new ArrayDeque<TransactionTask>();
 
+    /*
+     * When batching, runnable single partition procedures are held here instead of being
+     * offered to the SiteTaskerQueue one at a time, and offered as one TransactionTaskBatch
+     * once the batch is full, too old, another kind of task needs to go to the site, or the
+     * site runs out of work.
+     */
+    private final int m_maxBatchSize;
+    private final long m_maxBatchDelayNanos;
+    private ArrayList<TransactionTask> m_batch;
+    private long m_batchStartTime;
+    // Lets the site check for a batch without taking the lock
+    private volatile boolean m_hasBatch = false;
+
     TransactionTaskQueue(SiteTaskerQueue queue)
+    {
+        this(queue, 1, 0);
+    }
+
+    TransactionTaskQueue(SiteTaskerQueue queue, int maxBatchSize, long maxBatchDelayMicros)
     {
         m_taskQueue = queue;
+        m_maxBatchSize = maxBatchSize;
+        m_maxBatchDelayNanos = TimeUnit.MICROSECONDS.toNanos(maxBatchDelayMicros);
+        if (m_maxBatchSize > 1) {
+            m_batch = new ArrayList<TransactionTask>(m_maxBatchSize);
+            m_taskQueue.setBatchingQueue(this);
+        }
     }
 
     /**
@@ -90,10 +116,68 @@ public class TransactionTaskQueue
     // a single point we can log through.
     private void taskQueueOffer(TransactionTask task)
     {
+        if (m_batch != null) {
+            if (task instanceof SpProcedureTask) {
+                if (m_batch.isEmpty()) {
+                    m_batchStartTime = System.nanoTime();
+                }
+                m_batch.add(task);
+                // Publish the batch before looking at the site's queue, so that a site which
+                // empties its queue concurrently either sees the batch or is seen to be idle.
+                m_hasBatch = true;
+                // Don't hold back work from an idle site
+                if (m_batch.size() >= m_maxBatchSize || m_taskQueue.isEmpty() ||
+                        System.nanoTime() - m_batchStartTime >= m_maxBatchDelayNanos) {
+                    offerBatch();
+                }
+                return;
+            }
+            // keep the batched procedures ahead of this task
+            offerBatch();
+        }
         Iv2Trace.logSiteTaskerQueueOffer(task);
         m_taskQueue.offer(task);
     }
 
+    private void offerBatch()
+    {
+        m_hasBatch = false;
+        if (m_batch.isEmpty()) {
+            return;
+        }
+        for (TransactionTask task : m_batch) {
+            Iv2Trace.logSiteTaskerQueueOffer(task);
+        }
+        if (m_batch.size() == 1) {
+            m_taskQueue.offer(m_batch.get(0));
+            m_batch.clear();
+        }
+        else {
+            m_taskQueue.offer(new TransactionTaskBatch(m_batch));
+            m_batch = new ArrayList<TransactionTask>(m_maxBatchSize);
+        }
+    }
+
+    /**
+     * Offer the held back procedures to the SiteTaskerQueue if the site has nothing
+     * else to do or they have waited long enough. Called by the site thread from its
+     * SiteTaskerQueue. An idle site always takes the lock: a procedure being offered
+     * concurrently has then either been added to the batch, which is offered here, or
+     * will find the queue empty and be offered right away, waking the site.
+     * @param siteIdle true if the SiteTaskerQueue is empty
+     */
+    void flushBatch(boolean siteIdle)
+    {
+        if (!siteIdle && !m_hasBatch) {
+            return;
+        }
+        synchronized (this) {
+            if (siteIdle || System.nanoTime() - m_batchStartTime >= m_maxBatchDelayNanos) {
+                offerBatch();
+            }
+        }
+    }
+
     /**
      * Try to offer as many runnable Tasks to the SiteTaskerQueue as possible.
      * @param txnId The transaction ID of the TransactionTask which is completing and causing the flush
@@ -173,6 +257,9 @@ public class TransactionTaskQueue
         StringBuilder sb = new StringBuilder();
         sb.append("TransactionTaskQueue:").append("\n");
         sb.append("\tSIZE: ").append(size());
+        if (m_batch != null) {
+            sb.append("\tBATCHED: ").append(m_batch.size());
+        }
         if (!m_backlog.isEmpty()) {
             sb.append("\tHEAD: ").append(m_backlog.getFirst());
         }
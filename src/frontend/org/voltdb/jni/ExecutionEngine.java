@@ -43,6 +43,7 @@ import org.voltdb.VoltDB;
 import org.voltdb.VoltTable;
 import org.voltdb.dr2.DRProtocol;
 import org.voltdb.exceptions.EEException;
+import org.voltdb.exceptions.SerializableException;
 import org.voltdb.iv2.DeterminismHash;
 import org.voltdb.iv2.TxnEgo;
 import org.voltdb.messaging.FastDeserializer;
@@ -156,6 +157,12 @@ public abstract class ExecutionEngine implements FastDeserializer.Deserializatio
     private long m_lastMsgTime;
     private long m_logDuration = INITIAL_LOG_DURATION;
     private String[] m_sqlTexts = null;
+    // The procedure of each transaction in a coalesced batch, null otherwise
+    private String[] m_coalescedProcedureNames = null;
+    // The undo token of each transaction in a coalesced batch, Long.MAX_VALUE for a read-only one
+    private long[] m_coalescedUndoTokens = null;
+    // The transaction of a coalesced batch the progress updates are timing
+    private int m_currentCoalescedTxn = -1;
 
     /** information about EE calls back to JAVA. For test.*/
     public int m_callsFromEE = 0;
@@ -183,6 +190,18 @@ public abstract class ExecutionEngine implements FastDeserializer.Deserializatio
         return m_usingFallbackBuffer;
     }
 
+    /**
+     * Give up the memory holding the results of the last batch, so that tables
+     * backed by it remain valid after the next call into the EE without being
+     * copied. Only possible for the results of a first batch that fit in the
+     * first result buffer.
+     * @return the owner of the memory, which the tables must keep reachable for as long as
+     *         they are in use, or null if the buffer will be reused
+     */
+    public Object handOverLastResults() {
+        return null;
+    }
+
     public void setBatchTimeout(int batchTimeout) {
         m_batchTimeout = batchTimeout;
     }
@@ -436,6 +455,18 @@ public abstract class ExecutionEngine implements FastDeserializer.Deserializatio
         m_peakMemoryInBytes = peakMemoryInBytes;
 
         long currentTime = System.currentTimeMillis();
+        if (m_coalescedProcedureNames != null && indexFromFragmentTask != m_currentCoalescedTxn) {
+            // The EE reports the index of the running transaction of a coalesced batch,
+            // so a new index is a transaction boundary. Each transaction is timed on its own,
+            // and only a read-only one can time out.
+            m_currentCoalescedTxn = indexFromFragmentTask;
+            if (indexFromFragmentTask >= 0 && indexFromFragmentTask < m_coalescedUndoTokens.length) {
+                m_fragmentContext = (m_coalescedUndoTokens[indexFromFragmentTask] == Long.MAX_VALUE) ?
+                        FragmentContext.RO_BATCH : FragmentContext.RW_BATCH;
+            }
+            m_startTime = 0;
+            m_logDuration = INITIAL_LOG_DURATION;
+        }
         if (m_startTime == 0) {
             m_startTime = m_lastMsgTime = currentTime;
             return LONG_OP_THRESHOLD;
@@ -489,7 +520,14 @@ public abstract class ExecutionEngine implements FastDeserializer.Deserializatio
         default:
         case RO_BATCH:
         case RW_BATCH:
-            sb.append("Procedure " + m_currentProcedureName);
+            if (m_coalescedProcedureNames != null
+                    && indexFromFragmentTask >= 0
+                    && indexFromFragmentTask < m_coalescedProcedureNames.length) {
+                sb.append("Procedure " + m_coalescedProcedureNames[indexFromFragmentTask]);
+            }
+            else {
+                sb.append("Procedure " + m_currentProcedureName);
+            }
             break;
 
         case CATALOG_UPDATE:
@@ -716,6 +754,109 @@ public abstract class ExecutionEngine implements FastDeserializer.Deserializatio
             long undoQuantumToken,
             boolean traceOn) throws EEException;
 
+    /**
+     * Run a group of single-partition transactions, each of which is a single plan fragment,
+     * in one call to the EE. Each transaction has its own undo token, and each one that writes
+     * is committed or rolled back in the EE before the next one runs.
+     *
+     * The EE may stop early to keep the results within its result buffer, so this returns how
+     * many of the transactions, from the first, were executed. The caller executes the rest in
+     * another call. The result tables reference the EE's result buffer, so they must be copied
+     * before the next call to the EE.
+     *
+     * @param procedureNames  the procedure of each transaction, for logging
+     * @param undoTokens      the undo token of each transaction, Long.MAX_VALUE for a read-only one
+     * @param results         out: the result table of each executed transaction, null if it failed
+     * @param errors          out: the exception of each executed transaction that failed, null otherwise
+     * @param executionTimes  out: the execution time of each executed transaction's fragment,
+     *                        or null to not time them
+     * @return the number of transactions executed
+     */
+    public int executeCoalescedPlanFragments(
+            int numTxns,
+            long[] planFragmentIds,
+            Object[] parameterSets,
+            DeterminismHash[] determinismHashes,
+            String[] procedureNames,
+            String[] sqlTexts,
+            boolean[] isWriteFrags,
+            int[] sqlCRCs,
+            long[] txnIds,
+            long[] spHandles,
+            long lastCommittedSpHandle,
+            long[] uniqueIds,
+            long[] undoTokens,
+            VoltTable[] results,
+            SerializableException[] errors,
+            long[] executionTimes,
+            boolean traceOn) throws EEException
+    {
+        try {
+            // progress updates set the context of each transaction of the batch as it starts
+            m_fragmentContext = (undoTokens[0] == Long.MAX_VALUE) ? FragmentContext.RO_BATCH : FragmentContext.RW_BATCH;
+            m_coalescedUndoTokens = undoTokens;
+            m_currentCoalescedTxn = -1;
+            m_sqlTexts = sqlTexts;
+            m_coalescedProcedureNames = procedureNames;
+            // every transaction runs its first and only batch
+            m_currentBatchIndex = 0;
+
+            if (traceOn) {
+                final VoltTrace.TraceEventBatch traceLog = VoltTrace.log(VoltTrace.Category.SPSITE);
+                if (traceLog != null) {
+                    traceLog.add(() -> VoltTrace.beginDuration("execcoalescedplanfragments",
+                                                               "txnId", TxnEgo.txnIdToString(txnIds[0]),
+                                                               "transactions", Integer.toString(numTxns),
+                                                               "partition", Integer.toString(m_partitionId)));
+                }
+            }
+
+            int executed = coreExecuteCoalescedPlanFragments(numTxns, planFragmentIds, parameterSets,
+                    determinismHashes, isWriteFrags, sqlCRCs, txnIds, spHandles, lastCommittedSpHandle,
+                    uniqueIds, undoTokens, results, errors, executionTimes, traceOn);
+
+            if (traceOn) {
+                final VoltTrace.TraceEventBatch traceLog = VoltTrace.log(VoltTrace.Category.SPSITE);
+                if (traceLog != null) {
+                    traceLog.add(VoltTrace::endDuration);
+                }
+            }
+
+            if (m_plannerStats != null) {
+                m_plannerStats.updateEECacheStats(m_eeCacheSize, executed - m_cacheMisses,
+                        m_cacheMisses, m_partitionId);
+            }
+            return executed;
+        }
+        finally {
+            m_cacheMisses = 0;
+
+            m_sqlTexts = null;
+            m_coalescedProcedureNames = null;
+            m_coalescedUndoTokens = null;
+            m_currentCoalescedTxn = -1;
+
+            m_fragmentContext = FragmentContext.UNKNOWN;
+        }
+    }
+
+    public abstract int coreExecuteCoalescedPlanFragments(
+            int numTxns,
+            long[] planFragmentIds,
+            Object[] parameterSets,
+            DeterminismHash[] determinismHashes,
+            boolean[] isWriteFrags,
+            int[] sqlCRCs,
+            long[] txnIds,
+            long[] spHandles,
+            long lastCommittedSpHandle,
+            long[] uniqueIds,
+            long[] undoTokens,
+            VoltTable[] results,
+            SerializableException[] errors,
+            long[] executionTimes,
+            boolean traceOn) throws EEException;
+
     public abstract void setPerFragmentTimingEnabled(boolean enabled);
 
     // Extract the per-fragment stats from the buffer.
@@ -983,6 +1124,25 @@ public abstract class ExecutionEngine implements FastDeserializer.Deserializatio
             long undoToken,
             boolean traceOn);
 
+    /**
+     * Executes a group of single-partition transactions of one plan fragment each.
+     * Their parameter sets are in the parameter buffer, in order.
+     * @param pointer the VoltDBEngine pointer
+     * @param numTxns number of transactions
+     * @param planFragmentIds ID of the plan fragment of each transaction
+     * @return the number of transactions executed, or -1 on error
+     */
+    protected native int nativeExecuteCoalescedPlanFragments(
+            long pointer,
+            int numTxns,
+            long[] planFragmentIds,
+            long[] txnIds,
+            long[] spHandles,
+            long lastCommittedSpHandle,
+            long[] uniqueIds,
+            long[] undoTokens,
+            boolean traceOn);
+
     /**
      * Serialize the result temporary table.
      * @param pointer the VoltDBEngine pointer
@@ -1132,6 +1132,27 @@ public class ExecutionEngineIPC extends ExecutionEngine {
         }
     }
 
+    @Override
+    public int coreExecuteCoalescedPlanFragments(
+            int numTxns,
+            long[] planFragmentIds,
+            Object[] parameterSets,
+            DeterminismHash[] determinismHashes,
+            boolean[] isWriteFrags,
+            int[] sqlCRCs,
+            long[] txnIds,
+            long[] spHandles,
+            long lastCommittedSpHandle,
+            long[] uniqueIds,
+            long[] undoTokens,
+            VoltTable[] results,
+            SerializableException[] errors,
+            long[] executionTimes,
+            boolean traceOn) throws EEException
+    {
+        throw new UnsupportedOperationException("Not supported yet.");
+    }
+
     @Override
     public VoltTable serializeTable(final int tableId) throws EEException {
         throw new UnsupportedOperationException("Not supported yet.");
@@ -18,9 +18,14 @@
 package org.voltdb.jni;
 
 import java.io.IOException;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
 import java.lang.reflect.InvocationTargetException;
 import java.nio.ByteBuffer;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.voltcore.logging.VoltLogger;
 import org.voltcore.utils.DBBPool;
@@ -29,6 +34,7 @@ import org.voltcore.utils.Pair;
 import org.voltdb.ParameterSet;
 import org.voltdb.PrivateVoltTableFactory;
 import org.voltdb.StatsSelector;
+import org.voltdb.TableHelper;
 import org.voltdb.TableStreamType;
 import org.voltdb.TheHashinator.HashinatorConfig;
 import org.voltdb.UserDefinedFunctionManager.UserDefinedFunctionRunner;
@@ -79,6 +85,10 @@ public class ExecutionEngineJNI extends ExecutionEngine {
     // 256K is a reasonable size for those relatively small buffers.
     private static final int smallBufferSize = 256 * 1024;
 
+    // Results of a first batch at least this large are handed over rather than copied
+    private static final int MIN_HANDED_OVER_RESULTS_SIZE =
+            Integer.getInteger("EE_MIN_HANDED_OVER_RESULTS_SIZE", 64 * 1024);
+
     static {
         EE_COMPACTION_THRESHOLD = Integer.getInteger("EE_COMPACTION_THRESHOLD", 95);
         if (EE_COMPACTION_THRESHOLD < 0 || EE_COMPACTION_THRESHOLD > 99) {
@@ -119,10 +129,23 @@ public class ExecutionEngineJNI extends ExecutionEngine {
      * in voltdbipc.cpp must be changed to match so that tests and apps
      * that rely on being able to serialize large results sets will get the same amount of storage
      * when using the IPC backend.
+     *
+     * The first buffer is a window onto a larger block: when large results are handed over
+     * the window moves past them, so the tables are never overwritten. A block that is mostly
+     * handed over is retired and replaced by a new one. The tables keep the ResultBlock they
+     * are backed by reachable, and a retired block is discarded once none of them is left.
      **/
-    private final BBContainer m_firstDeserializerBufferOrigin = org.voltcore.utils.DBBPool.allocateDirect(1024 * 1024 * 10);
+    private static final int FIRST_RESULT_BLOCK_SIZE = 1024 * 1024 * 10;
+    // Past this many retired blocks still in use results are copied rather than handed over
+    private static final int MAX_RETIRED_RESULT_BLOCKS = 4;
+    private ResultBlock m_firstResultBlock = new ResultBlock();
+    private int m_firstResultOffset = 0;
     private FastDeserializer m_firstDeserializer =
-            new FastDeserializer(m_firstDeserializerBufferOrigin.b());
+            new FastDeserializer(m_firstResultBlock.m_container.bD());
+    private final ReferenceQueue<ResultBlock> m_freedResultBlocks = new ReferenceQueue<ResultBlock>();
+    private final Set<RetiredResultBlock> m_retiredResultBlocks = new HashSet<RetiredResultBlock>();
+    // Whether the last call left the results of a first batch in the first buffer
+    private boolean m_lastResultsInFirstBuffer = false;
     private final BBContainer m_nextDeserializerBufferOrigin = org.voltcore.utils.DBBPool.allocateDirect(1024 * 1024 * 10);
     private FastDeserializer m_nextDeserializer =
             new FastDeserializer(m_nextDeserializerBufferOrigin.b());
@@ -203,6 +226,63 @@ public class ExecutionEngineJNI extends ExecutionEngine {
         checkErrorCode(errorCode);
     }
 
+    /** The owner of a result block, which the tables handed over from it keep reachable */
+    private static final class ResultBlock {
+        final BBContainer m_container = DBBPool.allocateDirect(FIRST_RESULT_BLOCK_SIZE);
+    }
+
+    /** Holds on to the memory of a retired block until no table references the block */
+    private static final class RetiredResultBlock extends WeakReference<ResultBlock> {
+        final BBContainer m_container;
+
+        RetiredResultBlock(ResultBlock block, ReferenceQueue<ResultBlock> queue) {
+            super(block, queue);
+            m_container = block.m_container;
+        }
+    }
+
+    private void discardFreedResultBlocks() {
+        Reference<? extends ResultBlock> freed;
+        while ((freed = m_freedResultBlocks.poll()) != null) {
+            if (m_retiredResultBlocks.remove(freed)) {
+                ((RetiredResultBlock)freed).m_container.discard();
+            }
+        }
+    }
+
+    @Override
+    public Object handOverLastResults() {
+        if (!m_lastResultsInFirstBuffer) {
+            return null;
+        }
+        m_lastResultsInFirstBuffer = false;
+        // dirty flag, length of the dependencies, then the dependencies
+        final int resultsSize = 1 + 4 + m_firstDeserializer.buffer().getInt(1);
+        if (resultsSize < MIN_HANDED_OVER_RESULTS_SIZE) {
+            return null;
+        }
+        // keep the next results 8 byte aligned
+        final int nextOffset = m_firstResultOffset + ((resultsSize + 7) & ~7);
+        final ResultBlock owner = m_firstResultBlock;
+        if (FIRST_RESULT_BLOCK_SIZE - nextOffset < FIRST_RESULT_BLOCK_SIZE / 2) {
+            discardFreedResultBlocks();
+            if (m_retiredResultBlocks.size() >= MAX_RETIRED_RESULT_BLOCKS) {
+                // the tables will be copied and the block reused
+                return null;
+            }
+            m_retiredResultBlocks.add(new RetiredResultBlock(owner, m_freedResultBlocks));
+            m_firstResultBlock = new ResultBlock();
+            m_firstResultOffset = 0;
+        } else {
+            m_firstResultOffset = nextOffset;
+        }
+        ByteBuffer window = m_firstResultBlock.m_container.bD();
+        window.position(m_firstResultOffset);
+        m_firstDeserializer = new FastDeserializer(window.slice());
+        updateEEBufferPointers();
+        return owner;
+    }
+
     final void setupPsetBuffer(int size) {
         if (m_psetBuffer != null) {
             m_psetBufferC.discard();
@@ -262,12 +342,15 @@ public class ExecutionEngineJNI extends ExecutionEngine {
     }
 
     final void clearPerFragmentStatsAndEnsureCapacity(int batchSize) {
-        assert(m_perFragmentStatsBuffer != null);
         // Determine the required size of the per-fragment stats buffer:
         // int8_t perFragmentTimingEnabled
         // int32_t succeededFragmentsCount
         // succeededFragmentsCount * sizeof(int64_t) for duration time numbers.
-        int size = 1 + 4 + batchSize * 8;
+        clearPerFragmentStatsAndEnsureSize(1 + 4 + batchSize * 8);
+    }
+
+    final void clearPerFragmentStatsAndEnsureSize(int size) {
+        assert(m_perFragmentStatsBuffer != null);
         if (size > m_perFragmentStatsBuffer.capacity()) {
             setupPerFragmentStatsBuffer(size);
             updateEEBufferPointers();
@@ -307,7 +390,13 @@ public class ExecutionEngineJNI extends ExecutionEngine {
             checkErrorCode(errorCode);
         }
         m_firstDeserializer = null;
-        m_firstDeserializerBufferOrigin.discard();
+        // the site is going away, so no table handed over by it will be sent anymore
+        m_firstResultBlock.m_container.discard();
+        m_firstResultBlock = null;
+        for (RetiredResultBlock retired : m_retiredResultBlocks) {
+            retired.m_container.discard();
+        }
+        m_retiredResultBlocks.clear();
         m_nextDeserializer = null;
         m_nextDeserializerBufferOrigin.discard();
         m_exceptionBuffer = null;
@@ -451,6 +540,7 @@ public class ExecutionEngineJNI extends ExecutionEngine {
         //Clear is destructive, do it before the native call
         FastDeserializer targetDeserializer = (batchIndex == 0) ? m_firstDeserializer : m_nextDeserializer;
         targetDeserializer.clear();
+        m_lastResultsInFirstBuffer = false;
 
         final int errorCode =
             nativeExecutePlanFragments(
@@ -469,6 +559,7 @@ public class ExecutionEngineJNI extends ExecutionEngine {
         try {
             checkErrorCode(errorCode);
             m_usingFallbackBuffer = m_fallbackBuffer != null;
+            m_lastResultsInFirstBuffer = batchIndex == 0 && !m_usingFallbackBuffer;
             FastDeserializer fds = m_usingFallbackBuffer ? new FastDeserializer(m_fallbackBuffer) : targetDeserializer;
             assert(fds != null);
             try {
@@ -485,6 +576,124 @@ public class ExecutionEngineJNI extends ExecutionEngine {
         }
     }
 
+    @Override
+    public int coreExecuteCoalescedPlanFragments(
+            final int numTxns,
+            final long[] planFragmentIds,
+            final Object[] parameterSets,
+            final DeterminismHash[] determinismHashes,
+            final boolean[] isWriteFrags,
+            final int[] sqlCRCs,
+            final long[] txnIds,
+            final long[] spHandles,
+            final long lastCommittedSpHandle,
+            final long[] uniqueIds,
+            final long[] undoTokens,
+            final VoltTable[] results,
+            final SerializableException[] errors,
+            final long[] executionTimes,
+            final boolean traceOn) throws EEException
+    {
+        assert(numTxns > 0 && planFragmentIds[0] != 0);
+
+        // serialize the param sets, one per transaction
+        int allPsetSize = 0;
+        for (int i = 0; i < numTxns; ++i) {
+            if (parameterSets[i] instanceof ByteBuffer) {
+                allPsetSize += ((ByteBuffer) parameterSets[i]).limit();
+            }
+            else {
+                allPsetSize += ((ParameterSet) parameterSets[i]).getSerializedSize();
+            }
+        }
+
+        clearPsetAndEnsureCapacity(allPsetSize);
+        for (int i = 0; i < numTxns; ++i) {
+            int paramStart = m_psetBuffer.position();
+            Object param = parameterSets[i];
+            if (param instanceof ByteBuffer) {
+                m_psetBuffer.put((ByteBuffer) param);
+            }
+            else {
+                ParameterSet pset = (ParameterSet) param;
+                try {
+                    pset.flattenToBuffer(m_psetBuffer);
+                }
+                catch (final Exception exception) { //Not Just IO but bad params can throw RuntimeExceptions
+                    throw new RuntimeException("Error serializing parameters for coalesced transaction: " +
+                                               i + " with plan fragment ID: " + planFragmentIds[i] +
+                                               " and with params: " +
+                                               pset.toJSONString(), exception);
+                }
+            }
+            if (isWriteFrags[i]) {
+                determinismHashes[i].offerStatement(sqlCRCs[i], paramStart, m_psetBuffer);
+            }
+        }
+
+        // The EE writes int32_t succeededFragmentsCount and, if timed, an int64_t
+        // duration for each transaction, after the timing on/off switch.
+        final boolean timingOn = executionTimes != null;
+        clearPerFragmentStatsAndEnsureSize(1 + numTxns * (4 + 8));
+        setPerFragmentTimingEnabled(timingOn);
+
+        //Clear is destructive, do it before the native call
+        m_firstDeserializer.clear();
+        m_lastResultsInFirstBuffer = false;
+
+        final int executed =
+            nativeExecuteCoalescedPlanFragments(
+                    pointer,
+                    numTxns,
+                    planFragmentIds,
+                    txnIds,
+                    spHandles,
+                    lastCommittedSpHandle,
+                    uniqueIds,
+                    undoTokens,
+                    traceOn);
+
+        try {
+            if (executed <= 0) {
+                throw new EEException(ERRORCODE_ERROR);
+            }
+            m_usingFallbackBuffer = m_fallbackBuffer != null;
+            final ByteBuffer resultBuffer = m_usingFallbackBuffer ? m_fallbackBuffer : m_firstDeserializer.buffer();
+            m_perFragmentStatsBuffer.clear();
+            // Discard the first byte since it is the timing on/off switch.
+            m_perFragmentStatsBuffer.get();
+            for (int i = 0; i < executed; ++i) {
+                // status, then either [dirty][size][dependency count][dependency] or the exception
+                if (resultBuffer.get() == ERRORCODE_SUCCESS) {
+                    m_dirty |= resultBuffer.get() != 0;
+                    resultBuffer.getInt();
+                    results[i] = TableHelper.convertBackedBufferToTables(resultBuffer, 1)[0];
+                    errors[i] = null;
+                }
+                else {
+                    final int exceptionStart = resultBuffer.position();
+                    final int exceptionEnd = exceptionStart + 4 + resultBuffer.getInt(exceptionStart);
+                    ByteBuffer exceptionBuffer = resultBuffer.duplicate();
+                    exceptionBuffer.limit(exceptionEnd);
+                    results[i] = null;
+                    errors[i] = SerializableException.deserializeFromBuffer(exceptionBuffer);
+                    if (errors[i] == null) {
+                        errors[i] = new EEException(ERRORCODE_ERROR);
+                    }
+                    resultBuffer.position(exceptionEnd);
+                }
+                // succeeded fragment count, implied by the status
+                m_perFragmentStatsBuffer.getInt();
+                if (timingOn) {
+                    executionTimes[i] = m_perFragmentStatsBuffer.getLong();
+                }
+            }
+            return executed;
+        } finally {
+            m_fallbackBuffer = null;
+        }
+    }
+
     @Override
     public VoltTable serializeTable(final int tableId) throws EEException {
         if (HOST_TRACE_ENABLED) {
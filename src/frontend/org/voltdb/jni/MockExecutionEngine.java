@@ -33,6 +33,7 @@ import org.voltdb.VoltTable;
 import org.voltdb.VoltType;
 import org.voltdb.exceptions.EEException;
 import org.voltdb.exceptions.SQLException;
+import org.voltdb.exceptions.SerializableException;
 import org.voltdb.iv2.DeterminismHash;
 import org.voltdb.messaging.FastDeserializer;
 
@@ -231,6 +232,27 @@ public class MockExecutionEngine extends ExecutionEngine {
         throw new UnsupportedOperationException();
     }
 
+    @Override
+    public int coreExecuteCoalescedPlanFragments(
+            int numTxns,
+            long[] planFragmentIds,
+            Object[] parameterSets,
+            DeterminismHash[] determinismHashes,
+            boolean[] isWriteFrags,
+            int[] sqlCRCs,
+            long[] txnIds,
+            long[] spHandles,
+            long lastCommittedSpHandle,
+            long[] uniqueIds,
+            long[] undoTokens,
+            VoltTable[] results,
+            SerializableException[] errors,
+            long[] executionTimes,
+            boolean traceOn) throws EEException
+    {
+        throw new UnsupportedOperationException();
+    }
+
     @Override
     public long getThreadLocalPoolAllocations() {
         return 0L;
@@ -736,6 +736,20 @@ public class FragmentTaskMessage extends TransactionInfoBaseMessage
         buf.limit(buf.position());
     }
 
+    /*
+     * Copy the remaining bytes of a buffer of this message, which the network threads of
+     * all the hosts it is sent to may be flattening at once, without moving its position.
+     * Heap buffers are copied from their array rather than through a new view.
+     */
+    private static void putSharedBuffer(ByteBuffer buf, ByteBuffer shared) {
+        if (shared.hasArray()) {
+            buf.put(shared.array(), shared.arrayOffset() + shared.position(), shared.remaining());
+        }
+        else {
+            buf.put(shared.duplicate());
+        }
+    }
+
     /**
      * Used directly by {@link FragmentTaskLogMessage} to embed FTMs
      */
@@ -804,7 +818,7 @@ public class FragmentTaskMessage extends TransactionInfoBaseMessage
         // Parameter set block
         for (FragmentData item : m_items) {
             buf.putInt(item.m_parameterSet.remaining());
-            buf.put(item.m_parameterSet.asReadOnlyBuffer());
+            putSharedBuffer(buf, item.m_parameterSet);
         }
 
         // Optional output dependency ID block
@@ -855,9 +869,8 @@ public class FragmentTaskMessage extends TransactionInfoBaseMessage
         }
 
         if (m_initiateTaskBuffer != null) {
-            ByteBuffer dup = m_initiateTaskBuffer.duplicate();
-            buf.putInt(dup.remaining());
-            buf.put(dup);
+            buf.putInt(m_initiateTaskBuffer.remaining());
+            putSharedBuffer(buf, m_initiateTaskBuffer);
         } else {
             buf.putInt(0);
         }
@@ -1012,14 +1025,13 @@ public class FragmentTaskMessage extends TransactionInfoBaseMessage
             message.initFromBuffer(buf);
             m_initiateTask = message;
             if (m_initiateTask != null && m_initiateTaskBuffer == null) {
-                m_initiateTaskBuffer = ByteBuffer.allocate(m_initiateTask.getSerializedSize());
-                try {
-                    m_initiateTask.flattenToBuffer(m_initiateTaskBuffer);
-                    m_initiateTaskBuffer.flip();
-                } catch (IOException e) {
-                    //Executive decision, don't throw a checked exception. Let it burn.
-                    throw new RuntimeException(e);
-                }
+                // The bytes read are the flattened initiate task, copy them instead of flattening it again
+                m_initiateTaskBuffer = ByteBuffer.allocate(initiateTaskMessageLength);
+                final ByteBuffer flattened = buf.duplicate();
+                flattened.position(startPosition);
+                flattened.limit(startPosition + initiateTaskMessageLength);
+                m_initiateTaskBuffer.put(flattened);
+                m_initiateTaskBuffer.flip();
             }
 
             /*
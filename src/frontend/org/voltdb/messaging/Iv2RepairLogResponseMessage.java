@@ -157,12 +157,14 @@ public class Iv2RepairLogResponseMessage extends VoltMessage
         buf.putLong(m_txnId);
 
         if (m_payload != null) {
-            ByteBuffer paybuf = ByteBuffer.allocate(m_payload.getSerializedSize());
+            // Flatten the payload in place, into a view of exactly its size
+            final int payloadSize = m_payload.getSerializedSize();
+            final int oldLimit = buf.limit();
+            buf.limit(buf.position() + payloadSize);
+            final ByteBuffer paybuf = buf.slice();
+            buf.limit(oldLimit);
             m_payload.flattenToBuffer(paybuf);
-            if (paybuf.position() != 0) {
-                paybuf.flip();
-            }
-            buf.put(paybuf);
+            buf.position(buf.position() + payloadSize);
         }
         if (m_hashinatorConfig.length > 0) {
             buf.putLong(m_hashinatorVersion);
@@ -58,6 +58,7 @@ import org.voltdb.plannodes.AbstractScanPlanNode;
 import org.voltdb.plannodes.AggregatePlanNode;
 import org.voltdb.plannodes.DeletePlanNode;
 import org.voltdb.plannodes.HashAggregatePlanNode;
+import org.voltdb.plannodes.HashJoinPlanNode;
 import org.voltdb.plannodes.IndexScanPlanNode;
 import org.voltdb.plannodes.IndexSortablePlanNode;
 import org.voltdb.plannodes.IndexUseForOrderBy;
@@ -131,6 +132,7 @@ public class PlanAssembler {
     private final PlanSelector m_planSelector;
 
     private final boolean m_isLargeQuery;
+    private final boolean m_enableHashJoin;
 
     /** Describes the specified and inferred partition context. */
     private StatementPartitioning m_partitioning;
@@ -154,16 +156,20 @@ public class PlanAssembler {
      *            Catalog info about schema, metadata and procedures.
      * @param partitioning
      *            Describes the specified and inferred partition context.
+     * @param enableHashJoin
+     *            Whether hash joins are considered as alternatives to nested loop joins.
      */
     PlanAssembler(
             Database catalogDb,
             StatementPartitioning partitioning,
             PlanSelector planSelector,
-            boolean isLargeQuery) {
+            boolean isLargeQuery,
+            boolean enableHashJoin) {
         m_catalogDb = catalogDb;
         m_partitioning = partitioning;
         m_planSelector = planSelector;
         m_isLargeQuery = isLargeQuery;
+        m_enableHashJoin = enableHashJoin;
     }
 
     String getSQLText() {
@@ -309,7 +315,8 @@ public class PlanAssembler {
                 // Convert RIGHT joins to the LEFT ones
                 ((BranchNode)m_parsedSelect.m_joinTree).toLeftJoin();
             }
-            m_subAssembler = new SelectSubPlanAssembler(m_catalogDb, m_parsedSelect, m_partitioning);
+            m_subAssembler = new SelectSubPlanAssembler(m_catalogDb, m_parsedSelect, m_partitioning,
+                    m_isLargeQuery, m_enableHashJoin);
 
             // Process the GROUP BY information, decide whether it is group by the partition column
             if (isPartitionColumnInGroupbyList(m_parsedSelect.groupByColumns())) {
@@ -746,7 +753,8 @@ public class PlanAssembler {
             StatementPartitioning partitioning = (StatementPartitioning)m_partitioning.clone();
             PlanSelector planSelector = (PlanSelector) m_planSelector.clone();
             planSelector.m_planId = planId;
-            PlanAssembler assembler = new PlanAssembler(m_catalogDb, partitioning, planSelector, m_isLargeQuery);
+            PlanAssembler assembler = new PlanAssembler(m_catalogDb, partitioning, planSelector,
+                    m_isLargeQuery, m_enableHashJoin);
             CompiledPlan bestChildPlan = assembler.getBestCostPlan(parsedChildStmt);
             partitioning = assembler.m_partitioning;
 
@@ -862,7 +870,8 @@ public class PlanAssembler {
         PlanSelector planSelector = (PlanSelector) m_planSelector.clone();
         planSelector.m_planId = planId;
         StatementPartitioning currentPartitioning = (StatementPartitioning)m_partitioning.clone();
-        PlanAssembler assembler = new PlanAssembler(m_catalogDb, currentPartitioning, planSelector, m_isLargeQuery);
+        PlanAssembler assembler = new PlanAssembler(m_catalogDb, currentPartitioning, planSelector,
+                m_isLargeQuery, m_enableHashJoin);
         CompiledPlan compiledPlan = assembler.getBestCostPlan(subQuery);
         // make sure we got a winner
         if (compiledPlan == null) {
@@ -1043,17 +1052,19 @@ public class PlanAssembler {
                 if (m_parsedSelect.m_mvFixInfo.needed()) {
                     mvFixInfoCoordinatorNeeded = false;
                     AbstractPlanNode receiveNode = receivers.get(0);
-                    if (receiveNode.getParent(0) instanceof NestLoopPlanNode) {
+                    if (receiveNode.getParent(0) instanceof NestLoopPlanNode ||
+                            receiveNode.getParent(0) instanceof HashJoinPlanNode) {
                         if (subSelectRoot.hasInlinedIndexScanOfTable(m_parsedSelect.m_mvFixInfo.getMVTableName())) {
                             return getNextSelectPlan();
                         }
 
                         List<AbstractPlanNode> nljs = receiveNode.findAllNodesOfType(PlanNodeType.NESTLOOP);
                         List<AbstractPlanNode> nlijs = receiveNode.findAllNodesOfType(PlanNodeType.NESTLOOPINDEX);
+                        List<AbstractPlanNode> hjs = receiveNode.findAllNodesOfType(PlanNodeType.HASHJOIN);
 
                         // outer join edge case does not have any join plan node under receive node.
                         // This is like a single table case.
-                        if (nljs.size() + nlijs.size() == 0) {
+                        if (nljs.size() + nlijs.size() + hjs.size() == 0) {
                             mvFixInfoEdgeCaseOuterJoin = true;
                         }
                         root = handleMVBasedMultiPartQuery(reAggNode, root, mvFixInfoEdgeCaseOuterJoin);
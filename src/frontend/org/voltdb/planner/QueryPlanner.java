@@ -61,6 +61,7 @@ public class QueryPlanner {
     private PlanSelector m_planSelector;
     private boolean m_isUpsert;
     private final boolean m_isLargeQuery;
+    private final boolean m_enableHashJoin;
 
     // generated by parse(..)
     private VoltXMLElement m_xmlSQL = null;
@@ -76,6 +77,13 @@ public class QueryPlanner {
 
     public final static String UPSERT_TAG = "isUpsert";
 
+    /**
+     * Whether planners consider hash joins for equi-joins unless they are told otherwise.
+     * With it on, plans for unindexed equi-joins change shape, so it is off by default.
+     */
+    public final static boolean ENABLE_HASH_JOIN =
+            Boolean.valueOf(System.getProperty("org.voltdb.planner.hashjoin", "false"));
+
     /**
      * Initialize planner with physical schema info and a reference to HSQLDB parser.
      *
@@ -105,6 +113,32 @@ public class QueryPlanner {
                         String joinOrder,
                         DeterminismMode detMode,
                         boolean isLargeQuery) {
+        this(sql, stmtName, procName, catalogDb, partitioning, HSQL, estimates,
+                suppressDebugOutput, costModel, paramHints, joinOrder, detMode,
+                isLargeQuery, ENABLE_HASH_JOIN);
+    }
+
+    /**
+     * Initialize planner with physical schema info and a reference to HSQLDB parser.
+     *
+     * @param enableHashJoin whether hash joins are considered as alternatives to nested loop joins.
+     * @see #QueryPlanner(String, String, String, Database, StatementPartitioning, HSQLInterface,
+     *      DatabaseEstimates, boolean, AbstractCostModel, ScalarValueHints[], String, DeterminismMode, boolean)
+     */
+    public QueryPlanner(String sql,
+                        String stmtName,
+                        String procName,
+                        Database catalogDb,
+                        StatementPartitioning partitioning,
+                        HSQLInterface HSQL,
+                        DatabaseEstimates estimates,
+                        boolean suppressDebugOutput,
+                        AbstractCostModel costModel,
+                        ScalarValueHints[] paramHints,
+                        String joinOrder,
+                        DeterminismMode detMode,
+                        boolean isLargeQuery,
+                        boolean enableHashJoin) {
         assert(sql != null);
         assert(stmtName != null);
         assert(procName != null);
@@ -125,6 +159,7 @@ public class QueryPlanner {
         m_joinOrder = joinOrder;
         m_detMode = detMode;
         m_isLargeQuery = isLargeQuery;
+        m_enableHashJoin = enableHashJoin;
         m_planSelector = new PlanSelector(m_estimates, m_stmtName,
                 m_procName, m_sql, m_costModel, m_paramHints, m_detMode,
                 suppressDebugOutput);
@@ -395,7 +430,7 @@ public class QueryPlanner {
         // Init Assembler. Each plan assembler requires a new instance of the PlanSelector
         // to keep track of the best plan
         PlanAssembler assembler = new PlanAssembler(m_db, m_partitioning,
-                (PlanSelector) m_planSelector.clone(), m_isLargeQuery);
+                (PlanSelector) m_planSelector.clone(), m_isLargeQuery, m_enableHashJoin);
         // find the plan with minimal cost
         CompiledPlan bestPlan = assembler.getBestCostPlan(parsedStmt);
 
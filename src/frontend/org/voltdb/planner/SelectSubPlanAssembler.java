@@ -25,8 +25,10 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
+import org.voltdb.VoltType;
 import org.voltdb.catalog.Database;
 import org.voltdb.expressions.AbstractExpression;
+import org.voltdb.expressions.AbstractSubqueryExpression;
 import org.voltdb.expressions.ExpressionUtil;
 import org.voltdb.expressions.TupleValueExpression;
 import org.voltdb.planner.parseinfo.BranchNode;
@@ -38,12 +40,15 @@ import org.voltdb.planner.parseinfo.SubqueryLeafNode;
 import org.voltdb.plannodes.AbstractJoinPlanNode;
 import org.voltdb.plannodes.AbstractPlanNode;
 import org.voltdb.plannodes.AbstractReceivePlanNode;
+import org.voltdb.plannodes.HashJoinPlanNode;
 import org.voltdb.plannodes.IndexScanPlanNode;
 import org.voltdb.plannodes.IndexUseForOrderBy;
 import org.voltdb.plannodes.MaterializedScanPlanNode;
 import org.voltdb.plannodes.NestLoopIndexPlanNode;
 import org.voltdb.plannodes.NestLoopPlanNode;
+import org.voltdb.types.ExpressionType;
 import org.voltdb.types.JoinType;
+import org.voltdb.types.PlanNodeType;
 import org.voltdb.utils.PermutationGenerator;
 
 /**
@@ -63,16 +68,26 @@ public class SelectSubPlanAssembler extends SubPlanAssembler {
     /** The list of all possible join orders, assembled by queueAllJoinOrders */
     private ArrayDeque<JoinNode> m_joinOrders = new ArrayDeque<>();
 
+    /** Hash joins keep addresses of inner rows, which large (disk-backed) temp tables can't promise to keep valid */
+    private final boolean m_canUseHashJoin;
+
+    /** Whether the plan being generated joins with hash joins where it can, instead of nested loop joins */
+    private boolean m_planHashJoins = false;
+
     /**
      *
      * @param db The catalog's Database object.
      * @param selectStmt The parsed and dissected statement object describing the sql to execute.
      * @param partitioning in/out param first element is partition key value, forcing a single-partition statement if non-null,
      * second may be an inferred partition key if no explicit single-partitioning was specified
+     * @param isLargeQuery true if the plan will run with large temp tables
+     * @param enableHashJoin true if hash joins should be considered as alternatives to nested loop joins
      */
-    SelectSubPlanAssembler(Database db, ParsedSelectStmt selectStmt, StatementPartitioning partitioning)
+    SelectSubPlanAssembler(Database db, ParsedSelectStmt selectStmt, StatementPartitioning partitioning,
+            boolean isLargeQuery, boolean enableHashJoin)
     {
         super(db, selectStmt, partitioning);
+        m_canUseHashJoin = enableHashJoin && ! isLargeQuery;
         if (selectStmt.hasJoinOrder()) {
             // If a join order was provided or large number of tables join
             m_joinOrders.addAll(selectStmt.getJoinOrder());
@@ -534,6 +549,16 @@ public class SelectSubPlanAssembler extends SubPlanAssembler {
                     continue;
                 }
                 m_plans.add(plan);
+                // Offer the same plan with its equi-joins done as hash joins as an
+                // alternative, and leave the choice between them to the cost model.
+                if (m_canUseHashJoin && plan.hasAnyNodeOfType(PlanNodeType.NESTLOOP)) {
+                    m_planHashJoins = true;
+                    plan = getSelectSubPlanForJoinNode(rootNode);
+                    m_planHashJoins = false;
+                    if (plan != null && plan.hasAnyNodeOfType(PlanNodeType.HASHJOIN)) {
+                        m_plans.add(plan);
+                    }
+                }
             }
             return;
         }
@@ -722,7 +747,6 @@ public class SelectSubPlanAssembler extends SubPlanAssembler {
 
         AbstractJoinPlanNode ajNode = null;
         if (canHaveNLJ) {
-            NestLoopPlanNode nljNode = new NestLoopPlanNode();
             // get all the clauses that join the applicable two tables
             // Copy innerAccessPath.joinExprs to leave it unchanged,
             // avoiding accumulation of redundant expressions when
@@ -763,6 +787,20 @@ public class SelectSubPlanAssembler extends SubPlanAssembler {
                 // the inner node ONLY, that can not be pushed down.
                 joinClauses.addAll(innerAccessPath.otherExprs);
             }
+
+            // An equi-join can replace the NLJ's scan of the inner table per outer tuple
+            // with a single pass that builds a hash table over the inner rows.
+            AbstractJoinPlanNode nljNode = null;
+            if (m_planHashJoins) {
+                nljNode = getHashJoinNode(joinNode, joinClauses);
+            }
+            if (nljNode == null) {
+                NestLoopPlanNode nestLoopNode = new NestLoopPlanNode();
+                // Only a plan that may be compared with a hash join plan needs the
+                // nested loop join's repeated scans of its inner table costed
+                nestLoopNode.setCostInnerRescans(m_canUseHashJoin);
+                nljNode = nestLoopNode;
+            }
             nljNode.setJoinPredicate(ExpressionUtil.combinePredicates(joinClauses));
 
             // combine the tails plan graph with the new head node
@@ -810,6 +848,89 @@ public class SelectSubPlanAssembler extends SubPlanAssembler {
         return ajNode;
     }
 
+    /**
+     * Try to build a hash join node for the given join node. A hash join requires
+     * at least one equality term in the join clauses with one operand depending only
+     * on the outer tables and the other depending only on the inner tables.
+     * The join clauses themselves are left untouched -- the full join predicate is still
+     * evaluated on the matching rows, so the hash keys only need to be a superset filter.
+     *
+     * @param joinNode A parent join node.
+     * @param joinClauses The join clauses that would make up the NLJ join predicate.
+     * @return a hash join node with its hash expressions set, or null if none apply.
+     */
+    private static HashJoinPlanNode getHashJoinNode(BranchNode joinNode,
+                                                    List<AbstractExpression> joinClauses) {
+        Collection<String> outerTables = joinNode.getLeftNode().generateTableJoinOrder();
+        Collection<String> innerTables = joinNode.getRightNode().generateTableJoinOrder();
+        HashJoinPlanNode hjNode = null;
+        for (AbstractExpression clause : joinClauses) {
+            if (clause.getExpressionType() != ExpressionType.COMPARE_EQUAL) {
+                continue;
+            }
+            AbstractExpression left = clause.getLeft();
+            AbstractExpression right = clause.getRight();
+            // Keys are hashed by value, so both sides need to produce values of
+            // one and the same type that hashes consistently with its equality.
+            if (left.getValueType() != right.getValueType() ||
+                    ! isHashableJoinKeyType(left.getValueType()) ||
+                    left.hasAnySubexpressionOfClass(AbstractSubqueryExpression.class) ||
+                    right.hasAnySubexpressionOfClass(AbstractSubqueryExpression.class)) {
+                continue;
+            }
+            if (isOperandOfTables(right, innerTables) && isOperandOfTables(left, outerTables)) {
+                // left = right, as written
+            }
+            else if (isOperandOfTables(left, innerTables) && isOperandOfTables(right, outerTables)) {
+                AbstractExpression swap = left;
+                left = right;
+                right = swap;
+            }
+            else {
+                continue;
+            }
+            if (hjNode == null) {
+                hjNode = new HashJoinPlanNode();
+            }
+            hjNode.addHashExpressions(left, right);
+        }
+        return hjNode;
+    }
+
+    /**
+     * @return true if the expression references columns and all of them
+     * come from the given set of table aliases.
+     */
+    private static boolean isOperandOfTables(AbstractExpression expr, Collection<String> tableAliases) {
+        List<TupleValueExpression> tves = ExpressionUtil.getTupleValueExpressions(expr);
+        if (tves.isEmpty()) {
+            return false;
+        }
+        for (TupleValueExpression tve : tves) {
+            if ( ! tableAliases.contains(tve.getTableAlias())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isHashableJoinKeyType(VoltType type) {
+        switch (type) {
+        case TINYINT:
+        case SMALLINT:
+        case INTEGER:
+        case BIGINT:
+        case TIMESTAMP:
+        case DECIMAL:
+        case STRING:
+        case VARBINARY:
+            return true;
+        default:
+            // FLOAT is excluded because -0.0 and 0.0 compare equal but hash differently.
+            return false;
+        }
+    }
+
     /**
      * A method to filter out single-TVE expressions.
      *
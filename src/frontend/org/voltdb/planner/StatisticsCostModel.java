@@ -0,0 +1,225 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2017 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.planner;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.voltdb.VoltTable;
+import org.voltdb.compiler.DatabaseEstimates;
+import org.voltdb.compiler.DatabaseEstimates.TableEstimates;
+
+/**
+ * A cost model whose database estimates come from the tuple and index entry
+ * counts that the execution sites report in their TABLE and INDEX statistics,
+ * instead of the fixed guesses of a default {@link DatabaseEstimates}. Plans
+ * are costed as by {@link TrivialCostModel}, by the tuples they read, which
+ * reflect the real table sizes once the estimates do.
+ *
+ * Sites publish their statistics on every stats tick. An instance snapshots
+ * them when it is created, so every plan costed by one instance sees the same
+ * numbers. Once a table has grown or shrunk enough since then to change plans,
+ * {@link #isOutdated()} says so, and the planner replaces the instance and
+ * discards the plans it cached with it.
+ *
+ * All counts are per partition, which is the unit that a plan fragment scans.
+ */
+public class StatisticsCostModel extends TrivialCostModel {
+
+    // Tables with fewer tuples are costed as if they had this many, so that a plan
+    // chosen while a table is still being loaded doesn't prefer a sequential scan
+    // that will no longer be cheap once the table fills up.
+    static final long MIN_TUPLE_ESTIMATE = 1000;
+
+    // How far, either way, a table's size may drift from the snapshot
+    // before plans costed with the snapshot are considered outdated.
+    static final double OUTDATED_SIZE_RATIO = 2.0;
+
+    // Latest reports, by site id: table name -> tuple count,
+    // and table name -> (index name -> entry count).
+    private static final Map<Long, Map<String, Long>> s_tupleCounts =
+            new ConcurrentHashMap<Long, Map<String, Long>>();
+    private static final Map<Long, Map<String, Map<String, Long>>> s_indexEntries =
+            new ConcurrentHashMap<Long, Map<String, Map<String, Long>>>();
+
+    private final DatabaseEstimates m_estimates;
+    // table name -> the tuple count the estimates were built with
+    private final Map<String, Long> m_tupleEstimates;
+
+    StatisticsCostModel(Iterable<Map<String, Long>> siteTupleCounts,
+            Iterable<Map<String, Map<String, Long>>> siteIndexEntries) {
+        m_tupleEstimates = tupleEstimates(siteTupleCounts, true);
+        m_estimates = buildEstimates(siteTupleCounts, siteIndexEntries);
+    }
+
+    /**
+     * @return a cost model based on the statistics most recently reported by the sites
+     * of this host. Tables that no site has reported on get the default estimates.
+     */
+    public static StatisticsCostModel fromSiteStatistics() {
+        // Copy the reports so that the model sees each site's report only once.
+        return new StatisticsCostModel(new ArrayList<Map<String, Long>>(s_tupleCounts.values()),
+                new ArrayList<Map<String, Map<String, Long>>>(s_indexEntries.values()));
+    }
+
+    /**
+     * @return true if the sites have reported a table that this model has no statistics
+     * for, or a table size more than OUTDATED_SIZE_RATIO times larger or smaller than the
+     * one this model plans with. Plans costed by this model may then no longer be the
+     * cheapest ones.
+     */
+    public boolean isOutdated() {
+        return isOutdated(tupleEstimates(s_tupleCounts.values(), true));
+    }
+
+    boolean isOutdated(Map<String, Long> currentTupleEstimates) {
+        for (Entry<String, Long> entry : currentTupleEstimates.entrySet()) {
+            Long planned = m_tupleEstimates.get(entry.getKey());
+            if (planned == null) {
+                return true;
+            }
+            long current = entry.getValue();
+            if (current > planned * OUTDATED_SIZE_RATIO || current * OUTDATED_SIZE_RATIO < planned) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The estimates to plan with. They are only safe to use from one planner at a time,
+     * because looking up a table without statistics adds default estimates for it.
+     */
+    public DatabaseEstimates getEstimates() {
+        return m_estimates;
+    }
+
+    /**
+     * Record the tuple counts of a site's persistent tables.
+     * @param siteId the reporting site
+     * @param tableStats the site's TABLE statistics, or null if it has no tables
+     */
+    public static void updateTableStatistics(long siteId, VoltTable tableStats) {
+        s_tupleCounts.put(siteId, readTupleCounts(tableStats));
+    }
+
+    /**
+     * Record the entry counts of a site's indexes.
+     * @param siteId the reporting site
+     * @param indexStats the site's INDEX statistics, or null if it has no indexes
+     */
+    public static void updateIndexStatistics(long siteId, VoltTable indexStats) {
+        s_indexEntries.put(siteId, readIndexEntries(indexStats));
+    }
+
+    /**
+     * Forget the statistics of a site that is shutting down.
+     */
+    public static void removeSiteStatistics(long siteId) {
+        s_tupleCounts.remove(siteId);
+        s_indexEntries.remove(siteId);
+    }
+
+    /**
+     * @return table name -> tuple count for the persistent tables in a TABLE statistics table.
+     * The table's row position is reset before returning.
+     */
+    static Map<String, Long> readTupleCounts(VoltTable tableStats) {
+        Map<String, Long> tupleCounts = new HashMap<String, Long>();
+        if (tableStats != null) {
+            while (tableStats.advanceRow()) {
+                if ("PersistentTable".equals(tableStats.getString("TABLE_TYPE"))) {
+                    tupleCounts.put(tableStats.getString("TABLE_NAME"), tableStats.getLong("TUPLE_COUNT"));
+                }
+            }
+            tableStats.resetRowPosition();
+        }
+        return tupleCounts;
+    }
+
+    /**
+     * @return table name -> (index name -> entry count) for an INDEX statistics table.
+     * The table's row position is reset before returning.
+     */
+    static Map<String, Map<String, Long>> readIndexEntries(VoltTable indexStats) {
+        Map<String, Map<String, Long>> indexEntries = new HashMap<String, Map<String, Long>>();
+        if (indexStats != null) {
+            while (indexStats.advanceRow()) {
+                String tableName = indexStats.getString("TABLE_NAME");
+                Map<String, Long> tableIndexes = indexEntries.get(tableName);
+                if (tableIndexes == null) {
+                    tableIndexes = new HashMap<String, Long>();
+                    indexEntries.put(tableName, tableIndexes);
+                }
+                tableIndexes.put(indexStats.getString("INDEX_NAME"), indexStats.getLong("ENTRY_COUNT"));
+            }
+            indexStats.resetRowPosition();
+        }
+        return indexEntries;
+    }
+
+    /**
+     * @return table name -> the largest tuple count reported for it by any site,
+     * or the smallest one if max is false. Counts are raised to MIN_TUPLE_ESTIMATE.
+     */
+    static Map<String, Long> tupleEstimates(Iterable<Map<String, Long>> siteTupleCounts, boolean max) {
+        Map<String, Long> estimates = new HashMap<String, Long>();
+        for (Map<String, Long> tupleCounts : siteTupleCounts) {
+            for (Entry<String, Long> entry : tupleCounts.entrySet()) {
+                long count = Math.max(entry.getValue(), MIN_TUPLE_ESTIMATE);
+                Long other = estimates.get(entry.getKey());
+                if (other == null || (max ? other < count : other > count)) {
+                    estimates.put(entry.getKey(), count);
+                }
+            }
+        }
+        return estimates;
+    }
+
+    /**
+     * Combine per-site reports into estimates. A table or index takes its largest count
+     * over all sites, i.e. the size of its largest partition.
+     */
+    static DatabaseEstimates buildEstimates(Iterable<Map<String, Long>> siteTupleCounts,
+            Iterable<Map<String, Map<String, Long>>> siteIndexEntries) {
+        DatabaseEstimates estimates = new DatabaseEstimates();
+        Map<String, Long> minCounts = tupleEstimates(siteTupleCounts, false);
+        for (Entry<String, Long> entry : tupleEstimates(siteTupleCounts, true).entrySet()) {
+            TableEstimates tableEstimates = estimates.getEstimatesForTable(entry.getKey());
+            tableEstimates.maxTuples = entry.getValue();
+            tableEstimates.minTuples = minCounts.get(entry.getKey());
+        }
+
+        for (Map<String, Map<String, Long>> indexEntries : siteIndexEntries) {
+            for (Entry<String, Map<String, Long>> tableEntry : indexEntries.entrySet()) {
+                Map<String, Long> entriesByIndex =
+                        estimates.getEstimatesForTable(tableEntry.getKey()).indexEntries;
+                for (Entry<String, Long> indexEntry : tableEntry.getValue().entrySet()) {
+                    Long max = entriesByIndex.get(indexEntry.getKey());
+                    if (max == null || max < indexEntry.getValue()) {
+                        entriesByIndex.put(indexEntry.getKey(), indexEntry.getValue());
+                    }
+                }
+            }
+        }
+        return estimates;
+    }
+}
@@ -45,6 +45,9 @@ public abstract class AbstractJoinPlanNode extends AbstractPlanNode implements I
         OUTPUT_SCHEMA_PRE_AGG;
     }
 
+    // Caps each join's rescan estimate so that adding up the estimates of many joins cannot overflow a long
+    private static final double MAX_RESCANNED_TUPLE_ESTIMATE = Long.MAX_VALUE >> 16;
+
     protected JoinType m_joinType = JoinType.INNER;
     // sortDirection is only used in handleOrderBy(),
     // and the sortDirection used in EE is from inlined IndexScan node for NLIJ
@@ -412,8 +415,8 @@ public abstract class AbstractJoinPlanNode extends AbstractPlanNode implements I
         AbstractExpression predicate = null;
         if (childNode instanceof AbstractScanPlanNode) {
             predicate = ((AbstractScanPlanNode) childNode).getPredicate();
-        } else if (childNode instanceof NestLoopPlanNode) {
-            predicate = ((NestLoopPlanNode) childNode).getWherePredicate();
+        } else if (childNode instanceof NestLoopPlanNode || childNode instanceof HashJoinPlanNode) {
+            predicate = ((AbstractJoinPlanNode) childNode).getWherePredicate();
         } else if (childNode instanceof NestLoopIndexPlanNode) {
             AbstractPlanNode inlineIndexScan = ((NestLoopIndexPlanNode) childNode).getInlinePlanNode(PlanNodeType.INDEXSCAN);
             assert(inlineIndexScan != null);
@@ -444,6 +447,20 @@ public abstract class AbstractJoinPlanNode extends AbstractPlanNode implements I
         return  (long) (childNode.getEstimatedProcessedTupleCount() * discountCountFactor);
     }
 
+    /**
+     * Estimate the inner child output tuples a join reads if it scans all of them once per
+     * outer tuple. The estimate is capped so that adding up the costs of all the nodes of
+     * a plan that joins many large tables can't overflow.
+     *
+     * @return the estimated number of inner tuples read
+     */
+    protected long estimateRescannedTupleCount() {
+        assert(m_children.size() == 2);
+        double rescanned = (double) m_children.get(0).getEstimatedOutputTupleCount() *
+                m_children.get(1).getEstimatedOutputTupleCount();
+        return (long) Math.min(rescanned, MAX_RESCANNED_TUPLE_ESTIMATE);
+    }
+
     /**
      * When a project node is added to the top of the plan, we need to adjust
      * the differentiator field of TVEs to reflect differences in the scan
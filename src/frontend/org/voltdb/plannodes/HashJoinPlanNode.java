@@ -0,0 +1,178 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2017 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.plannodes;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.json_voltpatches.JSONException;
+import org.json_voltpatches.JSONObject;
+import org.json_voltpatches.JSONStringer;
+import org.voltdb.catalog.Database;
+import org.voltdb.compiler.DatabaseEstimates;
+import org.voltdb.compiler.ScalarValueHints;
+import org.voltdb.expressions.AbstractExpression;
+import org.voltdb.types.PlanNodeType;
+import org.voltdb.types.SortDirectionType;
+
+/**
+ * A join of two child plans that builds a hash table over the inner (right)
+ * child's output, keyed by the inner hash expressions, and then probes it once
+ * per outer tuple using the outer hash expressions.
+ *
+ * The hash keys are a lookup accelerator only: each pair of outer and inner
+ * hash expressions comes from an equality term of the join predicate, and
+ * the full join predicate is still evaluated against every candidate match.
+ */
+public class HashJoinPlanNode extends AbstractJoinPlanNode {
+
+    public enum Members {
+        OUTER_HASH_EXPRESSIONS,
+        INNER_HASH_EXPRESSIONS;
+    }
+
+    // Each outer hash expression only references columns of the outer child
+    // and is paired, by position, with an inner hash expression that only
+    // references columns of the inner child.
+    private List<AbstractExpression> m_outerHashExpressions = new ArrayList<>();
+    private List<AbstractExpression> m_innerHashExpressions = new ArrayList<>();
+
+    public HashJoinPlanNode() {
+        super();
+    }
+
+    @Override
+    public PlanNodeType getPlanNodeType() {
+        return PlanNodeType.HASHJOIN;
+    }
+
+    @Override
+    public void validate() throws Exception {
+        super.validate();
+
+        if (m_outerHashExpressions.isEmpty() ||
+                m_outerHashExpressions.size() != m_innerHashExpressions.size()) {
+            throw new Exception("ERROR: Hash join requires matching, non-empty lists of hash expressions");
+        }
+        for (AbstractExpression expr : m_outerHashExpressions) {
+            expr.validate();
+        }
+        for (AbstractExpression expr : m_innerHashExpressions) {
+            expr.validate();
+        }
+    }
+
+    /**
+     * Add a pair of hash key expressions taken from an equality term of the join predicate.
+     * @param outerExpr the operand that only depends on the outer child's columns
+     * @param innerExpr the operand that only depends on the inner child's columns
+     */
+    public void addHashExpressions(AbstractExpression outerExpr, AbstractExpression innerExpr) {
+        assert(outerExpr != null && innerExpr != null);
+        m_outerHashExpressions.add(outerExpr.clone());
+        m_innerHashExpressions.add(innerExpr.clone());
+    }
+
+    public List<AbstractExpression> getOuterHashExpressions() {
+        return m_outerHashExpressions;
+    }
+
+    public List<AbstractExpression> getInnerHashExpressions() {
+        return m_innerHashExpressions;
+    }
+
+    @Override
+    public void resolveColumnIndexes() {
+        super.resolveColumnIndexes();
+
+        final NodeSchema outer_schema = m_children.get(0).getOutputSchema();
+        final NodeSchema inner_schema = m_children.get(1).getOutputSchema();
+        resolvePredicate(m_outerHashExpressions, outer_schema, inner_schema);
+        resolvePredicate(m_innerHashExpressions, outer_schema, inner_schema);
+    }
+
+    @Override
+    public void computeCostEstimates(long childOutputTupleCountEstimate,
+                                     DatabaseEstimates estimates,
+                                     ScalarValueHints[] paramHints)
+    {
+        // Each child is read exactly once: the inner one to build the hash table
+        // and the outer one to probe it. Unlike a NestLoop join, which scans its
+        // inner child's output again for every outer tuple, the inner output is
+        // only processed once more, to be added to the hash table.
+        m_estimatedOutputTupleCount = childOutputTupleCountEstimate;
+        assert(m_children.size() == 2);
+        m_estimatedProcessedTupleCount = discountEstimatedProcessedTupleCount(m_children.get(0)) +
+                m_children.get(1).m_estimatedProcessedTupleCount +
+                m_children.get(1).m_estimatedOutputTupleCount;
+    }
+
+    @Override
+    protected String explainPlanForNode(String indent) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("HASH ").append(m_joinType.toString()).append(" JOIN");
+        if (m_sortDirection != SortDirectionType.INVALID) {
+            sb.append(" (").append(m_sortDirection).append(")");
+        }
+        sb.append(" on key");
+        String sep = " ";
+        for (int ii = 0; ii < m_outerHashExpressions.size(); ii++) {
+            sb.append(sep)
+              .append(m_outerHashExpressions.get(ii).explain("!?"))
+              .append(" = ")
+              .append(m_innerHashExpressions.get(ii).explain("!?"));
+            sep = ", ";
+        }
+        sb.append(explainFilters(indent));
+        return sb.toString();
+    }
+
+    @Override
+    public void findAllExpressionsOfClass(Class< ? extends AbstractExpression> aeClass, Set<AbstractExpression> collected) {
+        super.findAllExpressionsOfClass(aeClass, collected);
+        for (AbstractExpression expr : m_outerHashExpressions) {
+            collected.addAll(expr.findAllSubexpressionsOfClass(aeClass));
+        }
+        for (AbstractExpression expr : m_innerHashExpressions) {
+            collected.addAll(expr.findAllSubexpressionsOfClass(aeClass));
+        }
+    }
+
+    @Override
+    public void toJSONString(JSONStringer stringer) throws JSONException {
+        super.toJSONString(stringer);
+        AbstractExpression.toJSONArray(stringer,
+                Members.OUTER_HASH_EXPRESSIONS.name(), m_outerHashExpressions);
+        AbstractExpression.toJSONArray(stringer,
+                Members.INNER_HASH_EXPRESSIONS.name(), m_innerHashExpressions);
+    }
+
+    @Override
+    public void loadFromJSONObject(JSONObject jobj, Database db)
+            throws JSONException {
+        super.loadFromJSONObject(jobj, db);
+        m_outerHashExpressions.clear();
+        AbstractExpression.loadFromJSONArrayChild(m_outerHashExpressions, jobj,
+                Members.OUTER_HASH_EXPRESSIONS.name(), null);
+        m_innerHashExpressions.clear();
+        AbstractExpression.loadFromJSONArrayChild(m_innerHashExpressions, jobj,
+                Members.INNER_HASH_EXPRESSIONS.name(), null);
+    }
+
+}
@@ -659,7 +659,14 @@ public class IndexScanPlanNode extends AbstractScanPlanNode implements IndexSort
             // Using a factor of 0.1 per FULLY covered (equality-filtered) column,
             // the effective scale factor for a single PARTIALLY covered (range-filtered) column
             // comes to SQRT(0.1) which is just under 32% FTW!
-            tuplesToRead += (int) (tableEstimates.maxTuples * 0.90 * Math.pow(0.10, keyWidth));
+            // When the index's entry count is known, it bounds the tuples the scan can
+            // reach -- a partial index only holds the tuples that satisfy its predicate.
+            long indexedTuples = tableEstimates.maxTuples;
+            Long indexEntries = tableEstimates.indexEntries.get(m_catalogIndex.getTypeName());
+            if (indexEntries != null && indexEntries < indexedTuples) {
+                indexedTuples = indexEntries;
+            }
+            tuplesToRead += (int) (indexedTuples * 0.90 * Math.pow(0.10, keyWidth));
             // "Covering cell" indexes get a special adjustment to make them look more favorable
             // than non-unique range filters in particular.
             // I can't quite justify that rationally, but it "seems reasonable". --paul
@@ -24,10 +24,20 @@ import org.voltdb.types.SortDirectionType;
 
 public class NestLoopPlanNode extends AbstractJoinPlanNode {
 
+    // Whether the cost estimate includes scanning the inner child's output once per
+    // outer tuple. Only plans that compete with hash join plans, which read their
+    // inner child once, include it, so that the choice between the other join plans
+    // stays as it was.
+    private boolean m_costInnerRescans = false;
+
     public NestLoopPlanNode() {
         super();
     }
 
+    public void setCostInnerRescans(boolean costInnerRescans) {
+        m_costInnerRescans = costInnerRescans;
+    }
+
     @Override
     public PlanNodeType getPlanNodeType() {
         return PlanNodeType.NESTLOOP;
@@ -44,6 +54,9 @@ public class NestLoopPlanNode extends AbstractJoinPlanNode {
         assert(m_children.size() == 2);
         m_estimatedProcessedTupleCount = discountEstimatedProcessedTupleCount(m_children.get(0)) +
                 m_children.get(1).m_estimatedProcessedTupleCount;
+        if (m_costInnerRescans) {
+            m_estimatedProcessedTupleCount += estimateRescannedTupleCount();
+        }
     }
 
     @Override
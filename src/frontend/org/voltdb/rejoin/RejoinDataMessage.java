@@ -50,6 +50,11 @@ public class RejoinDataMessage extends VoltMessage {
         return m_data;
     }
 
+    @Override
+    public boolean isBulk() {
+        return true;
+    }
+
     @Override
     public int getSerializedSize() {
         int msgsize = super.getSerializedSize();
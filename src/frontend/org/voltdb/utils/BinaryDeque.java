@@ -23,6 +23,8 @@ import org.voltcore.utils.DBBPool.BBContainer;
 import org.voltcore.utils.DeferredSerialization;
 import org.voltcore.utils.Pair;
 
+import com.google_voltpatches.common.util.concurrent.ListenableFuture;
+
 /**
  * Specialized deque interface for storing binary objects. Objects can be provided as a buffer chain
  * and will be returned as a single buffer. Technically not a deque because removal at
@@ -59,6 +61,22 @@ public interface BinaryDeque {
 
     int offer(DeferredSerialization ds) throws IOException;
 
+    /**
+     * Stage a buffer chain to be stored as a single object in the deque and return without
+     * waiting for the disk. The object is written in order with the other offers by a background
+     * writer, which groups the fsyncs of the objects staged in the same interval. Readers and
+     * the other operations of the deque see a staged object as if it had already been offered.
+     * The deque owns the container from this call on and discards it once it is written.
+     * The deque stages a bounded amount of data. When it is full, the object is refused and the
+     * caller keeps the container; offering it synchronously instead waits for the staged objects
+     * to be written, which pushes back on the caller.
+     * @param object
+     * @param allowCompression
+     * @return a future that completes once the object is written and fsynced, or fails with
+     * the IOException that prevented it, or null if the staged objects are at their limit
+     */
+    ListenableFuture<?> offerAsync(BBContainer object, boolean allowCompression);
+
     /**
      * A push creates a new file each time to be "the head" so it is more efficient to pass
      * in all the objects you want to push at once so that they can be packed into
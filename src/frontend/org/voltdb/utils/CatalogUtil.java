@@ -1003,6 +1003,11 @@ public abstract class CatalogUtil {
             tt = new SystemSettingsType.Temptables();
             ss.setTemptables(tt);
         }
+        SystemSettingsType.Sitequeue sq = ss.getSitequeue();
+        if (sq == null) {
+            sq = new SystemSettingsType.Sitequeue();
+            ss.setSitequeue(sq);
+        }
         ResourceMonitorType rm = ss.getResourcemonitor();
         if (rm == null) {
             rm = new ResourceMonitorType();
@@ -30,6 +30,7 @@ import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel.MapMode;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -38,6 +39,10 @@ import java.util.Map;
  * Segments only support appending objects. A segment will throw an IOException if an attempt
  * to insert an object that exceeds the remaining space is made. A segment can be used
  * for reading and writing, but not both at the same time.
+ *
+ * A segment opened only for reading is sealed, so its readers poll entries straight out of a
+ * read-only mapping of the file: uncompressed entries are returned as slices of the mapping and
+ * compressed ones are decompressed from it, without reading them into a buffer first.
  */
 public class PBDRegularSegment extends PBDSegment {
     private static final VoltLogger LOG = new VoltLogger("HOST");
@@ -53,6 +58,53 @@ public class PBDRegularSegment extends PBDSegment {
 
     private DBBPool.BBContainer m_tmpHeaderBuf = null;
 
+    /**
+     * Set PBD_MMAP_READS to false to read sealed segments through the file channel
+     */
+    static final boolean MMAP_READS = Boolean.valueOf(System.getProperty("PBD_MMAP_READS", "true"));
+
+    //Whether the file is open for writing, a segment open only for reading is sealed
+    private boolean m_forWrite = false;
+    private SegmentMapping m_mapping = null;
+
+    /**
+     * A read-only mapping of a sealed segment. Slices of it may outlive the segment being closed,
+     * so it is unmapped once the segment is closed and the last slice is discarded.
+     */
+    private static class SegmentMapping {
+        private final DBBPool.MBBContainer m_container;
+        private int m_slices = 0;
+        private boolean m_released = false;
+
+        SegmentMapping(DBBPool.MBBContainer container) {
+            m_container = container;
+        }
+
+        ByteBuffer slice(int offset, int length) {
+            final ByteBuffer buf = m_container.b().duplicate();
+            buf.limit(offset + length).position(offset);
+            return buf.slice();
+        }
+
+        void retain() {
+            m_slices++;
+        }
+
+        void release() {
+            assert(m_slices > 0);
+            if (--m_slices == 0 && m_released) {
+                m_container.discard();
+            }
+        }
+
+        void close() {
+            m_released = true;
+            if (m_slices == 0) {
+                m_container.discard();
+            }
+        }
+    }
+
     public PBDRegularSegment(Long index, File file) {
         super(file);
         m_index = index;
@@ -154,6 +206,7 @@ public class PBDRegularSegment extends PBDSegment {
         assert(m_ras == null);
         m_ras = new RandomAccessFile( m_file, forWrite ? "rw" : "r");
         m_fc = m_ras.getChannel();
+        m_forWrite = forWrite;
         m_tmpHeaderBuf = DBBPool.allocateDirect(SEGMENT_HEADER_BYTES);
 
         if (emptyFile) {
@@ -223,6 +276,10 @@ public class PBDRegularSegment extends PBDSegment {
 
     private void closeReadersAndFile() throws IOException {
         m_readCursors.clear();
+        if (m_mapping != null) {
+            m_mapping.close();
+            m_mapping = null;
+        }
         try {
             if (m_ras != null) {
                 m_ras.close();
@@ -394,6 +451,9 @@ public class PBDRegularSegment extends PBDSegment {
             if (!hasMoreEntries()) {
                 return null;
             }
+            if (MMAP_READS && !m_forWrite) {
+                return pollMapped(factory);
+            }
 
             final long writePos = m_fc.position();
             m_fc.position(m_readOffset);
@@ -452,26 +512,80 @@ public class PBDRegularSegment extends PBDSegment {
                 m_bytesRead += uncompressedLen;
                 m_objectReadIndex++;
 
-                return new DBBPool.BBContainer(retcont.b()) {
-                    private boolean m_discarded = false;
+                return wrapPolled(retcont);
+            } finally {
+                m_readOffset = m_fc.position();
+                m_fc.position(writePos);
+            }
+        }
+
+        private BBContainer pollMapped(OutputContainerFactory factory) throws IOException {
+            if (m_mapping == null) {
+                m_mapping = new SegmentMapping(DBBPool.wrapMBB(m_fc.map(MapMode.READ_ONLY, 0, m_fc.size())));
+            }
+            final SegmentMapping mapping = m_mapping;
+            final ByteBuffer mapped = mapping.m_container.b();
+
+            final int offset = (int)m_readOffset;
+            if (offset + OBJECT_HEADER_BYTES > mapped.capacity()) {
+                throw new EOFException();
+            }
+            final int length = mapped.getInt(offset);
+            final int flags = mapped.getInt(offset + 4);
+            final boolean compressed = (flags & FLAG_COMPRESSED) != 0;
+            final int uncompressedLen;
+
+            if (length < 1) {
+                throw new IOException("Read an invalid length");
+            }
+            if (offset + OBJECT_HEADER_BYTES + length > mapped.capacity()) {
+                throw new EOFException();
+            }
 
+            final ByteBuffer entry = mapping.slice(offset + OBJECT_HEADER_BYTES, length);
+            final DBBPool.BBContainer retcont;
+            if (compressed) {
+                uncompressedLen = CompressionService.uncompressedLength(entry);
+                retcont = factory.getContainer(uncompressedLen);
+                retcont.b().limit(uncompressedLen);
+                CompressionService.decompressBuffer(entry, retcont.b());
+            } else {
+                //Hand out the mapped bytes themselves, the mapping lives until they are discarded
+                uncompressedLen = length;
+                mapping.retain();
+                retcont = new DBBPool.BBContainer(entry) {
                     @Override
                     public void discard() {
                         checkDoubleFree();
-                        if (m_discarded) {
-                            LOG.error("PBD Container discarded more than once");
-                            return;
-                        }
-
-                        m_discarded = true;
-                        retcont.discard();
-                        m_discardCount++;
+                        mapping.release();
                     }
                 };
-            } finally {
-                m_readOffset = m_fc.position();
-                m_fc.position(writePos);
             }
+
+            m_readOffset = offset + OBJECT_HEADER_BYTES + length;
+            m_bytesRead += uncompressedLen;
+            m_objectReadIndex++;
+
+            return wrapPolled(retcont);
+        }
+
+        private BBContainer wrapPolled(final BBContainer retcont) {
+            return new DBBPool.BBContainer(retcont.b()) {
+                private boolean m_discarded = false;
+
+                @Override
+                public void discard() {
+                    checkDoubleFree();
+                    if (m_discarded) {
+                        LOG.error("PBD Container discarded more than once");
+                        return;
+                    }
+
+                    m_discarded = true;
+                    retcont.discard();
+                    m_discardCount++;
+                }
+            };
         }
 
         @Override
@@ -21,14 +21,19 @@ import java.io.FileFilter;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.TreeMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.voltcore.logging.VoltLogger;
+import org.voltcore.utils.CoreUtils;
 import org.voltcore.utils.DBBPool;
 import org.voltcore.utils.DBBPool.BBContainer;
 import org.voltcore.utils.DeferredSerialization;
@@ -39,6 +44,9 @@ import org.voltdb.utils.PBDSegment.PBDSegmentReader;
 
 import com.google_voltpatches.common.base.Joiner;
 import com.google_voltpatches.common.base.Throwables;
+import com.google_voltpatches.common.util.concurrent.Futures;
+import com.google_voltpatches.common.util.concurrent.ListenableFuture;
+import com.google_voltpatches.common.util.concurrent.SettableFuture;
 
 /**
  * A deque that specializes in providing persistence of binary objects to disk. Any object placed
@@ -49,6 +57,13 @@ import com.google_voltpatches.common.base.Throwables;
  * once all objects from the segment have been polled and all the containers returned by poll have been discarded.
  * Push is implemented by creating new segments at the head of the deque containing the objects to be pushed.
  *
+ * Objects offered with offerAsync are staged in memory and written in batches by a background I/O thread
+ * shared by all the deques, which also groups their fsyncs over an interval of PBD_ASYNC_SYNC_INTERVAL_MS.
+ * Only that thread writes the staged objects. Readers serve staged objects from memory, and the other
+ * operations that change the segments wait for the staged objects to be written, so the deque always
+ * looks as if the staged objects had been offered synchronously. At most PBD_ASYNC_STAGING_LIMIT_BYTES
+ * are staged per deque; past that, offerAsync refuses the object and the caller offers it synchronously.
+ *
  */
 public class PersistentBinaryDeque implements BinaryDeque {
     private static final VoltLogger LOG = new VoltLogger("HOST");
@@ -86,6 +101,8 @@ public class PersistentBinaryDeque implements BinaryDeque {
         //that were deleted at the time this cursor was created
         private final int m_numObjectsDeleted;
         private int m_numRead;
+        // The staged objects this cursor has polled from memory, in order, waiting to be written
+        private final ArrayDeque<StagedRead> m_stagedReads = new ArrayDeque<>();
 
         public ReadCursor(String cursorId, int numObjectsDeleted) throws IOException {
             m_cursorId = cursorId;
@@ -100,29 +117,82 @@ public class PersistentBinaryDeque implements BinaryDeque {
                 }
                 assertions();
 
-                moveToValidSegment();
-                PBDSegmentReader segmentReader = m_segment.getReader(m_cursorId);
-                if (segmentReader == null) {
-                    segmentReader = m_segment.openForRead(m_cursorId);
+                BBContainer retcont = null;
+                // Nothing is written behind the staged objects this cursor has already polled
+                if (m_stagedReads.isEmpty()) {
+                    retcont = pollSegments(ocf);
                 }
-                long lastSegmentId = peekLastSegment().segmentId();
-                while (!segmentReader.hasMoreEntries()) {
-                    if (m_segment.segmentId() == lastSegmentId) { // nothing more to read
+                if (retcont == null) {
+                    retcont = pollStaged(ocf);
+                    if (retcont == null) {
                         return null;
                     }
-
-                    segmentReader.close();
-                    m_segment = m_segments.higherEntry(m_segment.segmentId()).getValue();
-                    // push to PBD will rewind cursors. So, this cursor may have already opened this segment
-                    segmentReader = m_segment.getReader(m_cursorId);
-                    if (segmentReader == null) segmentReader = m_segment.openForRead(m_cursorId);
                 }
-                BBContainer retcont = segmentReader.poll(ocf);
 
                 m_numRead++;
                 assertions();
-                assert (retcont.b() != null);
-                return wrapRetCont(m_segment, retcont);
+                return retcont;
+            }
+        }
+
+        private BBContainer pollSegments(OutputContainerFactory ocf) throws IOException {
+            moveToValidSegment();
+            PBDSegmentReader segmentReader = m_segment.getReader(m_cursorId);
+            if (segmentReader == null) {
+                segmentReader = m_segment.openForRead(m_cursorId);
+            }
+            long lastSegmentId = peekLastSegment().segmentId();
+            while (!segmentReader.hasMoreEntries()) {
+                if (m_segment.segmentId() == lastSegmentId) { // nothing more to read
+                    return null;
+                }
+
+                segmentReader.close();
+                m_segment = m_segments.higherEntry(m_segment.segmentId()).getValue();
+                // push to PBD will rewind cursors. So, this cursor may have already opened this segment
+                segmentReader = m_segment.getReader(m_cursorId);
+                if (segmentReader == null) segmentReader = m_segment.openForRead(m_cursorId);
+            }
+            BBContainer retcont = segmentReader.poll(ocf);
+            assert (retcont.b() != null);
+            return wrapRetCont(m_segment, retcont);
+        }
+
+        /*
+         * Serve the next staged object from memory. The cursor gets a copy, since the staged
+         * container is discarded once it is written.
+         */
+        private BBContainer pollStaged(OutputContainerFactory ocf) {
+            StagedObject staged = stagedObject(m_stagedReads.size());
+            if (staged == null) {
+                return null;
+            }
+            ByteBuffer object = staged.m_object.b().duplicate();
+            BBContainer copy = ocf.getContainer(object.remaining());
+            copy.b().clear();
+            copy.b().put(object);
+            copy.b().flip();
+            StagedRead read = new StagedRead(copy);
+            m_stagedReads.add(read);
+            return read;
+        }
+
+        /*
+         * Called by the writer once the oldest staged object has been written, or has failed to be.
+         * If this cursor already polled the object from memory, skip over it in the segment.
+         */
+        private void stagedObjectWritten(boolean written) throws IOException {
+            StagedRead read = m_stagedReads.poll();
+            if (read == null) {
+                return;
+            }
+            if (written) {
+                BBContainer retcont = pollSegments(SKIP_CONTAINER_FACTORY);
+                assert (retcont != null);
+                read.setWritten(retcont);
+            } else {
+                // The object is lost, so it no longer counts as read either
+                m_numRead--;
             }
         }
 
@@ -140,7 +210,7 @@ public class PersistentBinaryDeque implements BinaryDeque {
                 if (m_closed) {
                     throw new IOException("Cannot compute object count of " + m_cursorId + " - Reader has been closed");
                 }
-                return m_numObjects - m_numObjectsDeleted - m_numRead;
+                return m_numObjects + stagedCount() - m_numObjectsDeleted - m_numRead;
             }
         }
 
@@ -169,7 +239,7 @@ public class PersistentBinaryDeque implements BinaryDeque {
                 for (PBDSegment currSegment : m_segments.tailMap(m_segment.segmentId(), inclusive).values()) {
                     size += currSegment.size();
                 }
-                return size;
+                return size + stagedBytes(m_stagedReads.size());
             }
         }
 
@@ -193,7 +263,7 @@ public class PersistentBinaryDeque implements BinaryDeque {
                     if (currSegment.getNumEntries() > 0)  return false;
                 }
 
-                return true;
+                return stagedCount() == m_stagedReads.size();
             }
         }
 
@@ -235,8 +305,54 @@ public class PersistentBinaryDeque implements BinaryDeque {
         }
     }
 
+    /**
+     * A staged object a cursor polled from memory. Once the object is written, the cursor's
+     * container of it in the segment is discarded along with this copy, so that the segment
+     * can be deleted once everything in it has been read and discarded.
+     */
+    private class StagedRead extends BBContainer {
+        private final BBContainer m_copy;
+        private BBContainer m_written = null;
+        private boolean m_discarded = false;
+
+        StagedRead(BBContainer copy) {
+            super(copy.b());
+            m_copy = copy;
+        }
+
+        void setWritten(BBContainer written) {
+            assert(Thread.holdsLock(PersistentBinaryDeque.this));
+            if (m_discarded) {
+                written.discard();
+            } else {
+                m_written = written;
+            }
+        }
+
+        @Override
+        public void discard() {
+            synchronized (PersistentBinaryDeque.this) {
+                checkDoubleFree();
+                m_copy.discard();
+                m_discarded = true;
+                if (m_written != null) {
+                    m_written.discard();
+                    m_written = null;
+                }
+            }
+        }
+    }
+
     public static final OutputContainerFactory UNSAFE_CONTAINER_FACTORY = new UnsafeOutputContainerFactory();
 
+    // Only holds the written copy of an object a cursor already polled from memory until it is discarded
+    private static final OutputContainerFactory SKIP_CONTAINER_FACTORY = new OutputContainerFactory() {
+        @Override
+        public BBContainer getContainer(int minimumSize) {
+            return DBBPool.allocateDirect(minimumSize);
+        }
+    };
+
     /**
      * Processors also log using this facility.
      */
@@ -255,6 +371,75 @@ public class PersistentBinaryDeque implements BinaryDeque {
     private int m_numObjects;
     private int m_numDeleted;
 
+    /**
+     * Interval in milliseconds over which the fsyncs of the asynchronous offers are grouped
+     */
+    static final long ASYNC_SYNC_INTERVAL_MS = Long.getLong("PBD_ASYNC_SYNC_INTERVAL_MS", 10);
+
+    /**
+     * Most bytes of asynchronous offers staged per deque before offerAsync refuses more
+     */
+    static final long ASYNC_STAGING_LIMIT_BYTES = Long.getLong("PBD_ASYNC_STAGING_LIMIT_BYTES", 64 * 1024 * 1024);
+
+    // The I/O thread that writes and fsyncs the asynchronous offers of all the deques
+    private static class AsyncWriterHolder {
+        static final ScheduledThreadPoolExecutor WRITER =
+                CoreUtils.getScheduledThreadPoolExecutor("PBD Async Writer", 1, CoreUtils.SMALL_STACK_SIZE);
+    }
+
+    private static class StagedObject {
+        final BBContainer m_object;
+        final int m_size;
+        final boolean m_allowCompression;
+        final SettableFuture<Object> m_written = SettableFuture.create();
+
+        StagedObject(BBContainer object, boolean allowCompression) {
+            m_object = object;
+            m_size = object.b().remaining();
+            m_allowCompression = allowCompression;
+        }
+    }
+
+    //Asynchronous offers that haven't been written yet, in order, and their size.
+    //The producers only take the lock of this queue, never the lock of the deque.
+    //Only the writer removes from it, holding both locks.
+    private final ArrayDeque<StagedObject> m_staged = new ArrayDeque<>();
+    private long m_stagedBytes = 0;
+    private long m_stagingLimitBytes = ASYNC_STAGING_LIMIT_BYTES;
+    private final AtomicBoolean m_writeScheduled = new AtomicBoolean(false);
+    //Asynchronous offers that have been written but not fsynced
+    private final ArrayList<SettableFuture<Object>> m_unsynced = new ArrayList<>();
+    private boolean m_syncScheduled = false;
+
+    private final Runnable m_asyncWrite = new Runnable() {
+        @Override
+        public void run() {
+            //Clear the flag first so that anything staged from now on schedules another write
+            m_writeScheduled.set(false);
+            synchronized (PersistentBinaryDeque.this) {
+                writeStagedObjects();
+            }
+        }
+    };
+
+    private final Runnable m_asyncSync = new Runnable() {
+        @Override
+        public void run() {
+            synchronized (PersistentBinaryDeque.this) {
+                m_syncScheduled = false;
+                //close() and closeAndDelete() complete the offers themselves
+                if (m_closed) {
+                    return;
+                }
+                try {
+                    syncSegments();
+                } catch (IOException e) {
+                    LOG.error("Failed to sync PBD " + m_nonce, e);
+                }
+            }
+        }
+    };
+
     /**
      * Create a persistent binary deque with the specified nonce and storage
      * back at the specified path. Existing files will
@@ -408,6 +593,10 @@ public class PersistentBinaryDeque implements BinaryDeque {
         if (m_closed) {
             throw new IOException("Cannot parseAndTruncate(): PBD has been closed");
         }
+        awaitStagedWritten();
+        if (m_closed) {
+            throw new IOException("Cannot parseAndTruncate(): PBD has been closed");
+        }
 
         assertions();
         if (m_segments.isEmpty()) {
@@ -493,6 +682,10 @@ public class PersistentBinaryDeque implements BinaryDeque {
     private void closeTailAndOffer(PBDSegment newSegment) throws IOException {
         PBDSegment last = peekLastSegment();
         if (last != null && !last.isBeingPolled()) {
+            //The group fsync only covers open segments
+            if (!m_unsynced.isEmpty() && !last.isClosed()) {
+                last.sync();
+            }
             last.close();
         }
         m_segments.put(newSegment.segmentId(), newSegment);
@@ -543,7 +736,23 @@ public class PersistentBinaryDeque implements BinaryDeque {
         if (m_closed) {
             throw new IOException("Closed");
         }
+        awaitStagedWritten();
+        if (m_closed) {
+            throw new IOException("Closed");
+        }
+        writeObject(object, allowCompression);
+    }
 
+    private void writeObject(BBContainer object, boolean allowCompression) throws IOException {
+        appendObject(object, allowCompression);
+        assertions();
+    }
+
+    /*
+     * Append the object to the tail segment without checking the counts, which don't add up
+     * while the writer moves a staged object to the segments.
+     */
+    private void appendObject(BBContainer object, boolean allowCompression) throws IOException {
         PBDSegment tail = peekLastSegment();
         final boolean compress = object.b().isDirect() && allowCompression;
         if (!tail.offer(object, compress)) {
@@ -554,7 +763,6 @@ public class PersistentBinaryDeque implements BinaryDeque {
             }
         }
         m_numObjects++;
-        assertions();
     }
 
     @Override
@@ -563,6 +771,10 @@ public class PersistentBinaryDeque implements BinaryDeque {
         if (m_closed) {
             throw new IOException("Cannot offer(): PBD has been Closed");
         }
+        awaitStagedWritten();
+        if (m_closed) {
+            throw new IOException("Cannot offer(): PBD has been Closed");
+        }
 
         PBDSegment tail = peekLastSegment();
         int written = tail.offer(ds);
@@ -578,6 +790,160 @@ public class PersistentBinaryDeque implements BinaryDeque {
         return written;
     }
 
+    @Override
+    public ListenableFuture<?> offerAsync(BBContainer object, boolean allowCompression) {
+        if (m_closed) {
+            object.discard();
+            return Futures.immediateFailedFuture(new IOException("Cannot offerAsync(): PBD has been Closed"));
+        }
+        final StagedObject staged = new StagedObject(object, allowCompression);
+        synchronized (m_staged) {
+            //Always take one object, however big, so that the writer gets to it
+            if (!m_staged.isEmpty() && m_stagedBytes + staged.m_size > m_stagingLimitBytes) {
+                return null;
+            }
+            m_staged.add(staged);
+            m_stagedBytes += staged.m_size;
+        }
+        if (m_writeScheduled.compareAndSet(false, true)) {
+            AsyncWriterHolder.WRITER.execute(m_asyncWrite);
+        }
+        return staged.m_written;
+    }
+
+    private StagedObject stagedObject(int index) {
+        synchronized (m_staged) {
+            if (index >= m_staged.size()) {
+                return null;
+            }
+            Iterator<StagedObject> iter = m_staged.iterator();
+            for (int ii = 0; ii < index; ii++) {
+                iter.next();
+            }
+            return iter.next();
+        }
+    }
+
+    private int stagedCount() {
+        synchronized (m_staged) {
+            return m_staged.size();
+        }
+    }
+
+    // The size of the staged objects from the index-th on
+    private long stagedBytes(int index) {
+        synchronized (m_staged) {
+            long size = m_stagedBytes;
+            Iterator<StagedObject> iter = m_staged.iterator();
+            for (int ii = 0; ii < index && iter.hasNext(); ii++) {
+                size -= iter.next().m_size;
+            }
+            return size;
+        }
+    }
+
+    /**
+     * Write everything staged by offerAsync, in one batch, and schedule the fsync of the interval
+     * if it isn't already. Only the writer calls this. Cursors that already polled a staged object
+     * from memory skip over it once it is written.
+     */
+    private void writeStagedObjects() {
+        assert(Thread.holdsLock(this));
+        StagedObject staged;
+        while (!m_closed && (staged = stagedObject(0)) != null) {
+            boolean written = false;
+            try {
+                appendObject(staged.m_object, staged.m_allowCompression);
+                m_unsynced.add(staged.m_written);
+                written = true;
+            } catch (IOException e) {
+                staged.m_written.setException(e);
+            }
+            synchronized (m_staged) {
+                m_staged.removeFirst();
+                m_stagedBytes -= staged.m_size;
+            }
+            for (ReadCursor cursor : m_readCursors.values()) {
+                try {
+                    cursor.stagedObjectWritten(written);
+                } catch (IOException e) {
+                    LOG.error("Failed to skip a written object for PBD cursor " + cursor.m_cursorId, e);
+                }
+            }
+            assertions();
+        }
+        if (m_closed) {
+            failStagedObjects(new IOException("PBD was closed before the object was written"));
+        }
+        if (!m_unsynced.isEmpty() && !m_syncScheduled) {
+            m_syncScheduled = true;
+            AsyncWriterHolder.WRITER.schedule(m_asyncSync, ASYNC_SYNC_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        }
+        //Wake up the operations waiting for the staged objects
+        notifyAll();
+    }
+
+    /**
+     * Wait for the writer to write the staged objects, so that an operation that changes the
+     * segments sees them in order. Waiting releases the lock of the deque, so the caller must
+     * check again whether the deque has been closed.
+     */
+    private void awaitStagedWritten() {
+        assert(Thread.holdsLock(this));
+        boolean interrupted = false;
+        while (!m_closed && stagedCount() > 0) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void failStagedObjects(IOException failure) {
+        ArrayList<StagedObject> failed;
+        synchronized (m_staged) {
+            failed = new ArrayList<>(m_staged);
+            m_staged.clear();
+            m_stagedBytes = 0;
+        }
+        for (StagedObject staged : failed) {
+            staged.m_object.discard();
+            staged.m_written.setException(failure);
+        }
+    }
+
+    private void completeUnsynced(IOException failure) {
+        for (SettableFuture<Object> written : m_unsynced) {
+            if (failure == null) {
+                written.set(null);
+            } else {
+                written.setException(failure);
+            }
+        }
+        m_unsynced.clear();
+    }
+
+    /**
+     * fsync the open segments and complete the asynchronous offers written to them
+     */
+    private void syncSegments() throws IOException {
+        try {
+            for (PBDSegment segment : m_segments.values()) {
+                if (!segment.isClosed()) {
+                    segment.sync();
+                }
+            }
+        } catch (IOException e) {
+            completeUnsynced(e);
+            throw e;
+        }
+        completeUnsynced(null);
+    }
+
     private PBDSegment addSegment(PBDSegment tail) throws IOException {
         //Check to see if the tail is completely consumed so we can close and delete it
         if (tail.hasAllFinishedReading() && canDeleteSegment(tail)) {
@@ -609,6 +975,11 @@ public class PersistentBinaryDeque implements BinaryDeque {
         if (m_closed) {
             throw new IOException("Cannot push(): PBD has been Closed");
         }
+        // Pushing rewinds the cursors, so none may still be waiting to skip a staged object
+        awaitStagedWritten();
+        if (m_closed) {
+            throw new IOException("Cannot push(): PBD has been Closed");
+        }
 
         ArrayDeque<ArrayDeque<BBContainer>> segments = new ArrayDeque<ArrayDeque<BBContainer>>();
         ArrayDeque<BBContainer> currentSegment = new ArrayDeque<BBContainer>();
@@ -760,11 +1131,11 @@ public class PersistentBinaryDeque implements BinaryDeque {
         if (m_closed) {
             throw new IOException("Cannot sync(): PBD has been Closed");
         }
-        for (PBDSegment segment : m_segments.values()) {
-            if (!segment.isClosed()) {
-                segment.sync();
-            }
+        awaitStagedWritten();
+        if (m_closed) {
+            throw new IOException("Cannot sync(): PBD has been Closed");
         }
+        syncSegments();
     }
 
     @Override
@@ -772,6 +1143,13 @@ public class PersistentBinaryDeque implements BinaryDeque {
         if (m_closed) {
             return;
         }
+        awaitStagedWritten();
+        if (m_closed) {
+            return;
+        }
+        if (!m_unsynced.isEmpty()) {
+            syncSegments();
+        }
         m_readCursors.clear();
 
         for (PBDSegment segment : m_segments.values()) {
@@ -782,8 +1160,12 @@ public class PersistentBinaryDeque implements BinaryDeque {
 
     @Override
     public synchronized Pair<Integer, Long> getBufferCountAndSize() throws IOException {
-        int count = 0;
-        long size = 0;
+        int count;
+        long size;
+        synchronized (m_staged) {
+            count = m_staged.size();
+            size = m_stagedBytes;
+        }
         for (PBDSegment segment : m_segments.values()) {
             count += segment.getNumEntries();
             size += segment.size();
@@ -796,6 +1178,8 @@ public class PersistentBinaryDeque implements BinaryDeque {
         if (m_closed) {
             return;
         }
+        failStagedObjects(new IOException("PBD was deleted before the object was written"));
+        completeUnsynced(new IOException("PBD was deleted before the object was synced"));
         m_readCursors.clear();
 
         for (PBDSegment qs : m_segments.values()) {
@@ -804,6 +1188,7 @@ public class PersistentBinaryDeque implements BinaryDeque {
         }
         m_segments.clear();
         m_closed = true;
+        notifyAll();
     }
 
     public static class ByteBufferTruncatorResponse extends TruncatorResponse {
@@ -878,6 +1263,8 @@ public class PersistentBinaryDeque implements BinaryDeque {
                         numObjects += segment.getNumEntries() - reader.readIndex();
                     }
                 }
+                // the staged objects the cursor hasn't polled from memory yet
+                numObjects += stagedCount() - cursor.m_stagedReads.size();
                 assert numObjects == cursor.getNumObjects() : numObjects + " != " + cursor.getNumObjects();
             } catch (Exception e) {
                 Throwables.propagate(e);
@@ -885,6 +1272,13 @@ public class PersistentBinaryDeque implements BinaryDeque {
         }
     }
 
+    // Used by test only
+    synchronized void setAsyncStagingLimitForTest(long limitBytes) {
+        synchronized (m_staged) {
+            m_stagingLimitBytes = limitBytes;
+        }
+    }
+
     // Used by test only
     int numOpenSegments() {
         int numOpen = 0;
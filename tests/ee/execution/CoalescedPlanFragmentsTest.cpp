@@ -0,0 +1,201 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2017 VoltDB Inc.
+ *
+ * This file contains original code and/or modifications of original code.
+ * Any modifications made by VoltDB Inc. are licensed under the following
+ * terms and conditions:
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+#include <utility>
+#include <vector>
+
+#include "harness.h"
+#include "common/executorcontext.hpp"
+#include "storage/temptable.h"
+#include "storage/persistenttable.h"
+#include "test_utils/plan_testing_baseclass.h"
+#include "common/PerFragmentStatsTest.hpp"
+
+/**
+ * A top end that records the progress reports of the executing fragments.
+ * After the first report, it asks for the next one as late as possible.
+ */
+class ProgressRecordingTopend : public EngineTestTopend {
+public:
+    static ProgressRecordingTopend *newInstance() {
+        return new ProgressRecordingTopend();
+    }
+
+    int64_t fragmentProgressUpdate(int32_t batchIndex,
+                                   voltdb::PlanNodeType planNodeType,
+                                   int64_t tuplesProcessed,
+                                   int64_t currMemoryInBytes,
+                                   int64_t peakMemoryInBytes) {
+        m_reports.push_back(std::make_pair(batchIndex, tuplesProcessed));
+        return 1000000000;
+    }
+
+    std::vector<std::pair<int32_t, int64_t> > m_reports;
+};
+
+class CoalescedPlanFragmentsTest : public PlanTestingBaseClass<ProgressRecordingTopend> {
+public:
+    CoalescedPlanFragmentsTest() :
+        PlanTestingBaseClass<ProgressRecordingTopend>(),
+        m_tableT(NULL),
+        m_tableT_id(-1) {}
+
+    void initialize(const char *catalog_string) {
+        PlanTestingBaseClass<ProgressRecordingTopend>::initialize(catalog_string);
+        m_tableT = getPersistentTableAndId("T", &m_tableT_id, NULL);
+        ASSERT_TRUE(m_tableT);
+        // The engine stops a coalesced batch once its results fill half of
+        // the first result buffer, which the base class doesn't provide.
+        m_first_result_buffer.reset(new char[m_resultBufferSize]);
+        m_engine->setBuffers(m_parameter_buffer.get(), m_smallBufferSize,
+                             m_per_fragment_stats_buffer.get(), m_smallBufferSize,
+                             NULL, 0, // the UDF buffer
+                             m_first_result_buffer.get(), m_resultBufferSize,
+                             m_result_buffer.get(), m_resultBufferSize,
+                             m_exception_buffer.get(), m_smallBufferSize);
+        m_topend->addPlan(INSERT_PLAN_ID, anInsertPlan);
+        m_topend->addPlan(SELECT_PLAN_ID, aSelectPlan);
+    }
+
+protected:
+    static const fragmentId_t INSERT_PLAN_ID = 100;
+    static const fragmentId_t SELECT_PLAN_ID = 200;
+
+    void addParameters(int32_t valueA, double valueB, std::string valueC) {
+        prepareParamsBufferForNextFragment();
+        addParameterToBuffer(voltdb::VALUE_TYPE_INTEGER, &valueA);
+        addParameterToBuffer(voltdb::VALUE_TYPE_DOUBLE,  &valueB);
+        addParameterToBuffer(voltdb::VALUE_TYPE_VARCHAR, valueC.c_str(), valueC.size());
+    }
+
+    // Execute the transactions the way the JNI entry point does, with the
+    // parameters already in the parameter buffer.
+    int executeCoalesced(int32_t numTransactions, int64_t planfragmentIds[], int64_t undoTokens[]) {
+        std::vector<int64_t> ids(numTransactions);
+        for (int i = 0; i < numTransactions; ++i) {
+            ids[i] = 1000 + i;
+        }
+        m_engine->resetPerFragmentStatsOutputBuffer();
+        m_engine->resetReusedResultOutputBuffer(0, 0);
+        voltdb::ReferenceSerializeInputBE params(m_parameter_buffer.get(), m_smallBufferSize);
+        return m_engine->executeCoalescedPlanFragments(numTransactions, planfragmentIds, params,
+                                                       &ids[0], &ids[0], 999, &ids[0], undoTokens, false);
+    }
+
+    void skipException(voltdb::ReferenceSerializeInputBE &resultBuffer) {
+        int32_t length = resultBuffer.readInt();
+        resultBuffer.getRawPointer(length);
+    }
+
+    voltdb::PersistentTable* m_tableT;
+    int m_tableT_id;
+    boost::shared_array<char> m_first_result_buffer;
+};
+
+TEST_F(CoalescedPlanFragmentsTest, TestResultsAndUndo) {
+    // catalogPayload, anInsertPlan, and aSelectPlan are defined in PerFragmentStatsTest.hpp
+    initialize(catalogPayload);
+    int64_t planfragmentIds[] = { INSERT_PLAN_ID, INSERT_PLAN_ID, SELECT_PLAN_ID };
+    int64_t undoTokens[] = { 1, 2, INT64_MAX };
+    initParamsBuffer();
+    // INSERT INTO T VALUES (1, 2.3, 'string');
+    addParameters(1, 2.3, "string");
+    // INSERT INTO T VALUES (1, 4.5, 'string that exceeds the limit'); fails
+    addParameters(1, 4.5, "string that exceeds the limit");
+    // SELECT * FROM T WHERE a = 1 and b >= 0.0 and C like 'str%';
+    addParameters(1, 0.0, "str%");
+
+    ASSERT_EQ(3, executeCoalesced(3, planfragmentIds, undoTokens));
+
+    voltdb::ReferenceSerializeInputBE resultBuffer(m_first_result_buffer.get(), m_engine->getResultsSize());
+    boost::scoped_ptr<voltdb::TempTable> result(NULL);
+    // Each transaction has a status, then its result or its exception
+    ASSERT_EQ(ENGINE_ERRORCODE_SUCCESS, resultBuffer.readByte());
+    result.reset(voltdb::loadTableFrom(resultBuffer));
+    validateDMLResultTable(result.get());
+
+    ASSERT_EQ(ENGINE_ERRORCODE_ERROR, resultBuffer.readByte());
+    skipException(resultBuffer);
+
+    // The failed transaction was rolled back, the one before it was not
+    ASSERT_EQ(ENGINE_ERRORCODE_SUCCESS, resultBuffer.readByte());
+    result.reset(voltdb::loadTableFrom(resultBuffer));
+    ASSERT_TRUE(result);
+    ASSERT_EQ(1, result->activeTupleCount());
+    ASSERT_EQ(1, m_tableT->activeTupleCount());
+}
+
+TEST_F(CoalescedPlanFragmentsTest, TestProgressIsReportedPerTransaction) {
+    initialize(catalogPayload);
+    const int numRows = static_cast<int>(voltdb::LONG_OP_THRESHOLD * 3 / 2);
+    for (int i = 0; i < numRows; ++i) {
+        voltdb::TableTuple &tuple = m_tableT->tempTuple();
+        tuple.setNValue(0, voltdb::ValueFactory::getIntegerValue(i));
+        tuple.setNValue(1, voltdb::ValueFactory::getDoubleValue(i / 2.0));
+        tuple.setNValue(2, voltdb::ValueFactory::getStringValue("string", &m_pool));
+        ASSERT_TRUE(m_tableT->insertTuple(tuple));
+    }
+
+    int64_t planfragmentIds[] = { SELECT_PLAN_ID, SELECT_PLAN_ID };
+    int64_t undoTokens[] = { INT64_MAX, INT64_MAX };
+    initParamsBuffer();
+    addParameters(1, 0.0, "str%");
+    addParameters(2, 0.0, "str%");
+
+    ASSERT_EQ(2, executeCoalesced(2, planfragmentIds, undoTokens));
+
+    // Each transaction scans the whole table. Its progress is counted and
+    // reported from its own start, with its own index, although the top end
+    // asked for the next report only after many more tuples.
+    const std::vector<std::pair<int32_t, int64_t> > &reports = m_topend->m_reports;
+    ASSERT_EQ(2, reports.size());
+    ASSERT_EQ(0, reports[0].first);
+    ASSERT_TRUE(reports[0].second >= voltdb::LONG_OP_THRESHOLD);
+    ASSERT_TRUE(reports[0].second < numRows);
+    ASSERT_EQ(1, reports[1].first);
+    ASSERT_EQ(reports[0].second, reports[1].second);
+}
+
+int main() {
+     return TestSuite::globalInstance()->runAll();
+}
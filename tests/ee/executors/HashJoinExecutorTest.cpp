@@ -0,0 +1,320 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2017 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+#include "harness.h"
+
+#include "test_utils/Tools.hpp"
+#include "test_utils/UniqueEngine.hpp"
+
+#include "common/SQLException.h"
+#include "execution/ExecutorVector.h"
+#include "storage/TempTableLimits.h"
+#include "storage/temptable.h"
+
+#include "boost/optional.hpp"
+
+#include <algorithm>
+#include <string>
+#include <utility>
+#include <vector>
+
+using namespace voltdb;
+
+/**
+ * Catalog for a database with two tables:
+ *  create table l (id integer not null, k integer);
+ *  create table r (id integer not null, k integer);
+ */
+static const std::string catalogPayload =
+    "add / clusters cluster\n"
+    "set /clusters#cluster localepoch 1199145600\n"
+    "set $PREV securityEnabled false\n"
+    "set $PREV httpdportno -1\n"
+    "set $PREV jsonapi true\n"
+    "set $PREV networkpartition false\n"
+    "set $PREV heartbeatTimeout 90\n"
+    "set $PREV useddlschema false\n"
+    "set $PREV drConsumerEnabled false\n"
+    "set $PREV drProducerEnabled true\n"
+    "set $PREV drRole \"master\"\n"
+    "set $PREV drClusterId 0\n"
+    "set $PREV drProducerPort 5555\n"
+    "set $PREV drMasterHost \"\"\n"
+    "set $PREV drFlushInterval 1000\n"
+    "set $PREV preferredSource 0\n"
+    "add /clusters#cluster databases database\n"
+    "set /clusters#cluster/databases#database schema \"3gFUNDM1MjQ1NDE1NDQ1MjA1NDQxNDI0QwEMHDRDMjAyODIwAQIQNDk0NDIBBgBFASgwNDc0NTUyMjA0RTRGNQEYIEU1NTRDNEMyQwEsDDIwNEIBCAg0OTQyLgAQMjkzQgpmbwABUf5vAEJvAA==\"\n"
+    "set $PREV isActiveActiveDRed false\n"
+    "set $PREV securityprovider \"hash\"\n"
+    "add /clusters#cluster/databases#database tables L\n"
+    "set /clusters#cluster/databases#database/tables#L isreplicated true\n"
+    "set $PREV partitioncolumn null\n"
+    "set $PREV estimatedtuplecount 0\n"
+    "set $PREV materializer null\n"
+    "set $PREV signature \"L|ii\"\n"
+    "set $PREV tuplelimit 2147483647\n"
+    "set $PREV isDRed false\n"
+    "add /clusters#cluster/databases#database/tables#L columns ID\n"
+    "set /clusters#cluster/databases#database/tables#L/columns#ID index 0\n"
+    "set $PREV type 5\n"
+    "set $PREV size 4\n"
+    "set $PREV nullable false\n"
+    "set $PREV name \"ID\"\n"
+    "set $PREV defaultvalue null\n"
+    "set $PREV defaulttype 0\n"
+    "set $PREV aggregatetype 0\n"
+    "set $PREV matviewsource null\n"
+    "set $PREV matview null\n"
+    "set $PREV inbytes false\n"
+    "add /clusters#cluster/databases#database/tables#L columns K\n"
+    "set /clusters#cluster/databases#database/tables#L/columns#K index 1\n"
+    "set $PREV type 5\n"
+    "set $PREV size 4\n"
+    "set $PREV nullable true\n"
+    "set $PREV name \"K\"\n"
+    "set $PREV defaultvalue null\n"
+    "set $PREV defaulttype 0\n"
+    "set $PREV aggregatetype 0\n"
+    "set $PREV matviewsource null\n"
+    "set $PREV matview null\n"
+    "set $PREV inbytes false\n"
+    "add /clusters#cluster/databases#database tables R\n"
+    "set /clusters#cluster/databases#database/tables#R isreplicated true\n"
+    "set $PREV partitioncolumn null\n"
+    "set $PREV estimatedtuplecount 0\n"
+    "set $PREV materializer null\n"
+    "set $PREV signature \"R|ii\"\n"
+    "set $PREV tuplelimit 2147483647\n"
+    "set $PREV isDRed false\n"
+    "add /clusters#cluster/databases#database/tables#R columns ID\n"
+    "set /clusters#cluster/databases#database/tables#R/columns#ID index 0\n"
+    "set $PREV type 5\n"
+    "set $PREV size 4\n"
+    "set $PREV nullable false\n"
+    "set $PREV name \"ID\"\n"
+    "set $PREV defaultvalue null\n"
+    "set $PREV defaulttype 0\n"
+    "set $PREV aggregatetype 0\n"
+    "set $PREV matviewsource null\n"
+    "set $PREV matview null\n"
+    "set $PREV inbytes false\n"
+    "add /clusters#cluster/databases#database/tables#R columns K\n"
+    "set /clusters#cluster/databases#database/tables#R/columns#K index 1\n"
+    "set $PREV type 5\n"
+    "set $PREV size 4\n"
+    "set $PREV nullable true\n"
+    "set $PREV name \"K\"\n"
+    "set $PREV defaultvalue null\n"
+    "set $PREV defaulttype 0\n"
+    "set $PREV aggregatetype 0\n"
+    "set $PREV matviewsource null\n"
+    "set $PREV matview null\n"
+    "set $PREV inbytes false\n"
+    "add /clusters#cluster deployment deployment\n"
+    "set /clusters#cluster/deployment#deployment kfactor 0\n"
+    "add /clusters#cluster/deployment#deployment systemsettings systemsettings\n"
+    "set /clusters#cluster/deployment#deployment/systemsettings#systemsettings temptablemaxsize 100\n"
+    "set $PREV snapshotpriority 6\n"
+    "set $PREV elasticduration 50\n"
+    "set $PREV elasticthroughput 2\n"
+    "set $PREV querytimeout 300000\n"
+    "add /clusters#cluster logconfig log\n"
+    "set /clusters#cluster/logconfig#log enabled false\n"
+    "set $PREV synchronous false\n"
+    "set $PREV fsyncInterval 200\n"
+    "set $PREV maxTxns 2147483647\n"
+    "set $PREV logSize 1024";
+
+static std::string columnJson(const std::string& name, int index) {
+    std::ostringstream oss;
+    oss << "{\"COLUMN_NAME\":\"" << name << "\","
+        << "\"EXPRESSION\":{\"COLUMN_IDX\":" << index << ",\"TYPE\":32,\"VALUE_TYPE\":5}}";
+    return oss.str();
+}
+
+static std::string scanJson(int id, const std::string& table) {
+    std::ostringstream oss;
+    oss << "{\"ID\":" << id << ","
+        << "\"OUTPUT_SCHEMA\":[" << columnJson("ID", 0) << "," << columnJson("K", 1) << "],"
+        << "\"PLAN_NODE_TYPE\":\"SEQSCAN\","
+        << "\"TARGET_TABLE_ALIAS\":\"" << table << "\","
+        << "\"TARGET_TABLE_NAME\":\"" << table << "\"}";
+    return oss.str();
+}
+
+/**
+ * The hash join that the planner produces for
+ *     select * from l <joinType> join r on l.k = r.k;
+ * with hash joins enabled, less its send node, so that the join's own
+ * output is the fragment's result.  The scans have no inline projection
+ * and so hand the persistent tables to the join without copying them.
+ */
+static std::string joinPlan(const std::string& joinType) {
+    const std::string innerKey = "{\"COLUMN_IDX\":1,\"TABLE_IDX\":1,\"TYPE\":32,\"VALUE_TYPE\":5}";
+    const std::string outerKey = "{\"COLUMN_IDX\":1,\"TYPE\":32,\"VALUE_TYPE\":5}";
+    std::ostringstream oss;
+    oss << "{\"EXECUTE_LIST\":[2,3,1],"
+        << "\"IS_LARGE_QUERY\":false,"
+        << "\"PLAN_NODES\":["
+        << "{\"CHILDREN_IDS\":[2,3],"
+        << "\"ID\":1,"
+        << "\"INNER_HASH_EXPRESSIONS\":[" << innerKey << "],"
+        << "\"JOIN_PREDICATE\":{\"LEFT\":" << innerKey << ",\"RIGHT\":" << outerKey
+        <<                    ",\"TYPE\":10,\"VALUE_TYPE\":23},"
+        << "\"JOIN_TYPE\":\"" << joinType << "\","
+        << "\"OUTER_HASH_EXPRESSIONS\":[" << outerKey << "],"
+        << "\"OUTPUT_SCHEMA\":[" << columnJson("ID", 0) << "," << columnJson("K", 1) << ","
+        <<                        columnJson("ID", 2) << "," << columnJson("K", 3) << "],"
+        << "\"PLAN_NODE_TYPE\":\"HASHJOIN\","
+        << "\"PRE_JOIN_PREDICATE\":null,"
+        << "\"WHERE_PREDICATE\":null},"
+        << scanJson(2, "L") << ","
+        << scanJson(3, "R")
+        << "]}";
+    return oss.str();
+}
+
+// A NULL key, or the ID of an unmatched inner row in an outer join.
+static const boost::optional<int32_t> NONE;
+
+typedef std::vector<std::pair<int32_t, boost::optional<int32_t> > > JoinedIds;
+
+class HashJoinExecutorTest : public Test {
+public:
+    HashJoinExecutorTest()
+        : Test()
+        , m_engine(UniqueEngineBuilder().build())
+    {
+        bool rc = m_engine->loadCatalog(0, catalogPayload);
+        assert(rc);
+        (void)rc;
+    }
+
+protected:
+    void insertRow(UniqueEngine& engine, const std::string& tableName,
+                   int32_t id, boost::optional<int32_t> key) {
+        Table* table = engine->getTableByName(tableName);
+        StandAloneTupleStorage tupleWrapper(table->schema());
+        TableTuple tuple = tupleWrapper.tuple();
+        Tools::setTupleValues(&tuple, id, key);
+        table->insertTuple(tuple);
+    }
+
+    void loadTestData() {
+        // Outer rows: one matching once, one matching twice,
+        // one with a NULL key, and one with no match at all.
+        insertRow(m_engine, "L", 1, 10);
+        insertRow(m_engine, "L", 2, 20);
+        insertRow(m_engine, "L", 3, NONE);
+        insertRow(m_engine, "L", 4, 40);
+        // Inner rows: a duplicated key, and a NULL key that must not
+        // match the outer NULL key.
+        insertRow(m_engine, "R", 101, 20);
+        insertRow(m_engine, "R", 102, 10);
+        insertRow(m_engine, "R", 103, 20);
+        insertRow(m_engine, "R", 104, NONE);
+    }
+
+    /** Execute the join and return the (L.ID, R.ID) pairs it produced, sorted. */
+    JoinedIds executeJoin(const std::string& joinType) {
+        auto ev = ExecutorVector::fromJsonPlan(m_engine.get(), joinPlan(joinType), 0);
+        UniqueTempTableResult result = m_engine->executePlanFragment(ev.get(), NULL);
+        JoinedIds ids;
+        TableTuple tuple(result->schema());
+        TableIterator iter = result->iterator();
+        while (iter.next(tuple)) {
+            NValue innerId = tuple.getNValue(2);
+            ids.push_back(std::make_pair(ValuePeeker::peekInteger(tuple.getNValue(0)),
+                                         innerId.isNull() ? NONE
+                                                          : boost::optional<int32_t>(ValuePeeker::peekInteger(innerId))));
+        }
+        std::sort(ids.begin(), ids.end());
+        return ids;
+    }
+
+    UniqueEngine m_engine;
+};
+
+TEST_F(HashJoinExecutorTest, InnerJoin) {
+    loadTestData();
+
+    JoinedIds expected;
+    expected.push_back(std::make_pair(1, boost::optional<int32_t>(102)));
+    expected.push_back(std::make_pair(2, boost::optional<int32_t>(101)));
+    expected.push_back(std::make_pair(2, boost::optional<int32_t>(103)));
+
+    ASSERT_TRUE(expected == executeJoin("INNER"));
+}
+
+TEST_F(HashJoinExecutorTest, LeftJoin) {
+    loadTestData();
+
+    // The outer row with the NULL key and the one without a match
+    // both come out once, padded with NULLs.
+    JoinedIds expected;
+    expected.push_back(std::make_pair(1, boost::optional<int32_t>(102)));
+    expected.push_back(std::make_pair(2, boost::optional<int32_t>(101)));
+    expected.push_back(std::make_pair(2, boost::optional<int32_t>(103)));
+    expected.push_back(std::make_pair(3, NONE));
+    expected.push_back(std::make_pair(4, NONE));
+
+    ASSERT_TRUE(expected == executeJoin("LEFT"));
+}
+
+TEST_F(HashJoinExecutorTest, InnerTableOverTempTableLimit) {
+    // Allow 1 MB of temp table memory, and build a hash table over more
+    // inner rows than fit in it.  The outer table is left empty so that
+    // the hash table is the only thing charged against the limit.
+    int64_t tempTableMemoryLimitInBytes = 1024 * 1024;
+    UniqueEngine engine = UniqueEngineBuilder()
+        .setTempTableMemoryLimit(tempTableMemoryLimitInBytes)
+        .build();
+    ASSERT_TRUE(engine->loadCatalog(0, catalogPayload));
+    for (int32_t i = 0; i < 100000; ++i) {
+        insertRow(engine, "R", i, i);
+    }
+
+    auto ev = ExecutorVector::fromJsonPlan(engine.get(), joinPlan("INNER"), 0);
+    bool overflowed = false;
+    try {
+        engine->executePlanFragment(ev.get(), NULL);
+    }
+    catch (const SQLException& exc) {
+        overflowed = (exc.getSqlState() == SQLException::volt_temp_table_memory_overflow);
+    }
+    ASSERT_TRUE(overflowed);
+    // All of the hash table's memory has been given back.
+    ASSERT_EQ(0, ev->limits()->getAllocated());
+
+    // The same join succeeds once the inner table fits.
+    Table* inner = engine->getTableByName("R");
+    inner->deleteAllTuples(true);
+    insertRow(engine, "R", 1, 1);
+    insertRow(engine, "L", 1, 1);
+    UniqueTempTableResult result = engine->executePlanFragment(ev.get(), NULL);
+    ASSERT_EQ(1, result->activeTupleCount());
+}
+
+int main() {
+    return TestSuite::globalInstance()->runAll();
+}
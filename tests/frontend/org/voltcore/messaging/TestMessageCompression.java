@@ -0,0 +1,108 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2017 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltcore.messaging;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class TestMessageCompression {
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        MessageCompression compression = new MessageCompression(1024);
+        byte[] message = new byte[4096];
+        for (int i = 0; i < message.length; i++) {
+            message[i] = (byte) (i % 7);
+        }
+        assertFalse(compression.shouldCompress(1023));
+        assertTrue(compression.shouldCompress(message.length));
+
+        // compress from an offset into the buffer
+        ByteBuffer buf = ByteBuffer.allocate(message.length + 8);
+        buf.position(4);
+        buf.put(message);
+        buf.flip().position(4);
+        byte[] compressed = compression.compress(buf);
+        assertNotNull(compressed);
+        assertEquals(4, buf.position());
+        assertEquals(message.length, compression.getBytesCompressed());
+        assertEquals(compressed.length, compression.getCompressedBytes());
+
+        ByteBuffer in = ByteBuffer.allocate(compressed.length + 2);
+        in.put((byte) 1).put(compressed).put((byte) 2).flip().position(1);
+        in.limit(in.limit() - 1);
+        ByteBuffer out = MessageCompression.uncompress(in, message.length);
+        assertFalse(in.hasRemaining());
+        assertArrayEquals(message, out.array());
+    }
+
+    @Test
+    public void testBackoff() throws Exception {
+        MessageCompression compression = new MessageCompression(1024);
+        byte[] random = new byte[4096];
+        new Random(0).nextBytes(random);
+        assertNull(compression.compress(ByteBuffer.wrap(random)));
+        assertEquals(0, compression.getBytesCompressed());
+
+        // skip one message after the first failure, two after the second, then four
+        assertFalse(compression.shouldCompress(random.length));
+        assertTrue(compression.shouldCompress(random.length));
+        assertNull(compression.compress(ByteBuffer.wrap(random)));
+        assertFalse(compression.shouldCompress(random.length));
+        assertFalse(compression.shouldCompress(random.length));
+        assertTrue(compression.shouldCompress(random.length));
+        assertFalse(compression.compressed(random.length, random.length));
+        for (int i = 0; i < 4; i++) {
+            assertFalse(compression.shouldCompress(random.length));
+        }
+        // small messages don't count
+        assertFalse(compression.shouldCompress(10));
+        assertTrue(compression.shouldCompress(random.length));
+
+        // a success compresses every message again
+        assertTrue(compression.compressed(random.length, random.length / 2));
+        assertTrue(compression.shouldCompress(random.length));
+        assertTrue(compression.shouldCompress(random.length));
+        assertFalse(compression.compressed(random.length, random.length));
+        assertFalse(compression.shouldCompress(random.length));
+        assertTrue(compression.shouldCompress(random.length));
+
+        for (int i = 0; i < 20; i++) {
+            compression.compressed(random.length, random.length);
+        }
+        for (int i = 0; i < MessageCompression.MAX_SKIPPED; i++) {
+            assertFalse(compression.shouldCompress(random.length));
+        }
+        assertTrue(compression.shouldCompress(random.length));
+    }
+}
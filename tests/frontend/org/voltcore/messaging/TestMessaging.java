@@ -26,6 +26,8 @@ package org.voltcore.messaging;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.Selector;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Random;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -173,6 +175,103 @@ public class TestMessaging extends TestCase {
         msg2.shutdown();
     }
 
+    public void testCompressedMessages() throws Exception {
+        List<HostMessenger.Config> configs = getConfigs(2);
+        HostMessenger msg1 = new HostMessenger(configs.get(0), null);
+        msg1.start();
+        HostMessenger msg2 = new HostMessenger(configs.get(1), null);
+        msg2.start();
+        msg1.waitForGroupJoin(2);
+        msg2.waitForGroupJoin(2);
+
+        ForeignHost fh = msg1.m_foreignHosts.get(msg2.getHostId()).iterator().next();
+        fh.enableCompression();
+
+        Mailbox mb1 = msg1.createMailbox();
+        Mailbox mb2 = msg2.createMailbox();
+
+        // a message that compresses well, one too small to compress and one that doesn't compress
+        MsgTest.globalValue = new byte[MessageCompression.THRESHOLD * 4];
+        for (int i = 0; i < MsgTest.globalValue.length; i++) {
+            MsgTest.globalValue[i] = (byte) (i % 100);
+        }
+        for (int size : new int[] { -1, 16, MessageCompression.THRESHOLD * 2 }) {
+            if (size > 0) {
+                MsgTest.initWithSize(size);
+            }
+            MsgTest mt = new MsgTest();
+            mt.setValues();
+            mb1.send(mb2.getHSId(), mt);
+            MsgTest mt2 = null;
+            while (mt2 == null) {
+                mt2 = (MsgTest) mb2.recv();
+            }
+            assertTrue(mt2.verify());
+            if (size < 0) {
+                assertEquals(mt.getSerializedSize(), fh.getCompression().getBytesCompressed());
+                assertTrue(fh.getCompression().getCompressedBytes() < mt.getSerializedSize() / 2);
+            }
+        }
+        assertEquals(MessageCompression.THRESHOLD * 4 + 1, fh.getCompression().getBytesCompressed());
+
+        msg1.shutdown();
+        msg2.shutdown();
+    }
+
+    public void testBulkConnections() throws Exception {
+        List<HostMessenger.Config> configs = getConfigs(2);
+        HostMessenger msg1 = new HostMessenger(configs.get(0), null);
+        msg1.start();
+        HostMessenger msg2 = new HostMessenger(configs.get(1), null);
+        msg2.start();
+        msg1.waitForGroupJoin(2);
+        msg2.waitForGroupJoin(2);
+
+        msg1.setPartitionGroupPeers(new HashSet<>(Arrays.asList(0, 1)), 2);
+        msg2.setPartitionGroupPeers(new HashSet<>(Arrays.asList(0, 1)), 2);
+        msg1.createAuxiliaryConnections(false);
+        msg2.createAuxiliaryConnections(false);
+        assertEquals(2, msg1.m_foreignHosts.get(msg2.getHostId()).size());
+
+        Mailbox mb1 = msg1.createMailbox();
+        Mailbox mb2 = msg2.createMailbox();
+
+        MsgTest.initWithSize(1024);
+        MsgTest bulk = new MsgTest() {
+            @Override
+            public boolean isBulk() {
+                return true;
+            }
+        };
+        bulk.setValues();
+        MsgTest mt = new MsgTest();
+        mt.setValues();
+        assertTrue(msg1.presend(mb2.getHSId(), bulk).isBulk());
+        assertFalse(msg1.presend(mb2.getHSId(), mt).isBulk());
+        assertTrue(msg1.presend(mb2.getHSId(), mt).isPrimary());
+        // the other host starts using the bulk connection once it accepted it
+        while (!msg2.presend(mb1.getHSId(), bulk).isBulk()) {
+            Thread.sleep(10);
+        }
+
+        // messages reach the mailboxes whatever connection they take
+        mb1.send(mb2.getHSId(), bulk);
+        mb2.send(mb1.getHSId(), bulk);
+        MsgTest mt2 = null;
+        while (mt2 == null) {
+            mt2 = (MsgTest) mb2.recv();
+        }
+        assertTrue(mt2.verify());
+        mt2 = null;
+        while (mt2 == null) {
+            mt2 = (MsgTest) mb1.recv();
+        }
+        assertTrue(mt2.verify());
+
+        msg1.shutdown();
+        msg2.shutdown();
+    }
+
     public void testMultiMailbox() throws Exception {
         List<HostMessenger.Config> configs = getConfigs(3);
         HostMessenger msg1 = new HostMessenger(configs.get(0), null);
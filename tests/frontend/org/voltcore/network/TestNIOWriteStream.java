@@ -50,6 +50,7 @@
 
 package org.voltcore.network;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
@@ -57,11 +58,19 @@ import java.net.UnknownHostException;
 import java.nio.ByteBuffer;
 import java.nio.channels.GatheringByteChannel;
 import java.nio.channels.SelectionKey;
+import java.util.Arrays;
 import java.util.concurrent.atomic.AtomicLong;
 
+import org.voltcore.utils.DeferredSerialization;
 import org.voltcore.utils.EstTime;
 import org.voltcore.utils.EstTimeUpdater;
+import org.voltcore.utils.GatheringDeferredSerialization;
 import org.voltdb.AdmissionControlGroup;
+import org.voltdb.ClientResponseImpl;
+import org.voltdb.PrivateVoltTableFactory;
+import org.voltdb.VoltTable;
+import org.voltdb.VoltType;
+import org.voltdb.client.ClientResponse;
 
 import junit.framework.TestCase;
 
@@ -389,6 +398,121 @@ public class TestNIOWriteStream extends TestCase {
         wstream.shutdown();
     }
 
+    public void testSerializeToNewPooledBuffer() throws IOException {
+        CaptureChannel channel = new CaptureChannel(-1);
+        MockPort port = new MockPort();
+        NIOWriteStream wstream = new NIOWriteStream(port);
+        final boolean[] direct = new boolean[3];
+        // the pool's buffers are 4 bytes, the second message doesn't fit after the first
+        // and the last one doesn't fit in any
+        final int[] sizes = { 3, 3, 5 };
+        for (int i = 0; i < sizes.length; i++) {
+            final int index = i;
+            wstream.enqueue(new DeferredSerialization() {
+                @Override
+                public void serialize(ByteBuffer buf) throws IOException {
+                    direct[index] = buf.isDirect();
+                    for (int j = 0; j < sizes[index]; j++) {
+                        buf.put((byte) (index * 10 + j));
+                    }
+                }
+
+                @Override
+                public void cancel() {
+                }
+
+                @Override
+                public int getSerializedSize() throws IOException {
+                    return sizes[index];
+                }
+            });
+        }
+        wstream.serializeQueuedWrites(pool);
+        assertEquals(11, wstream.drainTo(channel));
+        assertTrue(direct[0]);
+        assertTrue(direct[1]);
+        assertFalse(direct[2]);
+        assertTrue(Arrays.equals(new byte[] { 0, 1, 2, 10, 11, 12, 20, 21, 22, 23, 24 },
+                channel.m_written.toByteArray()));
+        wstream.shutdown();
+    }
+
+    /**
+     * Channel that keeps everything written to it, and whether a direct
+     * buffer of a given size was written to it as is
+     */
+    private static class CaptureChannel extends MockChannel {
+        private final ByteArrayOutputStream m_written = new ByteArrayOutputStream();
+        private final int m_directSize;
+        private boolean m_wroteDirect = false;
+
+        CaptureChannel(int directSize) {
+            super(SINK, 0);
+            m_directSize = directSize;
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            if (src.isDirect() && src.remaining() == m_directSize) {
+                m_wroteDirect = true;
+            }
+            byte[] bytes = new byte[src.remaining()];
+            src.get(bytes);
+            m_written.write(bytes);
+            return bytes.length;
+        }
+    }
+
+    public void testGatheringWrite() throws IOException {
+        final VoltTable heapTable = new VoltTable(new VoltTable.ColumnInfo("foo", VoltType.BIGINT));
+        for (long i = 0; i < 10000; i++) {
+            heapTable.addRow(i);
+        }
+        ByteBuffer tableBuffer = heapTable.getBuffer();
+        final ByteBuffer directBuffer = ByteBuffer.allocateDirect(tableBuffer.remaining());
+        directBuffer.put(tableBuffer);
+        directBuffer.flip();
+        final int directSize = directBuffer.remaining();
+        final VoltTable directTable = PrivateVoltTableFactory.createVoltTableFromBuffer(directBuffer, true);
+        final ClientResponseImpl response = new ClientResponseImpl(ClientResponse.SUCCESS,
+                new VoltTable[] { heapTable, directTable }, "status");
+
+        final ByteBuffer expected = ByteBuffer.allocate(response.getSerializedSize() + 4);
+        expected.putInt(expected.capacity() - 4);
+        response.flattenToBuffer(expected);
+
+        CaptureChannel channel = new CaptureChannel(directSize);
+        MockPort port = new MockPort();
+        NIOWriteStream wstream = new NIOWriteStream(port);
+        wstream.enqueue(new GatheringDeferredSerialization() {
+            @Override
+            public void serialize(ByteBuffer buf) throws IOException {
+                fail("The response should be serialized to buffers");
+            }
+
+            @Override
+            public ByteBuffer[] serializeToBuffers() throws IOException {
+                return response.flattenToBuffers(true);
+            }
+
+            @Override
+            public void cancel() {
+            }
+
+            @Override
+            public int getSerializedSize() throws IOException {
+                return response.getSerializedSize() + 4;
+            }
+        });
+        wstream.serializeQueuedWrites(pool);
+        assertEquals(expected.capacity(), wstream.drainTo(channel));
+        assertTrue(wstream.isEmpty());
+        // the direct table went out as is, and the rest was copied around it
+        assertTrue(channel.m_wroteDirect);
+        assertTrue(Arrays.equals(expected.array(), channel.m_written.toByteArray()));
+        wstream.shutdown();
+    }
+
     public void testLastWriteDelta() throws Exception {
         EstTimeUpdater.pause = true;
         Thread.sleep(10);
@@ -0,0 +1,317 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2017 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltcore.network;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.voltcore.utils.ssl.SSLBufferDecrypter;
+import org.voltcore.utils.ssl.SSLBufferEncrypter;
+import org.voltcore.utils.ssl.SSLConfiguration;
+import org.voltdb.client.TLSHandshaker;
+
+import io.netty_voltpatches.buffer.ByteBuf;
+import io.netty_voltpatches.buffer.Unpooled;
+
+/*
+ * Drive a TLS port by hand over a real loopback connection, and check that the cipher
+ * gateways work through their queued frames in batches that each signal the port once.
+ */
+public class TestTLSVoltPort {
+    private static final String KEYSTORE_RESOURCE = "/org/voltdb/keystore";
+    private static final String KEYSTORE_PASSWD = "password";
+    private static final int MESSAGE_COUNT = 40;
+    private static final long TIMEOUT_MILLIS = 10000;
+
+    private final LinkedBlockingQueue<ByteBuffer> m_messages = new LinkedBlockingQueue<>();
+    private SocketChannel m_client;
+    private SSLEngine m_clientEngine;
+    private Selector m_selector;
+    private SignalCountingPort m_port;
+
+    private class MockInputHandler extends VoltProtocolHandler {
+        @Override
+        public int getMaxRead() {
+            return Integer.MAX_VALUE;
+        }
+
+        @Override
+        public void handleMessage(ByteBuffer message, Connection c) {
+            m_messages.offer(message);
+        }
+
+        @Override
+        public Runnable offBackPressure() {
+            return new Runnable() {
+                @Override
+                public void run() {}
+            };
+        }
+
+        @Override
+        public Runnable onBackPressure() {
+            return new Runnable() {
+                @Override
+                public void run() {}
+            };
+        }
+
+        @Override
+        public QueueMonitor writestreamMonitor() {
+            return null;
+        }
+    }
+
+    // count the signals the encrypt and decrypt gateways send to the port
+    private static class SignalCountingPort extends TLSVoltPort {
+        final AtomicInteger m_signals = new AtomicInteger();
+
+        SignalCountingPort(VoltNetwork network, InputHandler handler, InetSocketAddress remoteAddress,
+                SSLEngine sslEngine) {
+            super(network, handler, remoteAddress, network.m_pool, sslEngine, CipherExecutor.SERVER);
+        }
+
+        @Override
+        protected void enableWriteSelection() {
+            m_signals.incrementAndGet();
+            super.enableWriteSelection();
+        }
+    }
+
+    @BeforeClass
+    public static void startCipherService() {
+        CipherExecutor.SERVER.startup();
+    }
+
+    @AfterClass
+    public static void stopCipherService() {
+        CipherExecutor.SERVER.shutdown();
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        String keystore = getClass().getResource(KEYSTORE_RESOURCE).getPath();
+        SSLContext sslContext = SSLConfiguration.createSslContext(
+                new SSLConfiguration.SslConfig(keystore, KEYSTORE_PASSWD, keystore, KEYSTORE_PASSWD));
+
+        ServerSocketChannel listener = ServerSocketChannel.open();
+        listener.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        m_client = SocketChannel.open(listener.getLocalAddress());
+        final SocketChannel server = listener.accept();
+        listener.close();
+
+        final SSLEngine serverEngine = sslContext.createSSLEngine();
+        serverEngine.setUseClientMode(false);
+        serverEngine.setEnabledProtocols(new String[] { "TLSv1.2" });
+        m_clientEngine = sslContext.createSSLEngine("client", server.socket().getLocalPort());
+        m_clientEngine.setUseClientMode(true);
+        m_clientEngine.setEnabledProtocols(new String[] { "TLSv1.2" });
+
+        ExecutorService es = Executors.newSingleThreadExecutor();
+        try {
+            Future<Boolean> serverHandshake = es.submit(new Callable<Boolean>() {
+                @Override
+                public Boolean call() throws Exception {
+                    return new TLSHandshaker(server, serverEngine).handshake();
+                }
+            });
+            assertTrue(new TLSHandshaker(m_client, m_clientEngine).handshake());
+            assertTrue(serverHandshake.get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+        } finally {
+            es.shutdown();
+        }
+
+        VoltNetwork network = new VoltNetwork(0, null, "Test");
+        m_port = new SignalCountingPort(network, new MockInputHandler(),
+                (InetSocketAddress)server.getRemoteAddress(), serverEngine);
+        server.configureBlocking(false);
+        m_selector = Selector.open();
+        m_port.setKey(server.register(m_selector, SelectionKey.OP_READ));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        m_port.unregistered();
+        m_selector.close();
+        m_client.close();
+    }
+
+    private static ByteBuffer message(int index, int size) {
+        ByteBuffer message = ByteBuffer.allocate(4 + size);
+        message.putInt(size).putInt(index);
+        while (message.hasRemaining()) {
+            message.put((byte)index);
+        }
+        return (ByteBuffer)message.flip();
+    }
+
+    private static void assertMessage(int index, int size, ByteBuffer message) {
+        assertEquals(size, message.remaining());
+        assertEquals(index, message.getInt());
+        while (message.hasRemaining()) {
+            assertEquals((byte)index, message.get());
+        }
+    }
+
+    // what the network does when it selects the port
+    private void runPort() throws IOException {
+        m_selector.selectNow();
+        m_selector.selectedKeys().clear();
+        m_port.lockForHandlingWork();
+        m_port.run();
+    }
+
+    private void awaitSignals(int expected) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (m_port.m_signals.get() < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, m_port.m_signals.get());
+    }
+
+    private static int batches(int frames) {
+        return (frames + CipherExecutor.MAX_BATCH_FRAMES - 1) / CipherExecutor.MAX_BATCH_FRAMES;
+    }
+
+    @Test
+    public void testDecryptBatchesSignalOnce() throws Exception {
+        final int payloadSize = 100;
+        final int packetSize = m_clientEngine.getSession().getPacketBufferSize();
+
+        // every message goes in a TLS record of its own, so that each is one decrypt frame
+        SSLBufferEncrypter encrypter = new SSLBufferEncrypter(m_clientEngine);
+        ByteBuffer records = ByteBuffer.allocate(MESSAGE_COUNT * packetSize);
+        for (int i = 0; i < MESSAGE_COUNT; ++i) {
+            ByteBuffer record = ByteBuffer.allocate(packetSize);
+            encrypter.tlswrap(message(i, payloadSize), record);
+            records.put(record);
+        }
+        records.flip();
+        final int recordsSize = records.remaining();
+        assertTrue(recordsSize < CipherExecutor.FRAME_SIZE);
+        while (records.hasRemaining()) {
+            m_client.write(records);
+        }
+
+        // hold the gateway until the port has offered it all the frames, so that it finds them
+        // all queued up once it is done with the first one
+        synchronized (m_port.m_dcryptgw) {
+            final long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+            while (m_port.readStream().getBytesRead(false) < recordsSize) {
+                assertTrue(System.currentTimeMillis() < deadline);
+                m_selector.select(10);
+                runPort();
+            }
+        }
+        awaitSignals(batches(MESSAGE_COUNT));
+
+        runPort();
+        assertEquals(MESSAGE_COUNT, m_messages.size());
+        for (int i = 0; i < MESSAGE_COUNT; ++i) {
+            assertMessage(i, payloadSize, m_messages.poll());
+        }
+        assertEquals(batches(MESSAGE_COUNT), m_port.m_signals.get());
+    }
+
+    @Test
+    public void testEncryptBatchesSignalOnce() throws Exception {
+        // two messages fill a frame past the coalescing threshold, but three overflow it,
+        // so every pair of messages is encrypted as a frame of its own
+        final int payloadSize = CipherExecutor.FRAME_SIZE * 2 / 5;
+        final int frames = MESSAGE_COUNT / 2;
+        final int totalSize = MESSAGE_COUNT * (4 + payloadSize);
+
+        ExecutorService es = Executors.newSingleThreadExecutor();
+        try {
+            Future<ByteBuffer> received = es.submit(new Callable<ByteBuffer>() {
+                @Override
+                public ByteBuffer call() throws Exception {
+                    SSLBufferDecrypter decrypter = new SSLBufferDecrypter(m_clientEngine);
+                    ByteBuf record = Unpooled.buffer(m_clientEngine.getSession().getPacketBufferSize());
+                    ByteBuffer clear = ByteBuffer.allocate(m_clientEngine.getSession().getApplicationBufferSize());
+                    ByteBuffer received = ByteBuffer.allocate(totalSize);
+                    while (received.hasRemaining()) {
+                        record.clear();
+                        if (!decrypter.readTLSFrame(m_client, record)) continue;
+                        clear.clear();
+                        decrypter.tlsunwrap(record.nioBuffer(), clear);
+                        received.put(clear);
+                    }
+                    return (ByteBuffer)received.flip();
+                }
+            });
+
+            TLSNIOWriteStream writeStream = (TLSNIOWriteStream)m_port.writeStream();
+            for (int i = 0; i < MESSAGE_COUNT; ++i) {
+                writeStream.enqueue(message(i, payloadSize));
+            }
+            // hold the gateway until it is offered all the frames, as in the decrypt test
+            synchronized (writeStream.m_ecryptgw) {
+                writeStream.serializeQueuedWrites(null);
+            }
+            awaitSignals(batches(frames));
+
+            final long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+            while (!writeStream.isEmpty()) {
+                assertTrue(System.currentTimeMillis() < deadline);
+                runPort();
+            }
+            ByteBuffer messages = received.get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            for (int i = 0; i < MESSAGE_COUNT; ++i) {
+                assertEquals(payloadSize, messages.getInt());
+                ByteBuffer message = messages.slice();
+                message.limit(payloadSize);
+                assertMessage(i, payloadSize, message);
+                messages.position(messages.position() + payloadSize);
+            }
+            assertEquals(batches(frames), m_port.m_signals.get());
+        } finally {
+            es.shutdownNow();
+        }
+    }
+}
@@ -142,6 +142,7 @@ public class TestVoltNetwork extends TestCase {
         @Override
         public SelectionKey interestOps(int interestOps) {
             m_interestOps = interestOps;
+            m_interestOpsChanges++;
             return this;
         }
 
@@ -166,6 +167,7 @@ public class TestVoltNetwork extends TestCase {
         }
 
         public int m_interestOps;
+        public int m_interestOpsChanges;
         public int m_readyOps;
         public Object m_fakeAttachment;
     }
@@ -289,6 +291,32 @@ public class TestVoltNetwork extends TestCase {
         assertEquals(SelectionKey.OP_ACCEPT, vp.readyOps());
     }
 
+    public void testInterestsOnlyChangedWhenDifferent() throws Exception {
+        MockSelector selector = new MockSelector();
+        VoltNetwork vn = new VoltNetwork(selector);
+        MockVoltPort vp = new MockVoltPort(vn, new MockInputHandler());
+        MockSelectionKey selectionKey = new MockSelectionKey();
+        selectionKey.interestOps(SelectionKey.OP_READ);
+        selector.setFakeKey(selectionKey);
+        vp.m_selectionKey = selectionKey;
+        selectionKey.attach(vp);
+        selectionKey.readyOps(SelectionKey.OP_READ);
+        vp.setInterests(SelectionKey.OP_READ, 0);
+
+        // running a port that keeps its interests leaves the key alone
+        selectionKey.m_interestOpsChanges = 0;
+        vn.invokeCallbacks(ThreadLocalRandom.current());
+        vn.invokeCallbacks(ThreadLocalRandom.current());
+        assertEquals(0, selectionKey.m_interestOpsChanges);
+        assertEquals(SelectionKey.OP_READ, selectionKey.interestOps());
+
+        vp.setInterests(SelectionKey.OP_WRITE, 0);
+        vn.invokeCallbacks(ThreadLocalRandom.current());
+        assertEquals(1, selectionKey.m_interestOpsChanges);
+        assertEquals(SelectionKey.OP_READ | SelectionKey.OP_WRITE, selectionKey.interestOps());
+        vn.shutdown();
+    }
+
     public void testInvokeCallbacks() throws Exception {
         MockSelector selector = new MockSelector();
         VoltNetwork vn = new VoltNetwork(selector);               // network with fake selector
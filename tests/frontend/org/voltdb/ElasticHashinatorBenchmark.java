@@ -0,0 +1,62 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2017 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb;
+
+import com.sun.japex.TestCase;
+
+/**
+ * Japex driver for routing: the partition of a procedure call from its
+ * partitioning parameter, as the client and the ClientInterface compute it.
+ * Each iteration hashes {@code keys} BIGINT keys and as many VARCHAR keys.
+ */
+public class ElasticHashinatorBenchmark extends HotPathJapexDriver {
+
+    private ElasticHashinator m_hashinator;
+    private Long[] m_longKeys;
+    private String[] m_stringKeys;
+
+    @Override
+    public void prepare(TestCase testCase) {
+        final int partitions = testCase.hasParam("partitions") ? testCase.getIntParam("partitions") : 24;
+        final int keys = testCase.hasParam("keys") ? testCase.getIntParam("keys") : 1000;
+        m_hashinator = new ElasticHashinator(
+                ElasticHashinator.getConfigureBytes(partitions, ElasticHashinator.DEFAULT_TOTAL_TOKENS), false);
+        m_longKeys = new Long[keys];
+        m_stringKeys = new String[keys];
+        for (int i = 0; i < keys; i++) {
+            m_longKeys[i] = (long) i * 7919;
+            m_stringKeys[i] = "key-" + i;
+        }
+    }
+
+    @Override
+    public void run(TestCase testCase) {
+        for (Long key : m_longKeys) {
+            m_sink += m_hashinator.getHashedPartitionForParameter(VoltType.BIGINT.getValue(), key);
+        }
+        for (String key : m_stringKeys) {
+            m_sink += m_hashinator.getHashedPartitionForParameter(VoltType.STRING.getValue(), key);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2017 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb;
+
+import com.sun.japex.JapexDriverBase;
+import com.sun.japex.TestCase;
+
+/**
+ * Base of the Japex drivers in hotpath-benchmarks.xml. A driver adds what each
+ * iteration computes to {@code m_sink}, which is published when the driver
+ * finishes, so that the JIT cannot drop the measured work as dead code.
+ */
+public abstract class HotPathJapexDriver extends JapexDriverBase {
+
+    // Written by every driver as it finishes and never read
+    public static volatile long s_published;
+
+    protected long m_sink;
+
+    @Override
+    public void finish(TestCase testCase) {
+        s_published = m_sink;
+    }
+}
@@ -0,0 +1,99 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2017 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+
+import org.voltdb.types.TimestampType;
+
+/**
+ * Compares the time and the heap allocated per call to serialize procedure
+ * parameters through a ParameterSet and through the ParameterEncoder. Both
+ * write into one reused buffer, so only the serialization itself allocates.
+ *
+ * Run with: java -cp obj/release/prod:obj/release/test:lib/* org.voltdb.ParameterEncoderMicrobench
+ */
+public class ParameterEncoderMicrobench {
+
+    static abstract class Runner {
+        final String m_name;
+        Runner(String name) {
+            m_name = name;
+        }
+        abstract void run(Object[] params, ByteBuffer buf) throws Exception;
+    }
+
+    public static void main(String[] args) throws Exception {
+        final int iterations = 5000000;
+        final com.sun.management.ThreadMXBean threadBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        final long threadId = Thread.currentThread().getId();
+
+        final Object[][] paramSets = {
+                { 1L, 2L, 3 },
+                { 1L, "String c_first", "String c_last", 0.5, new TimestampType(0) },
+                { new long[] { 1, 2, 3, 4 }, new byte[64] }
+        };
+        final Runner[] runners = {
+                new Runner("ParameterSet") {
+                    @Override
+                    void run(Object[] params, ByteBuffer buf) throws Exception {
+                        ParameterSet pset = ParameterSet.fromArrayWithCopy(params);
+                        pset.getSerializedSize();
+                        pset.flattenToBuffer(buf);
+                    }
+                },
+                new Runner("ParameterEncoder") {
+                    @Override
+                    void run(Object[] params, ByteBuffer buf) throws Exception {
+                        ParameterEncoder.getSerializedSize(params);
+                        ParameterEncoder.flattenToBuffer(params, buf);
+                    }
+                }
+        };
+
+        ByteBuffer buf = ByteBuffer.allocate(1024);
+        for (Object[] params : paramSets) {
+            for (Runner runner : runners) {
+                // warm up
+                for (int i = 0; i < iterations; i++) {
+                    buf.clear();
+                    runner.run(params, buf);
+                }
+
+                final long startBytes = threadBean.getThreadAllocatedBytes(threadId);
+                final long startTime = System.nanoTime();
+                for (int i = 0; i < iterations; i++) {
+                    buf.clear();
+                    runner.run(params, buf);
+                }
+                final long time = System.nanoTime() - startTime;
+                final long bytes = threadBean.getThreadAllocatedBytes(threadId) - startBytes;
+                System.out.printf("%-16s %d params: %6.1f ns/call %8.1f bytes allocated/call%n",
+                        runner.m_name, params.length, (double) time / iterations, (double) bytes / iterations);
+            }
+        }
+    }
+}
@@ -0,0 +1,61 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2017 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.voltdb.types.TimestampType;
+
+import com.sun.japex.TestCase;
+
+/**
+ * Japex driver for a procedure's parameters going over the wire and back:
+ * a ParameterSet is built from the call's arguments, flattened, and read back
+ * as the server does. Each iteration is one round trip.
+ */
+public class ParameterSetBenchmark extends HotPathJapexDriver {
+
+    private final Object[] m_params = {
+            1L, 2, "String c_first", "String c_last", 0.5, new TimestampType(0),
+            new long[] { 1, 2, 3, 4 }, new byte[64] };
+    private ByteBuffer m_buffer;
+
+    @Override
+    public void prepare(TestCase testCase) {
+        m_buffer = ByteBuffer.allocate(ParameterSet.fromArrayNoCopy(m_params).getSerializedSize());
+    }
+
+    @Override
+    public void run(TestCase testCase) {
+        try {
+            m_buffer.clear();
+            ParameterSet.fromArrayWithCopy(m_params).flattenToBuffer(m_buffer);
+            m_buffer.flip();
+            m_sink += ParameterSet.fromByteBuffer(m_buffer).size();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2017 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.json_voltpatches.JSONObject;
+import org.voltdb.common.Constants;
+import org.voltdb.types.TimestampType;
+import org.voltdb.types.VoltDecimalHelper;
+
+import junit.framework.TestCase;
+
+public class TestParameterEncoder extends TestCase {
+
+    // The encoder must produce exactly what a ParameterSet produces
+    private static void assertEncodesLikeParameterSet(Object... params) throws Exception {
+        ParameterSet pset = ParameterSet.fromArrayWithCopy(params);
+        ByteBuffer expected = ByteBuffer.allocate(pset.getSerializedSize());
+        pset.flattenToBuffer(expected);
+
+        int size = ParameterEncoder.getSerializedSize(params);
+        assertEquals(pset.getSerializedSize(), size);
+        ByteBuffer actual = ByteBuffer.allocate(size);
+        ParameterEncoder.flattenToBuffer(params, actual);
+        assertFalse(actual.hasRemaining());
+        assertTrue(Arrays.equals(expected.array(), actual.array()));
+
+        expected.flip();
+        actual.flip();
+        assertEquals(ParameterSet.fromByteBuffer(expected), ParameterSet.fromByteBuffer(actual));
+    }
+
+    public void testScalars() throws Exception {
+        assertEncodesLikeParameterSet();
+        assertEncodesLikeParameterSet(1L, Long.MIN_VALUE, 2, (short) 3, (byte) 4, 5.5, 6.5f);
+        assertEncodesLikeParameterSet(new TimestampType(123456789L), null, JSONObject.NULL,
+                new BigDecimal(7654321).setScale(VoltDecimalHelper.kDefaultScale),
+                VoltType.NULL_TIMESTAMP, VoltType.NULL_STRING_OR_VARBINARY, VoltType.NULL_DECIMAL);
+    }
+
+    public void testArrays() throws Exception {
+        assertEncodesLikeParameterSet(new byte[] { 1, 2, 3 }, new byte[0], new long[] { 1, Long.MAX_VALUE },
+                new int[] { 1, 2 }, new short[] { 3 }, new double[] { 4.5, 5.5 }, new long[0]);
+    }
+
+    public void testStrings() throws Exception {
+        // ASCII, two and three byte characters, a surrogate pair, and unpaired surrogates
+        String[] strings = { "", "ABCDE", "café", "日本語", "😀",
+                "a\ud83db", "\ude00", "x\ud83d", "\ud83d😀" };
+        for (String string : strings) {
+            assertEquals(string.getBytes(Constants.UTF8ENCODING).length, ParameterEncoder.getUTF8Length(string));
+            assertEncodesLikeParameterSet(string, 1L);
+        }
+    }
+
+    public void testUnsupportedTypes() throws Exception {
+        assertEquals(-1, ParameterEncoder.getSerializedSize(new Object[] { 1L, new String[] { "a" } }));
+        assertEquals(-1, ParameterEncoder.getSerializedSize(new Object[] { new java.util.Date() }));
+        assertEquals(-1, ParameterEncoder.getSerializedSize(new Object[] {
+                new VoltTable(new VoltTable.ColumnInfo("foo", VoltType.INTEGER)) }));
+    }
+
+    public void testParameterAtIndexSkipsParameters() throws Exception {
+        Object[] params = { "skipped", 1L, (byte) 2, new long[] { 3, 4 }, VoltType.NULL_STRING_OR_VARBINARY,
+                new BigDecimal(5).setScale(VoltDecimalHelper.kDefaultScale), new TimestampType(6), null, 7 };
+        ParameterSet pset = ParameterSet.fromArrayWithCopy(params);
+        ByteBuffer buf = ByteBuffer.allocate(pset.getSerializedSize());
+        pset.flattenToBuffer(buf);
+        buf.flip();
+        for (int i = 0; i < params.length; i++) {
+            Object param = ParameterSet.getParameterAtIndex(i, buf);
+            if (params[i] instanceof long[]) {
+                assertTrue(Arrays.equals((long[]) params[i], (long[]) param));
+            }
+            else {
+                assertEquals(params[i], param);
+            }
+            assertEquals(0, buf.position());
+        }
+    }
+}
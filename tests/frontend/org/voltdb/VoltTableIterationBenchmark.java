@@ -0,0 +1,64 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2017 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb;
+
+import org.voltdb.types.TimestampType;
+
+import com.sun.japex.TestCase;
+
+/**
+ * Japex driver that walks every row of a result table, the way a client reads
+ * a SELECT result, with one getter per column. Each iteration is one pass over
+ * a table of {@code rows} rows.
+ */
+public class VoltTableIterationBenchmark extends HotPathJapexDriver {
+
+    private VoltTable m_table;
+
+    @Override
+    public void prepare(TestCase testCase) {
+        final int rows = testCase.hasParam("rows") ? testCase.getIntParam("rows") : 1000;
+        VoltTable table = new VoltTable(
+                new VoltTable.ColumnInfo("id", VoltType.BIGINT),
+                new VoltTable.ColumnInfo("name", VoltType.STRING),
+                new VoltTable.ColumnInfo("balance", VoltType.FLOAT),
+                new VoltTable.ColumnInfo("updated", VoltType.TIMESTAMP));
+        for (int i = 0; i < rows; i++) {
+            table.addRow(i, "customer-" + i, i * 1.5, new TimestampType(i));
+        }
+        // read it the way the client does, from a deserialized buffer
+        m_table = PrivateVoltTableFactory.createVoltTableFromBuffer(table.getBuffer(), true);
+    }
+
+    @Override
+    public void run(TestCase testCase) {
+        m_table.resetRowPosition();
+        while (m_table.advanceRow()) {
+            m_sink += m_table.getLong(0);
+            m_sink += m_table.getString(1).length();
+            m_sink += (long) m_table.getDouble(2);
+            m_sink += m_table.getTimestampAsLong(3);
+        }
+    }
+}
@@ -368,4 +368,36 @@ public class MockVoltClient implements Client {
         // TODO Auto-generated method stub
         return false;
     }
+
+    @Override
+    public ProcedureHandle prepare(String procName) {
+        // TODO Auto-generated method stub
+        return null;
+    }
+
+    @Override
+    public ResultStream callProcedureStreaming(String procName, Object... parameters)
+            throws IOException, NoConnectionsException, ProcCallException {
+        // TODO Auto-generated method stub
+        return null;
+    }
+
+    @Override
+    public ProcedureFuture<ClientResponse> callProcedureAsync(String procName, Object... parameters) {
+        // TODO Auto-generated method stub
+        return null;
+    }
+
+    @Override
+    public ProcedureFuture<List<ClientResponse>> callProceduresAsync(String procName, List<Object[]> parameterSets) {
+        // TODO Auto-generated method stub
+        return null;
+    }
+
+    @Override
+    public ProcedureFuture<ClientResponseWithPartitionKey[]> callAllPartitionProcedureAsync(String procedureName,
+            Object... params) {
+        // TODO Auto-generated method stub
+        return null;
+    }
 }
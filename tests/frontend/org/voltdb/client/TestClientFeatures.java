@@ -26,11 +26,16 @@ package org.voltdb.client;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.net.UnknownHostException;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Random;
+import java.util.concurrent.Callable;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -42,6 +47,8 @@ import org.voltdb.VoltTable;
 import org.voltdb.compiler.CatalogBuilder;
 import org.voltdb.compiler.DeploymentBuilder;
 
+import com.google_voltpatches.common.util.concurrent.MoreExecutors;
+
 import junit.framework.TestCase;
 
 public class TestClientFeatures extends TestCase {
@@ -176,6 +183,59 @@ public class TestClientFeatures extends TestCase {
         assertEquals(ClientResponse.SUCCESS, response.getStatus());
     }
 
+    public void testCallProcedureAsync() throws Exception {
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        final AtomicBoolean completedOnExecutor = new AtomicBoolean(false);
+        final long executorThreadId = executor.submit(new Callable<Long>() {
+            @Override
+            public Long call() {
+                return Thread.currentThread().getId();
+            }
+        }).get();
+
+        ClientConfig config = new ClientConfig();
+        config.setCallbackExecutor(executor);
+        Client client = ClientFactory.createClient(config);
+        client.createConnection("localhost");
+
+        final ProcedureFuture<ClientResponse> future = client.callProcedureAsync("ArbitraryDurationProc", 0);
+        future.addListener(new Runnable() {
+            @Override
+            public void run() {
+                completedOnExecutor.set(Thread.currentThread().getId() == executorThreadId);
+            }
+        }, MoreExecutors.directExecutor());
+        assertEquals(ClientResponse.SUCCESS, future.get().getStatus());
+        executor.submit(new Runnable() { @Override public void run() {} }).get();
+        assertTrue(completedOnExecutor.get());
+
+        // a failed procedure still completes the future, with its response
+        assertFalse(ClientResponse.SUCCESS ==
+                client.callProcedureAsync("ArbitraryDurationProc", "not a number").get().getStatus());
+
+        List<ClientResponse> responses = client.callProceduresAsync("ArbitraryDurationProc",
+                Arrays.asList(new Object[] { 0 }, new Object[] { 1 }, new Object[] { 2 })).get();
+        assertEquals(3, responses.size());
+        for (ClientResponse response : responses) {
+            assertEquals(ClientResponse.SUCCESS, response.getStatus());
+        }
+
+        // once the executor rejects the completions, they happen on the network thread instead
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+        assertEquals(ClientResponse.SUCCESS,
+                client.callProcedureAsync("ArbitraryDurationProc", 0).get(1, TimeUnit.MINUTES).getStatus());
+
+        client.close();
+        try {
+            client.callProcedureAsync("ArbitraryDurationProc", 0).get();
+            fail();
+        }
+        catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof ProcCallException);
+        }
+    }
+
     public void testMaxTimeout() throws NoConnectionsException, IOException, ProcCallException {
         CSL csl = new CSL();
 
@@ -23,35 +23,51 @@
 
 package org.voltdb.client;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.PrintStream;
 import java.net.InetSocketAddress;
 import java.net.UnknownHostException;
 import java.nio.ByteBuffer;
 import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
+import org.HdrHistogram_voltpatches.Histogram;
+import org.HdrHistogram_voltpatches.HistogramLogReader;
+import org.HdrHistogram_voltpatches.HistogramLogWriter;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
 import org.voltcore.network.Connection;
 import org.voltcore.network.QueueMonitor;
 import org.voltcore.network.ReverseDNSCache;
 import org.voltcore.network.VoltNetworkPool;
 import org.voltcore.network.VoltProtocolHandler;
+import org.voltcore.network.WriteStream;
 import org.voltdb.ClientResponseImpl;
 import org.voltdb.StoredProcedureInvocation;
 import org.voltdb.VoltTable;
 import org.voltdb.VoltType;
+import org.voltdb.common.Constants;
 
 import junit.framework.TestCase;
 
 public class TestDistributer extends TestCase {
 
+    static final int EXTRACT_ROWS = 10000;
+
     class MockInputHandler extends VoltProtocolHandler {
 
         volatile boolean gotPing = false;
@@ -86,6 +102,13 @@ public class TestDistributer extends TestCase {
                         invokedTopology.release();
                     } else if (proc.equals("@SystemCatalog")) {
                         invokedSystemInformation.release();
+                    } else if (proc.equals("Extract")) {
+                        vt = new VoltTable[1];
+                        vt[0] = new VoltTable(new VoltTable.ColumnInfo("Id", VoltType.BIGINT),
+                                new VoltTable.ColumnInfo("Name", VoltType.STRING));
+                        for (int i = 0; i < EXTRACT_ROWS; i++) {
+                            vt[0].addRow(i, "Row " + i);
+                        }
                     } else {
                         vt = new VoltTable[1];
                         vt[0] = new VoltTable(new VoltTable.ColumnInfo("Foo", VoltType.BIGINT));
@@ -99,11 +122,17 @@ public class TestDistributer extends TestCase {
                         response = new ClientResponseImpl(ClientResponseImpl.SUCCESS, vt,
                                 "Extra String", spi.getClientHandle());
                     }
-                    ByteBuffer buf = ByteBuffer.allocate(4 + response.getSerializedSize());
-                    buf.putInt(buf.capacity() - 4);
-                    response.flattenToBuffer(buf);
-                    buf.clear();
-                    c.writeStream().enqueue(buf);
+                    int size = response.getSerializedSize();
+                    if (spi.getStreamFrameSize() > 0 && 4 + size > spi.getStreamFrameSize()) {
+                        c.writeStream().enqueue(response.flattenToStreamedFrames(spi.getStreamFrameSize()));
+                    }
+                    else {
+                        ByteBuffer buf = ByteBuffer.allocate(4 + size);
+                        buf.putInt(buf.capacity() - 4);
+                        response.flattenToBuffer(buf);
+                        buf.clear();
+                        c.writeStream().enqueue(buf);
+                    }
                     roundTrips.incrementAndGet();
                     System.err.println("Sending response.");
                 }
@@ -890,6 +919,283 @@ public class TestDistributer extends TestCase {
        }
     }
 
+    @Test
+    public void testClientPrepared() throws Exception {
+       if (ClientConfig.ENABLE_SSL_FOR_TEST) return;
+       // TODO: write a mock server that can grock ssl
+       MockVolt volt = null;
+
+       try {
+           // create a fake server and connect to it.
+           volt = new MockVolt(21212);
+           volt.start();
+
+           Client clt = ClientFactory.createClient();
+           clt.createConnection("localhost");
+
+           // a prepared procedure is called like any other, as many times as needed
+           ProcedureHandle foo = clt.prepare("Foo");
+           assertEquals("Foo", foo.getProcedureName());
+           assertEquals(1, foo.call(new Integer(1)).getResults()[0].asScalarLong());
+           assertEquals(1, foo.call(new Integer(2)).getResults()[0].asScalarLong());
+           assertEquals(6, volt.handler.roundTrips.get());
+
+           ProcedureHandle bar = clt.prepare("Bar");
+           for (int i = 0; i < 100; i++) {
+               assertTrue(bar.call(new ProcCallback(), new Integer(i)));
+           }
+           clt.drain();
+           assertEquals(106, volt.handler.roundTrips.get());
+
+           try {
+               clt.prepare("");
+               fail();
+           }
+           catch (IllegalArgumentException expected) {}
+       }
+       finally {
+           if (volt != null) {
+               volt.shutdown();
+           }
+       }
+    }
+
+    @Test
+    public void testClientStatsLatencyLog() throws Exception {
+       if (ClientConfig.ENABLE_SSL_FOR_TEST) return;
+       // TODO: write a mock server that can grock ssl
+       MockVolt volt = null;
+
+       try {
+           // create a fake server and connect to it.
+           volt = new MockVolt(21212);
+           volt.start();
+
+           Client clt = ClientFactory.createClient();
+           clt.createConnection("localhost");
+
+           // intervals are logged relative to a base time from before they start
+           ByteArrayOutputStream log = new ByteArrayOutputStream();
+           HistogramLogWriter writer = new HistogramLogWriter(new PrintStream(log));
+           writer.setBaseTime(System.currentTimeMillis());
+           writer.outputLegend();
+           ClientStatsContext context = clt.createStatsContext();
+
+           // each interval logs the latencies of the calls completed during it
+           final int[] callsPerInterval = { 100, 0, 50 };
+           for (int calls : callsPerInterval) {
+               for (int i = 0; i < calls; i++) {
+                   clt.callProcedure("Foo", new Integer(i));
+               }
+               // the client's own calls to the server are left out
+               ClientStats stats = context.fetchAndResetBaseline().getStatsByProc().get("Foo");
+               assertEquals(calls, stats.getInvocationsCompleted());
+               stats.writeLatencyHistogramLog(writer);
+           }
+
+           HistogramLogReader reader = new HistogramLogReader(new ByteArrayInputStream(log.toByteArray()));
+           for (int calls : callsPerInterval) {
+               Histogram interval = (Histogram) reader.nextIntervalHistogram();
+               assertEquals(calls, interval.getTotalCount());
+           }
+           assertNull(reader.nextIntervalHistogram());
+
+           // a context created later still counts every call
+           assertEquals(150, clt.createStatsContext().getStatsForProcedure("Foo").getInvocationsCompleted());
+       }
+       finally {
+           if (volt != null) {
+               volt.shutdown();
+           }
+       }
+    }
+
+    @Test
+    public void testClientRequestLinger() throws Exception {
+       if (ClientConfig.ENABLE_SSL_FOR_TEST) return;
+       // TODO: write a mock server that can grock ssl
+       MockVolt volt = null;
+
+       try {
+           // create a fake server and connect to it.
+           volt = new MockVolt(21212);
+           volt.start();
+
+           ClientConfig config = new ClientConfig();
+           config.setRequestLingerTime(2000);
+           Client clt = ClientFactory.createClient(config);
+           clt.createConnection("localhost");
+
+           // invocations held back by the linger are all written and answered, how they are
+           // batched is checked against a mock write stream by testRequestLingerBatchesWrites
+           clt.callProcedure("Foo", new Integer(1));
+           assertEquals(5, volt.handler.roundTrips.get());
+           for (int i = 0; i < 1000; i++) {
+               clt.callProcedure(new ProcCallback(), "Bar", new Integer(i));
+           }
+           clt.drain();
+           assertEquals(1005, volt.handler.roundTrips.get());
+       }
+       finally {
+           if (volt != null) {
+               volt.shutdown();
+           }
+       }
+    }
+
+    private void createWork(Distributer.NodeConnection cxn, long handle, int size) {
+        cxn.createWork(System.nanoTime(), handle, "Foo", ByteBuffer.allocate(size), new ProcCallback(),
+                true, TimeUnit.MINUTES.toNanos(10));
+    }
+
+    public void testRequestLingerBatchesWrites() throws Exception {
+        Distributer dist = new Distributer();
+        try {
+            final long lingerMillis = 1000;
+            dist.setRequestLinger(TimeUnit.MILLISECONDS.toNanos(lingerMillis));
+            WriteStream writeStream = Mockito.mock(WriteStream.class);
+            Distributer.NodeConnection cxn = mockNodeConnection(dist, writeStream, 0);
+
+            // The invocations are held back until the linger expires
+            final long start = System.nanoTime();
+            for (int i = 0; i < 10; i++) {
+                createWork(cxn, i, 100);
+            }
+            Mockito.verify(writeStream, Mockito.never()).enqueue(Mockito.any(ByteBuffer[].class));
+
+            // then they are all queued as one frame
+            ArgumentCaptor<ByteBuffer[]> frame = ArgumentCaptor.forClass(ByteBuffer[].class);
+            Mockito.verify(writeStream, Mockito.timeout(10000)).enqueue(frame.capture());
+            assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(lingerMillis));
+            assertEquals(10, frame.getValue().length);
+            for (int i = 0; i < 10; i++) {
+                assertEquals(100, frame.getValue()[i].remaining());
+            }
+            Mockito.verify(writeStream, Mockito.never()).enqueue(Mockito.any(ByteBuffer.class));
+        }
+        finally {
+            dist.shutdown();
+        }
+    }
+
+    public void testRequestLingerFlushesFullBatch() throws Exception {
+        Distributer dist = new Distributer();
+        try {
+            // The linger never expires during the test, only a full batch is written
+            dist.setRequestLinger(TimeUnit.MINUTES.toNanos(10));
+            WriteStream writeStream = Mockito.mock(WriteStream.class);
+            Distributer.NodeConnection cxn = mockNodeConnection(dist, writeStream, 0);
+
+            final int size = Distributer.MAX_BATCHED_WRITE_BYTES / 4;
+            for (int i = 0; i < 3; i++) {
+                createWork(cxn, i, size);
+            }
+            Mockito.verify(writeStream, Mockito.never()).enqueue(Mockito.any(ByteBuffer[].class));
+
+            // The invocation that fills the batch writes it at once, the next one starts a new batch
+            createWork(cxn, 3, size);
+            createWork(cxn, 4, size);
+            ArgumentCaptor<ByteBuffer[]> frame = ArgumentCaptor.forClass(ByteBuffer[].class);
+            Mockito.verify(writeStream).enqueue(frame.capture());
+            assertEquals(4, frame.getValue().length);
+            Mockito.verify(writeStream, Mockito.never()).enqueue(Mockito.any(ByteBuffer.class));
+        }
+        finally {
+            dist.shutdown();
+        }
+    }
+
+    @Test
+    public void testClientStreaming() throws Exception {
+       if (ClientConfig.ENABLE_SSL_FOR_TEST) return;
+       // TODO: write a mock server that can grock ssl
+       MockVolt volt = null;
+
+       try {
+           // create a fake server and connect to it.
+           volt = new MockVolt(21212);
+           volt.start();
+
+           ClientConfig config = new ClientConfig();
+           config.setStreamingFrameSize(4096);
+           Client clt = ClientFactory.createClient(config);
+           clt.createConnection("localhost");
+
+           // a large response arrives in chunks no larger than a frame
+           ResultStream stream = clt.callProcedureStreaming("Extract");
+           assertEquals(ClientResponse.SUCCESS, stream.getResponse().getStatus());
+           assertEquals(0, stream.getResponse().getResults()[0].getRowCount());
+           int rows = 0;
+           int chunks = 0;
+           VoltTable chunk;
+           while ((chunk = stream.nextChunk()) != null) {
+               assertEquals(0, stream.getTableIndex());
+               assertTrue(chunk.getSerializedSize() - stream.getResponse().getResults()[0].getSerializedSize() < 4096);
+               while (chunk.advanceRow()) {
+                   assertEquals(rows, chunk.getLong(0));
+                   assertEquals("Row " + rows, chunk.getString("Name"));
+                   rows++;
+               }
+               chunks++;
+           }
+           assertEquals(EXTRACT_ROWS, rows);
+           assertTrue(chunks > 1);
+
+           // a small one is read whole, the same way
+           stream = clt.callProcedureStreaming("Foo");
+           assertTrue(stream.advanceRow());
+           assertEquals(1, stream.getRow().getLong(0));
+           assertFalse(stream.advanceRow());
+           stream.close();
+
+           // a stream closed early doesn't hold the connection back
+           stream = clt.callProcedureStreaming("Extract");
+           assertTrue(stream.advanceRow());
+           stream.close();
+           assertEquals(1, clt.callProcedure("Foo").getResults()[0].asScalarLong());
+       }
+       finally {
+           if (volt != null) {
+               volt.shutdown();
+           }
+       }
+    }
+
+    @Test
+    public void testBackpressureBarrier() throws Exception {
+        final ClientImpl clt = (ClientImpl) ClientFactory.createClient(new ClientConfig());
+        try {
+            // no backpressure, no wait
+            assertFalse(clt.backpressureBarrier(System.nanoTime(), TimeUnit.MILLISECONDS.toNanos(10)));
+
+            // a bounded wait times out while the backpressure lasts
+            clt.m_listener.backpressure(true);
+            assertTrue(clt.backpressureBarrier(System.nanoTime(), TimeUnit.MILLISECONDS.toNanos(10)));
+
+            // and every waiter is released when it ends
+            final int waiters = 100;
+            final CountDownLatch released = new CountDownLatch(waiters);
+            for (int i = 0; i < waiters; i++) {
+                new Thread() {
+                    @Override
+                    public void run() {
+                        try {
+                            clt.backpressureBarrier();
+                            released.countDown();
+                        } catch (InterruptedException e) {
+                        }
+                    }
+                }.start();
+            }
+            assertFalse(released.await(50, TimeUnit.MILLISECONDS));
+            clt.m_listener.backpressure(false);
+            assertTrue(released.await(10, TimeUnit.SECONDS));
+        }
+        finally {
+            clt.close();
+        }
+    }
+
     @Test
     public void testClientBlockedOnMaxOutstanding() throws Exception {
         // TODO: write a mock server that can grock ssl
@@ -941,6 +1247,185 @@ public class TestDistributer extends TestCase {
         }
     }
 
+    /*
+     * A connection whose write stream reports the given backpressure, with outstandingCalls calls
+     * sent on it that haven't been answered yet
+     */
+    private Distributer.NodeConnection mockNodeConnection(Distributer dist, boolean backpressure,
+            int outstandingCalls) {
+        WriteStream writeStream = Mockito.mock(WriteStream.class);
+        Mockito.when(writeStream.hadBackPressure()).thenReturn(backpressure);
+        return mockNodeConnection(dist, writeStream, outstandingCalls);
+    }
+
+    private Distributer.NodeConnection mockNodeConnection(Distributer dist, WriteStream writeStream,
+            int outstandingCalls) {
+        Connection connection = Mockito.mock(Connection.class);
+        Mockito.when(connection.writeStream()).thenReturn(writeStream);
+
+        Distributer.NodeConnection cxn = dist.new NodeConnection(new long[0]);
+        cxn.setConnection(connection);
+        for (int i = 0; i < outstandingCalls; i++) {
+            cxn.createWork(System.nanoTime(), i, "ReadOnlyProc", ByteBuffer.allocate(0), new ProcCallback(),
+                    true, TimeUnit.MINUTES.toNanos(10));
+        }
+        assertEquals(outstandingCalls, cxn.getOutstandingCallCount());
+        return cxn;
+    }
+
+    public void testLeastLoadedReplica() throws Exception {
+        Distributer dist = new Distributer();
+        try {
+            Distributer.NodeConnection busy = mockNodeConnection(dist, false, 5);
+            Distributer.NodeConnection idle = mockNodeConnection(dist, false, 1);
+            Distributer.NodeConnection backpressured = mockNodeConnection(dist, true, 0);
+            Distributer.NodeConnection replicas[] = new Distributer.NodeConnection[] { busy, idle, backpressured };
+
+            // Whichever replica the scan starts from, the one with the fewest outstanding calls
+            // and no backpressure wins
+            for (int i = 0; i < 20; i++) {
+                assertSame(idle, Distributer.leastLoadedConnection(replicas));
+            }
+
+            // A replica with backpressure is only picked when every replica has it
+            Distributer.NodeConnection allBackpressured[] = new Distributer.NodeConnection[] {
+                    mockNodeConnection(dist, true, 3), backpressured, mockNodeConnection(dist, true, 2) };
+            for (int i = 0; i < 20; i++) {
+                assertSame(backpressured, Distributer.leastLoadedConnection(allBackpressured));
+            }
+        }
+        finally {
+            dist.shutdown();
+        }
+    }
+
+    private static Distributer affinityDistributer() {
+        return new Distributer(false, ClientConfig.DEFAULT_PROCEDURE_TIMOUT_NANOS,
+                ClientConfig.DEFAULT_CONNECTION_TIMOUT_MS, true, true, null, null);
+    }
+
+    public void testConnectionLostKeepsSurvivingReplicas() throws Exception {
+        Distributer dist = affinityDistributer();
+        try {
+            Distributer.NodeConnection host0 = mockNodeConnection(dist, false, 0);
+            Distributer.NodeConnection host1 = mockNodeConnection(dist, false, 0);
+            Distributer.NodeConnection host2 = mockNodeConnection(dist, false, 0);
+            dist.addConnection(host0, 0);
+            dist.addConnection(host1, 1);
+            dist.addConnection(host2, 2);
+
+            // Host 1 is a replica of every partition, and the only one of partition 0, which
+            // is repaired first
+            VoltTable topo = new VoltTable(
+                    new VoltTable.ColumnInfo("Partition", VoltType.BIGINT),
+                    new VoltTable.ColumnInfo("Sites", VoltType.STRING),
+                    new VoltTable.ColumnInfo("Leader", VoltType.STRING));
+            topo.addRow(0, "1:0", "1:0");
+            topo.addRow(1, "0:1,1:1,2:1", "1:1");
+            topo.addRow(2, "0:2,1:2", "0:2");
+            topo.addRow(Constants.MP_INIT_PID, "1:3", "1:3");
+            synchronized (dist) {
+                dist.updateAffinityTopology(new VoltTable[] { topo });
+            }
+            assertEquals(3, dist.getPartitionReplicas(1).length);
+            assertSame(host1, dist.getPartitionMaster(Constants.MP_INIT_PID));
+
+            host1.stopping(null);
+
+            // Every other partition keeps the replicas it still has
+            assertNull(dist.getPartitionReplicas(0));
+            assertTrue(Arrays.equals(new Distributer.NodeConnection[] { host0, host2 }, dist.getPartitionReplicas(1)));
+            assertTrue(Arrays.equals(new Distributer.NodeConnection[] { host0 }, dist.getPartitionReplicas(2)));
+            assertNull(dist.getPartitionReplicas(Constants.MP_INIT_PID));
+            assertNull(dist.getPartitionMaster(0));
+            assertNull(dist.getPartitionMaster(1));
+            assertSame(host0, dist.getPartitionMaster(2));
+            assertNull(dist.getPartitionMaster(Constants.MP_INIT_PID));
+
+            // Losing another replica only takes it out of the partitions it replicates
+            host2.stopping(null);
+            assertTrue(Arrays.equals(new Distributer.NodeConnection[] { host0 }, dist.getPartitionReplicas(1)));
+            assertTrue(Arrays.equals(new Distributer.NodeConnection[] { host0 }, dist.getPartitionReplicas(2)));
+            assertSame(host0, dist.getPartitionMaster(2));
+        }
+        finally {
+            dist.shutdown();
+        }
+    }
+
+    public void testQueueWhileConnectionsChange() throws Exception {
+        final Distributer dist = affinityDistributer();
+        final int callers = 4;
+        final int callsPerCaller = 5000;
+        final AtomicLong handles = new AtomicLong();
+        final AtomicInteger queued = new AtomicInteger();
+        final AtomicInteger noConnections = new AtomicInteger();
+        final AtomicInteger answered = new AtomicInteger();
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final ProcedureCallback callback = new ProcedureCallback() {
+            @Override
+            public void clientCallback(ClientResponse clientResponse) {
+                answered.incrementAndGet();
+            }
+        };
+        final ArrayDeque<Distributer.NodeConnection> connected = new ArrayDeque<>();
+        try {
+            final CountDownLatch start = new CountDownLatch(1);
+            List<Thread> threads = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                Thread caller = new Thread() {
+                    @Override
+                    public void run() {
+                        try {
+                            start.await();
+                            for (int j = 0; j < callsPerCaller; j++) {
+                                ProcedureInvocation invocation =
+                                        new ProcedureInvocation(handles.incrementAndGet(), "Foo", j);
+                                try {
+                                    dist.queue(invocation, callback, true, System.nanoTime(),
+                                            TimeUnit.MINUTES.toNanos(10));
+                                    queued.incrementAndGet();
+                                } catch (NoConnectionsException e) {
+                                    noConnections.incrementAndGet();
+                                }
+                            }
+                        } catch (Throwable t) {
+                            failure.compareAndSet(null, t);
+                        }
+                    }
+                };
+                caller.start();
+                threads.add(caller);
+            }
+
+            // Keep adding connections and losing the oldest while the calls are queued
+            start.countDown();
+            int hostId = 0;
+            while (queued.get() + noConnections.get() < callers * callsPerCaller && failure.get() == null) {
+                Distributer.NodeConnection cxn = mockNodeConnection(dist, false, 0);
+                dist.addConnection(cxn, hostId++);
+                connected.add(cxn);
+                if (connected.size() > 2) {
+                    connected.poll().stopping(null);
+                }
+            }
+            for (Thread caller : threads) {
+                caller.join();
+            }
+            assertNull(failure.get());
+            assertEquals(callers * callsPerCaller, queued.get() + noConnections.get());
+
+            // Every queued call was written to a connection that then fails it when it is lost
+            while (!connected.isEmpty()) {
+                connected.poll().stopping(null);
+            }
+            assertEquals(queued.get(), answered.get());
+        }
+        finally {
+            dist.shutdown();
+        }
+    }
+
     public void testUnresolvedHost() throws IOException {
         // TODO: write a mock server that can grock ssl
         if (ClientConfig.ENABLE_SSL_FOR_TEST) return;
@@ -0,0 +1,120 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2017 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.client;
+
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+public class TestRateLimiter extends TestCase {
+
+    private static final long TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(10);
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(50);
+
+    private static long ms(long millis) {
+        return TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    // Send and answer one transaction at the given time, which starts a new block if it is in one
+    private static void roundTrip(RateLimiter limiter, long nowNanos, long roundTripNanos) throws Exception {
+        limiter.sendTxnWithOptionalBlockAndReturnCurrentTime(nowNanos, TIMEOUT_NANOS, false);
+        limiter.transactionResponseReceived(nowNanos, 1, roundTripNanos, false);
+    }
+
+    public void testAdaptiveLimitingCutsLimitOverTarget() throws Exception {
+        RateLimiter limiter = new RateLimiter();
+        limiter.enableAdaptiveLimiting(Integer.MAX_VALUE, 10);
+        final int initial = limiter.getLimits()[1];
+
+        // 2 slow round trips in 100 put the p99 over the target
+        for (int i = 0; i < 98; i++) {
+            roundTrip(limiter, ms(1000), FAST);
+        }
+        roundTrip(limiter, ms(1010), SLOW);
+        roundTrip(limiter, ms(1020), SLOW);
+        roundTrip(limiter, ms(1100), FAST);
+        assertEquals((int) (initial * 0.75), limiter.getLimits()[1]);
+
+        // 1 in 100 doesn't
+        for (int i = 0; i < 99; i++) {
+            roundTrip(limiter, ms(1110), FAST);
+        }
+        roundTrip(limiter, ms(1120), SLOW);
+        roundTrip(limiter, ms(1200), FAST);
+        assertEquals((int) (initial * 0.75), limiter.getLimits()[1]);
+    }
+
+    public void testAdaptiveLimitingCutsLimitOnBackpressure() throws Exception {
+        RateLimiter limiter = new RateLimiter();
+        limiter.enableAdaptiveLimiting(Integer.MAX_VALUE, 10);
+        final int initial = limiter.getLimits()[1];
+
+        roundTrip(limiter, ms(1000), FAST);
+        limiter.backpressureReceived();
+        roundTrip(limiter, ms(1100), FAST);
+        assertEquals((int) (initial * 0.75), limiter.getLimits()[1]);
+
+        // never below 1
+        for (int i = 0; i < 20; i++) {
+            limiter.backpressureReceived();
+            roundTrip(limiter, ms(1200 + i * 100), FAST);
+        }
+        assertEquals(1, limiter.getLimits()[1]);
+    }
+
+    public void testAdaptiveLimitingRaisesLimitWhenItHoldsSendsBack() throws Exception {
+        final RateLimiter limiter = new RateLimiter();
+        limiter.enableAdaptiveLimiting(Integer.MAX_VALUE, 10);
+        final int initial = limiter.getLimits()[1];
+
+        // A block in which the limit wasn't reached leaves it alone
+        roundTrip(limiter, System.nanoTime(), FAST);
+        Thread.sleep(limiter.BLOCK_SIZE);
+        roundTrip(limiter, System.nanoTime(), FAST);
+        assertEquals(initial, limiter.getLimits()[1]);
+
+        for (int i = 0; i < initial; i++) {
+            limiter.sendTxnWithOptionalBlockAndReturnCurrentTime(System.nanoTime(), TIMEOUT_NANOS, false);
+        }
+        Thread sender = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    limiter.sendTxnWithOptionalBlockAndReturnCurrentTime(System.nanoTime(), TIMEOUT_NANOS, false);
+                } catch (Exception e) {
+                    fail(e.getMessage());
+                }
+            }
+        };
+        sender.start();
+        Thread.sleep(20);
+        limiter.transactionResponseReceived(System.nanoTime(), 1, FAST, false);
+        sender.join();
+
+        Thread.sleep(limiter.BLOCK_SIZE);
+        limiter.transactionResponseReceived(System.nanoTime(), 1, FAST, false);
+        assertEquals(initial + limiter.MINIMUM_MOVEMENT, limiter.getLimits()[1]);
+    }
+}
@@ -0,0 +1,171 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2017 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.client.VoltBulkLoader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Matchers;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.powermock.api.mockito.PowerMockito;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+import org.voltdb.ClientResponseImpl;
+import org.voltdb.VoltTable;
+import org.voltdb.VoltType;
+import org.voltdb.client.ClientImpl;
+import org.voltdb.client.ClientResponse;
+import org.voltdb.client.ProcedureCallback;
+
+@RunWith(PowerMockRunner.class)
+@PrepareForTest(ClientImpl.class)
+public class TestPerPartitionTable {
+    private static final String TABLE_NAME = "LOADED";
+    private static final int PARTITION_COUNT = 2;
+    private static final int BATCH_SIZE = 10;
+    private static final int THREAD_COUNT = 8;
+    private static final int ROWS_PER_THREAD = 1000;
+
+    private final AtomicIntegerArray m_loadCounts = new AtomicIntegerArray(THREAD_COUNT * ROWS_PER_THREAD);
+    private final AtomicInteger m_batchCount = new AtomicInteger();
+    private final AtomicInteger m_failureCount = new AtomicInteger();
+
+    /*
+     * A client for a cluster of PARTITION_COUNT partitions with one table partitioned on ID,
+     * which counts every row each batch loads and succeeds.
+     */
+    private ClientImpl mockClient() throws Exception {
+        ClientImpl client = PowerMockito.mock(ClientImpl.class);
+
+        VoltTable columns = new VoltTable(
+                new VoltTable.ColumnInfo("TABLE_NAME", VoltType.STRING),
+                new VoltTable.ColumnInfo("COLUMN_NAME", VoltType.STRING),
+                new VoltTable.ColumnInfo("TYPE_NAME", VoltType.STRING),
+                new VoltTable.ColumnInfo("ORDINAL_POSITION", VoltType.INTEGER),
+                new VoltTable.ColumnInfo("REMARKS", VoltType.STRING));
+        columns.addRow(TABLE_NAME, "ID", "BIGINT", 1, "PARTITION_COLUMN");
+        columns.addRow(TABLE_NAME, "VAL", "VARCHAR", 2, null);
+        PowerMockito.when(client.callProcedure("@SystemCatalog", "COLUMNS")).thenReturn(
+                new ClientResponseImpl(ClientResponse.SUCCESS, new VoltTable[] { columns }, null));
+
+        VoltTable deployment = new VoltTable(
+                new VoltTable.ColumnInfo("PROPERTY", VoltType.STRING),
+                new VoltTable.ColumnInfo("VALUE", VoltType.STRING));
+        deployment.addRow("sitesperhost", Integer.toString(PARTITION_COUNT));
+        PowerMockito.when(client.callProcedure("@SystemInformation", "deployment")).thenReturn(
+                new ClientResponseImpl(ClientResponse.SUCCESS, new VoltTable[] { deployment }, null));
+
+        PowerMockito.when(client.isHashinatorInitialized()).thenReturn(true);
+        PowerMockito.when(client.isAutoReconnectEnabled()).thenReturn(false);
+        PowerMockito.when(client.getPartitionForParameter(Matchers.anyByte(), Matchers.any())).thenAnswer(
+                new Answer<Long>() {
+                    @Override
+                    public Long answer(InvocationOnMock invocation) {
+                        return (Long) invocation.getArguments()[1] % PARTITION_COUNT;
+                    }
+                });
+
+        PowerMockito.when(client.callProcedure(Matchers.any(ProcedureCallback.class),
+                Matchers.eq("@LoadSinglepartitionTable"), Matchers.<Object>anyVararg())).thenAnswer(
+                new Answer<Boolean>() {
+                    @Override
+                    public Boolean answer(InvocationOnMock invocation) throws Exception {
+                        Object[] args = invocation.getArguments();
+                        Object last = args[args.length - 1];
+                        if (last instanceof Object[]) {
+                            Object[] params = (Object[]) last;
+                            last = params[params.length - 1];
+                        }
+                        // The table is cleared and reused once this returns
+                        VoltTable batch = (VoltTable) last;
+                        assertTrue(batch.getRowCount() <= BATCH_SIZE);
+                        batch.resetRowPosition();
+                        while (batch.advanceRow()) {
+                            m_loadCounts.incrementAndGet((int) batch.getLong(0));
+                        }
+                        m_batchCount.incrementAndGet();
+                        ((ProcedureCallback) args[0]).clientCallback(
+                                new ClientResponseImpl(ClientResponse.SUCCESS, new VoltTable[0], null));
+                        return true;
+                    }
+                });
+        return client;
+    }
+
+    @Test
+    public void testConcurrentInsertsLoadEveryRowOnce() throws Exception {
+        ClientImpl client = mockClient();
+        final VoltBulkLoader loader = new VoltBulkLoader(new BulkLoaderState(client), TABLE_NAME, BATCH_SIZE, false,
+                new BulkLoaderFailureCallBack() {
+                    @Override
+                    public void failureCallback(Object rowHandle, Object[] fieldList, ClientResponse response) {
+                        m_failureCount.incrementAndGet();
+                    }
+                });
+
+        // Every thread inserts into both partitions, so the producers race on each queue, and the
+        // queues fill up much faster than the loads drain them
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[THREAD_COUNT];
+        for (int t = 0; t < THREAD_COUNT; t++) {
+            final int firstId = t * ROWS_PER_THREAD;
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        for (long id = firstId; id < firstId + ROWS_PER_THREAD; id++) {
+                            loader.insertRow(id, id, "row " + id);
+                        }
+                    } catch (InterruptedException e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        loader.drain();
+        // Full batches were loaded while the rows were being inserted
+        assertTrue(m_batchCount.get() >= THREAD_COUNT * ROWS_PER_THREAD / BATCH_SIZE - PARTITION_COUNT);
+        loader.close();
+
+        assertEquals(0, m_failureCount.get());
+        for (int id = 0; id < m_loadCounts.length(); id++) {
+            assertEquals("row " + id, 1, m_loadCounts.get(id));
+        }
+        assertEquals(THREAD_COUNT * ROWS_PER_THREAD, loader.getCompletedRowCount());
+    }
+}
@@ -0,0 +1,105 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2017 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.iv2;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.voltdb.SiteProcedureConnection;
+import org.voltdb.StarvationTracker;
+import org.voltdb.iv2.SiteTaskerRingBuffer.WaitStrategy;
+import org.voltdb.rejoin.TaskLog;
+
+import com.sun.japex.JapexDriverBase;
+import com.sun.japex.TestCase;
+
+/**
+ * Japex driver for the hand off of tasks to a site thread through its
+ * SiteTaskerQueue: the benchmark thread offers {@code tasks} tasks and waits
+ * until a site thread blocked in take() has received them all. With {@code ring}
+ * the queue uses the ring buffer and the {@code waitStrategy} wait strategy.
+ */
+public class SiteTaskerQueueBenchmark extends JapexDriverBase {
+
+    private static final SiteTasker TASK = new SiteTasker() {
+        @Override
+        public void run(SiteProcedureConnection siteConnection) {
+        }
+
+        @Override
+        public void runForRejoin(SiteProcedureConnection siteConnection, TaskLog rejoinTaskLog)
+                throws IOException {
+        }
+    };
+
+    private final AtomicLong m_taken = new AtomicLong();
+    private SiteTaskerQueue m_queue;
+    private Thread m_site;
+    private int m_tasks;
+    private long m_offered;
+
+    @Override
+    public void prepare(TestCase testCase) {
+        m_tasks = testCase.hasParam("tasks") ? testCase.getIntParam("tasks") : 1000;
+        SiteTaskerRingBuffer ring = null;
+        if (hasParam("ring") && getBooleanParam("ring")) {
+            final String waitStrategy = hasParam("waitStrategy") ? getParam("waitStrategy") : "hybrid";
+            ring = new SiteTaskerRingBuffer(16 * 1024, WaitStrategy.valueOf(waitStrategy.toUpperCase()), 50);
+        }
+        m_queue = new SiteTaskerQueue(0, ring);
+        m_queue.setStarvationTracker(new StarvationTracker(0));
+        m_queue.setupQueueDepthTracker(0);
+        m_site = new Thread("SiteTaskerQueueBenchmark site") {
+            @Override
+            public void run() {
+                try {
+                    while (true) {
+                        m_queue.take();
+                        m_taken.lazySet(m_taken.get() + 1);
+                    }
+                } catch (InterruptedException e) {
+                    // done
+                }
+            }
+        };
+        m_site.setDaemon(true);
+        m_site.start();
+    }
+
+    @Override
+    public void run(TestCase testCase) {
+        for (int i = 0; i < m_tasks; i++) {
+            m_queue.offer(TASK);
+        }
+        m_offered += m_tasks;
+        while (m_taken.get() < m_offered) {
+            Thread.yield();
+        }
+    }
+
+    @Override
+    public void finish(TestCase testCase) {
+        m_site.interrupt();
+    }
+}
@@ -0,0 +1,195 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2017 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.iv2;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.voltdb.ClientResponseImpl;
+import org.voltdb.ParameterSet;
+import org.voltdb.ProcedureRunner;
+import org.voltdb.ProcedureRunner.CoalescedCall;
+import org.voltdb.SiteProcedureConnection;
+import org.voltdb.StarvationTracker;
+import org.voltdb.StoredProcedureInvocation;
+import org.voltdb.TheHashinator;
+import org.voltdb.VoltTable;
+import org.voltdb.VoltType;
+import org.voltdb.client.ClientResponse;
+import org.voltdb.dtxn.TransactionState;
+import org.voltdb.dtxn.UndoAction;
+import org.voltdb.exceptions.EEException;
+import org.voltdb.exceptions.SerializableException;
+import org.voltdb.iv2.DeterminismHash;
+import org.voltdb.messaging.InitiateResponseMessage;
+import org.voltdb.messaging.Iv2InitiateTaskMessage;
+
+import junit.framework.TestCase;
+
+public class TestCoalescedSpProcedureTasks extends TestCase
+{
+    // The EE mock executes at most this many transactions per call
+    private static final int EE_TXNS_PER_CALL = 2;
+
+    private static SpProcedureTask createSpProc(long spHandle, InitiatorMailbox mbox, TransactionTaskQueue queue)
+    {
+        Iv2InitiateTaskMessage init = mock(Iv2InitiateTaskMessage.class);
+        when(init.getTxnId()).thenReturn(Iv2InitiateTaskMessage.UNUSED_MP_TXNID);
+        when(init.getSpHandle()).thenReturn(spHandle);
+        when(init.getUniqueId()).thenReturn(spHandle);
+        when(init.isSinglePartition()).thenReturn(true);
+        when(init.getParameters()).thenReturn(new Object[] { spHandle });
+        StoredProcedureInvocation invocation = new StoredProcedureInvocation();
+        invocation.setProcName("TestProc");
+        invocation.setParams(spHandle);
+        when(init.getStoredProcedureInvocation()).thenReturn(invocation);
+        return new SpProcedureTask(mbox, "TestProc", queue, init);
+    }
+
+    private static CoalescedCall createCall(boolean needsExecution)
+    {
+        CoalescedCall call = mock(CoalescedCall.class);
+        when(call.needsExecution()).thenReturn(needsExecution);
+        when(call.getFragmentId()).thenReturn(1L);
+        when(call.getParams()).thenReturn(ParameterSet.emptyParameterSet());
+        when(call.getDeterminismHash()).thenReturn(new DeterminismHash());
+        when(call.getSqlText()).thenReturn("INSERT INTO T VALUES (?);");
+        when(call.isWriteFrag()).thenReturn(true);
+        return call;
+    }
+
+    /**
+     * A group where one call fails before the EE, one fails in the EE, and the
+     * EE stops early, must still complete every transaction in order.
+     */
+    @Test
+    public void testRunCoalescedCompletesInOrder()
+    {
+        final int count = 5;
+        final long callFailsBeforeEE = 1;
+        final long callFailsInEE = 2;
+
+        SiteTaskerQueue taskQueue = new SiteTaskerQueue(0);
+        taskQueue.setStarvationTracker(new StarvationTracker(0));
+        taskQueue.setupQueueDepthTracker(0);
+        TransactionTaskQueue queue = new TransactionTaskQueue(taskQueue);
+        InitiatorMailbox mbox = mock(InitiatorMailbox.class);
+        when(mbox.getHSId()).thenReturn(1337l);
+
+        ProcedureRunner runner = mock(ProcedureRunner.class);
+        when(runner.isCoalescable()).thenReturn(true);
+        when(runner.checkPartition(any(TransactionState.class), any(TheHashinator.class))).thenReturn(true);
+        when(runner.completeCoalescedCall(any(CoalescedCall.class), any(VoltTable.class),
+                any(SerializableException.class), anyLong())).thenAnswer(new Answer<ClientResponseImpl>() {
+            @Override
+            public ClientResponseImpl answer(InvocationOnMock invocation) {
+                boolean succeeded = invocation.getArguments()[1] != null;
+                return new ClientResponseImpl(succeeded ? ClientResponse.SUCCESS : ClientResponse.GRACEFUL_FAILURE,
+                        new VoltTable[0], null);
+            }
+        });
+
+        SiteProcedureConnection site = mock(SiteProcedureConnection.class);
+        when(site.getProcedureRunner("TestProc")).thenReturn(runner);
+        when(site.executeCoalescedPlanFragments(anyInt(), any(long[].class), any(Object[].class),
+                any(DeterminismHash[].class), any(String[].class), any(String[].class), any(boolean[].class),
+                any(int[].class), any(long[].class), any(long[].class), any(long[].class), any(boolean[].class),
+                any(VoltTable[].class), any(SerializableException[].class), any(long[].class), anyBoolean()))
+            .thenAnswer(new Answer<Integer>() {
+                @Override
+                public Integer answer(InvocationOnMock invocation) {
+                    Object[] args = invocation.getArguments();
+                    int numTxns = (Integer)args[0];
+                    long[] spHandles = (long[])args[9];
+                    VoltTable[] results = (VoltTable[])args[12];
+                    SerializableException[] errors = (SerializableException[])args[13];
+                    int executed = Math.min(numTxns, EE_TXNS_PER_CALL);
+                    for (int i = 0; i < executed; i++) {
+                        if (spHandles[i] == callFailsInEE) {
+                            results[i] = null;
+                            errors[i] = new EEException(1);
+                        }
+                        else {
+                            results[i] = new VoltTable(new VoltTable.ColumnInfo("modified_tuples", VoltType.BIGINT));
+                            errors[i] = null;
+                        }
+                    }
+                    return executed;
+                }
+            });
+
+        List<SpProcedureTask> tasks = new ArrayList<SpProcedureTask>();
+        for (long spHandle = 0; spHandle < count; spHandle++) {
+            SpProcedureTask task = createSpProc(spHandle, mbox, queue);
+            CoalescedCall call = createCall(spHandle != callFailsBeforeEE);
+            when(runner.prepareCoalescedCall(task.m_txnState, spHandle)).thenReturn(call);
+            assertTrue(task.isCoalescable(site));
+            tasks.add(task);
+        }
+
+        SpProcedureTask.runCoalesced(tasks, site);
+
+        // the call that failed before the EE isn't sent to it, and the EE stopped after each pair
+        ArgumentCaptor<Integer> numTxns = ArgumentCaptor.forClass(Integer.class);
+        verify(site, times(2)).executeCoalescedPlanFragments(numTxns.capture(), any(long[].class), any(Object[].class),
+                any(DeterminismHash[].class), any(String[].class), any(String[].class), any(boolean[].class),
+                any(int[].class), any(long[].class), any(long[].class), any(long[].class), any(boolean[].class),
+                any(VoltTable[].class), any(SerializableException[].class), any(long[].class), anyBoolean());
+        assertEquals(Integer.valueOf(count - 1), numTxns.getAllValues().get(0));
+        assertEquals(Integer.valueOf(count - 1 - EE_TXNS_PER_CALL), numTxns.getAllValues().get(1));
+
+        // every transaction is finished and answered, in order
+        InOrder inOrder = inOrder(site);
+        for (long spHandle = 0; spHandle < count; spHandle++) {
+            boolean rollback = spHandle == callFailsBeforeEE || spHandle == callFailsInEE;
+            inOrder.verify(site).completeCoalescedTransaction(eq(rollback), eq(spHandle), anyListOf(UndoAction.class));
+        }
+        ArgumentCaptor<InitiateResponseMessage> responses = ArgumentCaptor.forClass(InitiateResponseMessage.class);
+        verify(mbox, times(count)).deliver(responses.capture());
+        for (int i = 0; i < count; i++) {
+            InitiateResponseMessage response = responses.getAllValues().get(i);
+            assertEquals(i, response.getSpHandle());
+            boolean failed = i == callFailsBeforeEE || i == callFailsInEE;
+            assertEquals(!failed, response.shouldCommit());
+            assertTrue(tasks.get(i).m_txnState.isDone());
+        }
+    }
+}
@@ -0,0 +1,226 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2017 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.iv2;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.voltdb.StarvationTracker;
+import org.voltdb.iv2.SiteTasker.SiteTaskerRunnable;
+import org.voltdb.iv2.SiteTaskerRingBuffer.WaitStrategy;
+
+public class TestSiteTaskerRingBuffer {
+
+    static class NumberedTask extends SiteTaskerRunnable {
+        final int m_producer;
+        final int m_sequence;
+
+        NumberedTask(int producer, int sequence) {
+            m_producer = producer;
+            m_sequence = sequence;
+        }
+
+        @Override
+        void run() {
+        }
+    }
+
+    private static SiteTaskerQueue makeQueue(int capacity, WaitStrategy waitStrategy) {
+        SiteTaskerQueue queue = new SiteTaskerQueue(0, new SiteTaskerRingBuffer(capacity, waitStrategy, 20));
+        queue.setStarvationTracker(new StarvationTracker(0));
+        queue.setupQueueDepthTracker(0);
+        return queue;
+    }
+
+    @Test
+    public void testFifoOrder() throws InterruptedException {
+        SiteTaskerQueue queue = makeQueue(64, WaitStrategy.HYBRID);
+        assertTrue(queue.isEmpty());
+        assertNull(queue.poll());
+        assertNull(queue.peek());
+
+        for (int i = 0; i < 10; i++) {
+            queue.offer(new NumberedTask(0, i));
+        }
+        assertEquals(0, ((NumberedTask) queue.peek()).m_sequence);
+        for (int i = 0; i < 5; i++) {
+            assertEquals(i, ((NumberedTask) queue.poll()).m_sequence);
+        }
+        for (int i = 5; i < 10; i++) {
+            assertEquals(i, ((NumberedTask) queue.take()).m_sequence);
+        }
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void testTakeWakesOnOffer() throws Exception {
+        for (WaitStrategy waitStrategy : WaitStrategy.values()) {
+            final SiteTaskerQueue queue = makeQueue(64, waitStrategy);
+            final List<SiteTasker> taken = new ArrayList<SiteTasker>();
+            final CountDownLatch done = new CountDownLatch(1);
+            Thread consumer = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        taken.add(queue.take());
+                    } catch (InterruptedException e) {
+                    }
+                    done.countDown();
+                }
+            };
+            consumer.start();
+            // give the consumer time to start waiting, including parking for the hybrid strategy
+            Thread.sleep(50);
+            SiteTasker task = new NumberedTask(0, 0);
+            queue.offer(task);
+            assertTrue(waitStrategy.toString(), done.await(10, TimeUnit.SECONDS));
+            consumer.join();
+            assertEquals(1, taken.size());
+            assertSame(task, taken.get(0));
+        }
+    }
+
+    @Test
+    public void testTakeInterrupted() throws Exception {
+        for (WaitStrategy waitStrategy : WaitStrategy.values()) {
+            final SiteTaskerQueue queue = makeQueue(64, waitStrategy);
+            final CountDownLatch interrupted = new CountDownLatch(1);
+            Thread consumer = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        queue.take();
+                    } catch (InterruptedException e) {
+                        interrupted.countDown();
+                    }
+                }
+            };
+            consumer.start();
+            Thread.sleep(50);
+            consumer.interrupt();
+            assertTrue(waitStrategy.toString(), interrupted.await(10, TimeUnit.SECONDS));
+            consumer.join();
+        }
+    }
+
+    @Test
+    public void testOverflowKeepsOrder() throws InterruptedException {
+        SiteTaskerRingBuffer ring = new SiteTaskerRingBuffer(64, WaitStrategy.PARK, 0);
+        SiteTaskerQueue queue = new SiteTaskerQueue(0, ring);
+        queue.setStarvationTracker(new StarvationTracker(0));
+        queue.setupQueueDepthTracker(0);
+
+        int count = ring.capacity() * 3;
+        for (int i = 0; i < count; i++) {
+            queue.offer(new NumberedTask(0, i));
+        }
+        assertEquals(count, ring.size());
+        // drain part of the ring, later offers must still queue behind the overflow
+        for (int i = 0; i < 10; i++) {
+            assertEquals(i, ((NumberedTask) queue.take()).m_sequence);
+        }
+        queue.offer(new NumberedTask(0, count));
+        for (int i = 10; i <= count; i++) {
+            assertEquals(i, ((NumberedTask) queue.take()).m_sequence);
+        }
+        assertTrue(queue.isEmpty());
+        assertNull(queue.poll());
+    }
+
+    @Test
+    public void testIteratorSnapshot() throws InterruptedException {
+        SiteTaskerRingBuffer ring = new SiteTaskerRingBuffer(64, WaitStrategy.PARK, 0);
+        SiteTaskerQueue queue = new SiteTaskerQueue(0, ring);
+        queue.setStarvationTracker(new StarvationTracker(0));
+        queue.setupQueueDepthTracker(0);
+        assertFalse(ring.iterator().hasNext());
+
+        // Fill the ring and spill into the overflow queue, then take a few from the front.
+        int count = ring.capacity() + 10;
+        for (int i = 0; i < count; i++) {
+            queue.offer(new NumberedTask(0, i));
+        }
+        for (int i = 0; i < 20; i++) {
+            queue.take();
+        }
+        int expected = 20;
+        for (SiteTasker task : ring) {
+            assertEquals(expected++, ((NumberedTask) task).m_sequence);
+        }
+        assertEquals(count, expected);
+
+        // Iterating doesn't consume anything.
+        assertEquals(count - 20, ring.size());
+        assertEquals(20, ((NumberedTask) queue.take()).m_sequence);
+    }
+
+    /**
+     * Several producers overrun a small ring. Every task must arrive exactly once,
+     * in the order each producer offered it.
+     */
+    @Test
+    public void testMultipleProducersOnFullRing() throws Exception {
+        final int producers = 4;
+        final int tasksPerProducer = 20000;
+        final SiteTaskerQueue queue = makeQueue(64, WaitStrategy.HYBRID);
+
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int p = 0; p < producers; p++) {
+            final int producer = p;
+            Thread thread = new Thread() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < tasksPerProducer; i++) {
+                        queue.offer(new NumberedTask(producer, i));
+                    }
+                }
+            };
+            threads.add(thread);
+            thread.start();
+        }
+
+        int[] nextSequence = new int[producers];
+        for (int i = 0; i < producers * tasksPerProducer; i++) {
+            NumberedTask task = (NumberedTask) queue.take();
+            assertEquals(nextSequence[task.m_producer], task.m_sequence);
+            nextSequence[task.m_producer]++;
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertTrue(queue.isEmpty());
+        for (int p = 0; p < producers; p++) {
+            assertEquals(tasksPerProducer, nextSequence[p]);
+        }
+    }
+}
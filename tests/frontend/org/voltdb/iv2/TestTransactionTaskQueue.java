@@ -27,7 +27,9 @@ import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Deque;
+import java.util.List;
 
 import org.junit.Test;
 import org.voltdb.StarvationTracker;
@@ -197,4 +199,143 @@ public class TestTransactionTaskQueue extends TestCase
             assertEquals(expected.getTxnId(), next_poll.getTxnId());
         }
     }
+
+    @Test
+    public void testBatchedSpProcs() throws InterruptedException
+    {
+        long localTxnId = 0;
+        SiteTaskerQueue task_queue = getSiteTaskerQueue();
+        TransactionTaskQueue dut = new TransactionTaskQueue(task_queue, 4, 1000000);
+
+        // keep the site busy so the procedures get batched
+        SiteTasker busy = new SiteTasker.SiteTaskerRunnable() {
+            @Override
+            void run() {}
+        };
+        task_queue.offer(busy);
+
+        Deque<TransactionTask> expected_order = new ArrayDeque<TransactionTask>();
+        for (int i = 0; i < 6; i++) {
+            addTask(createSpProc(localTxnId++, dut), dut, expected_order);
+        }
+        // a full batch goes to the site right away, the rest is held back
+        assertSame(busy, task_queue.take());
+        TransactionTaskBatch batch = (TransactionTaskBatch)task_queue.take();
+        assertEquals(4, batch.getTasks().size());
+        for (TransactionTask task : batch.getTasks()) {
+            assertSame(expected_order.removeFirst(), task);
+        }
+        // the site has run out of work, so it gets the partial batch
+        batch = (TransactionTaskBatch)task_queue.take();
+        assertEquals(2, batch.getTasks().size());
+        for (TransactionTask task : batch.getTasks()) {
+            assertSame(expected_order.removeFirst(), task);
+        }
+        assertTrue(task_queue.isEmpty());
+
+        // an idle site gets each procedure as soon as it is runnable
+        TransactionTask next = createSpProc(localTxnId++, dut);
+        addTask(next, dut, null);
+        assertSame(next, task_queue.take());
+
+        // other tasks never overtake held back procedures
+        task_queue.offer(busy);
+        TransactionTask sp = createSpProc(localTxnId++, dut);
+        addTask(sp, dut, null);
+        TransactionTask frag = createFrag(localTxnId++, 0, dut);
+        addTask(frag, dut, null);
+        assertSame(busy, task_queue.take());
+        assertSame(sp, task_queue.take());
+        assertSame(frag, task_queue.take());
+    }
+
+    @Test
+    public void testBatchHandOffToIdlingSite() throws InterruptedException
+    {
+        long localTxnId = 0;
+        SiteTaskerQueue task_queue = getSiteTaskerQueue();
+        TransactionTaskQueue dut = new TransactionTaskQueue(task_queue, 4, 1000000);
+
+        SiteTasker busy = new SiteTasker.SiteTaskerRunnable() {
+            @Override
+            void run() {}
+        };
+        task_queue.offer(busy);
+
+        // the site is busy, so the procedure is held back
+        TransactionTask sp = createSpProc(localTxnId++, dut);
+        addTask(sp, dut, null);
+
+        // peek() has no side effects and doesn't see held back procedures
+        assertSame(busy, task_queue.peek());
+        assertSame(busy, task_queue.poll());
+        assertNull(task_queue.peek());
+        assertNull(task_queue.peek());
+
+        // the site runs out of work and gets the held back procedure
+        assertSame(sp, task_queue.take());
+        assertTrue(task_queue.isEmpty());
+
+        // the site flushes the batch itself before peeking
+        task_queue.offer(busy);
+        sp = createSpProc(localTxnId++, dut);
+        addTask(sp, dut, null);
+        assertSame(busy, task_queue.poll());
+        assertNull(task_queue.peek());
+        task_queue.flushBatch();
+        assertSame(sp, task_queue.peek());
+        assertSame(sp, task_queue.poll());
+    }
+
+    @Test
+    public void testConcurrentBatchHandOff() throws Exception
+    {
+        final SiteTaskerQueue task_queue = getSiteTaskerQueue();
+        final TransactionTaskQueue dut = new TransactionTaskQueue(task_queue, 4, 1000000);
+        final int count = 20000;
+        final List<TransactionTask> tasks = new ArrayList<TransactionTask>(count);
+        for (int i = 0; i < count; i++) {
+            tasks.add(createSpProc(i, dut));
+        }
+
+        // The producer and the site race to hold and flush the batch. No procedure
+        // may be stranded in the batch while the site waits for work.
+        Thread producer = new Thread() {
+            @Override
+            public void run() {
+                for (TransactionTask task : tasks) {
+                    addTask(task, dut, null);
+                }
+            }
+        };
+        final List<TransactionTask> received = new ArrayList<TransactionTask>(count);
+        Thread site = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    while (received.size() < count) {
+                        SiteTasker task = task_queue.take();
+                        if (task instanceof TransactionTaskBatch) {
+                            received.addAll(((TransactionTaskBatch)task).getTasks());
+                        }
+                        else {
+                            received.add((TransactionTask)task);
+                        }
+                    }
+                }
+                catch (InterruptedException e) {}
+            }
+        };
+        site.start();
+        producer.start();
+        producer.join();
+        site.join(60000);
+        boolean stranded = site.isAlive();
+        site.interrupt();
+        site.join();
+        assertFalse("Procedures stranded in the batch", stranded);
+        assertEquals(tasks, received);
+        producer.join();
+        assertNull(task_queue.poll());
+    }
 }
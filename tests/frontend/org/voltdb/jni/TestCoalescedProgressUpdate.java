@@ -0,0 +1,135 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2017 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.jni;
+
+import org.voltdb.VoltTable;
+import org.voltdb.exceptions.EEException;
+import org.voltdb.exceptions.SerializableException;
+import org.voltdb.iv2.DeterminismHash;
+import org.voltdb.types.PlanNodeType;
+
+import junit.framework.TestCase;
+
+/**
+ * Check that each transaction of a coalesced batch is timed out on its own.
+ * The EE is simulated: each transaction reports its progress at its start
+ * and end, with the index of the transaction, like the real EE does.
+ */
+public class TestCoalescedProgressUpdate extends TestCase {
+
+    private static final int TIMEOUT_MS = 250;
+
+    private static class ProgressEngine extends MockExecutionEngine {
+        private final long[] m_txnDurations;
+        final boolean[] m_timedOut;
+
+        ProgressEngine(long... txnDurations) {
+            m_txnDurations = txnDurations;
+            m_timedOut = new boolean[txnDurations.length];
+        }
+
+        @Override
+        public int coreExecuteCoalescedPlanFragments(
+                int numTxns,
+                long[] planFragmentIds,
+                Object[] parameterSets,
+                DeterminismHash[] determinismHashes,
+                boolean[] isWriteFrags,
+                int[] sqlCRCs,
+                long[] txnIds,
+                long[] spHandles,
+                long lastCommittedSpHandle,
+                long[] uniqueIds,
+                long[] undoTokens,
+                VoltTable[] results,
+                SerializableException[] errors,
+                long[] executionTimes,
+                boolean traceOn) throws EEException
+        {
+            for (int i = 0; i < numTxns; i++) {
+                fragmentProgressUpdate(i, PlanNodeType.SEQSCAN.getValue(), 0, 0, 0);
+                try {
+                    Thread.sleep(m_txnDurations[i]);
+                }
+                catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                m_timedOut[i] = fragmentProgressUpdate(i, PlanNodeType.SEQSCAN.getValue(), 0, 0, 0) < 0;
+            }
+            return numTxns;
+        }
+    }
+
+    private static final long READ_ONLY = Long.MAX_VALUE;
+
+    private static int execute(ExecutionEngine ee, int numTxns) {
+        long[] undoTokens = new long[numTxns];
+        for (int i = 0; i < numTxns; i++) {
+            undoTokens[i] = READ_ONLY;
+        }
+        return execute(ee, undoTokens);
+    }
+
+    private static int execute(ExecutionEngine ee, long... undoTokens) {
+        int numTxns = undoTokens.length;
+        long[] fragIds = new long[numTxns];
+        long[] ids = new long[numTxns];
+        String[] names = new String[numTxns];
+        for (int i = 0; i < numTxns; i++) {
+            ids[i] = i;
+            names[i] = (undoTokens[i] == READ_ONLY) ? "ReadProc" : "WriteProc";
+        }
+        ee.setBatchTimeout(TIMEOUT_MS);
+        return ee.executeCoalescedPlanFragments(numTxns, fragIds, new Object[numTxns],
+                null, names, new String[numTxns], new boolean[numTxns], new int[numTxns],
+                ids, ids, -1, ids, undoTokens, new VoltTable[numTxns],
+                new SerializableException[numTxns], null, false);
+    }
+
+    public void testTimeoutPerTransaction() throws Exception {
+        // together the transactions run longer than the timeout, each alone does not
+        ProgressEngine ee = new ProgressEngine(100, 100, 100, 100);
+        assertEquals(4, execute(ee, 4));
+        for (boolean timedOut : ee.m_timedOut) {
+            assertFalse(timedOut);
+        }
+    }
+
+    public void testLongTransactionTimesOut() throws Exception {
+        ProgressEngine ee = new ProgressEngine(10, TIMEOUT_MS + 100, 10);
+        assertEquals(3, execute(ee, 3));
+        assertFalse(ee.m_timedOut[0]);
+        assertTrue(ee.m_timedOut[1]);
+        assertFalse(ee.m_timedOut[2]);
+    }
+
+    public void testReadOnlyTransactionTimesOutAmongWrites() throws Exception {
+        // only read-only transactions time out, whatever else runs in their batch
+        ProgressEngine ee = new ProgressEngine(TIMEOUT_MS + 100, TIMEOUT_MS + 100, TIMEOUT_MS + 100);
+        assertEquals(3, execute(ee, 1, READ_ONLY, 2));
+        assertFalse(ee.m_timedOut[0]);
+        assertTrue(ee.m_timedOut[1]);
+        assertFalse(ee.m_timedOut[2]);
+    }
+}
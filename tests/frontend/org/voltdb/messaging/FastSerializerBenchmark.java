@@ -0,0 +1,80 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2017 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.messaging;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.voltdb.HotPathJapexDriver;
+
+import com.sun.japex.TestCase;
+
+/**
+ * Japex driver that serializes a message sized mix of longs, ints, strings and
+ * varbinaries with a FastSerializer and reads it back with a FastDeserializer.
+ * Each iteration is one round trip of {@code fields} groups of values.
+ */
+public class FastSerializerBenchmark extends HotPathJapexDriver {
+
+    private static final String STRING_VALUE = "customer-name-0123456789";
+    private static final byte[] VARBINARY_VALUE = new byte[64];
+
+    private int m_fields;
+    private FastSerializer m_serializer;
+
+    @Override
+    public void prepare(TestCase testCase) {
+        m_fields = testCase.hasParam("fields") ? testCase.getIntParam("fields") : 100;
+        m_serializer = new FastSerializer();
+    }
+
+    @Override
+    public void run(TestCase testCase) {
+        try {
+            m_serializer.clear();
+            for (int i = 0; i < m_fields; i++) {
+                m_serializer.writeLong(i);
+                m_serializer.writeInt(i);
+                m_serializer.writeString(STRING_VALUE);
+                m_serializer.writeVarbinary(VARBINARY_VALUE);
+            }
+            ByteBuffer buf = m_serializer.getBuffer();
+            FastDeserializer fds = new FastDeserializer(buf);
+            for (int i = 0; i < m_fields; i++) {
+                m_sink += fds.readLong();
+                m_sink += fds.readInt();
+                m_sink += fds.readString().length();
+                m_sink += fds.readVarbinary().length;
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public void finish(TestCase testCase) {
+        super.finish(testCase);
+        m_serializer.discard();
+    }
+}
@@ -57,6 +57,7 @@ public class PlannerTestAideDeCamp {
     int compileCounter = 0;
 
     private CompiledPlan m_currentPlan = null;
+    private boolean m_enableHashJoin = QueryPlanner.ENABLE_HASH_JOIN;
 
     /**
      * Loads the schema at ddlurl and setups a voltcompiler / hsql instance.
@@ -82,6 +83,10 @@ public class PlannerTestAideDeCamp {
         return db;
     }
 
+    void setEnableHashJoin(boolean enableHashJoin) {
+        m_enableHashJoin = enableHashJoin;
+    }
+
     /**
      * Compile a statement and return the head of the plan.
      * @param sql
@@ -144,7 +149,7 @@ public class PlannerTestAideDeCamp {
         String procName = catalogStmt.getParent().getTypeName();
         QueryPlanner planner = new QueryPlanner(sql, stmtLabel, procName, db,
                 partitioning, hsql, estimates, false,
-                costModel, null, joinOrder, detMode, false);
+                costModel, null, joinOrder, detMode, false, m_enableHashJoin);
 
         CompiledPlan plan = null;
         // Keep this lock until we figure out how to do parallel planning
@@ -333,6 +333,14 @@ public class PlannerTestCase extends TestCase {
         return m_aide.getDatabase();
     }
 
+    /**
+     * Plan the statements compiled from now on with or without hash joins,
+     * instead of as the org.voltdb.planner.hashjoin property says.
+     */
+    protected void setEnableHashJoin(boolean enableHashJoin) {
+        m_aide.setEnableHashJoin(enableHashJoin);
+    }
+
     protected void printExplainPlan(List<AbstractPlanNode> planNodes) {
         for (AbstractPlanNode apn: planNodes) {
             System.out.println(apn.toExplainPlanString());
@@ -31,6 +31,7 @@ import org.voltdb.expressions.TupleValueExpression;
 import org.voltdb.plannodes.AbstractPlanNode;
 import org.voltdb.plannodes.AbstractScanPlanNode;
 import org.voltdb.plannodes.AggregatePlanNode;
+import org.voltdb.plannodes.HashJoinPlanNode;
 import org.voltdb.plannodes.IndexScanPlanNode;
 import org.voltdb.plannodes.NestLoopIndexPlanNode;
 import org.voltdb.plannodes.NestLoopPlanNode;
@@ -163,6 +164,96 @@ public class TestPlansJoin extends PlannerTestCase {
         failToCompile(query, pattern);
     }
 
+    public void testHashJoin() {
+        setEnableHashJoin(true);
+        String query;
+        AbstractPlanNode pn;
+        HashJoinPlanNode hj;
+
+        // An equi-join with no usable inner index is a hash join.
+        query = "SELECT * FROM R1 JOIN R2 ON R1.C = R2.C";
+        pn = compileToTopDownTree(query, 5,
+                true,
+                PlanNodeType.SEND,
+                PlanNodeType.HASHJOIN,
+                PlanNodeType.SEQSCAN, PlanNodeType.SEQSCAN);
+        hj = (HashJoinPlanNode) pn.findAllNodesOfType(PlanNodeType.HASHJOIN).get(0);
+        assertEquals(JoinType.INNER, hj.getJoinType());
+        assertEquals(1, hj.getOuterHashExpressions().size());
+        assertEquals(1, hj.getInnerHashExpressions().size());
+
+        // The keys are oriented to the outer and inner children
+        // whichever side of the equality they are written on.
+        query = "SELECT * FROM R1 LEFT JOIN R2 ON R2.C = R1.C AND R1.A = R2.A";
+        pn = compileToTopDownTree(query, 5,
+                true,
+                PlanNodeType.SEND,
+                PlanNodeType.HASHJOIN,
+                PlanNodeType.SEQSCAN, PlanNodeType.SEQSCAN);
+        hj = (HashJoinPlanNode) pn.findAllNodesOfType(PlanNodeType.HASHJOIN).get(0);
+        assertEquals(JoinType.LEFT, hj.getJoinType());
+        assertEquals(2, hj.getOuterHashExpressions().size());
+        for (AbstractExpression expr : hj.getOuterHashExpressions()) {
+            assertEquals("R1", ((TupleValueExpression) expr).getTableName());
+        }
+        for (AbstractExpression expr : hj.getInnerHashExpressions()) {
+            assertEquals("R2", ((TupleValueExpression) expr).getTableName());
+        }
+        assertTrue(buildExplainPlan(compileToFragments(query)).contains("HASH LEFT JOIN"));
+
+        // A join without an equality term stays a nested loop join.
+        query = "SELECT * FROM R1 JOIN R2 ON R1.C > R2.C";
+        compileToTopDownTree(query, 5,
+                true,
+                PlanNodeType.SEND,
+                PlanNodeType.NESTLOOP,
+                PlanNodeType.SEQSCAN, PlanNodeType.SEQSCAN);
+
+        // IS NOT DISTINCT FROM matches NULL keys, so it can't be hashed.
+        query = "SELECT * FROM R1 JOIN R2 ON R1.C IS NOT DISTINCT FROM R2.C";
+        compileToTopDownTree(query, 5,
+                true,
+                PlanNodeType.SEND,
+                PlanNodeType.NESTLOOP,
+                PlanNodeType.SEQSCAN, PlanNodeType.SEQSCAN);
+
+        // A usable inner index still wins.
+        query = "SELECT * FROM R1 JOIN R3 ON R1.A = R3.A";
+        compileToTopDownTree(query, 5,
+                true,
+                PlanNodeType.SEND,
+                PlanNodeType.NESTLOOPINDEX,
+                PlanNodeType.SEQSCAN);
+
+        // The hash join is costed against the nested loop join.
+        // The hash table is built over the side with fewer rows.
+        query = "SELECT * FROM R5 JOIN R2 ON R5.C = R2.C WHERE R5.A = ?";
+        pn = compileToTopDownTree(query, 6,
+                true,
+                PlanNodeType.SEND,
+                PlanNodeType.HASHJOIN,
+                PlanNodeType.SEQSCAN, PlanNodeType.INDEXSCAN);
+        hj = (HashJoinPlanNode) pn.findAllNodesOfType(PlanNodeType.HASHJOIN).get(0);
+        assertEquals("R5", ((TupleValueExpression) hj.getInnerHashExpressions().get(0)).getTableName());
+
+        // With a single row on either side, hashing the inner row doesn't beat scanning it.
+        query = "SELECT * FROM R5 JOIN R6 ON R5.C = R6.C WHERE R5.A = ? AND R6.A = ?";
+        compileToTopDownTree(query, 6,
+                true,
+                PlanNodeType.SEND,
+                PlanNodeType.NESTLOOP,
+                PlanNodeType.INDEXSCAN, PlanNodeType.INDEXSCAN);
+
+        // Without hash joins, the same equi-join is a nested loop join.
+        setEnableHashJoin(false);
+        query = "SELECT * FROM R1 JOIN R2 ON R1.C = R2.C";
+        compileToTopDownTree(query, 5,
+                true,
+                PlanNodeType.SEND,
+                PlanNodeType.NESTLOOP,
+                PlanNodeType.SEQSCAN, PlanNodeType.SEQSCAN);
+    }
+
     public void testBasicThreeTableInnerJoin() {
         String query;
         String pattern;
@@ -0,0 +1,199 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2017 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.planner;
+
+import java.net.URLDecoder;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.hsqldb_voltpatches.HSQLInterface;
+import org.voltdb.VoltTable;
+import org.voltdb.VoltTable.ColumnInfo;
+import org.voltdb.VoltType;
+import org.voltdb.catalog.Database;
+import org.voltdb.compiler.DatabaseEstimates;
+import org.voltdb.compiler.DatabaseEstimates.TableEstimates;
+import org.voltdb.compiler.DeterminismMode;
+import org.voltdb.compiler.VoltCompiler;
+import org.voltdb.compiler.VoltCompiler.DdlProceduresToLoad;
+import org.voltdb.plannodes.AbstractPlanNode;
+import org.voltdb.plannodes.AbstractScanPlanNode;
+import org.voltdb.plannodes.NestLoopIndexPlanNode;
+import org.voltdb.types.PlanNodeType;
+
+import junit.framework.TestCase;
+
+public class TestStatisticsCostModel extends TestCase {
+
+    private HSQLInterface m_hsql;
+    private Database m_db;
+
+    @Override
+    protected void setUp() throws Exception {
+        String schemaPath = URLDecoder.decode(
+                TestStatisticsCostModel.class.getResource("testplans-statistics-ddl.sql").getPath(), "UTF-8");
+        VoltCompiler compiler = new VoltCompiler(false);
+        m_hsql = HSQLInterface.loadHsqldb(ParameterizationInfo.getParamStateManager());
+        compiler.loadSchema(m_hsql, DdlProceduresToLoad.NO_DDL_PROCEDURES, schemaPath);
+        m_db = compiler.getCatalogDatabase();
+    }
+
+    private static VoltTable tableStats(Object[]... rows) {
+        VoltTable stats = new VoltTable(
+                new ColumnInfo("TABLE_NAME", VoltType.STRING),
+                new ColumnInfo("TABLE_TYPE", VoltType.STRING),
+                new ColumnInfo("TUPLE_COUNT", VoltType.BIGINT));
+        for (Object[] row : rows) {
+            stats.addRow(row);
+        }
+        return stats;
+    }
+
+    private static VoltTable indexStats(Object[]... rows) {
+        VoltTable stats = new VoltTable(
+                new ColumnInfo("INDEX_NAME", VoltType.STRING),
+                new ColumnInfo("TABLE_NAME", VoltType.STRING),
+                new ColumnInfo("ENTRY_COUNT", VoltType.BIGINT));
+        for (Object[] row : rows) {
+            stats.addRow(row);
+        }
+        return stats;
+    }
+
+    private static StatisticsCostModel costModel(VoltTable tableStats, VoltTable indexStats) {
+        List<Map<String, Long>> tupleCounts =
+                Collections.singletonList(StatisticsCostModel.readTupleCounts(tableStats));
+        List<Map<String, Map<String, Long>>> indexEntries =
+                Collections.singletonList(StatisticsCostModel.readIndexEntries(indexStats));
+        return new StatisticsCostModel(tupleCounts, indexEntries);
+    }
+
+    /** @return the name of the table scanned by the outer side of the plan's index join */
+    private String outerTableOfJoin(String sql, StatisticsCostModel costModel) {
+        QueryPlanner planner = new QueryPlanner(sql, "stmt", "proc", m_db,
+                StatementPartitioning.forceSP(), m_hsql, costModel.getEstimates(), true,
+                costModel, null, null, DeterminismMode.SAFER, false);
+        CompiledPlan plan;
+        synchronized (QueryPlanner.class) {
+            planner.parse();
+            plan = planner.plan();
+        }
+        assertNotNull(plan);
+        List<AbstractPlanNode> joins = plan.rootPlanGraph.findAllNodesOfType(PlanNodeType.NESTLOOPINDEX);
+        assertEquals(1, joins.size());
+        NestLoopIndexPlanNode join = (NestLoopIndexPlanNode) joins.get(0);
+        return ((AbstractScanPlanNode) join.getChild(0)).getTargetTableName();
+    }
+
+    public void testBuildEstimates() {
+        VoltTable site1Tables = tableStats(
+                new Object[] {"ORDERS", "PersistentTable", 250000L},
+                new Object[] {"CUSTOMERS", "PersistentTable", 10L},
+                new Object[] {"EXPORTED", "StreamedTable", 500000L});
+        VoltTable site2Tables = tableStats(
+                new Object[] {"ORDERS", "PersistentTable", 300000L},
+                new Object[] {"CUSTOMERS", "PersistentTable", 5000L});
+        VoltTable site1Indexes = indexStats(
+                new Object[] {"ORDERS_CUSTOMER", "ORDERS", 250000L});
+        VoltTable site2Indexes = indexStats(
+                new Object[] {"ORDERS_CUSTOMER", "ORDERS", 300000L});
+
+        @SuppressWarnings("unchecked")
+        DatabaseEstimates estimates = StatisticsCostModel.buildEstimates(
+                Arrays.asList(StatisticsCostModel.readTupleCounts(site1Tables),
+                                        StatisticsCostModel.readTupleCounts(site2Tables)),
+                Arrays.asList(StatisticsCostModel.readIndexEntries(site1Indexes),
+                                        StatisticsCostModel.readIndexEntries(site2Indexes)));
+
+        // The largest partition sets the estimate.
+        TableEstimates orders = estimates.getEstimatesForTable("ORDERS");
+        assertEquals(300000L, orders.maxTuples);
+        assertEquals(250000L, orders.minTuples);
+        assertEquals(Long.valueOf(300000L), orders.indexEntries.get("ORDERS_CUSTOMER"));
+
+        // Nearly empty partitions are costed at the floor.
+        TableEstimates customers = estimates.getEstimatesForTable("CUSTOMERS");
+        assertEquals(5000L, customers.maxTuples);
+        assertEquals(StatisticsCostModel.MIN_TUPLE_ESTIMATE, customers.minTuples);
+        assertTrue(customers.indexEntries.isEmpty());
+
+        // Streams aren't scanned, and unreported tables keep the defaults.
+        TableEstimates defaults = new TableEstimates();
+        assertEquals(defaults.maxTuples, estimates.getEstimatesForTable("EXPORTED").maxTuples);
+        assertEquals(defaults.maxTuples, estimates.getEstimatesForTable("UNKNOWN").maxTuples);
+
+        // Reading the statistics leaves them ready to be read again.
+        assertEquals(3, site1Tables.getRowCount());
+        assertTrue(site1Tables.advanceRow());
+        assertEquals("ORDERS", site1Tables.getString("TABLE_NAME"));
+    }
+
+    public void testIsOutdated() {
+        StatisticsCostModel costModel = costModel(
+                tableStats(new Object[] {"ORDERS", "PersistentTable", 100000L},
+                           new Object[] {"CUSTOMERS", "PersistentTable", 10L}),
+                null);
+
+        // Modest growth and shrinkage keep the plans.
+        assertFalse(costModel.isOutdated(StatisticsCostModel.tupleEstimates(Collections.singletonList(
+                StatisticsCostModel.readTupleCounts(
+                        tableStats(new Object[] {"ORDERS", "PersistentTable", 190000L},
+                                   new Object[] {"CUSTOMERS", "PersistentTable", 1500L}))), true)));
+        assertFalse(costModel.isOutdated(StatisticsCostModel.tupleEstimates(Collections.singletonList(
+                StatisticsCostModel.readTupleCounts(
+                        tableStats(new Object[] {"ORDERS", "PersistentTable", 60000L}))), true)));
+
+        // A table that doubled or halved, or a new table, outdates them.
+        assertTrue(costModel.isOutdated(StatisticsCostModel.tupleEstimates(Collections.singletonList(
+                StatisticsCostModel.readTupleCounts(
+                        tableStats(new Object[] {"ORDERS", "PersistentTable", 210000L}))), true)));
+        assertTrue(costModel.isOutdated(StatisticsCostModel.tupleEstimates(Collections.singletonList(
+                StatisticsCostModel.readTupleCounts(
+                        tableStats(new Object[] {"ORDERS", "PersistentTable", 40000L}))), true)));
+        assertTrue(costModel.isOutdated(StatisticsCostModel.tupleEstimates(Collections.singletonList(
+                StatisticsCostModel.readTupleCounts(
+                        tableStats(new Object[] {"ORDER_LINES", "PersistentTable", 10L}))), true)));
+    }
+
+    public void testJoinOrderFollowsTableSizes() {
+        String sql = "SELECT * FROM ORDERS O, CUSTOMERS C WHERE O.CUSTOMER_ID = C.ID";
+
+        // The smaller table is scanned and the larger one is probed through its index.
+        StatisticsCostModel fewCustomers = costModel(
+                tableStats(new Object[] {"ORDERS", "PersistentTable", 1000000L},
+                           new Object[] {"CUSTOMERS", "PersistentTable", 2000L}),
+                indexStats(new Object[] {"ORDERS_CUSTOMER", "ORDERS", 1000000L},
+                           new Object[] {"CUSTOMERS_ID", "CUSTOMERS", 2000L}));
+        assertEquals("CUSTOMERS", outerTableOfJoin(sql, fewCustomers));
+
+        StatisticsCostModel fewOrders = costModel(
+                tableStats(new Object[] {"ORDERS", "PersistentTable", 2000L},
+                           new Object[] {"CUSTOMERS", "PersistentTable", 1000000L}),
+                indexStats(new Object[] {"ORDERS_CUSTOMER", "ORDERS", 2000L},
+                           new Object[] {"CUSTOMERS_ID", "CUSTOMERS", 1000000L}));
+        assertEquals("ORDERS", outerTableOfJoin(sql, fewOrders));
+    }
+}
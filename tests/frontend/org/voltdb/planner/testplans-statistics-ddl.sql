@@ -0,0 +1,11 @@
+CREATE TABLE ORDERS (
+	ID INTEGER NOT NULL,
+	CUSTOMER_ID INTEGER NOT NULL
+);
+CREATE INDEX ORDERS_CUSTOMER ON ORDERS (CUSTOMER_ID);
+
+CREATE TABLE CUSTOMERS (
+	ID INTEGER NOT NULL,
+	REGION INTEGER NOT NULL
+);
+CREATE INDEX CUSTOMERS_ID ON CUSTOMERS (ID);
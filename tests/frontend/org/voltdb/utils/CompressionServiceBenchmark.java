@@ -0,0 +1,73 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2017 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import org.voltdb.HotPathJapexDriver;
+
+import com.sun.japex.TestCase;
+
+/**
+ * Japex driver that compresses and decompresses a direct buffer of table-like
+ * data with the CompressionService, as snapshots, export and the PBD do.
+ * Each iteration is one round trip of a {@code size} byte buffer.
+ */
+public class CompressionServiceBenchmark extends HotPathJapexDriver {
+
+    private ByteBuffer m_input;
+    private ByteBuffer m_compressed;
+    private ByteBuffer m_output;
+
+    @Override
+    public void prepare(TestCase testCase) {
+        final int size = testCase.hasParam("size") ? testCase.getIntParam("size") : 64 * 1024;
+        // rows of a small key space and random values, roughly as compressible as real tables
+        m_input = ByteBuffer.allocateDirect(size);
+        Random r = new Random(42);
+        while (m_input.remaining() >= 16) {
+            m_input.putLong(r.nextInt(1000));
+            m_input.putLong(r.nextLong());
+        }
+        m_input.clear();
+        m_compressed = ByteBuffer.allocateDirect(CompressionService.maxCompressedLength(size));
+        m_output = ByteBuffer.allocateDirect(size);
+    }
+
+    @Override
+    public void run(TestCase testCase) {
+        try {
+            m_input.clear();
+            m_compressed.clear();
+            m_output.clear();
+            final int compressedSize = CompressionService.compressBuffer(m_input, m_compressed);
+            m_compressed.limit(compressedSize);
+            m_sink += CompressionService.decompressBuffer(m_compressed, m_output);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2017 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Random;
+
+import org.voltcore.logging.VoltLogger;
+import org.voltcore.utils.DBBPool;
+import org.voltcore.utils.DBBPool.BBContainer;
+import org.voltdb.HotPathJapexDriver;
+import org.voltdb.utils.BinaryDeque.BinaryDequeReader;
+
+import com.sun.japex.TestCase;
+
+/**
+ * Japex driver that offers export-sized buffers to a PersistentBinaryDeque and
+ * polls them back, through the file system and, unless {@code compress} is false,
+ * compression. Each iteration offers and then polls {@code objects} buffers of
+ * {@code size} bytes.
+ */
+public class PersistentBinaryDequeBenchmark extends HotPathJapexDriver {
+
+    private static final String CURSOR_ID = "benchmark";
+
+    private File m_dir;
+    private PersistentBinaryDeque m_pbd;
+    private BinaryDequeReader m_reader;
+    private ByteBuffer m_data;
+    private int m_objects;
+    private boolean m_compress;
+
+    @Override
+    public void prepare(TestCase testCase) {
+        final int size = testCase.hasParam("size") ? testCase.getIntParam("size") : 256 * 1024;
+        m_objects = testCase.hasParam("objects") ? testCase.getIntParam("objects") : 16;
+        m_compress = testCase.hasParam("compress") ? testCase.getBooleanParam("compress") : true;
+        m_data = ByteBuffer.allocateDirect(size);
+        Random r = new Random(42);
+        while (m_data.remaining() >= 16) {
+            m_data.putLong(r.nextInt(1000));
+            m_data.putLong(r.nextLong());
+        }
+        m_data.clear();
+        try {
+            m_dir = Files.createTempDirectory("pbdbench").toFile();
+            m_pbd = new PersistentBinaryDeque("benchmark", m_dir, new VoltLogger("EXPORT"));
+            m_reader = m_pbd.openForRead(CURSOR_ID);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public void run(TestCase testCase) {
+        try {
+            for (int i = 0; i < m_objects; i++) {
+                // the deque discards what it is offered, which is a no-op for a wrapper
+                m_pbd.offer(DBBPool.dummyWrapBB(m_data.duplicate()), m_compress);
+            }
+            for (int i = 0; i < m_objects; i++) {
+                BBContainer cont = m_reader.poll(PersistentBinaryDeque.UNSAFE_CONTAINER_FACTORY);
+                m_sink += cont.b().remaining();
+                cont.discard();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public void finish(TestCase testCase) {
+        super.finish(testCase);
+        try {
+            m_pbd.closeAndDelete();
+            VoltFile.recursivelyDelete(m_dir);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -35,6 +35,8 @@ import java.nio.ByteBuffer;
 import java.util.Random;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import junit.framework.Assert;
 
@@ -471,6 +473,143 @@ public class TestPersistentBinaryDeque {
         retval.discard();
     }
 
+    @Test
+    public void testOfferAsyncThenPoll() throws Exception {
+        System.out.println("Running testOfferAsyncThenPoll");
+        BinaryDequeReader reader = m_pbd.openForRead(CURSOR_ID);
+
+        //Staged objects are visible to the reader, in order with the synchronous offers
+        Future<?> first = m_pbd.offerAsync(DBBPool.wrapBB(getFilledBuffer(0)), true);
+        m_pbd.offer(DBBPool.wrapBB(getFilledBuffer(1)));
+        Future<?> last = null;
+        for (int ii = 2; ii < 40; ii++) {
+            last = m_pbd.offerAsync(DBBPool.wrapBB(getFilledBuffer(ii)), true);
+        }
+        assertEquals(40, reader.getNumObjects());
+
+        first.get();
+        last.get();
+        for (int ii = 0; ii < 40; ii++) {
+            BBContainer cont = reader.poll(PersistentBinaryDeque.UNSAFE_CONTAINER_FACTORY);
+            assertEquals(ii, cont.b().getLong(0));
+            cont.discard();
+        }
+        assertNull(reader.poll(PersistentBinaryDeque.UNSAFE_CONTAINER_FACTORY));
+    }
+
+    @Test
+    public void testPollStagedObjectsFromMemory() throws Exception {
+        System.out.println("Running testPollStagedObjectsFromMemory");
+        BinaryDequeReader reader = m_pbd.openForRead(CURSOR_ID);
+        m_pbd.offer(DBBPool.wrapBB(getFilledBuffer(0)));
+
+        Future<?> last = null;
+        BBContainer polled[] = new BBContainer[5];
+        //Holding the lock of the deque keeps the writer from writing the staged objects
+        synchronized (m_pbd) {
+            for (int ii = 1; ii < 10; ii++) {
+                last = m_pbd.offerAsync(DBBPool.wrapBB(getFilledBuffer(ii)), true);
+                assertNotNull(last);
+            }
+            assertEquals(10, reader.getNumObjects());
+            assertEquals(10, m_pbd.getBufferCountAndSize().getFirst().intValue());
+            for (int ii = 0; ii < 5; ii++) {
+                polled[ii] = reader.poll(PersistentBinaryDeque.UNSAFE_CONTAINER_FACTORY);
+                assertEquals(ii, polled[ii].b().getLong(0));
+            }
+            assertEquals(5, reader.getNumObjects());
+            assertFalse(reader.isEmpty());
+            assertFalse(last.isDone());
+        }
+        //Discard one copy before its object is written and the others after
+        polled[1].discard();
+        last.get();
+        for (int ii = 0; ii < 5; ii++) {
+            if (ii != 1) {
+                polled[ii].discard();
+            }
+        }
+
+        //The cursor skips over the objects it already polled from memory
+        assertEquals(5, reader.getNumObjects());
+        for (int ii = 5; ii < 10; ii++) {
+            BBContainer cont = reader.poll(PersistentBinaryDeque.UNSAFE_CONTAINER_FACTORY);
+            assertEquals(ii, cont.b().getLong(0));
+            cont.discard();
+        }
+        assertNull(reader.poll(PersistentBinaryDeque.UNSAFE_CONTAINER_FACTORY));
+        assertTrue(reader.isEmpty());
+        assertEquals(0, reader.getNumObjects());
+    }
+
+    @Test
+    public void testOfferAsyncRefusedWhenStagingIsFull() throws Exception {
+        System.out.println("Running testOfferAsyncRefusedWhenStagingIsFull");
+        BinaryDequeReader reader = m_pbd.openForRead(CURSOR_ID);
+        ByteBuffer first = getFilledBuffer(0);
+        m_pbd.setAsyncStagingLimitForTest(first.remaining() + 1);
+
+        Future<?> written;
+        synchronized (m_pbd) {
+            written = m_pbd.offerAsync(DBBPool.wrapBB(first), true);
+            assertNotNull(written);
+            //The caller keeps the refused container and offers it synchronously
+            BBContainer refused = DBBPool.wrapBB(getFilledBuffer(1));
+            assertNull(m_pbd.offerAsync(refused, true));
+            m_pbd.offer(refused);
+        }
+        written.get();
+        m_pbd.offerAsync(DBBPool.wrapBB(getFilledBuffer(2)), true).get();
+
+        for (int ii = 0; ii < 3; ii++) {
+            BBContainer cont = reader.poll(PersistentBinaryDeque.UNSAFE_CONTAINER_FACTORY);
+            assertEquals(ii, cont.b().getLong(0));
+            cont.discard();
+        }
+        assertNull(reader.poll(PersistentBinaryDeque.UNSAFE_CONTAINER_FACTORY));
+    }
+
+    @Test
+    public void testOfferAsyncFailsWhenClosed() throws Exception {
+        System.out.println("Running testOfferAsyncFailsWhenClosed");
+        m_pbd.close();
+        try {
+            m_pbd.offerAsync(DBBPool.wrapBB(ByteBuffer.allocate(20)), false).get();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IOException);
+            return;
+        }
+        fail();
+    }
+
+    @Test
+    public void testPollSealedSegmentsKeepsMappedEntries() throws Exception {
+        System.out.println("Running testPollSealedSegmentsKeepsMappedEntries");
+        //Heap buffers aren't compressed, so they are polled as slices of the mapped segments
+        for (int ii = 0; ii < 96; ii++) {
+            ByteBuffer buf = ByteBuffer.allocate(1024 * 1024 * 2);
+            buf.put(getFilledBuffer(ii));
+            buf.flip();
+            m_pbd.offer(DBBPool.wrapBB(buf));
+        }
+        m_pbd.close();
+        m_pbd = new PersistentBinaryDeque(TEST_NONCE, TEST_DIR, logger);
+        BinaryDequeReader reader = m_pbd.openForRead(CURSOR_ID);
+
+        //Hold on to the entries while the reader moves on and closes their segments
+        BBContainer polled[] = new BBContainer[96];
+        for (int ii = 0; ii < 96; ii++) {
+            polled[ii] = reader.poll(PersistentBinaryDeque.UNSAFE_CONTAINER_FACTORY);
+            assertNotNull(polled[ii]);
+        }
+        assertNull(reader.poll(PersistentBinaryDeque.UNSAFE_CONTAINER_FACTORY));
+        for (int ii = 0; ii < 96; ii++) {
+            assertEquals(getFilledBuffer(ii), polled[ii].b());
+            polled[ii].discard();
+        }
+        assertTrue(reader.isEmpty());
+    }
+
     @Test
     public void testCloseOldSegments() throws Exception {
         System.out.println("Running testCloseOldSegments");
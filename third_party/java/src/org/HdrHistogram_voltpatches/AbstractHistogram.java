@@ -2250,7 +2250,8 @@ public abstract class AbstractHistogram extends AbstractHistogramBase implements
         for (int ii = 0; ii < h.countsArrayLength; ii++) {
             h.counts[ii] = newer.counts[ii] - older.counts[ii];
         }
-        h.reestablishTotalCount();
+        // the min and max values are needed to encode the histogram, not just the total count
+        h.establishInternalTackingValues();
         return h;
     }
 